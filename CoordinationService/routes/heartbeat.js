@@ -61,19 +61,27 @@ router.get('/table', function getServiceTable(req, res, next) {
   connection.end();
 });
 
-/* sets status */
+/* sets status, a delta heartbeat only refreshes a registered service and carries its status and resources when they changed */
 router.post('/setStatus', function handleHeartbeatMsg(req, res, next) {
   var currentdate = Date.now();
   var newService = req.body;
   //Extracting IP address
   var parsedUrl = url.parse(newService['ip']);
   var ipAddress = parsedUrl.host;
+  if (newService['delta']) {
+    handleDeltaHeartbeat(ipAddress, newService['status'], newService['resources'], currentdate, res);
+    return;
+  }
   //Connect to DB
   var connection = createDbConnection();
   connection.connect();
-  var sql = 'insert into connected_services (ip_address, type, name, description, status, last_updated) values (\'' + ipAddress + '\',\'' + newService['type'] + '\',\'' + newService['name'] + '\',\'' + newService['description'] + '\',\'' + JSON.stringify(newService['status']) + '\',' + currentdate + ') on duplicate key update type=\'' + newService['type'] + '\', name=\'' + newService['name'] + '\', description=\'' + newService['description'] + '\', status=\'' + JSON.stringify(newService['status']) + '\', last_updated=' + currentdate;
+  var status = JSON.stringify(newService['status']);
+  var resources = toJsonOrNull(newService['resources']);
+  var sql = 'insert into connected_services (ip_address, type, name, description, status, resources, last_updated) values (?,?,?,?,?,?,?) on duplicate key update type=?, name=?, description=?, status=?, resources=?, last_updated=?';
+  var params = [ipAddress, newService['type'], newService['name'], newService['description'], status, resources, currentdate,
+    newService['type'], newService['name'], newService['description'], status, resources, currentdate];
   logMessage(false, log.operationType.QueryData, new Date(), sql);
-  connection.query(sql, function checkUpdateOperationStatus(err, result) {
+  connection.query(sql, params, function checkUpdateOperationStatus(err, result) {
     if (err) {
       res.json({ response: err });
     } else {
@@ -83,6 +91,40 @@ router.post('/setStatus', function handleHeartbeatMsg(req, res, next) {
   connection.end();
 });
 
+/* refreshes a registered service, answers unknown when it has to register again with a full heartbeat */
+function handleDeltaHeartbeat(ipAddress, status, resources, currentdate, res) {
+  var connection = createDbConnection();
+  connection.connect();
+  var sql = 'update connected_services set last_updated=?';
+  var params = [currentdate];
+  if (status !== undefined && status !== null) {
+    sql += ', status=?';
+    params.push(JSON.stringify(status));
+  }
+  if (resources !== undefined && resources !== null) {
+    sql += ', resources=?';
+    params.push(JSON.stringify(resources));
+  }
+  sql += ' where ip_address=?';
+  params.push(ipAddress);
+  logMessage(false, log.operationType.QueryData, new Date(), sql);
+  connection.query(sql, params, function checkDeltaUpdateStatus(err, result) {
+    if (err) {
+      res.json({ response: err });
+    } else if (result.affectedRows === 0) {
+      res.json({ response: 'unknown' });
+    } else {
+      res.json({ response: 'success' });
+    }
+  });
+  connection.end();
+}
+
+/* resources are only reported by execution services */
+function toJsonOrNull(value) {
+  return value === undefined || value === null ? null : JSON.stringify(value);
+}
+
 /*Get errors_log items */
 router.get('/getErrLog', function getErrLog(req, res, next) {
   var connection = createLogDbConnection();
@@ -0,0 +1,85 @@
+package com.chaosmonkeys.benchmark;
+
+import com.chaosmonkeys.Utilities.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Folders and generated files shared by the benchmarks
+ */
+final class BenchmarkFiles {
+
+    // RAM backed folder on Linux, the default temporary folder elsewhere
+    private static final File TMPFS = new File("/dev/shm");
+    // on the build disk, next to the results
+    private static final File DISK = new File("target", "jmh-work");
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private BenchmarkFiles() {
+    }
+
+    /**
+     * Create a fresh working folder
+     * @param storage "tmpfs", "disk" or the path of a folder, e.g. passed with -p storage=/mnt/ssd
+     */
+    static File createWorkDir(String storage) throws IOException {
+        File root;
+        if ("tmpfs".equals(storage)) {
+            root = TMPFS.isDirectory() && TMPFS.canWrite() ? TMPFS : new File(System.getProperty("java.io.tmpdir"));
+        } else if ("disk".equals(storage)) {
+            root = DISK;
+        } else {
+            root = new File(storage);
+        }
+        if (!root.isDirectory() && !root.mkdirs()) {
+            throw new IOException("Cannot create benchmark folder " + root);
+        }
+        return Files.createTempDirectory(root.toPath(), "jmh-").toFile();
+    }
+
+    /**
+     * Write a file of random bytes, random so that file systems cannot compress or dedupe it
+     */
+    static File createFile(File file, long size, long seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+        try (OutputStream out = new FileOutputStream(file)) {
+            long left = size;
+            while (left > 0) {
+                random.nextBytes(buffer);
+                int length = (int) Math.min(buffer.length, left);
+                out.write(buffer, 0, length);
+                left -= length;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Create a tree holding totalBytes split over fileNum files, spread over depth levels of folders
+     */
+    static File createTree(File root, long totalBytes, int fileNum, int depth) throws IOException {
+        long fileSize = Math.max(1, totalBytes / fileNum);
+        for (int i = 0; i < fileNum; i++) {
+            File folder = root;
+            // files go round the levels so every folder holds some of them
+            for (int level = 0; level < i % depth; level++) {
+                folder = new File(folder, "level" + level);
+            }
+            if (!folder.isDirectory() && !folder.mkdirs()) {
+                throw new IOException("Cannot create folder " + folder);
+            }
+            createFile(new File(folder, "part-" + i + ".bin"), fileSize, i);
+        }
+        return root;
+    }
+
+    static void delete(File file) {
+        FileUtils.deleteQuietly(file);
+    }
+}
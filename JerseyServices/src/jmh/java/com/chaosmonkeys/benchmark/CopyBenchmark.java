@@ -0,0 +1,91 @@
+package com.chaosmonkeys.benchmark;
+
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.Utilities.StagingMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying and staging dataset and algorithm trees into a workspace
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CopyBenchmark {
+
+    @Param({"1", "64", "512"})
+    public int totalMB;
+
+    // tree shapes: one big file, a flat folder of many files, many files spread over nested folders
+    @Param({"1x1", "256x1", "256x8"})
+    public String shape;
+
+    @Param({"tmpfs", "disk"})
+    public String storage;
+
+    private File workDir;
+    private File source;
+    private File singleFile;
+    private File target;
+
+    @Setup(Level.Trial)
+    public void createSource() throws IOException {
+        String[] dimensions = shape.split("x");
+        workDir = BenchmarkFiles.createWorkDir(storage);
+        source = BenchmarkFiles.createTree(new File(workDir, "source"), totalMB * 1024L * 1024L,
+                Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        singleFile = new File(source, "part-0.bin");
+    }
+
+    @Setup(Level.Invocation)
+    public void chooseTarget() {
+        target = new File(workDir, "target");
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteTarget() {
+        BenchmarkFiles.delete(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSource() {
+        BenchmarkFiles.delete(workDir);
+    }
+
+    @Benchmark
+    public File copyFile() throws IOException {
+        File copy = new File(target, singleFile.getName());
+        FileUtils.copyFile(singleFile, copy);
+        return copy;
+    }
+
+    @Benchmark
+    public File copyDirectory() throws IOException {
+        FileUtils.copyDirectory(source, target);
+        return target;
+    }
+
+    @Benchmark
+    public File stageDirectoryCopy() throws IOException {
+        FileUtils.stageDirectory(source, target, StagingMode.COPY);
+        return target;
+    }
+
+    @Benchmark
+    public File stageDirectoryLink() throws IOException {
+        FileUtils.stageDirectory(source, target, StagingMode.LINK);
+        return target;
+    }
+}
@@ -0,0 +1,70 @@
+package com.chaosmonkeys.benchmark;
+
+import com.chaosmonkeys.Utilities.DataVerification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating uploaded JSON datasets, an array of flat records
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonValidationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int recordNum;
+
+    @Param({"tmpfs", "disk"})
+    public String storage;
+
+    private File workDir;
+    private DataVerification verification;
+
+    @Setup(Level.Trial)
+    public void createDataset() throws IOException {
+        workDir = BenchmarkFiles.createWorkDir(storage);
+        File dataset = new File(workDir, "dataset.json");
+        Random random = new Random(11);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dataset), StandardCharsets.UTF_8))) {
+            out.write('[');
+            for (int i = 0; i < recordNum; i++) {
+                if (i > 0) {
+                    out.write(",\n");
+                }
+                out.write("{\"id\":" + i + ",\"sepal_length\":" + random.nextDouble() * 8
+                        + ",\"species\":\"" + (random.nextBoolean() ? "setosa" : "virginica") + "\",\"valid\":" + random.nextBoolean() + "}");
+            }
+            out.write(']');
+        }
+        verification = new DataVerification(dataset);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDataset() {
+        BenchmarkFiles.delete(workDir);
+    }
+
+    @Benchmark
+    public boolean isJSONValid() {
+        return verification.isJSONValid();
+    }
+}
@@ -0,0 +1,92 @@
+package com.chaosmonkeys.benchmark;
+
+import com.chaosmonkeys.Utilities.FileReceiver;
+import com.chaosmonkeys.Utilities.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storing uploaded streams, as the upload resources do
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReceiveBenchmark {
+
+    @Param({"1", "64", "256"})
+    public int sizeMB;
+
+    @Param({"tmpfs", "disk"})
+    public String storage;
+
+    private File workDir;
+    private File sourceFile;
+    private byte[] content;
+    private File target;
+
+    @Setup(Level.Trial)
+    public void createSource() throws IOException {
+        workDir = BenchmarkFiles.createWorkDir(storage);
+        sourceFile = BenchmarkFiles.createFile(new File(workDir, "upload.bin"), sizeMB * 1024L * 1024L, 42);
+        content = Files.readAllBytes(sourceFile.toPath());
+        target = new File(workDir, "received.bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        BenchmarkFiles.delete(workDir);
+    }
+
+    /**
+     * A request body, read in the small chunks a socket gives
+     */
+    @Benchmark
+    public FileReceiver.ReceiveStats receiveStream() throws IOException {
+        try (InputStream in = new ChunkedInputStream(new ByteArrayInputStream(content))) {
+            return FileUtils.receiveFile(in, target, content.length);
+        }
+    }
+
+    /**
+     * A body buffered to a file by the container, transferred channel to channel
+     */
+    @Benchmark
+    public FileReceiver.ReceiveStats receiveFile() throws IOException {
+        try (InputStream in = new FileInputStream(sourceFile)) {
+            return FileUtils.receiveFile(in, target, sourceFile.length());
+        }
+    }
+
+    /**
+     * Returns at most 8 KB per read, like a socket stream
+     */
+    private static class ChunkedInputStream extends FilterInputStream {
+        private static final int CHUNK_SIZE = 8 * 1024;
+
+        ChunkedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, CHUNK_SIZE));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.chaosmonkeys.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files written with -rf json, e.g. of two commits
+ *
+ * Usage: ResultComparator baseline.json candidate.json [threshold percent, 10 by default]
+ * A benchmark regresses when it is slower by more than the threshold and by more than the error margins of both runs.
+ * The exit code is 1 if any benchmark regressed, so it can fail a build.
+ */
+public class ResultComparator {
+
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+    /**
+     * Score of one benchmark with one set of parameters
+     */
+    static class Score {
+        final double score;
+        final double error;
+        final String unit;
+        final boolean higherIsBetter;
+
+        Score(double score, double error, String unit, boolean higherIsBetter) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: ResultComparator baseline.json candidate.json [threshold percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        int regressions = compare(read(new File(args[0])), read(new File(args[1])), threshold, System.out);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * Print one line per benchmark found in both results
+     * @return number of regressions
+     */
+    static int compare(Map<String, Score> baseline, Map<String, Score> candidate, double thresholdPercent, PrintStream out) {
+        int regressions = 0;
+        out.println(String.format("%-90s %14s %14s %-8s %9s", "benchmark", "baseline", "candidate", "unit", "change"));
+        for (Map.Entry<String, Score> entry : new TreeMap<>(candidate).entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            if (null == before) {
+                continue;
+            }
+            Score after = entry.getValue();
+            // positive when the candidate is better, whatever the mode
+            double change = (after.score - before.score) / before.score * 100;
+            if (!after.higherIsBetter) {
+                change = -change;
+            }
+            boolean regressed = change < -thresholdPercent && Math.abs(after.score - before.score) > before.error + after.error;
+            if (regressed) {
+                regressions++;
+            }
+            out.println(String.format("%-90s %14.3f %14.3f %-8s %+8.1f%%%s", entry.getKey(), before.score, after.score, after.unit, change,
+                    regressed ? "  REGRESSION" : ""));
+        }
+        out.println(regressions + " regression(s), threshold " + thresholdPercent + "%");
+        return regressions;
+    }
+
+    static Map<String, Score> read(File resultFile) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(resultFile.toPath()), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * @return scores by benchmark name and parameters, e.g. CopyBenchmark.copyFile:shape=1x1,storage=disk,totalMB=64
+     */
+    static Map<String, Score> parse(Reader reader) {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        JsonArray results = new JsonParser().parse(reader).getAsJsonArray();
+        for (JsonElement element : results) {
+            JsonObject result = element.getAsJsonObject();
+            StringBuilder key = new StringBuilder(shortName(result.get("benchmark").getAsString()));
+            if (result.has("params")) {
+                // sorted so that the key does not depend on the order JMH wrote them in
+                Map<String, String> params = new TreeMap<>();
+                for (Map.Entry<String, JsonElement> param : result.getAsJsonObject("params").entrySet()) {
+                    params.put(param.getKey(), param.getValue().getAsString());
+                }
+                String separator = ":";
+                for (Map.Entry<String, String> param : params.entrySet()) {
+                    key.append(separator).append(param.getKey()).append('=').append(param.getValue());
+                    separator = ",";
+                }
+            }
+            JsonObject metric = result.getAsJsonObject("primaryMetric");
+            double error = metric.get("scoreError").isJsonPrimitive() ? safeDouble(metric.get("scoreError").getAsString()) : 0;
+            boolean higherIsBetter = "thrpt".equals(result.get("mode").getAsString());
+            scores.put(key.toString(), new Score(metric.get("score").getAsDouble(), error,
+                    metric.get("scoreUnit").getAsString(), higherIsBetter));
+        }
+        return scores;
+    }
+
+    private static String shortName(String benchmark) {
+        String prefix = ResultComparator.class.getPackage().getName() + ".";
+        return benchmark.startsWith(prefix) ? benchmark.substring(prefix.length()) : benchmark;
+    }
+
+    // JMH writes "NaN" when a benchmark ran a single iteration
+    private static double safeDouble(String value) {
+        try {
+            double parsed = Double.parseDouble(value);
+            return Double.isNaN(parsed) ? 0 : parsed;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
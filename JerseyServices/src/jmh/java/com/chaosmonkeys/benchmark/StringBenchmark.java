@@ -0,0 +1,56 @@
+package com.chaosmonkeys.benchmark;
+
+import com.chaosmonkeys.Utilities.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Case insensitive search, used to look for errors in every output line of R tasks
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringBenchmark {
+
+    // line length
+    @Param({"16", "256", "4096"})
+    public int length;
+
+    // where the keyword is: at the start, at the end, or nowhere, the usual case
+    @Param({"start", "end", "missing"})
+    public String position;
+
+    private String text;
+    private String search;
+
+    @Setup
+    public void createText() {
+        Random random = new Random(3);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        search = "error";
+        String needle = "ErRoR";
+        if ("start".equals(position)) {
+            builder.replace(0, Math.min(length, needle.length()), needle);
+        } else if ("end".equals(position)) {
+            builder.replace(Math.max(0, length - needle.length()), length, needle);
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public boolean containsIgnoreCase() {
+        return StringUtils.containsIgnoreCase(text, search);
+    }
+}
@@ -0,0 +1,103 @@
+package com.chaosmonkeys.benchmark;
+
+import com.chaosmonkeys.Utilities.ZipUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Extracting uploaded algorithm archives
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UnzipBenchmark {
+
+    @Param({"1", "64"})
+    public int totalMB;
+
+    @Param({"1", "1000"})
+    public int entryNum;
+
+    // random content does not compress, text does, which changes the cost of inflating
+    @Param({"random", "text"})
+    public String content;
+
+    @Param({"tmpfs", "disk"})
+    public String storage;
+
+    private File workDir;
+    private File archive;
+    private File target;
+
+    @Setup(Level.Trial)
+    public void createArchive() throws IOException {
+        workDir = BenchmarkFiles.createWorkDir(storage);
+        archive = new File(workDir, "algorithm.zip");
+        long entrySize = Math.max(1, totalMB * 1024L * 1024L / entryNum);
+        Random random = new Random(7);
+        byte[] buffer = new byte[64 * 1024];
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            for (int i = 0; i < entryNum; i++) {
+                zip.putNextEntry(new ZipEntry("src/part" + (i % 10) + "/file-" + i + ".R"));
+                long left = entrySize;
+                while (left > 0) {
+                    fill(buffer, random);
+                    int length = (int) Math.min(buffer.length, left);
+                    zip.write(buffer, 0, length);
+                    left -= length;
+                }
+                zip.closeEntry();
+            }
+        }
+        // leave room for the largest archive whatever the configured limits are
+        ZipUtils.setLimits(Math.max(1024, totalMB * 2L), Math.max(10000, entryNum * 2));
+    }
+
+    private void fill(byte[] buffer, Random random) {
+        if ("random".equals(content)) {
+            random.nextBytes(buffer);
+            return;
+        }
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = (byte) ('a' + random.nextInt(8));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void chooseTarget() throws IOException {
+        target = Files.createTempDirectory(workDir.toPath(), "unzip-").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteTarget() {
+        BenchmarkFiles.delete(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteArchive() {
+        BenchmarkFiles.delete(workDir);
+    }
+
+    @Benchmark
+    public File unzip() throws IOException {
+        ZipUtils.unzip(archive, target);
+        return target;
+    }
+}
@@ -0,0 +1,222 @@
+package com.chaosmonkeys.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * H2 database in MySQL mode standing in for the MySQL server of the services
+ *
+ * The databases are files in the load test folder, AUTO_SERVER lets the service processes connect
+ * while this process keeps them open. Tables are created from the mysqldump files of the SQL folder.
+ */
+class EmbeddedDatabase implements AutoCloseable {
+
+    static final String DRIVER = "org.h2.Driver";
+    // appended to the database URLs instead of the MySQL SSL options
+    static final String OPTIONS = ";MODE=MySQL;AUTO_SERVER=TRUE";
+    static final String USER = "sa";
+    // names used by DbUtils and the @DbName of the models
+    static final String CONFIG_DB_NAME = "ConfigurationDatabase";
+    static final String LOG_DB_NAME = "logdatabase";
+    // "CREATE TABLE `datasets` (" and "  UNIQUE KEY `name_UNIQUE` (`name`)," of a mysqldump file
+    private static final Pattern TABLE_NAME = Pattern.compile("^CREATE TABLE `([^`]+)`");
+    private static final Pattern INDEX_NAME = Pattern.compile("^(\\s*(?:UNIQUE KEY|KEY|CONSTRAINT)\\s+)`([^`]+)`");
+
+    private final String baseUrl;
+    private final Connection connection;
+    private final Connection logConnection;
+
+    /**
+     * Create both databases in a folder
+     * @param folder database files, should be empty
+     * @param schema dump of the configuration database
+     * @param logSchema dump of the log database
+     */
+    EmbeddedDatabase(File folder, File schema, File logSchema) throws IOException, SQLException {
+        try {
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("H2 is not on the classpath, run the load test with the loadtest profile", e);
+        }
+        baseUrl = "jdbc:h2:" + folder.getAbsolutePath() + File.separator;
+        connection = DriverManager.getConnection(baseUrl + CONFIG_DB_NAME + OPTIONS, USER, "");
+        logConnection = DriverManager.getConnection(baseUrl + LOG_DB_NAME + OPTIONS, USER, "");
+        execute(connection, tableStatements(Files.readAllLines(schema.toPath(), StandardCharsets.UTF_8)));
+        execute(logConnection, tableStatements(Files.readAllLines(logSchema.toPath(), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return JVM options pointing DbUtils of a service process at these databases
+     */
+    List<String> getSystemProperties() {
+        return Arrays.asList("-Djdbc.baseurl=" + baseUrl, "-Djdbc.options=" + OPTIONS, "-Djdbc.driver=" + DRIVER,
+                "-Djdbc.username=" + USER, "-Djdbc.password=");
+    }
+
+    private static void execute(Connection connection, List<String> statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Keep the CREATE TABLE and INSERT statements of a mysqldump file, without the MySQL table options
+     * and without backquotes, so that H2 folds the names to upper case like the unquoted names of the queries.
+     * Index names are prefixed with the table name, they only need to be unique per table in MySQL
+     * but per schema in H2, e.g. name_UNIQUE of several tables.
+     * @param lines content of the dump
+     */
+    static List<String> tableStatements(List<String> lines) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder table = null;
+        String tableName = null;
+        for (String line : lines) {
+            if (null != table) {
+                if (line.startsWith(")")) {
+                    // ") ENGINE=InnoDB AUTO_INCREMENT=3 DEFAULT CHARSET=utf8;"
+                    statements.add(table.append(")").toString());
+                    table = null;
+                } else {
+                    Matcher index = INDEX_NAME.matcher(line);
+                    if (index.find()) {
+                        line = index.replaceFirst(Matcher.quoteReplacement(index.group(1) + tableName + "_" + index.group(2)));
+                    }
+                    table.append(line.replace("`", "")).append('\n');
+                }
+            } else if (line.startsWith("CREATE TABLE")) {
+                Matcher name = TABLE_NAME.matcher(line);
+                tableName = name.find() ? name.group(1) : "";
+                table = new StringBuilder(line.replace("`", "")).append('\n');
+            } else if (line.startsWith("INSERT INTO")) {
+                String insert = line.replace("`", "").trim();
+                statements.add(insert.endsWith(";") ? insert.substring(0, insert.length() - 1) : insert);
+            }
+        }
+        return statements;
+    }
+
+    //** Records of the load ----------------------------------------------------------------------
+
+    /**
+     * @return id of the record, -1 if there is none
+     */
+    synchronized int findId(String table, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM " + table + " WHERE name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Register a model folder, as the training service does after a successful training
+     * @return id of the model
+     */
+    synchronized int insertModel(String name, File folder) throws SQLException {
+        return insert("INSERT INTO models (name, description, path, experiment_id) VALUES (?, ?, ?, 0)",
+                name, "load test model", folder.getAbsolutePath());
+    }
+
+    /**
+     * Create a task and its experiment, as the frontend does before starting it
+     * @param modelId model of an execution task, ignored for a training task
+     */
+    synchronized void insertExperiment(String name, String taskType, int datasetId, int algorithmId, int modelId) throws SQLException {
+        int taskId;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO tasks (dataset_id, algorithm_id, model_id, name, description, type) VALUES (?, ?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            statement.setInt(1, datasetId);
+            statement.setInt(2, algorithmId);
+            if ("Execution".equals(taskType)) {
+                statement.setInt(3, modelId);
+            } else {
+                statement.setNull(3, java.sql.Types.INTEGER);
+            }
+            statement.setString(4, name);
+            statement.setString(5, "load test task");
+            statement.setString(6, taskType);
+            statement.executeUpdate();
+            taskId = generatedKey(statement);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO experiments (task_id, experiment_name, description) VALUES (?, ?, ?)")) {
+            statement.setInt(1, taskId);
+            statement.setString(2, name);
+            statement.setString(3, "load test experiment");
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * @return last status written by the services, null if none has been written yet
+     */
+    synchronized String getExperimentStatus(String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT last_status FROM experiments WHERE experiment_name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * @return number of experiments per last status, NONE for experiments that never ran
+     */
+    synchronized Map<String, Integer> countExperimentsByStatus() throws SQLException {
+        Map<String, Integer> counts = new TreeMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(last_status, 'NONE'), COUNT(*) FROM experiments GROUP BY last_status")) {
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return counts;
+    }
+
+    private int insert(String sql, String... values) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < values.length; i++) {
+                statement.setString(i + 1, values[i]);
+            }
+            statement.executeUpdate();
+            return generatedKey(statement);
+        }
+    }
+
+    private static int generatedKey(Statement statement) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("No id generated");
+            }
+            return keys.getInt(1);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            connection.close();
+        } finally {
+            logConnection.close();
+        }
+    }
+}
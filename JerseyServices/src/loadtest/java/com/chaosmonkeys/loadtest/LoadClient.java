@@ -0,0 +1,106 @@
+package com.chaosmonkeys.loadtest;
+
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Requests of the frontend, sent with HttpURLConnection so that the harness measures the services and not a client library
+ *
+ * Files are streamed with a fixed length, as browsers upload them.
+ */
+class LoadClient {
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10 * 60 * 1000;
+
+    private final String baseUrl;
+
+    /**
+     * @param baseUrl e.g. http://127.0.0.1:8082/
+     */
+    LoadClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Upload a file as a multipart form, as the dataset and algorithm upload pages do
+     * @param path resource path, e.g. services/datasets/upload
+     * @param fields form fields sent before the file
+     * @return HTTP status
+     */
+    int upload(String path, Map<String, String> fields, File file) throws IOException {
+        String boundary = "----loadtest" + UUID.randomUUID().toString().replace("-", "");
+        StringBuilder head = new StringBuilder();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            head.append("--").append(boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"").append(field.getKey()).append("\"\r\n\r\n")
+                    .append(field.getValue()).append("\r\n");
+        }
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"file\"; filename=\"").append(file.getName()).append("\"\r\n")
+                .append("Content-Type: application/octet-stream\r\n\r\n");
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] tailBytes = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        HttpURLConnection connection = open(path, "multipart/form-data; boundary=" + boundary);
+        connection.setFixedLengthStreamingMode(headBytes.length + file.length() + tailBytes.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(headBytes);
+            Files.copy(file.toPath(), out);
+            out.write(tailBytes);
+        }
+        return finish(connection);
+    }
+
+    /**
+     * Start or stop an experiment
+     * @param path services/exp/start or services/exp/stop
+     * @return HTTP status
+     */
+    int postExperiment(String path, String experimentName) throws IOException {
+        JsonObject body = new JsonObject();
+        body.addProperty("experiment_name", experimentName);
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = open(path, "application/json");
+        connection.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(bytes);
+        }
+        return finish(connection);
+    }
+
+    private HttpURLConnection open(String path, String contentType) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", contentType);
+        return connection;
+    }
+
+    // read the whole response, so that the connection can be kept alive and reused
+    private static int finish(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (null != body) {
+            try (InputStream in = body) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) >= 0) {
+                    // drain
+                }
+            }
+        }
+        return status;
+    }
+}
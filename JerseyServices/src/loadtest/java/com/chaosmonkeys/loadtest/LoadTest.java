@@ -0,0 +1,484 @@
+package com.chaosmonkeys.loadtest;
+
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.train.task.TaskState;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * End-to-end load test of the service roles
+ *
+ * Usage: LoadTest [key=value ...], the keys and their defaults are in {@link #DEFAULTS}.
+ * Every role is started with the Launcher in its own JVM, against an embedded H2 database and with a fake Rscript.
+ * Clients upload datasets and algorithms and run experiments concurrently for a fixed time, each experiment is
+ * started, sometimes stopped, and followed until it finishes. Throughput and latency quantiles per operation,
+ * CPU and memory of every service and the host CPU are then printed and written as JSON.
+ */
+public class LoadTest {
+
+    static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("durationSeconds", "60");
+        DEFAULTS.put("datasetClients", "4");
+        DEFAULTS.put("algorithmClients", "1");
+        DEFAULTS.put("experimentClients", "4");
+        DEFAULTS.put("datasetMB", "8");
+        // share of experiments run as predictions on the execution service, the others are trainings
+        DEFAULTS.put("executionPercent", "50");
+        // share of started experiments stopped while they run
+        DEFAULTS.put("stopPercent", "20");
+        DEFAULTS.put("experimentTimeoutSeconds", "300");
+        DEFAULTS.put("maxConcurrentTasks", "2");
+        // sleep, cpu or output, see src/loadtest/resources/loadtest/fake-rscript.sh
+        DEFAULTS.put("rscriptMode", "sleep");
+        DEFAULTS.put("rscriptSeconds", "2");
+        DEFAULTS.put("rscriptOutputMB", "1");
+        DEFAULTS.put("basePort", "18080");
+        // JVM options of the services, separated by commas
+        DEFAULTS.put("serviceJvmArgs", "-Xmx1g");
+        DEFAULTS.put("workDir", "target/loadtest");
+        DEFAULTS.put("schema", "../SQL/10-18-2026-V1.6.sql");
+        DEFAULTS.put("logSchema", "../SQL/logdb-08-06-2017-V0.2.sql");
+        DEFAULTS.put("report", "target/loadtest-report.json");
+    }
+
+    private static final String DATA_INPUT = "DataInput-CSV";
+    private static final String ALGORITHM_INPUT = "AlgInput-R";
+    private static final String TRAINING = "Train-R";
+    private static final String EXECUTION = "Exec-R";
+    private static final List<String> ROLES = Arrays.asList(DATA_INPUT, ALGORITHM_INPUT, TRAINING, EXECUTION);
+    private static final List<String> TASK_CLASSES = Arrays.asList("TrainingTask", "ExecutionTask");
+
+    private static final long READY_TIMEOUT_MS = 60 * 1000L;
+    private static final long STATUS_POLL_MS = 100L;
+    private static final long SAMPLE_INTERVAL_MS = 1000L;
+    private static final String SEED = "lt-seed";
+
+    private final Map<String, String> settings;
+    private final File workDir;
+    private final Map<String, ServiceProcess> services = new LinkedHashMap<>();
+    private final Map<String, OperationStats> operations = new LinkedHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private volatile boolean running;
+
+    private EmbeddedDatabase database;
+    private File datasetFile;
+    private File algorithmFile;
+    private int datasetId;
+    private int algorithmId;
+    private int modelId;
+
+    // resource usage during the load phase
+    private final Map<String, Double> peakResidentBytes = new HashMap<>();
+    private Map<String, Double> cpuSeconds = new HashMap<>();
+    private double hostCpuLoadSum;
+    private int hostCpuSamples;
+
+    LoadTest(Map<String, String> settings) {
+        this.settings = settings;
+        this.workDir = new File(settings.get("workDir")).getAbsoluteFile();
+        for (String name : Arrays.asList("dataset_upload", "algorithm_upload", "experiment_start", "experiment_stop", "experiment_run")) {
+            operations.put(name, new OperationStats(name));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(parseArgs(args)).run();
+    }
+
+    /**
+     * @param args key=value pairs overriding {@link #DEFAULTS}
+     */
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String key = equals > 0 ? arg.substring(0, equals) : arg;
+            if (equals <= 0 || !DEFAULTS.containsKey(key)) {
+                throw new IllegalArgumentException("Unknown load test setting " + arg + ", known settings are " + DEFAULTS.keySet());
+            }
+            settings.put(key, arg.substring(equals + 1));
+        }
+        return settings;
+    }
+
+    private int intSetting(String key) {
+        return Integer.parseInt(settings.get(key).trim());
+    }
+
+    void run() throws Exception {
+        FileUtils.deleteQuietly(workDir);
+        if (!workDir.mkdirs()) {
+            throw new IOException("Cannot create " + workDir);
+        }
+        File fakeRscript = installFakeRscript();
+        try (EmbeddedDatabase db = new EmbeddedDatabase(new File(workDir, "db"),
+                new File(settings.get("schema")), new File(settings.get("logSchema")))) {
+            database = db;
+            try {
+                startServices(fakeRscript);
+                seed();
+                double seconds = runLoad();
+                report(seconds);
+            } finally {
+                for (ServiceProcess service : services.values()) {
+                    service.close();
+                }
+            }
+        }
+    }
+
+    //** Setup -----------------------------------------------------------------------------------
+
+    private File installFakeRscript() throws IOException {
+        File script = new File(workDir, "fake-rscript.sh");
+        try (InputStream in = LoadTest.class.getResourceAsStream("/loadtest/fake-rscript.sh")) {
+            if (null == in) {
+                throw new IOException("fake-rscript.sh is not on the classpath");
+            }
+            Files.copy(in, script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (!script.setExecutable(true)) {
+            throw new IOException("Cannot make " + script + " executable");
+        }
+        return script;
+    }
+
+    private void startServices(File fakeRscript) throws IOException, InterruptedException {
+        int basePort = intSetting("basePort");
+        List<String> jvmOptions = new ArrayList<>(database.getSystemProperties());
+        for (String option : settings.get("serviceJvmArgs").split(",")) {
+            if (!option.trim().isEmpty()) {
+                jvmOptions.add(option.trim());
+            }
+        }
+        Map<String, String> environment = new HashMap<>();
+        environment.put("FAKE_RSCRIPT_MODE", settings.get("rscriptMode"));
+        environment.put("FAKE_RSCRIPT_SECONDS", settings.get("rscriptSeconds"));
+        environment.put("FAKE_RSCRIPT_OUTPUT_MB", settings.get("rscriptOutputMB"));
+        for (int i = 0; i < ROLES.size(); i++) {
+            String role = ROLES.get(i);
+            int port = basePort + i;
+            File config = new File(workDir, role + ".ini");
+            // nothing listens on the coordination port, heartbeats fail and back off
+            Files.write(config.toPath(), configText(role, port, basePort + ROLES.size(), fakeRscript).getBytes(StandardCharsets.UTF_8));
+            services.put(role, ServiceProcess.start(role, port, workDir, config, jvmOptions, environment));
+        }
+        for (ServiceProcess service : services.values()) {
+            service.awaitReady(READY_TIMEOUT_MS);
+            System.out.println(service.getServiceType() + " is ready at " + service.getBaseUrl());
+        }
+    }
+
+    private String configText(String role, int port, int coordinationPort, File fakeRscript) {
+        StringBuilder text = new StringBuilder()
+                .append("[coordination]\nIP = http://127.0.0.1:").append(coordinationPort).append('\n')
+                .append("[info]\nname = Load test ").append(role).append('\n')
+                .append("type = ").append(role).append('\n')
+                .append("description = Load test ").append(role).append('\n')
+                .append("ip = http://127.0.0.1\nport = ").append(port).append('\n');
+        if (TRAINING.equals(role) || EXECUTION.equals(role)) {
+            // warm workers and model servers speak a protocol the fake Rscript does not implement
+            text.append("[execution]\nmaxConcurrentTasks = ").append(settings.get("maxConcurrentTasks")).append('\n')
+                    .append("rscript = ").append(fakeRscript.getAbsolutePath()).append('\n')
+                    .append("warmWorkers = 0\nresidentModels = 0\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Upload the dataset and the algorithm used by every experiment, and register a model for predictions
+     */
+    private void seed() throws IOException, SQLException {
+        datasetFile = writeDataset(new File(workDir, "loadtest-data.csv"), intSetting("datasetMB"));
+        algorithmFile = writeAlgorithm(new File(workDir, "loadtest-algorithm.zip"));
+        int status = uploadDataset(SEED);
+        if (200 != status) {
+            throw new IOException("Seed dataset upload answered " + status + ", see " + DATA_INPUT + ".log");
+        }
+        status = uploadAlgorithm(SEED);
+        if (200 != status) {
+            throw new IOException("Seed algorithm upload answered " + status + ", see " + ALGORITHM_INPUT + ".log");
+        }
+        datasetId = database.findId("datasets", SEED);
+        algorithmId = database.findId("algorithms", SEED);
+        File modelFolder = new File(workDir, "loadtest-model");
+        Files.createDirectories(modelFolder.toPath());
+        Files.write(new File(modelFolder, "model.rds").toPath(), new byte[1024]);
+        modelId = database.insertModel(SEED, modelFolder);
+    }
+
+    static File writeDataset(File file, int sizeMB) throws IOException {
+        long size = sizeMB * 1024L * 1024L;
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("id,value,label\n");
+            long written = 0;
+            for (long row = 0; written < size; row++) {
+                String line = row + "," + (row * 0.5) + ",label" + (row % 10) + "\n";
+                writer.write(line);
+                written += line.length();
+            }
+        }
+        return file;
+    }
+
+    static File writeAlgorithm(File file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file.toPath()); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("Main.R"));
+            zip.write("print(\"load test\")\n".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return file;
+    }
+
+    //** Load ------------------------------------------------------------------------------------
+
+    /**
+     * @return seconds from the first request until every client stopped
+     */
+    private double runLoad() throws InterruptedException {
+        int datasetClients = intSetting("datasetClients");
+        int algorithmClients = intSetting("algorithmClients");
+        int experimentClients = intSetting("experimentClients");
+        ExecutorService clients = Executors.newFixedThreadPool(Math.max(1, datasetClients + algorithmClients + experimentClients));
+        Map<String, Double> cpuBefore = sampleServices();
+        running = true;
+        long start = System.nanoTime();
+        for (int i = 0; i < datasetClients; i++) {
+            clients.submit(() -> uploadLoop("dataset_upload", this::uploadDataset));
+        }
+        for (int i = 0; i < algorithmClients; i++) {
+            clients.submit(() -> uploadLoop("algorithm_upload", this::uploadAlgorithm));
+        }
+        for (int i = 0; i < experimentClients; i++) {
+            clients.submit(this::experimentLoop);
+        }
+        clients.shutdown();
+        long end = System.currentTimeMillis() + intSetting("durationSeconds") * 1000L;
+        while (System.currentTimeMillis() < end) {
+            Thread.sleep(SAMPLE_INTERVAL_MS);
+            sampleServices();
+        }
+        running = false;
+        System.out.println("Load phase over, waiting for running requests and experiments");
+        // a client follows its last experiment until it finishes
+        if (!clients.awaitTermination(intSetting("experimentTimeoutSeconds") + 60L, TimeUnit.SECONDS)) {
+            clients.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, Double> cpuAfter = sampleServices();
+        for (String role : ROLES) {
+            cpuAfter.put(role, cpuAfter.getOrDefault(role, 0.0) - cpuBefore.getOrDefault(role, 0.0));
+        }
+        cpuSeconds = cpuAfter;
+        return seconds;
+    }
+
+    private interface Upload {
+        int upload(String name) throws IOException;
+    }
+
+    private void uploadLoop(String operation, Upload upload) {
+        OperationStats stats = operations.get(operation);
+        while (running) {
+            String name = "lt-" + sequence.incrementAndGet();
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                success = 200 == upload.upload(name);
+            } catch (IOException e) {
+                success = false;
+            }
+            stats.record(start, success);
+        }
+    }
+
+    private int uploadDataset(String name) throws IOException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", name);
+        fields.put("description", "load test dataset");
+        fields.put("format", "CSV");
+        return new LoadClient(services.get(DATA_INPUT).getBaseUrl()).upload("services/datasets/upload", fields, datasetFile);
+    }
+
+    private int uploadAlgorithm(String name) throws IOException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", name);
+        fields.put("description", "load test algorithm");
+        fields.put("language", "R");
+        return new LoadClient(services.get(ALGORITHM_INPUT).getBaseUrl()).upload("services/algr/upload", fields, algorithmFile);
+    }
+
+    /**
+     * Create, start, maybe stop an experiment and wait until it finishes, then the next one
+     */
+    private void experimentLoop() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long timeoutMillis = intSetting("experimentTimeoutSeconds") * 1000L;
+        long maxStopDelayMillis = (long) (Double.parseDouble(settings.get("rscriptSeconds")) * 1000) + 1;
+        while (running) {
+            boolean execution = random.nextInt(100) < intSetting("executionPercent");
+            LoadClient client = new LoadClient(services.get(execution ? EXECUTION : TRAINING).getBaseUrl());
+            String name = "lt-" + sequence.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                database.insertExperiment(name, execution ? "Execution" : "Training", datasetId, algorithmId, modelId);
+                boolean started = 200 == client.postExperiment("services/exp/start", name);
+                operations.get("experiment_start").record(start, started);
+                if (!started) {
+                    continue;
+                }
+                if (random.nextInt(100) < intSetting("stopPercent")) {
+                    Thread.sleep(random.nextLong(maxStopDelayMillis));
+                    long stopStart = System.nanoTime();
+                    operations.get("experiment_stop").record(stopStart, 200 == client.postExperiment("services/exp/stop", name));
+                }
+                String status = awaitFinished(name, timeoutMillis);
+                // failed and timed out experiments are errors, cancelled ones are not
+                operations.get("experiment_run").record(start, TaskState.SUCCESS.name().equals(status) || TaskState.CANCELLED.name().equals(status));
+            } catch (IOException | SQLException e) {
+                operations.get("experiment_start").record(start, false);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return final status of the experiment, its last status if it did not finish in time
+     */
+    private String awaitFinished(String name, long timeoutMillis) throws SQLException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        String status = database.getExperimentStatus(name);
+        while (!TaskState.isFinished(status) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(STATUS_POLL_MS);
+            status = database.getExperimentStatus(name);
+        }
+        return status;
+    }
+
+    /**
+     * Track peak memory of the services and the host CPU
+     * @return CPU seconds used by every service so far
+     */
+    private Map<String, Double> sampleServices() {
+        Map<String, Double> cpu = new HashMap<>();
+        for (ServiceProcess service : services.values()) {
+            try {
+                Map<String, Double> samples = service.scrapeMetrics();
+                cpu.put(service.getServiceType(), samples.getOrDefault("process_cpu_seconds_total", 0.0));
+                peakResidentBytes.merge(service.getServiceType(), samples.getOrDefault("process_resident_memory_bytes", 0.0), Math::max);
+            } catch (IOException e) {
+                System.out.println("Cannot read the metrics of " + service.getServiceType() + ": " + e.getMessage());
+            }
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            // includes the fake Rscript processes, which no service accounts for
+            double load = ((com.sun.management.OperatingSystemMXBean) os).getSystemCpuLoad();
+            if (load >= 0) {
+                hostCpuLoadSum += load;
+                hostCpuSamples++;
+            }
+        }
+        return cpu;
+    }
+
+    //** Report ----------------------------------------------------------------------------------
+
+    private void report(double seconds) throws IOException, SQLException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings);
+        report.put("seconds", seconds);
+        Map<String, Object> operationSummaries = new LinkedHashMap<>();
+        System.out.println(String.format("%n%-18s %8s %8s %10s %10s %10s %10s", "operation", "count", "errors", "per sec", "p50 ms", "p99 ms", "max ms"));
+        for (OperationStats stats : operations.values()) {
+            Map<String, Object> summary = stats.summarize(seconds);
+            operationSummaries.put(stats.getName(), summary);
+            System.out.println(String.format("%-18s %8d %8d %10.2f %10.1f %10.1f %10.1f", stats.getName(), summary.get("count"),
+                    summary.get("errors"), summary.get("throughputPerSecond"), summary.get("p50Ms"), summary.get("p99Ms"), summary.get("maxMs")));
+        }
+        report.put("operations", operationSummaries);
+
+        Map<String, Integer> experiments = database.countExperimentsByStatus();
+        report.put("experimentsByStatus", experiments);
+        System.out.println(String.format("%nexperiments by status: %s", experiments));
+
+        Map<String, Object> serviceSummaries = new LinkedHashMap<>();
+        System.out.println(String.format("%n%-14s %10s %8s %14s", "service", "cpu s", "cpu %", "peak RSS MB"));
+        for (ServiceProcess service : services.values()) {
+            String role = service.getServiceType();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            double cpu = cpuSeconds.getOrDefault(role, 0.0);
+            double peakMB = peakResidentBytes.getOrDefault(role, 0.0) / (1024 * 1024);
+            summary.put("cpuSeconds", cpu);
+            summary.put("cpuPercent", cpu / seconds * 100);
+            summary.put("peakResidentMB", peakMB);
+            if (TRAINING.equals(role) || EXECUTION.equals(role)) {
+                summary.put("taskStages", taskStageSummary(service));
+            }
+            serviceSummaries.put(role, summary);
+            System.out.println(String.format("%-14s %10.1f %8.1f %14.0f", role, cpu, cpu / seconds * 100, peakMB));
+        }
+        report.put("services", serviceSummaries);
+
+        double hostCpuPercent = 0 == hostCpuSamples ? -1 : hostCpuLoadSum / hostCpuSamples * 100;
+        double loadAverage = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        report.put("hostCpuPercent", hostCpuPercent);
+        report.put("hostLoadAverage", loadAverage);
+        System.out.println(String.format("%nhost cpu %.1f %%, load average %.2f", hostCpuPercent, loadAverage));
+
+        File reportFile = new File(settings.get("report"));
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+        }
+        System.out.println("Report written to " + reportFile.getAbsolutePath());
+    }
+
+    /**
+     * @return p50 and p99 in seconds of the time tasks spent in every state, from the metrics of the service
+     */
+    private Map<String, Object> taskStageSummary(ServiceProcess service) throws IOException {
+        Map<String, Double> samples = service.scrapeMetrics();
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (String task : TASK_CLASSES) {
+            for (TaskState state : TaskState.values()) {
+                String labels = "task_stage_duration_seconds{task=\"" + task + "\",stage=\"" + state.name() + "\"";
+                Double p50 = samples.get(labels + ",quantile=\"0.5\"}");
+                if (null == p50) {
+                    continue;
+                }
+                Map<String, Object> quantiles = new LinkedHashMap<>();
+                quantiles.put("p50Seconds", p50);
+                quantiles.put("p99Seconds", samples.get(labels + ",quantile=\"0.99\"}"));
+                stages.put(task + "." + state.name(), quantiles);
+            }
+        }
+        return stages;
+    }
+}
@@ -0,0 +1,55 @@
+package com.chaosmonkeys.loadtest;
+
+import com.chaosmonkeys.metrics.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of the successful calls of one operation and the number of failed ones, as seen by the clients
+ */
+class OperationStats {
+
+    private final String name;
+    // microseconds, reported in milliseconds
+    private final Histogram latency = new Histogram(1e-3);
+    private final LongAdder errors = new LongAdder();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the call was sent
+     * @param success false counts an error, its latency is not recorded
+     */
+    void record(long startNanos, boolean success) {
+        if (success) {
+            latency.recordMicrosSince(startNanos);
+        } else {
+            errors.increment();
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @param seconds length of the load phase
+     * @return count, errors, throughput in calls per second and latency quantiles in milliseconds
+     */
+    Map<String, Object> summarize(double seconds) {
+        Histogram.Snapshot snapshot = latency.snapshot();
+        double scale = latency.getUnitScale();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", snapshot.getCount());
+        summary.put("errors", errors.sum());
+        summary.put("throughputPerSecond", snapshot.getCount() / seconds);
+        summary.put("p50Ms", snapshot.getValueAt(0.5) * scale);
+        summary.put("p99Ms", snapshot.getValueAt(0.99) * scale);
+        summary.put("maxMs", snapshot.getMax() * scale);
+        return summary;
+    }
+}
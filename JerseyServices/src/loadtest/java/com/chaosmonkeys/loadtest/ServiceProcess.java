@@ -0,0 +1,136 @@
+package com.chaosmonkeys.loadtest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One service started with {@link com.chaosmonkeys.Launcher} in its own JVM
+ *
+ * The Launcher keeps the service type in static fields, so every role needs a process of its own.
+ * Output of the service goes to a log file named after its type.
+ */
+class ServiceProcess implements AutoCloseable {
+
+    private static final int HTTP_TIMEOUT_MS = 5000;
+
+    private final String serviceType;
+    private final int port;
+    private final File logFile;
+    private final Process process;
+
+    private ServiceProcess(String serviceType, int port, File logFile, Process process) {
+        this.serviceType = serviceType;
+        this.port = port;
+        this.logFile = logFile;
+        this.process = process;
+    }
+
+    /**
+     * @param workDir working directory, services store files relative to it
+     * @param configFile ini file of the service
+     * @param jvmOptions options given to the JVM before the main class
+     * @param environment added to the environment, the fake Rscript reads its settings from it
+     */
+    static ServiceProcess start(String serviceType, int port, File workDir, File configFile, List<String> jvmOptions,
+                                Map<String, String> environment) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getAbsolutePath());
+        command.add("-classpath");
+        command.add(System.getProperty("java.class.path"));
+        command.addAll(jvmOptions);
+        command.add("com.chaosmonkeys.Launcher");
+        command.add(configFile.getAbsolutePath());
+        File logFile = new File(workDir, serviceType + ".log");
+        ProcessBuilder builder = new ProcessBuilder(command).directory(workDir).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.to(logFile));
+        builder.environment().putAll(environment);
+        return new ServiceProcess(serviceType, port, logFile, builder.start());
+    }
+
+    /**
+     * Wait until the metrics resource answers
+     */
+    void awaitReady(long timeoutMillis) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IOException(serviceType + " exited with " + process.exitValue() + ", see " + logFile);
+            }
+            try {
+                scrapeMetrics();
+                return;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException(serviceType + " did not start in time, see " + logFile, e);
+                }
+            }
+            Thread.sleep(250);
+        }
+    }
+
+    /**
+     * @return samples of the metrics resource by name and labels as written, e.g. process_cpu_seconds_total
+     */
+    Map<String, Double> scrapeMetrics() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(getBaseUrl() + "metrics").openConnection();
+        connection.setConnectTimeout(HTTP_TIMEOUT_MS);
+        connection.setReadTimeout(HTTP_TIMEOUT_MS);
+        try {
+            if (200 != connection.getResponseCode()) {
+                throw new IOException("Metrics of " + serviceType + " answered " + connection.getResponseCode());
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                return parseSamples(reader);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    static Map<String, Double> parseSamples(BufferedReader reader) throws IOException {
+        Map<String, Double> samples = new HashMap<>();
+        String line;
+        while (null != (line = reader.readLine())) {
+            int space = line.lastIndexOf(' ');
+            if (line.startsWith("#") || space <= 0) {
+                continue;
+            }
+            String value = line.substring(space + 1).replace("Inf", "Infinity");
+            try {
+                samples.put(line.substring(0, space), Double.parseDouble(value));
+            } catch (NumberFormatException e) {
+                // not a sample line
+            }
+        }
+        return samples;
+    }
+
+    String getServiceType() {
+        return serviceType;
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + port + "/";
+    }
+
+    /**
+     * Stop the service, its shutdown hooks flush logs and close the database pools
+     */
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
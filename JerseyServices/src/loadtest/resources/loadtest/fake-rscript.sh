@@ -0,0 +1,29 @@
+#!/bin/sh
+# Stand-in for Rscript in load tests, the R script given as argument is not run
+#   FAKE_RSCRIPT_MODE       sleep (default), cpu to keep one core busy, or output to write a result file
+#   FAKE_RSCRIPT_SECONDS    time slept or spent on the CPU, 1 by default
+#   FAKE_RSCRIPT_OUTPUT_MB  size of output/result.bin in output mode, 1 by default
+mode=${FAKE_RSCRIPT_MODE:-sleep}
+seconds=${FAKE_RSCRIPT_SECONDS:-1}
+outputMB=${FAKE_RSCRIPT_OUTPUT_MB:-1}
+
+# tasks copy the output folder of the workspace when they succeed
+mkdir -p output
+echo "[1] \"fake Rscript: $mode for $1\""
+case "$mode" in
+    sleep)
+        sleep "$seconds"
+        ;;
+    cpu)
+        timeout "$seconds" sh -c 'while :; do :; done'
+        ;;
+    output)
+        dd if=/dev/zero of=output/result.bin bs=1048576 count="$outputMB" 2>/dev/null
+        ;;
+    *)
+        # an error line fails the task
+        echo "Error: unknown FAKE_RSCRIPT_MODE $mode"
+        exit 1
+        ;;
+esac
+echo "[1] \"done\""
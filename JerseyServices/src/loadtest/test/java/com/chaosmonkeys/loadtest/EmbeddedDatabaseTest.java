@@ -0,0 +1,64 @@
+package com.chaosmonkeys.loadtest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing that the embedded database can be created from the dumps the load test uses
+ */
+public class EmbeddedDatabaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // same defaults as LoadTest, relative to the JerseyServices folder
+    private static final File SCHEMA = new File("../SQL/10-18-2026-V1.6.sql");
+    private static final File LOG_SCHEMA = new File("../SQL/logdb-08-06-2017-V0.2.sql");
+    private static final Pattern INDEX_NAME = Pattern.compile("^\\s*(?:UNIQUE KEY|KEY|CONSTRAINT)\\s+(\\S+)", Pattern.MULTILINE);
+
+    @Test
+    public void testIndexNamesAreUniqueAcrossTables() throws IOException {
+        List<String> statements = EmbeddedDatabase.tableStatements(Files.readAllLines(SCHEMA.toPath(), StandardCharsets.UTF_8));
+
+        int tableNum = 0;
+        Set<String> indexNames = new HashSet<>();
+        for (String statement : statements) {
+            assertFalse(statement, statement.contains("`"));
+            if (statement.startsWith("CREATE TABLE")) {
+                tableNum++;
+            }
+            Matcher index = INDEX_NAME.matcher(statement);
+            while (index.find()) {
+                // H2 wants constraint names unique in the whole schema
+                assertTrue("index " + index.group(1) + " is defined twice", indexNames.add(index.group(1).toUpperCase()));
+            }
+        }
+        assertEquals(10, tableNum);
+        assertTrue(indexNames.contains("DATASETS_NAME_UNIQUE"));
+        assertTrue(indexNames.contains("MODELS_NAME_UNIQUE"));
+    }
+
+    @Test
+    public void testDatabaseIsCreatedFromTheDumps() throws IOException, SQLException {
+        try (EmbeddedDatabase database = new EmbeddedDatabase(folder.getRoot(), SCHEMA, LOG_SCHEMA)) {
+            assertEquals(-1, database.findId("datasets", "iris"));
+            int modelId = database.insertModel("model", folder.getRoot());
+            assertEquals(modelId, database.findId("models", "model"));
+        }
+    }
+}
@@ -10,6 +10,35 @@ public class ConfigInfo {
     private String coordinationIP;
     private String serviceIP;
     private String servicePort;
+    // maximum number of tasks running at the same time, 0 means not configured
+    private int maxConcurrentTasks;
+    // workspace staging mode (copy/link), null means not configured
+    private String stagingMode;
+    // staging cache size in MB, negative means not configured
+    private long cacheMaxSizeMB = -1;
+    // warm R worker pool, 0 workers means disabled
+    private int warmWorkers;
+    private int workerMaxJobs;
+    private long workerMaxMemoryMB;
+    // online prediction, 0 resident models means disabled, negative delay means not configured
+    private int residentModels;
+    private long predictBatchDelayMs = -1;
+    private int predictMaxBatchRows;
+    // command running R scripts, null means not configured
+    private String rscriptCommand;
+    // asynchronous logging, null/0 means not configured
+    private int logQueueSize;
+    private String logOverflowPolicy;
+    // upload receiving, 0/null means not configured
+    private int uploadBufferSizeKB;
+    private Boolean uploadDirectBuffer;
+    private String uploadSyncPolicy;
+    private boolean streamingUnzip;
+    private long unzipMaxSizeMB;
+    private int unzipMaxEntries;
+    private boolean jsonRecordCheck;
+    private boolean columnarConversion;
+    private int columnarRowGroupSize;
 
     public String getServiceName() {
         return serviceName;
@@ -58,4 +87,172 @@ public class ConfigInfo {
     public void setServicePort(String servicePort) {
         this.servicePort = servicePort;
     }
+
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    public void setMaxConcurrentTasks(int maxConcurrentTasks) {
+        this.maxConcurrentTasks = maxConcurrentTasks;
+    }
+
+    public String getStagingMode() {
+        return stagingMode;
+    }
+
+    public void setStagingMode(String stagingMode) {
+        this.stagingMode = stagingMode;
+    }
+
+    public long getCacheMaxSizeMB() {
+        return cacheMaxSizeMB;
+    }
+
+    public void setCacheMaxSizeMB(long cacheMaxSizeMB) {
+        this.cacheMaxSizeMB = cacheMaxSizeMB;
+    }
+
+    public int getWarmWorkers() {
+        return warmWorkers;
+    }
+
+    public void setWarmWorkers(int warmWorkers) {
+        this.warmWorkers = warmWorkers;
+    }
+
+    public int getWorkerMaxJobs() {
+        return workerMaxJobs;
+    }
+
+    public void setWorkerMaxJobs(int workerMaxJobs) {
+        this.workerMaxJobs = workerMaxJobs;
+    }
+
+    public long getWorkerMaxMemoryMB() {
+        return workerMaxMemoryMB;
+    }
+
+    public void setWorkerMaxMemoryMB(long workerMaxMemoryMB) {
+        this.workerMaxMemoryMB = workerMaxMemoryMB;
+    }
+
+    public int getResidentModels() {
+        return residentModels;
+    }
+
+    public void setResidentModels(int residentModels) {
+        this.residentModels = residentModels;
+    }
+
+    public long getPredictBatchDelayMs() {
+        return predictBatchDelayMs;
+    }
+
+    public void setPredictBatchDelayMs(long predictBatchDelayMs) {
+        this.predictBatchDelayMs = predictBatchDelayMs;
+    }
+
+    public int getPredictMaxBatchRows() {
+        return predictMaxBatchRows;
+    }
+
+    public void setPredictMaxBatchRows(int predictMaxBatchRows) {
+        this.predictMaxBatchRows = predictMaxBatchRows;
+    }
+
+    public String getRscriptCommand() {
+        return rscriptCommand;
+    }
+
+    public void setRscriptCommand(String rscriptCommand) {
+        this.rscriptCommand = rscriptCommand;
+    }
+
+    public int getLogQueueSize() {
+        return logQueueSize;
+    }
+
+    public void setLogQueueSize(int logQueueSize) {
+        this.logQueueSize = logQueueSize;
+    }
+
+    public String getLogOverflowPolicy() {
+        return logOverflowPolicy;
+    }
+
+    public void setLogOverflowPolicy(String logOverflowPolicy) {
+        this.logOverflowPolicy = logOverflowPolicy;
+    }
+
+    public int getUploadBufferSizeKB() {
+        return uploadBufferSizeKB;
+    }
+
+    public void setUploadBufferSizeKB(int uploadBufferSizeKB) {
+        this.uploadBufferSizeKB = uploadBufferSizeKB;
+    }
+
+    public Boolean getUploadDirectBuffer() {
+        return uploadDirectBuffer;
+    }
+
+    public void setUploadDirectBuffer(Boolean uploadDirectBuffer) {
+        this.uploadDirectBuffer = uploadDirectBuffer;
+    }
+
+    public String getUploadSyncPolicy() {
+        return uploadSyncPolicy;
+    }
+
+    public void setUploadSyncPolicy(String uploadSyncPolicy) {
+        this.uploadSyncPolicy = uploadSyncPolicy;
+    }
+
+    public boolean isStreamingUnzip() {
+        return streamingUnzip;
+    }
+
+    public void setStreamingUnzip(boolean streamingUnzip) {
+        this.streamingUnzip = streamingUnzip;
+    }
+
+    public long getUnzipMaxSizeMB() {
+        return unzipMaxSizeMB;
+    }
+
+    public void setUnzipMaxSizeMB(long unzipMaxSizeMB) {
+        this.unzipMaxSizeMB = unzipMaxSizeMB;
+    }
+
+    public int getUnzipMaxEntries() {
+        return unzipMaxEntries;
+    }
+
+    public void setUnzipMaxEntries(int unzipMaxEntries) {
+        this.unzipMaxEntries = unzipMaxEntries;
+    }
+
+    public boolean isJsonRecordCheck() {
+        return jsonRecordCheck;
+    }
+
+    public void setJsonRecordCheck(boolean jsonRecordCheck) {
+        this.jsonRecordCheck = jsonRecordCheck;
+    }
+
+    public boolean isColumnarConversion() {
+        return columnarConversion;
+    }
+
+    public void setColumnarConversion(boolean columnarConversion) {
+        this.columnarConversion = columnarConversion;
+    }
+
+    public int getColumnarRowGroupSize() {
+        return columnarRowGroupSize;
+    }
+
+    public void setColumnarRowGroupSize(int columnarRowGroupSize) {
+        this.columnarRowGroupSize = columnarRowGroupSize;
+    }
 }
@@ -4,12 +4,35 @@ import com.chaosmonkeys.DTO.ConfigInfo;
 import com.chaosmonkeys.DTO.BasicResponse;
 import com.chaosmonkeys.DTO.RegistrationInfo;
 import com.chaosmonkeys.Utilities.ConfigurationHelper;
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.Utilities.FileReceiver;
+import com.chaosmonkeys.Utilities.LogOverflowPolicy;
 import com.chaosmonkeys.Utilities.LogType;
 import com.chaosmonkeys.Utilities.Logger;
 import com.chaosmonkeys.Utilities.MachineIPHelper;
+import com.chaosmonkeys.Utilities.StagingMode;
+import com.chaosmonkeys.Utilities.SyncPolicy;
+import com.chaosmonkeys.Utilities.ZipUtils;
+import com.chaosmonkeys.Utilities.db.DbUtils;
 import com.chaosmonkeys.algrinputservice.AlgorithmInputServiceHeartBeatsClient;
+import com.chaosmonkeys.algrinputservice.AlgorithmResource;
+import com.chaosmonkeys.datasetinputservice.DatasetInputService;
 import com.chaosmonkeys.datasetinputservice.DatasetInputServiceHeartBeatsClient;
+import com.chaosmonkeys.datasetinputservice.columnar.ColumnarConverter;
+import com.chaosmonkeys.metrics.MetricsFilter;
+import com.chaosmonkeys.metrics.MetricsResource;
+import com.chaosmonkeys.metrics.ProcessMetrics;
+import com.chaosmonkeys.train.Constants;
 import com.chaosmonkeys.train.heartbeat.ExecutionServiceHeartBeatsClient;
+import com.chaosmonkeys.train.predict.ModelServerRegistry;
+import com.chaosmonkeys.train.task.AbsTask;
+import com.chaosmonkeys.train.task.ExecutionTaskManager;
+import com.chaosmonkeys.train.task.ExperimentStatusWriter;
+import com.chaosmonkeys.train.task.StagingCache;
+import com.chaosmonkeys.train.task.TaskJournal;
+import com.chaosmonkeys.train.task.TaskRecovery;
+import com.chaosmonkeys.train.task.TrainingTaskManager;
+import com.chaosmonkeys.train.worker.RWorkerPool;
 import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.filter.LoggingFilter;
@@ -63,6 +86,9 @@ public class Launcher {
     //Is service registered with the coordination service
     private static boolean isRegistered = false;
 
+    //Are the task schedulers and their components running, stopped by the shutdown hook
+    private volatile boolean taskServicesStarted = false;
+
     public static String getHostIP() {
         return hostIP;
     }
@@ -140,6 +166,8 @@ public class Launcher {
 
         //Loading the basic info
         ConfigInfo configInfoInfo = ConfigurationHelper.loadBasicInfo(configPath);
+        Logger.configure(configInfoInfo.getLogQueueSize(), LogOverflowPolicy.parse(configInfoInfo.getLogOverflowPolicy(), LogOverflowPolicy.DROP_OLDEST));
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "service-shutdown"));
         serviceName = configInfoInfo.getServiceName();
         serviceType = configInfoInfo.getServiceType();
         serviceDescription = configInfoInfo.getServiceDescription();
@@ -148,6 +176,26 @@ public class Launcher {
         servicePort = configInfoInfo.getServicePort();
         setServiceHost(hostIP, servicePort);
 
+        //Bound the number of concurrently running experiments on training/execution nodes
+        if (serviceType.startsWith("Train-") || serviceType.startsWith("Exec-")) {
+            AbsTask.setRscriptCommand(configInfoInfo.getRscriptCommand());
+            initTaskSchedulers(configInfoInfo.getMaxConcurrentTasks());
+            FileUtils.setDefaultStagingMode(StagingMode.parse(configInfoInfo.getStagingMode(), FileUtils.getDefaultStagingMode()));
+            if (configInfoInfo.getCacheMaxSizeMB() >= 0) {
+                StagingCache.INSTANCE.init(configInfoInfo.getCacheMaxSizeMB());
+            }
+            if (serviceType.startsWith("Exec-")) {
+                initWorkerPool(configInfoInfo);
+                initModelServers(configInfoInfo);
+            }
+            recoverTasks();
+        }
+
+        //Write uploads with the configured buffers and durability on input nodes
+        if (serviceType.startsWith("DataInput-") || serviceType.startsWith("AlgInput-") || serviceType.equals("JerseyTesting")) {
+            initFileReceiver(configInfoInfo);
+        }
+
         //Start http server
         startServiceServer();
 
@@ -174,6 +222,91 @@ public class Launcher {
         }
     }
 
+    /**
+     * Create task schedulers for training and execution tasks,
+     * they are stopped by {@link #shutdown()} when the JVM is shutting down
+     *
+     * @param maxConcurrentTasks configured concurrency, not positive means using the default
+     */
+    private void initTaskSchedulers(int maxConcurrentTasks) {
+        if (maxConcurrentTasks > 0) {
+            TrainingTaskManager.INSTANCE.initScheduler(maxConcurrentTasks);
+            ExecutionTaskManager.INSTANCE.initScheduler(maxConcurrentTasks);
+        }
+        taskServicesStarted = true;
+    }
+
+    /**
+     * Stop the service components in order, run by the only shutdown hook:
+     * tasks and their processes first, then the logger so their last messages
+     * are written, and the database connection pools last
+     */
+    private void shutdown() {
+        if (taskServicesStarted) {
+            TrainingTaskManager.INSTANCE.shutdown();
+            ExecutionTaskManager.INSTANCE.shutdown();
+            ExperimentStatusWriter.INSTANCE.close();
+            TaskJournal.INSTANCE.close();
+            RWorkerPool.INSTANCE.shutdown();
+            ModelServerRegistry.INSTANCE.shutdown();
+        }
+        Logger.shutdown();
+        DbUtils.closePools();
+    }
+
+    /**
+     * Keep R workers warm so short predictions do not pay interpreter startup
+     *
+     * @param configInfo loaded configuration, no warm worker configured means disabled
+     */
+    private void initWorkerPool(ConfigInfo configInfo) {
+        int maxJobs = configInfo.getWorkerMaxJobs() > 0 ? configInfo.getWorkerMaxJobs() : Constants.DEFAULT_WORKER_MAX_JOBS;
+        long maxMemoryMB = configInfo.getWorkerMaxMemoryMB() > 0 ? configInfo.getWorkerMaxMemoryMB() : Constants.DEFAULT_WORKER_MAX_MEMORY_MB;
+        RWorkerPool.INSTANCE.init(configInfo.getWarmWorkers(), maxJobs, maxMemoryMB);
+    }
+
+    /**
+     * Keep trained models loaded for the online prediction resource
+     *
+     * @param configInfo loaded configuration, no resident model configured means disabled
+     */
+    private void initModelServers(ConfigInfo configInfo) {
+        long batchDelayMs = configInfo.getPredictBatchDelayMs() >= 0 ? configInfo.getPredictBatchDelayMs() : Constants.DEFAULT_PREDICT_BATCH_DELAY_MS;
+        int maxBatchRows = configInfo.getPredictMaxBatchRows() > 0 ? configInfo.getPredictMaxBatchRows() : Constants.DEFAULT_PREDICT_MAX_BATCH_ROWS;
+        ModelServerRegistry.INSTANCE.init(configInfo.getResidentModels(), batchDelayMs, maxBatchRows);
+    }
+
+    /**
+     * Configure how uploaded files are received, datasets checked and converted, and algorithm archives extracted
+     *
+     * @param configInfo loaded configuration, missing keys keep the defaults
+     */
+    private void initFileReceiver(ConfigInfo configInfo) {
+        int bufferSizeKB = configInfo.getUploadBufferSizeKB() > 0 ? configInfo.getUploadBufferSizeKB() : com.chaosmonkeys.Utilities.Constants.DEFAULT_UPLOAD_BUFFER_SIZE_KB;
+        boolean directBuffer = null == configInfo.getUploadDirectBuffer() || configInfo.getUploadDirectBuffer();
+        SyncPolicy syncPolicy = SyncPolicy.parse(configInfo.getUploadSyncPolicy(), SyncPolicy.NONE);
+        FileUtils.setFileReceiver(new FileReceiver(bufferSizeKB * 1024, directBuffer, syncPolicy));
+        long unzipMaxSizeMB = configInfo.getUnzipMaxSizeMB() > 0 ? configInfo.getUnzipMaxSizeMB() : com.chaosmonkeys.Utilities.Constants.DEFAULT_UNZIP_MAX_SIZE_MB;
+        int unzipMaxEntries = configInfo.getUnzipMaxEntries() > 0 ? configInfo.getUnzipMaxEntries() : com.chaosmonkeys.Utilities.Constants.DEFAULT_UNZIP_MAX_ENTRIES;
+        ZipUtils.setLimits(unzipMaxSizeMB, unzipMaxEntries);
+        AlgorithmResource.setStreamingUnzip(configInfo.isStreamingUnzip());
+        DatasetInputService.setJsonRecordCheck(configInfo.isJsonRecordCheck());
+        int rowGroupSize = configInfo.getColumnarRowGroupSize() > 0 ? configInfo.getColumnarRowGroupSize() : com.chaosmonkeys.Utilities.Constants.DEFAULT_COLUMNAR_ROW_GROUP_SIZE;
+        ColumnarConverter.INSTANCE.init(configInfo.isColumnarConversion(), rowGroupSize);
+    }
+
+    /**
+     * Replay the task journal of this service, so tasks queued before a restart run again
+     * and experiments interrupted by the restart do not stay in a running state forever
+     */
+    private void recoverTasks() {
+        try {
+            TaskRecovery.recover(FileUtils.createTaskJournalFile(serviceType));
+        } catch (IOException e) {
+            Logger.SaveLog(LogType.Exception, "EXCEPTION: Task journal cannot be replayed, tasks of the previous run are lost: " + e.getMessage());
+        }
+    }
+
     /**
      * Starts server.
      */
@@ -209,6 +342,10 @@ public class Launcher {
         rc.register(MultiPartFeature.class);
 
         rc.register(CORSFilter.class);
+        // metrics of every service type, served at /metrics
+        rc.register(MetricsFilter.class);
+        rc.register(MetricsResource.class);
+        ProcessMetrics.register();
 
         //Create and start a new instance of grizzly http server exposing the Jersey application at Service Host
         return GrizzlyHttpServerFactory.createHttpServer(URI.create(serviceHost), rc);
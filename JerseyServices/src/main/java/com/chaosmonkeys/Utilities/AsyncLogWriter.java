@@ -0,0 +1,177 @@
+package com.chaosmonkeys.Utilities;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue of log items drained by one background writer
+ *
+ * Logging threads only put an item into the queue. The writer takes every item
+ * queued since its last write and hands them over in one batch, so a burst of
+ * messages costs a single round trip to the log database. When the queue is full
+ * the configured {@link LogOverflowPolicy} decides which message is lost.
+ */
+public class AsyncLogWriter {
+
+    /**
+     * One log message waiting to be written
+     */
+    public static class LogItem {
+        public final Timestamp timestamp;
+        public final LogType type;
+        public final String message;
+
+        public LogItem(Timestamp timestamp, LogType type, String message) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Destination of log batches
+     */
+    public interface LogSink {
+        void write(List<LogItem> items) throws Exception;
+    }
+
+    private final BlockingQueue<LogItem> queue;
+    private final LogOverflowPolicy overflowPolicy;
+    private final int maxBatchSize;
+    private final LogSink sink;
+    private final Thread writer;
+    private final AtomicLong droppedCount = new AtomicLong();
+    // dropped messages already reported in the log
+    private long reportedDropped = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Create the writer and start its background thread
+     * @param capacity maximum number of queued messages
+     * @param overflowPolicy what to do when the queue is full
+     * @param maxBatchSize maximum number of messages written at once
+     * @param sink destination of log batches
+     */
+    public AsyncLogWriter(int capacity, LogOverflowPolicy overflowPolicy, int maxBatchSize, LogSink sink) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.overflowPolicy = overflowPolicy;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.sink = sink;
+        this.writer = new Thread(this::writeLoop, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue a message, never touches the database
+     * @return false if the message, or an older one, has been dropped because the queue is full
+     */
+    public boolean append(LogItem item) {
+        if (closed) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        if (queue.offer(item)) {
+            return true;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(item);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.incrementAndGet();
+                    return false;
+                }
+            case DROP_OLDEST:
+                // retry a few times since other threads compete for the freed slot
+                for (int i = 0; i < 3; i++) {
+                    if (null != queue.poll()) {
+                        droppedCount.incrementAndGet();
+                    }
+                    if (queue.offer(item)) {
+                        return false;
+                    }
+                }
+                droppedCount.incrementAndGet();
+                return false;
+            case DROP_NEWEST:
+            default:
+                droppedCount.incrementAndGet();
+                return false;
+        }
+    }
+
+    /**
+     * Write what is still queued and stop the background thread
+     * @param timeoutMillis longest time to wait for the last writes
+     */
+    public void close(long timeoutMillis) {
+        // not interrupting the writer, it may be in the middle of a JDBC call
+        closed = true;
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of messages lost because the queue was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return number of messages waiting to be written
+     */
+    public int getQueuedNum() {
+        return queue.size();
+    }
+
+    //** Writing --------------------------------------------------------------------------------
+
+    private void writeLoop() {
+        List<LogItem> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                LogItem first = queue.poll(1, TimeUnit.SECONDS);
+                if (null == first) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<LogItem> batch) {
+        long dropped = droppedCount.get();
+        if (dropped > reportedDropped) {
+            batch.add(new LogItem(new Timestamp(System.currentTimeMillis()), LogType.Error,
+                    (dropped - reportedDropped) + " log message(s) dropped because the log queue was full"));
+            reportedDropped = dropped;
+        }
+        try {
+            sink.write(batch);
+        } catch (Exception | LinkageError e) {
+            // never log through the logger here, messages have already been printed to stdout
+            System.err.println("Log database write failed, " + batch.size() + " message(s) not stored: " + e.getMessage());
+        }
+    }
+}
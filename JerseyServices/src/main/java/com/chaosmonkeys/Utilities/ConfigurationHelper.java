@@ -30,6 +30,78 @@ public class ConfigurationHelper {
         basicInfo.setCoordinationIP(ini.get("coordination", "IP", String.class));
         basicInfo.setServiceIP(ini.get("info", "ip", String.class));
         basicInfo.setServicePort(ini.get("info", "port", String.class));
+        // optional execution section, only used by training/execution services
+        Integer maxConcurrentTasks = ini.get("execution", "maxConcurrentTasks", Integer.class);
+        if(null != maxConcurrentTasks){
+            basicInfo.setMaxConcurrentTasks(maxConcurrentTasks);
+        }
+        basicInfo.setStagingMode(ini.get("execution", "stagingMode", String.class));
+        Long cacheMaxSizeMB = ini.get("execution", "cacheMaxSizeMB", Long.class);
+        if(null != cacheMaxSizeMB){
+            basicInfo.setCacheMaxSizeMB(cacheMaxSizeMB);
+        }
+        Integer warmWorkers = ini.get("execution", "warmWorkers", Integer.class);
+        if(null != warmWorkers){
+            basicInfo.setWarmWorkers(warmWorkers);
+        }
+        Integer workerMaxJobs = ini.get("execution", "workerMaxJobs", Integer.class);
+        if(null != workerMaxJobs){
+            basicInfo.setWorkerMaxJobs(workerMaxJobs);
+        }
+        Long workerMaxMemoryMB = ini.get("execution", "workerMaxMemoryMB", Long.class);
+        if(null != workerMaxMemoryMB){
+            basicInfo.setWorkerMaxMemoryMB(workerMaxMemoryMB);
+        }
+        Integer residentModels = ini.get("execution", "residentModels", Integer.class);
+        if(null != residentModels){
+            basicInfo.setResidentModels(residentModels);
+        }
+        Long predictBatchDelayMs = ini.get("execution", "predictBatchDelayMs", Long.class);
+        if(null != predictBatchDelayMs){
+            basicInfo.setPredictBatchDelayMs(predictBatchDelayMs);
+        }
+        Integer predictMaxBatchRows = ini.get("execution", "predictMaxBatchRows", Integer.class);
+        if(null != predictMaxBatchRows){
+            basicInfo.setPredictMaxBatchRows(predictMaxBatchRows);
+        }
+        basicInfo.setRscriptCommand(ini.get("execution", "rscript", String.class));
+        // optional log section
+        Integer logQueueSize = ini.get("log", "queueSize", Integer.class);
+        if(null != logQueueSize){
+            basicInfo.setLogQueueSize(logQueueSize);
+        }
+        basicInfo.setLogOverflowPolicy(ini.get("log", "overflowPolicy", String.class));
+        // optional upload section, only used by input services
+        Integer uploadBufferSizeKB = ini.get("upload", "bufferSizeKB", Integer.class);
+        if(null != uploadBufferSizeKB){
+            basicInfo.setUploadBufferSizeKB(uploadBufferSizeKB);
+        }
+        basicInfo.setUploadDirectBuffer(ini.get("upload", "directBuffer", Boolean.class));
+        basicInfo.setUploadSyncPolicy(ini.get("upload", "syncPolicy", String.class));
+        Boolean streamingUnzip = ini.get("upload", "streamingUnzip", Boolean.class);
+        if(null != streamingUnzip){
+            basicInfo.setStreamingUnzip(streamingUnzip);
+        }
+        Long unzipMaxSizeMB = ini.get("upload", "unzipMaxSizeMB", Long.class);
+        if(null != unzipMaxSizeMB){
+            basicInfo.setUnzipMaxSizeMB(unzipMaxSizeMB);
+        }
+        Integer unzipMaxEntries = ini.get("upload", "unzipMaxEntries", Integer.class);
+        if(null != unzipMaxEntries){
+            basicInfo.setUnzipMaxEntries(unzipMaxEntries);
+        }
+        Boolean jsonRecordCheck = ini.get("upload", "jsonRecordCheck", Boolean.class);
+        if(null != jsonRecordCheck){
+            basicInfo.setJsonRecordCheck(jsonRecordCheck);
+        }
+        Boolean columnarConversion = ini.get("upload", "columnar", Boolean.class);
+        if(null != columnarConversion){
+            basicInfo.setColumnarConversion(columnarConversion);
+        }
+        Integer columnarRowGroupSize = ini.get("upload", "columnarRowGroupSize", Integer.class);
+        if(null != columnarRowGroupSize){
+            basicInfo.setColumnarRowGroupSize(columnarRowGroupSize);
+        }
         return basicInfo;
     }
 }
@@ -9,6 +9,34 @@ public class Constants {
     public static final String TYPE_EXECUTION = "Execution";
     public static final String TYPE_TRAINING = "Training";
 
-    // logging cache number
-    public static final int MAX_LOG_CACHE_NUM = 20;
+    // asynchronous logging, queue size is used when [log] queueSize is not configured
+    public static final int DEFAULT_LOG_QUEUE_SIZE = 10000;
+    public static final int MAX_LOG_BATCH_SIZE = 200;
+    public static final long LOG_CLOSE_TIMEOUT_MS = 5000L;
+    // size of the message columns in operations_log/errors_log
+    public static final int MAX_LOG_MESSAGE_LENGTH = 1000;
+    // output logs of tasks, the oldest ones are deleted past this number
+    public static final int MAX_TASK_LOG_FILES = 500;
+
+    // upload receiving, used when [upload] bufferSizeKB is not configured
+    public static final int DEFAULT_UPLOAD_BUFFER_SIZE_KB = 1024;
+
+    // chunked uploads, sessions idle for longer are dropped with their partial file
+    public static final long UPLOAD_SESSION_TIMEOUT_HOURS = 24L;
+
+    // algorithm archives, used when [upload] unzipMaxSizeMB/unzipMaxEntries are not configured
+    public static final long DEFAULT_UNZIP_MAX_SIZE_MB = 4096L;
+    public static final int DEFAULT_UNZIP_MAX_ENTRIES = 100000;
+
+    // columnar copies of datasets, used when [upload] columnarRowGroupSize is not configured
+    public static final int DEFAULT_COLUMNAR_ROW_GROUP_SIZE = 65536;
+
+    // heartbeats, state is checked every min interval and sent when it changed,
+    // otherwise a keep-alive is sent after an interval growing to the max one
+    // the max interval must stay well under the 3 minutes after which the coordination service drops a node
+    public static final long HEARTBEAT_MIN_INTERVAL_MS = 2000L;
+    public static final long HEARTBEAT_MAX_INTERVAL_MS = 60000L;
+    public static final double HEARTBEAT_JITTER = 0.1;
+    public static final int HEARTBEAT_CONNECT_TIMEOUT_MS = 3000;
+    public static final int HEARTBEAT_READ_TIMEOUT_MS = 5000;
 }
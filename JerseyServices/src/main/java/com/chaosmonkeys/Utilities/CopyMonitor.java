@@ -0,0 +1,83 @@
+package com.chaosmonkeys.Utilities;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress and cancellation token shared by all copies of one staging job
+ *
+ * Copy workers add the bytes they transferred and check the cancellation
+ * flag between chunks, so a cancelled job stops within one chunk.
+ */
+public class CopyMonitor {
+
+    private volatile boolean cancelled = false;
+    private final LongAdder bytesCopied = new LongAdder();
+    private volatile long startNanos = 0;
+    private volatile long endNanos = 0;
+
+    /**
+     * Mark the beginning of the staging job, used for throughput
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        endNanos = 0;
+    }
+
+    /**
+     * Mark the end of the staging job, used for throughput
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws InterruptedIOException if the job has been cancelled
+     */
+    public void checkCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Copy cancelled");
+        }
+    }
+
+    public void addBytes(long bytes) {
+        bytesCopied.add(bytes);
+    }
+
+    /**
+     * @return number of bytes copied so far
+     */
+    public long getBytesCopied() {
+        return bytesCopied.sum();
+    }
+
+    /**
+     * @return elapsed time of the job in milliseconds, up to now if it has not finished
+     */
+    public long getElapsedMillis() {
+        if (0 == startNanos) {
+            return 0;
+        }
+        long end = 0 == endNanos ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1_000_000L;
+    }
+
+    /**
+     * @return copy throughput in bytes per second, 0 if the job has not started
+     */
+    public double getThroughput() {
+        long elapsedMillis = getElapsedMillis();
+        if (elapsedMillis <= 0) {
+            return 0;
+        }
+        return getBytesCopied() * 1000.0 / elapsedMillis;
+    }
+}
@@ -1,7 +1,7 @@
 package com.chaosmonkeys.Utilities;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import com.chaosmonkeys.datasetinputservice.validation.JsonValidator;
+
 import java.io.*;
 import java.nio.file.Path;
 import java.util.Optional;
@@ -12,13 +12,10 @@ public class DataVerification {
     private String fileName;
     private File datasetFile;
     private Path datasetPath;
-    private Gson gson;
 
 
     public DataVerification(String fileName) {
         this.fileName = fileName;
-        gson = new Gson();
-
     }
 
     public DataVerification(File file){
@@ -73,45 +70,25 @@ public class DataVerification {
     }
 
 
+    /**
+     * Check the dataset file is valid JSON, it is read as a stream of tokens so any size fits in memory
+     * @return true if the file is valid JSON
+     */
     public boolean isJSONValid() {
-        InputStream inputStream=null;
-        InputStreamReader reader=null;
+        JsonValidator validator = new JsonValidator(false);
         try {
-            inputStream = new FileInputStream(datasetFile);
-            reader = new InputStreamReader(inputStream);
-            gson.fromJson(reader, Object.class);
-            reader.close();
-            return true;
-
-        } catch (FileNotFoundException ex) {
-            try{
-                if(inputStream!=null)
-                inputStream.close();
-                Logger.Exception("file not found");
-                return false;
-            } catch (IOException IOExp) {
-                return false;
-            }
-        }  catch (JsonSyntaxException ex) {
-            try{
-                if(reader!=null)
-                reader.close();
-                Logger.Exception("JSON syntax error");
-                return false;
-            } catch (IOException IOEx) {
-                return false;
-            }
-        }catch (IOException ex) {
-            try{
-                reader.close();
-                Logger.Exception("IOException");
-                return false;
-            } catch (IOException IOEx) {
-                return false;
+            if (validator.validate(datasetFile)) {
+                return true;
             }
-
+            Logger.Exception("JSON syntax error: " + validator.getError());
+            return false;
+        } catch (FileNotFoundException ex) {
+            Logger.Exception("file not found");
+            return false;
+        } catch (IOException ex) {
+            Logger.Exception("IOException");
+            return false;
         }
-
     }
 
     public boolean isCSVValid() {
@@ -0,0 +1,168 @@
+package com.chaosmonkeys.Utilities;
+
+import com.chaosmonkeys.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store an uploaded stream into a file through NIO channels
+ *
+ * The stream is read into one large buffer which is written with a single call once it is
+ * full, so a multi-GB upload costs a few thousand writes instead of millions. Direct buffers
+ * are handed to the file channel without an extra copy. When the source is already a file,
+ * its channel is transferred to the target without passing through the JVM at all.
+ */
+public class FileReceiver {
+
+    // smallest buffer worth using, the stream of the request is read in chunks of this size anyway
+    private static final int MIN_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Size and duration of one received file
+     */
+    public static class ReceiveStats {
+        private final long bytes;
+        private final long elapsedNanos;
+
+        ReceiveStats(long bytes, long elapsedNanos) {
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public long getBytesPerSecond() {
+            return elapsedNanos <= 0 ? bytes : (long) (bytes * 1e9 / elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d bytes in %d ms (%.1f MB/s)", bytes, getElapsedMillis(), getBytesPerSecond() / (1024.0 * 1024.0));
+        }
+    }
+
+    private final int bufferSize;
+    private final boolean directBuffer;
+    private final SyncPolicy syncPolicy;
+
+    /**
+     * @param bufferSize bytes gathered before each write
+     * @param directBuffer whether buffers are allocated outside the heap
+     * @param syncPolicy how the file is forced to disk once received
+     */
+    public FileReceiver(int bufferSize, boolean directBuffer, SyncPolicy syncPolicy) {
+        this.bufferSize = Math.max(MIN_BUFFER_SIZE, bufferSize);
+        this.directBuffer = directBuffer;
+        this.syncPolicy = syncPolicy;
+    }
+
+    /**
+     * Store a stream into a file, the file is replaced if it exists
+     * @param inputStream uploaded stream, not closed by this method
+     * @param targetFile file to write
+     * @param expectedSize size announced by the client, not positive if unknown.
+     *                     Only used as a hint: the upload is refused at once when the disk cannot hold it,
+     *                     and small files do not get a full-sized buffer
+     * @return number of bytes received and how long it took
+     * @throws IOException if the stream cannot be read or the file cannot be written
+     */
+    public ReceiveStats receive(InputStream inputStream, File targetFile, long expectedSize) throws IOException {
+        long start = System.nanoTime();
+        if (expectedSize > 0) {
+            File parent = targetFile.getAbsoluteFile().getParentFile();
+            long usable = null == parent ? 0 : parent.getUsableSpace();
+            // 0 means the free space cannot be known
+            if (usable > 0 && usable < expectedSize) {
+                throw new IOException("Not enough disk space to receive " + expectedSize + " bytes, " + usable + " bytes left");
+            }
+        }
+        long received;
+        try (FileChannel out = FileChannel.open(targetFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (inputStream instanceof FileInputStream) {
+                received = transfer(((FileInputStream) inputStream).getChannel(), out);
+            } else {
+                received = copy(Channels.newChannel(inputStream), out, allocate(expectedSize));
+            }
+            switch (syncPolicy) {
+                case DATA:
+                    out.force(false);
+                    break;
+                case ALL:
+                    out.force(true);
+                    break;
+                case NONE:
+                default:
+                    break;
+            }
+        }
+        ReceiveStats stats = new ReceiveStats(received, System.nanoTime() - start);
+        recordUpload(received, stats.getBytesPerSecond());
+        return stats;
+    }
+
+    /**
+     * Count received bytes and the throughput of the upload
+     * @param bytes bytes received
+     * @param bytesPerSecond throughput of this upload, not recorded if negative
+     */
+    public static void recordUpload(long bytes, long bytesPerSecond) {
+        MetricsRegistry.INSTANCE.counter("upload_bytes_total", "Bytes received by uploads").add(bytes);
+        if (bytesPerSecond >= 0) {
+            MetricsRegistry.INSTANCE.histogram("upload_throughput_bytes_per_second", "Throughput of each upload", 1).record(bytesPerSecond);
+        }
+    }
+
+    private ByteBuffer allocate(long expectedSize) {
+        int size = bufferSize;
+        if (expectedSize > 0 && expectedSize < size) {
+            size = (int) Math.max(MIN_BUFFER_SIZE, expectedSize);
+        }
+        return directBuffer ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    private static long copy(ReadableByteChannel in, FileChannel out, ByteBuffer buffer) throws IOException {
+        long total = 0;
+        boolean eof = false;
+        while (!eof) {
+            // fill the whole buffer before writing, the source returns small chunks
+            while (buffer.hasRemaining()) {
+                if (in.read(buffer) < 0) {
+                    eof = true;
+                    break;
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                total += out.write(buffer);
+            }
+            buffer.clear();
+        }
+        return total;
+    }
+
+    private static long transfer(FileChannel in, FileChannel out) throws IOException {
+        long total = 0;
+        long count;
+        // transferFrom may move fewer bytes than asked, keep going until the source is drained
+        while ((count = out.transferFrom(in, total, Long.MAX_VALUE - total)) > 0) {
+            total += count;
+        }
+        return total;
+    }
+}
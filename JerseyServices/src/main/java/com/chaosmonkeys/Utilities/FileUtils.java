@@ -6,8 +6,13 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * General file manipulation utilities.
@@ -36,6 +41,12 @@ public class FileUtils {
 
     public static final String EXECUTION_DATA = "Execution";
     public static final String TRAINING_DATA = "Predications";
+    // partial files of chunked uploads, kept under the dataset folder so committing is a rename
+    public static final String UPLOAD_SESSION_DATA = "Uploads";
+    // statistics of a dataset computed at upload, stored next to the dataset file
+    public static final String PROFILE_SUFFIX = ".profile.json";
+    // columnar copy of a dataset, stored next to the dataset file
+    public static final String COLUMNAR_SUFFIX = ".col";
 
     // Constants operating with algorithm upload and storage;
     public static final String ALGR_PATH =  WORKSPACE_PATH + FILE_SEPARATOR + "Algorithms" + FILE_SEPARATOR;
@@ -45,8 +56,17 @@ public class FileUtils {
 
     // Constants operating with prediction storage
     public static final String PREDICTION_PATH = WORKSPACE_PATH + FILE_SEPARATOR + "Predictions" + FILE_SEPARATOR;
+
+    // Constants operating with experiment output logs
+    public static final String TASK_LOG_PATH = WORKSPACE_PATH + FILE_SEPARATOR + "TaskLogs" + FILE_SEPARATOR;
+    // Constants operating with task journals
+    public static final String TASK_JOURNAL_PATH = WORKSPACE_PATH + FILE_SEPARATOR + "TaskJournal" + FILE_SEPARATOR;
     // Filename case sensitive
     private static boolean sensitive = false;
+    // how experiment resources are staged into workspaces, can be changed by configuration
+    private static volatile StagingMode defaultStagingMode = StagingMode.LINK;
+    // how uploads are written to disk, can be changed by configuration
+    private static volatile FileReceiver fileReceiver = new FileReceiver(Constants.DEFAULT_UPLOAD_BUFFER_SIZE_KB * 1024, true, SyncPolicy.NONE);
 
 
     /**
@@ -182,6 +202,35 @@ public class FileUtils {
         return createFolderInPath(DATA_SET_PATH);
     }
 
+    /**
+     * Create the folder of chunked upload sessions if it does not exist
+     *
+     * @return upload session folder as File Object
+     */
+    public static File createUploadSessionFolder() {
+        return createNewFolderUnder(UPLOAD_SESSION_DATA, createDatasetFolder());
+    }
+
+    /**
+     * Get the profile file of a dataset, it may not exist
+     *
+     * @param dataFile dataset file
+     * @return profile file next to the dataset file
+     */
+    public static File getProfileFile(File dataFile) {
+        return new File(dataFile.getPath() + PROFILE_SUFFIX);
+    }
+
+    /**
+     * Get the columnar copy of a dataset, it may not exist
+     *
+     * @param dataFile dataset file
+     * @return columnar file next to the dataset file
+     */
+    public static File getColumnarFile(File dataFile) {
+        return new File(dataFile.getPath() + COLUMNAR_SUFFIX);
+    }
+
     /**
      * Create algorithm folder if it does not exit
      * @return Algorithm root folder as File Object
@@ -201,6 +250,43 @@ public class FileUtils {
     public static File createPredictionFolder(){
         return createFolderInPath(PREDICTION_PATH);
     }
+
+    /**
+     * Obtain the output log file of a task, the log folder is created if it does not exist
+     * and only the newest logs are kept, see {@link Constants#MAX_TASK_LOG_FILES}
+     * @param taskId task ID
+     * @return log file (not created yet)
+     */
+    public static File createTaskLogFile(String taskId){
+        File logFolder = createFolderInPath(TASK_LOG_PATH);
+        pruneLogFiles(logFolder, Constants.MAX_TASK_LOG_FILES - 1);
+        return new File(logFolder, taskId + ".log");
+    }
+
+    /**
+     * Delete the least recently modified log files of a folder
+     * @param logFolder folder of .log files
+     * @param maxFiles number of log files kept
+     */
+    public static void pruneLogFiles(File logFolder, int maxFiles){
+        File[] logs = logFolder.listFiles((dir, name) -> name.endsWith(".log"));
+        if(null == logs || logs.length <= maxFiles){
+            return;
+        }
+        Arrays.sort(logs, Comparator.comparingLong(File::lastModified));
+        for(int i = 0; i < logs.length - maxFiles; i++){
+            deleteQuietly(logs[i]);
+        }
+    }
+
+    /**
+     * Obtain the task journal file of a service, the journal folder is created if it does not exist
+     * @param serviceType service type, each service keeps its own journal
+     * @return journal file (may not be created yet)
+     */
+    public static File createTaskJournalFile(String serviceType){
+        return new File(createFolderInPath(TASK_JOURNAL_PATH), sanitizeFilename(serviceType) + ".journal");
+    }
     /**
      * Create model folder if it does not exit
      * @return PredictionModel root folder as Path object
@@ -211,15 +297,184 @@ public class FileUtils {
 
     // Upload/Download related mehtods TODO:move these methods to some other stable classes not in FIleUtils
     public static void receiveFile(InputStream fileInputStream, File targetFile) throws IOException{
-        int read = 0;       // the total number of bytes read into the buffer
-        byte[] bytes = new byte[1024];
+        receiveFile(fileInputStream, targetFile, -1);
+    }
+
+    /**
+     * Store an uploaded stream into a file with the configured receiver
+     * @param fileInputStream uploaded stream
+     * @param targetFile file to write
+     * @param expectedSize size announced by the client, not positive if unknown
+     * @return number of bytes received and how long it took
+     * @throws IOException if the stream cannot be read or the file cannot be written
+     */
+    public static FileReceiver.ReceiveStats receiveFile(InputStream fileInputStream, File targetFile, long expectedSize) throws IOException{
+        return fileReceiver.receive(fileInputStream, targetFile, expectedSize);
+    }
+
+    public static void setFileReceiver(FileReceiver receiver) {
+        fileReceiver = receiver;
+    }
+
+    // Workspace staging related methods
+
+    public static StagingMode getDefaultStagingMode() {
+        return defaultStagingMode;
+    }
+
+    public static void setDefaultStagingMode(StagingMode stagingMode) {
+        defaultStagingMode = stagingMode;
+    }
+
+    /**
+     * Stage a whole directory into a workspace folder.
+     * With {@link StagingMode#LINK} the directory structure is recreated and read-only files,
+     * e.g. staging cache entries, are hard linked, so their cost does not depend on their size.
+     * Writable files are copied since a link would let the experiment change the source,
+     * sources are never modified. Files are copied in parallel when the workspace is on another
+     * file system or mode is {@link StagingMode#COPY}.
+     *
+     * @param srcDir  an existing directory to stage, must not be {@code null}
+     * @param destDir the workspace directory, created if it does not exist
+     * @param mode    staging mode
+     * @throws IOException if source or destination is invalid or an IO error occurs
+     */
+    public static void stageDirectory(final File srcDir, final File destDir, final StagingMode mode) throws IOException {
+        stageDirectory(srcDir, destDir, mode, new CopyMonitor());
+    }
+
+    /**
+     * Stage a whole directory into a workspace folder, reporting copied bytes to a monitor.
+     * Copies run in parallel and stop as soon as the monitor is cancelled.
+     *
+     * @param srcDir  an existing directory to stage, must not be {@code null}
+     * @param destDir the workspace directory, created if it does not exist
+     * @param mode    staging mode
+     * @param monitor progress and cancellation token
+     * @throws InterruptedIOException if the monitor is cancelled
+     * @throws IOException if source or destination is invalid or an IO error occurs
+     * @see #stageDirectory(File, File, StagingMode)
+     */
+    public static void stageDirectory(final File srcDir, final File destDir, final StagingMode mode,
+                                      final CopyMonitor monitor) throws IOException {
+        if (mode != StagingMode.LINK) {
+            checkFileRequirements(srcDir, destDir);
+            ParallelCopier.copyDirectory(srcDir, destDir, monitor);
+            return;
+        }
+        checkFileRequirements(srcDir, destDir);
+        if (!srcDir.isDirectory()) {
+            throw new IOException("Source '" + srcDir + "' exists but is not a directory");
+        }
+        final Path srcRoot = srcDir.toPath().toRealPath();
+        final Path destRoot = destDir.toPath();
+        Files.createDirectories(destRoot);
+        if (!isSameFileStore(srcRoot, destRoot)) {
+            // nothing can be linked across file systems
+            ParallelCopier.copyDirectory(srcDir, destDir, monitor);
+            return;
+        }
+        final List<Path> srcFiles = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(srcRoot)) {
+            paths.forEach(srcFiles::add);
+        }
+        final List<ParallelCopier.CopyAction> copies = new ArrayList<>();
+        for (Path src : srcFiles) {
+            monitor.checkCancelled();
+            Path dest = destRoot.resolve(srcRoot.relativize(src).toString());
+            if (Files.isDirectory(src)) {
+                Files.createDirectories(dest);
+            } else if (!linkIfReadOnly(src, dest)) {
+                copies.add(() -> ParallelCopier.copyFile(src.toFile(), dest.toFile(), monitor));
+            }
+        }
+        ParallelCopier.runConcurrently(copies.toArray(new ParallelCopier.CopyAction[0]));
+    }
+
+    /**
+     * Stage a file into a workspace folder, keeping its name.
+     *
+     * @param srcFile an existing file to stage, must not be {@code null}
+     * @param destDir the directory to place the file in, created if it does not exist
+     * @param mode    staging mode
+     * @throws IOException if source or destination is invalid or an IO error occurs
+     * @see #stageDirectory(File, File, StagingMode)
+     */
+    public static void stageFileToDirectory(final File srcFile, final File destDir, final StagingMode mode) throws IOException {
+        stageFileToDirectory(srcFile, destDir, mode, new CopyMonitor());
+    }
 
-        OutputStream out = new FileOutputStream(targetFile);
-        while ((read = fileInputStream.read(bytes)) != -1) {
-            out.write(bytes, 0, read);
+    /**
+     * Stage a file into a workspace folder, reporting copied bytes to a monitor.
+     *
+     * @param srcFile an existing file to stage, must not be {@code null}
+     * @param destDir the directory to place the file in, created if it does not exist
+     * @param mode    staging mode
+     * @param monitor progress and cancellation token
+     * @throws InterruptedIOException if the monitor is cancelled
+     * @throws IOException if source or destination is invalid or an IO error occurs
+     * @see #stageDirectory(File, File, StagingMode, CopyMonitor)
+     */
+    public static void stageFileToDirectory(final File srcFile, final File destDir, final StagingMode mode,
+                                            final CopyMonitor monitor) throws IOException {
+        if (mode != StagingMode.LINK) {
+            checkFileRequirements(srcFile, destDir);
+            ParallelCopier.copyFile(srcFile, new File(destDir, srcFile.getName()), monitor);
+            return;
+        }
+        checkFileRequirements(srcFile, destDir);
+        if (srcFile.isDirectory()) {
+            throw new IOException("Source '" + srcFile + "' exists but is a directory");
+        }
+        final Path src = srcFile.toPath().toRealPath();
+        final Path destFolder = destDir.toPath();
+        Files.createDirectories(destFolder);
+        final Path dest = destFolder.resolve(srcFile.getName());
+        if (!isSameFileStore(src, destFolder) || !linkIfReadOnly(src, dest)) {
+            ParallelCopier.copyFile(src.toFile(), dest.toFile(), monitor);
+        }
+    }
+
+    /**
+     * Hard link a single file if it is read-only
+     *
+     * A hard link shares the content and permissions with the source, so only files nobody may write,
+     * e.g. staging cache entries, are linked. Stored resources are never modified to allow linking them.
+     * @param src real path of the source file, on the same file store as dest
+     * @param dest destination file, replaced if it exists
+     * @return false if the file has not been linked and has to be copied
+     */
+    private static boolean linkIfReadOnly(final Path src, final Path dest) throws IOException {
+        Files.deleteIfExists(dest);
+        if (!isReadOnly(src)) {
+            return false;
+        }
+        try {
+            Files.createLink(dest, src);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            // e.g. file system without hard link support, fall back to copy
+            return false;
+        }
+    }
+
+    // by permission bits, an access check would call every file writable for root
+    private static boolean isReadOnly(final Path path) {
+        try {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+            return !permissions.contains(PosixFilePermission.OWNER_WRITE) && !permissions.contains(PosixFilePermission.GROUP_WRITE)
+                    && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (UnsupportedOperationException | IOException e) {
+            return !Files.isWritable(path);
+        }
+    }
+
+    private static boolean isSameFileStore(final Path path1, final Path path2) {
+        try {
+            return Files.getFileStore(path1).equals(Files.getFileStore(path2));
+        } catch (IOException e) {
+            return false;
         }
-        out.flush();
-        out.close();
     }
 
 
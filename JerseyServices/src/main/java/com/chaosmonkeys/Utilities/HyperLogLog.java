@@ -0,0 +1,96 @@
+package com.chaosmonkeys.Utilities;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values in a stream
+ *
+ * The sketch takes 2^precision bytes whatever the number of values, the standard error is about 1.04 / sqrt(2^precision).
+ * Values are offered as 64-bit hashes, {@link #hashStart()} and {@link #hashByte(long, int)} build one incrementally
+ * so a value never needs to be held as a whole.
+ */
+public class HyperLogLog {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * @param precision number of index bits, from 4 to 16
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Add one value
+     * @param hash hash of the value, it is mixed again so a simple hash is enough
+     */
+    public void offer(long hash) {
+        long mixed = mix(hash);
+        int index = (int) (mixed >>> (64 - precision));
+        // position of the first set bit in the remaining bits, capped when they are all zero
+        int rank = Math.min(Long.numberOfLeadingZeros(mixed << precision), 64 - precision) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * @return estimated number of distinct values offered so far
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (0 == register) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // linear counting is more accurate while many registers are still empty
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    //** Hashing --------------------------------------------------------------------------------
+
+    public static long hashStart() {
+        return FNV_OFFSET;
+    }
+
+    /**
+     * Add one byte to a FNV-1a hash
+     */
+    public static long hashByte(long hash, int b) {
+        return (hash ^ (b & 0xff)) * FNV_PRIME;
+    }
+
+    public static long hash(CharSequence value) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = hashByte(hashByte(hash, c >>> 8), c);
+        }
+        return hash;
+    }
+
+    // finalizer of MurmurHash3, spreads every input bit over the whole hash
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,32 @@
+package com.chaosmonkeys.Utilities;
+
+/**
+ * What the logger does with a message when its queue to the log database is full.
+ */
+public enum LogOverflowPolicy {
+    // discard the oldest queued message to make room, recent messages are usually more useful
+    DROP_OLDEST,
+    // discard the new message
+    DROP_NEWEST,
+    // wait until the writer makes room, logging callers are slowed down by the database
+    BLOCK;
+
+    /**
+     * Parse an overflow policy from configuration
+     * @param value configured value, case insensitive
+     * @param defaultPolicy policy used when value is blank or unknown
+     * @return parsed overflow policy
+     */
+    public static LogOverflowPolicy parse(String value, LogOverflowPolicy defaultPolicy) {
+        if (StringUtils.isBlank(value)) {
+            return defaultPolicy;
+        }
+        for (LogOverflowPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(value.trim())) {
+                return policy;
+            }
+        }
+        System.out.println("Unknown log overflow policy '" + value + "', using " + defaultPolicy);
+        return defaultPolicy;
+    }
+}
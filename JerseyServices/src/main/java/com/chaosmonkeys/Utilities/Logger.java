@@ -2,29 +2,44 @@ package com.chaosmonkeys.Utilities;
 
 import com.chaosmonkeys.Launcher;
 import com.chaosmonkeys.Utilities.db.DbUtils;
-import com.chaosmonkeys.dao.ErrorLog;
-import com.chaosmonkeys.dao.OpLog;
-import org.javalite.activejdbc.Model;
+import com.chaosmonkeys.metrics.MetricsRegistry;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class that is used to log information and error messages.
+ *
+ * Messages are printed right away and stored in the log database by a background
+ * writer, so logging never waits for a database connection.
  */
 public class Logger {
 
+    private static final String ERRORS_TABLE = "errors_log";
+    private static final String OPERATIONS_TABLE = "operations_log";
+    private static final String[] LOG_COLUMNS = {"timestamp", "type", "message"};
+
     // service type
     private static String serviceType = "";
-    // a list to store log info
+    // queue size and overflow policy, applied when the writer starts
+    private static int queueSize = Constants.DEFAULT_LOG_QUEUE_SIZE;
+    private static LogOverflowPolicy overflowPolicy = LogOverflowPolicy.DROP_OLDEST;
+    private static volatile AsyncLogWriter writer;
+
+    static{
+        MetricsRegistry.INSTANCE.gauge("log_queue_depth", "Log messages waiting to be stored in the log database", Logger::getQueuedNum);
+        MetricsRegistry.INSTANCE.counterFunction("log_dropped_total", "Log messages lost because the log queue was full", Logger::getDroppedCount);
+    }
 
     /**
-     * Displaying log and store it to database
+     * Displaying log and queue it to be stored in database
      * @param type
      * @param message
      */
     public static void SaveLog(LogType type, String message){
-        if(serviceType.equals("")){
+        if(null == serviceType || serviceType.equals("")){
             serviceType = Launcher.serviceType;
         }
         StringBuilder strBuilder = new StringBuilder();
@@ -33,25 +48,49 @@ public class Logger {
         strBuilder.append(message);
         String msg = strBuilder.toString();
         Timestamp nowTime = Timestamp.from(Instant.now());
-        //TODO: Implement logic here
         System.out.println(msg);
-        if(type == LogType.Error || type == LogType.Exception){
-            DbUtils.openLogConnection();    // connections must be opened before any models
-            ErrorLog errorLogModel = new ErrorLog();
-            errorLogModel.set("timestamp", nowTime);
-            errorLogModel.set("type", type.toString());
-            errorLogModel.set("message", msg);
-            errorLogModel.saveIt();
-            DbUtils.closeLogConnection();
-        }else{
-            DbUtils.openLogConnection();
-            OpLog opLogModel = new OpLog();
-            opLogModel.set("timestamp", nowTime);
-            opLogModel.set("type", type.toString());
-            opLogModel.set("message", msg);
-            opLogModel.saveIt();
-            DbUtils.closeLogConnection();
+        if(msg.length() > Constants.MAX_LOG_MESSAGE_LENGTH){
+            msg = msg.substring(0, Constants.MAX_LOG_MESSAGE_LENGTH);
+        }
+        getWriter().append(new AsyncLogWriter.LogItem(nowTime, type, msg));
+    }
+
+    /**
+     * Set the queue to the log database, must be invoked before the first message is logged
+     * @param size maximum number of messages waiting to be stored, not positive means using the default
+     * @param policy what to do with messages when the queue is full
+     */
+    public static synchronized void configure(int size, LogOverflowPolicy policy){
+        if(null != writer){
+            System.out.println("Logger has already been started, log queue settings are ignored");
+            return;
         }
+        queueSize = size > 0 ? size : Constants.DEFAULT_LOG_QUEUE_SIZE;
+        overflowPolicy = policy;
+    }
+
+    /**
+     * Store the messages still queued and stop the background writer,
+     * used when the service is shutting down
+     */
+    public static synchronized void shutdown(){
+        if(null != writer){
+            writer.close(Constants.LOG_CLOSE_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * @return number of messages lost because the log queue was full
+     */
+    public static long getDroppedCount(){
+        return null == writer ? 0 : writer.getDroppedCount();
+    }
+
+    /**
+     * @return number of messages waiting to be stored
+     */
+    public static int getQueuedNum(){
+        return null == writer ? 0 : writer.getQueuedNum();
     }
 
     public static void setServiceType(String type){
@@ -68,10 +107,35 @@ public class Logger {
     public static void Request(String message){SaveLog(LogType.Request, message);}
     public static void Response(String message){SaveLog(LogType.Response, message);}
 
-    //TODO: if logging slow down the whole system, we will cache log items and flush them when it reaches maxium cache number to avoid frequently connecting
-    private class LogItem{
-        Timestamp timestamp;
-        String log;
-        LogType type;
+    /**
+     * Obtain the background writer, using double-checked lock to start it lazily
+     */
+    private static AsyncLogWriter getWriter(){
+        if(null == writer){
+            synchronized (Logger.class){
+                if(null == writer){
+                    writer = new AsyncLogWriter(queueSize, overflowPolicy, Constants.MAX_LOG_BATCH_SIZE, Logger::storeLogs);
+                }
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Store a batch of messages with one INSERT per log table
+     */
+    private static void storeLogs(List<AsyncLogWriter.LogItem> items){
+        List<Object[]> errorRows = new ArrayList<>();
+        List<Object[]> operationRows = new ArrayList<>();
+        for(AsyncLogWriter.LogItem item : items){
+            Object[] row = {item.timestamp, item.type.toString(), item.message};
+            if(item.type == LogType.Error || item.type == LogType.Exception){
+                errorRows.add(row);
+            }else{
+                operationRows.add(row);
+            }
+        }
+        DbUtils.insertLogRows(ERRORS_TABLE, LOG_COLUMNS, errorRows);
+        DbUtils.insertLogRows(OPERATIONS_TABLE, LOG_COLUMNS, operationRows);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,245 @@
+package com.chaosmonkeys.Utilities;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel and cancellable file copy used for staging experiment resources
+ * <p>
+ * A directory tree is copied with fork/join: every sub directory and file is
+ * a separate task, so independent files are copied at the same time.
+ * Files are transferred in chunks, the {@link CopyMonitor} is updated and
+ * checked for cancellation after every chunk.
+ */
+public final class ParallelCopier {
+
+    /**
+     * Size of one transferFrom call, cancellation is checked between chunks
+     */
+    private static final long CHUNK_SIZE = FileUtils.ONE_MB * 8;
+
+    // copy is IO bound, allow a few more workers than cores
+    private static final int PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("staging-copier-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    private ParallelCopier() {
+    }
+
+    /**
+     * IO action run by {@link #runConcurrently(CopyAction...)}
+     */
+    public interface CopyAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Run several staging actions at the same time and wait for all of them
+     *
+     * @param actions actions to run
+     * @throws IOException the first failure of the actions
+     */
+    public static void runConcurrently(CopyAction... actions) throws IOException {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(actions.length);
+        for (CopyAction action : actions) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                try {
+                    action.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Copy a whole directory, the destination is created if it does not exist
+     * and merged with the source if it does
+     *
+     * @param srcDir  an existing directory to copy
+     * @param destDir the new directory
+     * @param monitor progress and cancellation token
+     * @throws java.io.InterruptedIOException if the monitor is cancelled during the copy
+     * @throws IOException if source or destination is invalid or an IO error occurs
+     */
+    public static void copyDirectory(File srcDir, File destDir, CopyMonitor monitor) throws IOException {
+        if (!srcDir.exists()) {
+            throw new FileNotFoundException("Source '" + srcDir + "' does not exist");
+        }
+        if (!srcDir.isDirectory()) {
+            throw new IOException("Source '" + srcDir + "' exists but is not a directory");
+        }
+        // do not copy the destination into itself when it is inside the source
+        File excluded = null;
+        if (FileUtils.directoryContains(srcDir.getCanonicalFile(), destDir.getCanonicalFile())) {
+            excluded = destDir.getCanonicalFile();
+        }
+        invoke(new DirectoryCopyTask(srcDir, destDir, excluded, monitor));
+    }
+
+    /**
+     * Copy a file in chunks, the parent folder of destination is created if needed
+     *
+     * @param srcFile  an existing file to copy
+     * @param destFile the new file, overwritten if it exists
+     * @param monitor  progress and cancellation token
+     * @throws java.io.InterruptedIOException if the monitor is cancelled during the copy
+     * @throws IOException if source or destination is invalid or an IO error occurs
+     */
+    public static void copyFile(File srcFile, File destFile, CopyMonitor monitor) throws IOException {
+        if (!srcFile.exists()) {
+            throw new FileNotFoundException("Source '" + srcFile + "' does not exist");
+        }
+        if (srcFile.isDirectory()) {
+            throw new IOException("Source '" + srcFile + "' exists but is a directory");
+        }
+        File parentFile = destFile.getParentFile();
+        if (null != parentFile && !parentFile.mkdirs() && !parentFile.isDirectory()) {
+            throw new IOException("Destination '" + parentFile + "' directory cannot be created");
+        }
+        doCopyFile(srcFile, destFile, monitor);
+    }
+
+    private static void doCopyFile(File srcFile, File destFile, CopyMonitor monitor) throws IOException {
+        monitor.checkCancelled();
+        if (destFile.exists() && destFile.isDirectory()) {
+            throw new IOException("Destination '" + destFile + "' exists but is a directory");
+        }
+        try (FileInputStream fis = new FileInputStream(srcFile);
+             FileChannel input = fis.getChannel();
+             FileOutputStream fos = new FileOutputStream(destFile);
+             FileChannel output = fos.getChannel()) {
+            final long size = input.size();
+            long pos = 0;
+            while (pos < size) {
+                monitor.checkCancelled();
+                long bytesCopied = output.transferFrom(input, pos, Math.min(CHUNK_SIZE, size - pos));
+                if (bytesCopied == 0) { // file truncated after caching the size
+                    break;
+                }
+                pos += bytesCopied;
+                monitor.addBytes(bytesCopied);
+            }
+        }
+        if (srcFile.length() != destFile.length()) {
+            throw new IOException("Failed to copy full contents from '" +
+                    srcFile + "' to '" + destFile + "' Expected length: " + srcFile.length() + " Actual: " + destFile.length());
+        }
+        destFile.setLastModified(srcFile.lastModified());
+    }
+
+    /**
+     * Run a task in the copier pool and rethrow its IO failure
+     */
+    private static void invoke(ForkJoinTask<?> task) throws IOException {
+        try {
+            POOL.invoke(task);
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (null != cause) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                cause = cause.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Copy one directory level and fork the children
+     */
+    private static class DirectoryCopyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File srcDir;
+        private final File destDir;
+        private final File excluded;
+        private final CopyMonitor monitor;
+
+        DirectoryCopyTask(File srcDir, File destDir, File excluded, CopyMonitor monitor) {
+            this.srcDir = srcDir;
+            this.destDir = destDir;
+            this.excluded = excluded;
+            this.monitor = monitor;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                monitor.checkCancelled();
+                if (!destDir.mkdirs() && !destDir.isDirectory()) {
+                    throw new IOException("Destination '" + destDir + "' directory cannot be created");
+                }
+                File[] srcFiles = srcDir.listFiles();
+                if (null == srcFiles) {
+                    throw new IOException("Failed to list contents of " + srcDir);
+                }
+                List<ForkJoinTask<?>> subTasks = new ArrayList<>(srcFiles.length);
+                for (File srcFile : srcFiles) {
+                    if (null != excluded && excluded.equals(srcFile.getCanonicalFile())) {
+                        continue;
+                    }
+                    File destFile = new File(destDir, srcFile.getName());
+                    if (srcFile.isDirectory()) {
+                        subTasks.add(new DirectoryCopyTask(srcFile, destFile, excluded, monitor));
+                    } else {
+                        subTasks.add(new FileCopyTask(srcFile, destFile, monitor));
+                    }
+                }
+                invokeAll(subTasks);
+                destDir.setLastModified(srcDir.lastModified());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Copy one file
+     */
+    private static class FileCopyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File srcFile;
+        private final File destFile;
+        private final CopyMonitor monitor;
+
+        FileCopyTask(File srcFile, File destFile, CopyMonitor monitor) {
+            this.srcFile = srcFile;
+            this.destFile = destFile;
+            this.monitor = monitor;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                doCopyFile(srcFile, destFile, monitor);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
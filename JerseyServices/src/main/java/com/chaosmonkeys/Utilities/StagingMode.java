@@ -0,0 +1,30 @@
+package com.chaosmonkeys.Utilities;
+
+/**
+ * How experiment resources are staged into a temporary workspace.
+ */
+public enum StagingMode {
+    // copy every byte into the workspace
+    COPY,
+    // hard link read-only files such as the staging cache entries, copy the others and those on another file system
+    LINK;
+
+    /**
+     * Parse a staging mode from configuration
+     * @param value configured value, case insensitive
+     * @param defaultMode mode used when value is blank or unknown
+     * @return parsed staging mode
+     */
+    public static StagingMode parse(String value, StagingMode defaultMode) {
+        if (StringUtils.isBlank(value)) {
+            return defaultMode;
+        }
+        for (StagingMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        Logger.Error("Unknown staging mode '" + value + "', using " + defaultMode);
+        return defaultMode;
+    }
+}
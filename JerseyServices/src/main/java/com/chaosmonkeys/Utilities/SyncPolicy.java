@@ -0,0 +1,32 @@
+package com.chaosmonkeys.Utilities;
+
+/**
+ * How a received file is forced to disk before the upload is acknowledged.
+ */
+public enum SyncPolicy {
+    // leave it to the operating system, a crash right after the upload may lose the file
+    NONE,
+    // force the file content, enough to read the file back after a crash
+    DATA,
+    // force the file content and metadata such as its length and modification time
+    ALL;
+
+    /**
+     * Parse a sync policy from configuration
+     * @param value configured value, case insensitive
+     * @param defaultPolicy policy used when value is blank or unknown
+     * @return parsed sync policy
+     */
+    public static SyncPolicy parse(String value, SyncPolicy defaultPolicy) {
+        if (StringUtils.isBlank(value)) {
+            return defaultPolicy;
+        }
+        for (SyncPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(value.trim())) {
+                return policy;
+            }
+        }
+        Logger.Error("Unknown sync policy '" + value + "', using " + defaultPolicy);
+        return defaultPolicy;
+    }
+}
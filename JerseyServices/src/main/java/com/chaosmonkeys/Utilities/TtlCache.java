@@ -0,0 +1,86 @@
+package com.chaosmonkeys.Utilities;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Small in-memory cache whose entries expire a fixed time after being stored
+ *
+ * Meant for read-mostly records looked up again and again within a few seconds,
+ * a slightly stale value must be acceptable to the caller. Expired entries are
+ * dropped when they are read, or in one sweep once the cache grows past its soft limit.
+ */
+public class TtlCache<K, V> {
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int softLimit;
+    private final LongSupplier clock;
+
+    /**
+     * @param ttlMillis how long a stored value is served
+     * @param softLimit number of entries above which expired ones are swept
+     */
+    public TtlCache(long ttlMillis, int softLimit) {
+        this(ttlMillis, softLimit, System::nanoTime);
+    }
+
+    /**
+     * @param clock source of the current time in nanoseconds, replaced in tests
+     */
+    public TtlCache(long ttlMillis, int softLimit, LongSupplier clock) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.softLimit = softLimit;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the cached value, null if absent or expired
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (null == entry) {
+            return null;
+        }
+        if (clock.getAsLong() - entry.expiresAt >= 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        long now = clock.getAsLong();
+        if (entries.size() >= softLimit) {
+            entries.values().removeIf(entry -> now - entry.expiresAt >= 0);
+        }
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return number of stored entries, expired ones not swept yet included
+     */
+    public int size() {
+        return entries.size();
+    }
+}
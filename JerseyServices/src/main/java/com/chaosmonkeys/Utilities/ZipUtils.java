@@ -1,7 +1,9 @@
 package com.chaosmonkeys.Utilities;
 
 import java.io.*;
+import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
 /**
@@ -16,8 +18,21 @@ public class ZipUtils {
     /**
      * Size of the buffer to read/write data
      */
-    private static final int BUFFER_SIZE = 4096;
+    private static final int BUFFER_SIZE = 256 * 1024;
 
+    // limits of one extracted archive, a zip bomb is stopped once it goes past them
+    private static volatile long maxExtractedBytes = Constants.DEFAULT_UNZIP_MAX_SIZE_MB * 1024 * 1024;
+    private static volatile int maxEntries = Constants.DEFAULT_UNZIP_MAX_ENTRIES;
+
+    /**
+     * Change the limits of extracted archives
+     * @param maxSizeMB largest total size of the extracted files
+     * @param maxEntryNum largest number of entries
+     */
+    public static void setLimits(long maxSizeMB, int maxEntryNum) {
+        maxExtractedBytes = maxSizeMB * 1024 * 1024;
+        maxEntries = maxEntryNum;
+    }
 
     /**
      * Extracts a zip file specified by the zipFilePath to a directory specified by
@@ -27,26 +42,54 @@ public class ZipUtils {
      * @throws IOException
      */
     public static void unzip(File zipFile, File destDir) throws IOException {
+        try (InputStream in = new FileInputStream(zipFile)) {
+            unzip(in, destDir, null);
+        }
+    }
 
+    /**
+     * Extracts entries as they are read from a stream, so an uploaded archive never needs to be stored first.
+     * Entries escaping destDir (zip-slip) and archives going past the limits are rejected,
+     * the files extracted so far are left to the caller
+     * @param in zip content, not closed by this method
+     * @param destDir extracting folder, created if it does not exist
+     * @param entryListener called with the name of every entry before it is extracted, may be null
+     * @return total size of the extracted files
+     * @throws IOException if the stream is not a valid zip, an entry is rejected or a limit is exceeded
+     */
+    public static long unzip(InputStream in, File destDir, Consumer<String> entryListener) throws IOException {
         if (!destDir.exists()) {
-            destDir.mkdir();
+            destDir.mkdirs();
         }
-        ZipInputStream zipIn = new ZipInputStream(new FileInputStream(zipFile));
-        ZipEntry entry = zipIn.getNextEntry();
+        String destPath = destDir.getCanonicalPath() + File.separator;
+        ZipInputStream zipIn = new ZipInputStream(in);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long extractedBytes = 0;
+        int entryNum = 0;
+        ZipEntry entry;
         // iterates over entries in the zip file
-        while (entry != null) {
+        while ((entry = zipIn.getNextEntry()) != null) {
+            if (++entryNum > maxEntries) {
+                throw new ZipException("Archive has more than " + maxEntries + " entries");
+            }
             File zipEntryFile = new File(destDir, entry.getName());
+            if (!zipEntryFile.getCanonicalPath().startsWith(destPath)) {
+                throw new ZipException("Entry " + entry.getName() + " is outside of the target folder");
+            }
+            if (null != entryListener) {
+                entryListener.accept(entry.getName());
+            }
             if (!entry.isDirectory()) {
                 // if the entry is a file, extracts it
-                extractFile(zipIn, zipEntryFile);
+                zipEntryFile.getParentFile().mkdirs();
+                extractedBytes += extractFile(zipIn, zipEntryFile, buffer, maxExtractedBytes - extractedBytes);
             } else {
                 // if the entry is a directory, make the directory
-                zipEntryFile.mkdir();
+                zipEntryFile.mkdirs();
             }
             zipIn.closeEntry();
-            entry = zipIn.getNextEntry();
         }
-        zipIn.close();
+        return extractedBytes;
     }
 
 
@@ -54,16 +97,25 @@ public class ZipUtils {
      * Extracts a zip entry (file entry)
      * @param zipIn
      * @param file
+     * @param buffer buffer shared by the entries of one archive
+     * @param remainingBytes bytes the archive may still extract
+     * @return size of the extracted file
      * @throws IOException
      */
-    private static void extractFile(ZipInputStream zipIn, File file) throws IOException {
-        BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(file));
-        byte[] bytesIn = new byte[BUFFER_SIZE];
-        int read = 0;
-        while ((read = zipIn.read(bytesIn)) != -1) {
-            bos.write(bytesIn, 0, read);
+    private static long extractFile(ZipInputStream zipIn, File file, byte[] buffer, long remainingBytes) throws IOException {
+        long written = 0;
+        try (OutputStream out = new FileOutputStream(file)) {
+            int read;
+            while ((read = zipIn.read(buffer)) != -1) {
+                written += read;
+                // the sizes in entry headers cannot be trusted, count what is actually extracted
+                if (written > remainingBytes) {
+                    throw new ZipException("Archive extracts to more than " + maxExtractedBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
         }
-        bos.close();
+        return written;
     }
 
 }
@@ -0,0 +1,348 @@
+package com.chaosmonkeys.Utilities.db;
+
+import com.chaosmonkeys.metrics.Histogram;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of JDBC connections
+ *
+ * Connections are created on demand up to the pool size and kept open afterwards.
+ * Closing a borrowed connection gives it back to the pool, so ActiveJDBC can open
+ * and close it per thread with {@code DB.open(DataSource)} and {@code DB.close()}.
+ * When every connection is borrowed, callers wait for one to be given back.
+ */
+public class ConnectionPool implements DataSource {
+
+    // idle connections older than this are checked before being handed out
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 30 * 1000L;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    // waiting callers also look for a slot freed by a dropped connection this often
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * A physical connection and the time it was given back
+     */
+    private static class PooledConnection {
+        final Connection connection;
+        long releasedAt;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.releasedAt = System.currentTimeMillis();
+        }
+    }
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final BlockingQueue<PooledConnection> idleConnections = new LinkedBlockingQueue<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    // metrics about callers which had to wait for a free connection
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    // distribution of the waits, exported as metrics
+    private volatile Histogram waitHistogram;
+    private volatile boolean closed = false;
+
+    /**
+     * @param url JDBC url
+     * @param username database user
+     * @param password database password
+     * @param maxSize maximum number of open connections
+     * @param maxWaitMillis longest time a caller waits for a free connection
+     */
+    public ConnectionPool(String url, String username, String password, int maxSize, long maxWaitMillis) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been closed");
+        }
+        PooledConnection pooled = borrow();
+        activeConnections.incrementAndGet();
+        return wrap(pooled);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections of the pool use the configured user");
+    }
+
+    /**
+     * Close every idle connection, borrowed connections are closed when they are given back
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while (null != (pooled = idleConnections.poll())) {
+            discard(pooled);
+        }
+    }
+
+    //** Metrics --------------------------------------------------------------------------------
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return connections currently borrowed
+     */
+    public int getActiveNum() {
+        return activeConnections.get();
+    }
+
+    /**
+     * @return open connections waiting to be borrowed
+     */
+    public int getIdleNum() {
+        return idleConnections.size();
+    }
+
+    /**
+     * @return number of times a caller found no free connection and had to wait
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * @return total time callers spent waiting for a free connection, in milliseconds
+     */
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * @param waitHistogram histogram receiving every wait for a free connection, in microseconds
+     */
+    public void setWaitHistogram(Histogram waitHistogram) {
+        this.waitHistogram = waitHistogram;
+    }
+
+    /**
+     * @return number of callers which gave up waiting
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    //** Borrow and release ---------------------------------------------------------------------
+
+    private PooledConnection borrow() throws SQLException {
+        PooledConnection pooled = pollUsable();
+        if (null == pooled) {
+            pooled = tryCreate();
+        }
+        if (null != pooled) {
+            return pooled;
+        }
+        // pool is full, wait for a connection to be given back
+        long start = System.nanoTime();
+        waitCount.incrementAndGet();
+        try {
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                pooled = idleConnections.poll(Math.min(remaining, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+                if (null != pooled && isUsable(pooled)) {
+                    return pooled;
+                }
+                if (null != pooled) {
+                    discard(pooled);
+                }
+                // a broken connection may have been dropped meanwhile, freeing a slot
+                pooled = tryCreate();
+                if (null != pooled) {
+                    return pooled;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            totalWaitNanos.addAndGet(System.nanoTime() - start);
+            Histogram histogram = waitHistogram;
+            if (null != histogram) {
+                histogram.recordMicrosSince(start);
+            }
+        }
+        timeoutCount.incrementAndGet();
+        throw new SQLException("No database connection available within " + maxWaitMillis + " ms, pool size is " + maxSize);
+    }
+
+    private PooledConnection pollUsable() {
+        PooledConnection pooled;
+        while (null != (pooled = idleConnections.poll())) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    /**
+     * @return a new connection, null if the pool is full
+     */
+    private PooledConnection tryCreate() throws SQLException {
+        int total;
+        while ((total = totalConnections.get()) < maxSize) {
+            if (totalConnections.compareAndSet(total, total + 1)) {
+                try {
+                    return new PooledConnection(DriverManager.getConnection(url, username, password));
+                } catch (SQLException | RuntimeException e) {
+                    totalConnections.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void release(PooledConnection pooled) {
+        activeConnections.decrementAndGet();
+        try {
+            if (closed || pooled.connection.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.connection.getAutoCommit()) {
+                // a transaction has been left open by the borrower
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+            return;
+        }
+        pooled.releasedAt = System.currentTimeMillis();
+        idleConnections.offer(pooled);
+    }
+
+    private static boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.connection.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.releasedAt < VALIDATE_AFTER_IDLE_MILLIS) {
+                return true;
+            }
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            // already broken
+        }
+    }
+
+    /**
+     * Hand out a view of the physical connection whose close() gives it back to the pool
+     */
+    private Connection wrap(PooledConnection pooled) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean released = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            release(pooled);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || pooled.connection.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled" + pooled.connection;
+                    default:
+                        if (released) {
+                            throw new SQLException("Connection has been given back to the pool");
+                        }
+                        try {
+                            return method.invoke(pooled.connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    //** Unused DataSource methods --------------------------------------------------------------
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper of " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
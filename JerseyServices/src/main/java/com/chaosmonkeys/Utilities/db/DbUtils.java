@@ -1,25 +1,27 @@
 package com.chaosmonkeys.Utilities.db;
 
-
 import com.chaosmonkeys.Utilities.Logger;
 import com.chaosmonkeys.dao.Algorithm;
 import com.chaosmonkeys.dao.Dataset;
 import com.chaosmonkeys.dao.Experiment;
+import com.chaosmonkeys.metrics.MetricsRegistry;
 import org.javalite.activejdbc.Base;
 import org.javalite.activejdbc.DB;
 import org.javalite.activejdbc.Model;
 import org.javalite.activejdbc.validation.ValidationException;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.concurrent.locks.ReentrantLock;
 
 public final class DbUtils {
 
-    // lock for managing connection
-    private static ReentrantLock connectionLock = new ReentrantLock();
-    // lock for managing logging db connection
-    private static ReentrantLock logConnectionLock = new ReentrantLock();
+    // pool size and wait time used when they are not configured
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final long DEFAULT_POOL_MAX_WAIT_MILLIS = 30 * 1000L;
 
     // JDBC connection properties
     private static String url;
@@ -31,42 +33,73 @@ public final class DbUtils {
     private static String logDbName;
     private static ResourceBundle rb = ResourceBundle.getBundle("db.db-config");
     // using SSL for connection but turning off server verification
-    private static String options = "?verifyServerCertificate=false&useSSL=true";
+    private static final String DEFAULT_OPTIONS = "?verifyServerCertificate=false&useSSL=true";
+    // connections are reused instead of paying a TCP+SSL handshake for every operation
+    private static ConnectionPool connectionPool;
+    private static ConnectionPool logConnectionPool;
+    // nested opens of each database on the current thread, the connection is given back by the outermost close
+    private static final ThreadLocal<Map<String, Integer>> openDepth = ThreadLocal.withInitial(HashMap::new);
 
     // initialize the driver
     static{
-        dbName = rb.getString("jdbc.dbName");
-        url = rb.getString("jdbc.baseurl") + rb.getString("jdbc.dbName") + options;
-        logUrl = rb.getString("jdbc.baseurl") + "logdatabase" + options;
-        username = rb.getString("jdbc.username");
-        password = rb.getString("jdbc.password");
-        driver = rb.getString("jdbc.driver");
+        String baseUrl = setting("jdbc.baseurl", null);
+        String options = setting("jdbc.options", DEFAULT_OPTIONS);
+        dbName = setting("jdbc.dbName", null);
         logDbName = "logdatabase";      // extract to resources file
+        url = baseUrl + dbName + options;
+        logUrl = baseUrl + logDbName + options;
+        username = setting("jdbc.username", null);
+        password = setting("jdbc.password", "");
+        driver = setting("jdbc.driver", null);
         try {
             Class.forName(driver);
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
         }
+        int poolSize = Integer.parseInt(setting("jdbc.pool.size", String.valueOf(DEFAULT_POOL_SIZE)).trim());
+        long poolMaxWait = Long.parseLong(setting("jdbc.pool.maxWaitMillis", String.valueOf(DEFAULT_POOL_MAX_WAIT_MILLIS)).trim());
+        connectionPool = new ConnectionPool(url, username, password, poolSize, poolMaxWait);
+        logConnectionPool = new ConnectionPool(logUrl, username, password, poolSize, poolMaxWait);
+        registerPoolMetrics(connectionPool, "config");
+        registerPoolMetrics(logConnectionPool, "log");
+    }
+
+    /**
+     * A system property of the same name overrides the bundle, e.g. -Djdbc.baseurl=... for a test database
+     * @return the configured value, defaultValue if it is set nowhere
+     */
+    private static String setting(String key, String defaultValue){
+        String value = System.getProperty(key);
+        if (null != value) {
+            return value;
+        }
+        return rb.containsKey(key) ? rb.getString(key) : defaultValue;
+    }
+
+    private static void registerPoolMetrics(ConnectionPool pool, String name){
+        MetricsRegistry registry = MetricsRegistry.INSTANCE;
+        pool.setWaitHistogram(registry.histogram("db_pool_wait_seconds", "Time spent waiting for a free database connection", 1e-6, "pool", name));
+        registry.gauge("db_pool_active_connections", "Borrowed database connections", pool::getActiveNum, "pool", name);
+        registry.gauge("db_pool_idle_connections", "Open database connections waiting to be borrowed", pool::getIdleNum, "pool", name);
+        registry.counterFunction("db_pool_timeouts_total", "Callers which gave up waiting for a database connection", pool::getTimeoutCount, "pool", name);
     }
 
     /**
      * open ActiveJDBC connection when needed in one thread
+     * a nested call reuses the connection already opened on this thread, every call needs its own close
      * this method only aimed to use the Configuration database
      * if you wanna use another database, refactor it or write a
      * new method
      */
     public static void openConnection(){
-        connectionLock.lock();
-        new DB(dbName).open(driver, url, username, password);
+        open(dbName, connectionPool);
     }
 
     /**
-     * Close ActiveJDBC connection in current thread
+     * Close ActiveJDBC connection in current thread, the connection goes back to the pool
      */
     public static void closeConnection(){
-        new DB(dbName).close();
-        //TODO: place lock to another proper code
-        connectionLock.unlock();
+        close(dbName);
     }
 
     /**
@@ -76,17 +109,67 @@ public final class DbUtils {
      * new method
      */
     public static void openLogConnection(){
-        logConnectionLock.lock();
-        new DB(logDbName).open(driver, logUrl, username, password);
+        open(logDbName, logConnectionPool);
     }
 
     /**
-     * Close ActiveJDBC connection for LogDatabase in current thread
+     * Close ActiveJDBC connection for LogDatabase in current thread, the connection goes back to the pool
      */
     public static void closeLogConnection(){
-        new DB(logDbName).close();
-        //TODO: place lock to another proper code
-        logConnectionLock.unlock();
+        close(logDbName);
+    }
+
+    /**
+     * @return pool of the Configuration database connections, for monitoring
+     */
+    public static ConnectionPool getConnectionPool(){
+        return connectionPool;
+    }
+
+    /**
+     * @return pool of the Log database connections, for monitoring
+     */
+    public static ConnectionPool getLogConnectionPool(){
+        return logConnectionPool;
+    }
+
+    /**
+     * Close idle pooled connections, used when the service is shutting down
+     */
+    public static void closePools(){
+        connectionPool.close();
+        logConnectionPool.close();
+    }
+
+    private static void open(String name, ConnectionPool pool){
+        DB db = new DB(name);
+        Map<String, Integer> depths = openDepth.get();
+        int depth = depths.getOrDefault(name, 0);
+        if (db.hasConnection()) {
+            if (depth > 0) {
+                // nested call, e.g. a helper used inside a transaction, shares the outer connection
+                depths.put(name, depth + 1);
+                return;
+            }
+            // opened on this thread without DbUtils and never closed, give it back first
+            db.close();
+        }
+        db.open(pool);
+        depths.put(name, 1);
+    }
+
+    private static void close(String name){
+        Map<String, Integer> depths = openDepth.get();
+        int depth = depths.getOrDefault(name, 0);
+        if (depth > 1) {
+            depths.put(name, depth - 1);
+            return;
+        }
+        depths.remove(name);
+        DB db = new DB(name);
+        if (db.hasConnection()) {
+            db.close();
+        }
     }
 
     /**
@@ -95,15 +178,17 @@ public final class DbUtils {
      * @param dataDescription the description regarding the input data.
      * @param path the input data path.
      * @param format the input data format.
+     * @param schema columns inferred from the content as JSON, null if not known.
      * @return false if insert error
      */
-    public static boolean storeDataSet(String dataName, String dataDescription, String path, String format){
+    public static boolean storeDataSet(String dataName, String dataDescription, String path, String format, String schema){
         openConnection();
         Dataset dataset = new Dataset()
                 .setDatasetName(dataName)
                 .setDescription(dataDescription)
                 .setDatasetPath(path)
-                .setFormat(format);
+                .setFormat(format)
+                .setSchema(schema);
         // this operation will throw exception when the mapping model is wrong with database schema
         boolean inserted = insertDAO(dataset);
         closeConnection();
@@ -142,6 +227,109 @@ public final class DbUtils {
         }
     }
 
+    /**
+     * Run one statement many times with different parameters in a single round trip and transaction
+     * @param sql statement with ? placeholders
+     * @param paramsList parameters of every execution
+     * @return update counts
+     */
+    public static int[] executeBatch(String sql, List<Object[]> paramsList){
+        openConnection();
+        try {
+            DB db = new DB(dbName);
+            db.openTransaction();
+            try {
+                PreparedStatement ps = db.startBatch(sql);
+                int[] counts;
+                try {
+                    for (Object[] params : paramsList) {
+                        db.addBatch(ps, params);
+                    }
+                    counts = db.executeBatch(ps);
+                } finally {
+                    closeQuietly(ps);
+                }
+                db.commitTransaction();
+                return counts;
+            } catch (RuntimeException e) {
+                db.rollbackTransaction();
+                throw e;
+            }
+        } finally {
+            closeConnection();
+        }
+    }
+
+    /**
+     * Insert many rows into a table of the Log database with one multi-row INSERT
+     * @param table table name
+     * @param columns column names
+     * @param rows values of every row in the column order
+     * @return number of inserted rows
+     */
+    public static int insertLogRows(String table, String[] columns, List<Object[]> rows){
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < columns.length; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        placeholders.append(')');
+        StringBuilder sql = new StringBuilder("INSERT INTO `").append(table).append("` (`")
+                .append(String.join("`, `", columns)).append("`) VALUES ");
+        Object[] params = new Object[rows.size() * columns.length];
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(placeholders);
+            System.arraycopy(rows.get(i), 0, params, i * columns.length, columns.length);
+        }
+        openLogConnection();
+        try {
+            return new DB(logDbName).exec(sql.toString(), params);
+        } finally {
+            closeLogConnection();
+        }
+    }
+
+    /**
+     * Run a query on the Configuration database
+     * @param sql query with ? placeholders
+     * @param params query parameters
+     * @return rows, every row maps column labels to values
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, Object>> findAll(String sql, Object... params){
+        openConnection();
+        try {
+            List<?> rows = new DB(dbName).findAll(sql, params);
+            return (List<Map<String, Object>>) rows;
+        } finally {
+            closeConnection();
+        }
+    }
+
+    /**
+     * Find the file path of a dataset
+     * @param dataName dataset name
+     * @return stored path, null if there is no such dataset
+     */
+    public static String getDatasetPath(String dataName){
+        List<Map<String, Object>> rows = findAll("SELECT path FROM datasets WHERE name = ?", dataName);
+        if(rows.isEmpty()){
+            return null;
+        }
+        Object path = rows.get(0).get("path");
+        return null == path ? null : path.toString();
+    }
+
+    private static void closeQuietly(PreparedStatement ps){
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            // statement is discarded anyway
+        }
+    }
+
     /**
      * This method would provide the experiment dao model
      * notice you should only use it when you can ensure the model existed in database
@@ -8,9 +8,12 @@ import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.File;
@@ -21,6 +24,8 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Class containing all possible service calls relevant to upload algorithm(API methods)
@@ -40,6 +45,11 @@ public class AlgorithmResource {
 
     private static final List<String> supportDevLanguageList = new ArrayList<>();  // Arrays.asList("R","Python")
 
+    // files every algorithm must provide at the root of its folder
+    private static final List<String> requiredFileList = Arrays.asList("Main.R");
+    // extract zip entries while the upload is received instead of storing the zip first, can be changed by configuration
+    private static volatile boolean streamingUnzip = false;
+
     // sets store data sets name that are under processing
     public static Set<String> uploadSet = new HashSet<>();
     public static Set<String> checkSet = new HashSet<>();
@@ -68,6 +78,7 @@ public class AlgorithmResource {
      * @param algrName algorithm name
      * @param algrDescription   algorithm decription (optional)
      * @param language  algorithm developing language
+     * @param contentLength size of the request, used as a hint of the file size
      * @return  JSON response contains {success:bool, code:int, msg:string}
      */
     @POST
@@ -78,7 +89,8 @@ public class AlgorithmResource {
                                         @FormDataParam("file") FormDataContentDisposition fileMetaData,
                                         @FormDataParam("name") String algrName,
                                         @FormDataParam("description") String algrDescription,
-                                        @FormDataParam("language") String language){
+                                        @FormDataParam("language") String language,
+                                        @HeaderParam(HttpHeaders.CONTENT_LENGTH) @DefaultValue("-1") long contentLength){
         refreshServiceState();
         if (null != algrName && !algrName.equals("")) {
             Logger.Request("Received algorithm upload request - Algorithm Name: " + algrName);
@@ -106,32 +118,15 @@ public class AlgorithmResource {
         File targetFolder = FileUtils.createNewFolderUnder(targetFolderName, langFolder);
         String fileName = fileMetaData.getFileName();
         // start processing receiving
-        validCode = CHECK_SUCCESS;
-        boolean succ = receiveFile(fileInputStream, targetFolder, fileName);
-        if(!succ){
-            validCode = ERR_TRANSMISSION_FILE;
-        }else{  // unzip and check folder file structure
-            //add to check list
-            checkSet.add(algrName);
-            File zipFile = new File(targetFolder, fileName);
-            boolean unzipSucc = unzipRequiredFile(zipFile, targetFolder);
-            if(!unzipSucc){
-                validCode = ERR_UNZIP_EXCEPTION;
-            }else{
-                // all required file need exist
-                if(!isAllRequiredFilesProvide(targetFolder)){
-                    validCode = ERR_REQUIRED_FILE_MISSING;
-                }
-            }
-            checkSet.remove(algrName);
+        if(streamingUnzip){
+            validCode = receiveAndUnzip(fileInputStream, targetFolder, algrName, fileName);
+        }else{
+            validCode = receiveThenUnzip(fileInputStream, targetFolder, algrName, fileName, contentLength);
         }
         if(CHECK_SUCCESS != validCode){
             // delete the folder
             FileUtils.deleteQuietly(targetFolder);
             return genErrorResponse(validCode);
-        }else{  // unzipping successfully, delete the zip file
-            File zipFile = new File(targetFolder, fileName);   // the downloaded zip file
-            FileUtils.deleteQuietly(zipFile);
         }
         try {
             // avoid null value of description
@@ -151,6 +146,107 @@ public class AlgorithmResource {
 
     }
 
+    /**
+     * Store the uploaded zip file, then unzip it and check folder file structure
+     * @return CHECK_SUCCESS or the error code
+     */
+    private int receiveThenUnzip(InputStream fileInputStream, File targetFolder, String algrName, String fileName, long contentLength){
+        boolean succ = receiveFile(fileInputStream, targetFolder, fileName, contentLength);
+        if(!succ){
+            return ERR_TRANSMISSION_FILE;
+        }
+        int validCode = CHECK_SUCCESS;
+        //add to check list
+        checkSet.add(algrName);
+        File zipFile = new File(targetFolder, fileName);
+        boolean unzipSucc = unzipRequiredFile(zipFile, targetFolder);
+        if(!unzipSucc){
+            validCode = ERR_UNZIP_EXCEPTION;
+        }else{
+            // all required file need exist
+            if(!isAllRequiredFilesProvide(targetFolder)){
+                validCode = ERR_REQUIRED_FILE_MISSING;
+            }
+        }
+        checkSet.remove(algrName);
+        if(CHECK_SUCCESS == validCode){
+            // unzipping successfully, delete the zip file
+            FileUtils.deleteQuietly(zipFile);
+        }
+        return validCode;
+    }
+
+    /**
+     * Extract the uploaded zip while it is received, the zip file itself is never stored
+     * @return CHECK_SUCCESS or the error code
+     */
+    private int receiveAndUnzip(InputStream fileInputStream, File targetFolder, String algrName, String fileName){
+        uploadSet.add(fileName);
+        checkSet.add(algrName);
+        ZippedFolderDetector folderDetector = new ZippedFolderDetector(requiredFileList);
+        long start = System.nanoTime();
+        try {
+            long bytes = ZipUtils.unzip(fileInputStream, targetFolder, folderDetector);
+            Logger.Info("Extracted algorithm file " + fileName + " while receiving it: " + bytes + " bytes in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (IOException e) {
+            Logger.SaveLog(LogType.Exception, "Exception happened when unzip algorithm file while receiving it: " + e.getMessage());
+            return ERR_UNZIP_EXCEPTION;
+        } finally {
+            uploadSet.remove(fileName);
+            checkSet.remove(algrName);
+            refreshServiceState();
+        }
+        if(!isAllRequiredFilesProvide(targetFolder)){
+            if(folderDetector.isMisplaced()){
+                Logger.Info("Algorithm file " + fileName + " contains its required files in a sub folder");
+            }
+            return ERR_REQUIRED_FILE_MISSING;
+        }
+        return CHECK_SUCCESS;
+    }
+
+    /**
+     * Finds out whether an archive contains the algorithm folder itself instead of its files,
+     * i.e. every entry sits under a single folder which holds a required file.
+     * A streamed archive can only be judged once all of its entries have been seen,
+     * a required file may still show up at the root after one in a sub folder.
+     */
+    static class ZippedFolderDetector implements Consumer<String> {
+        private final List<String> requiredFiles;
+        private boolean firstEntry = true;
+        // top level folder of every entry so far, null once an entry sits at the root or in another folder
+        private String commonFolder;
+        private boolean requiredFileInFolder = false;
+
+        ZippedFolderDetector(List<String> requiredFiles) {
+            this.requiredFiles = requiredFiles;
+        }
+
+        @Override
+        public void accept(String entryName) {
+            String name = entryName.replace('\\', '/');
+            int slash = name.indexOf('/');
+            String topFolder = slash > 0 ? name.substring(0, slash) : null;
+            if(firstEntry){
+                commonFolder = topFolder;
+                firstEntry = false;
+            }else if(null == topFolder || !topFolder.equals(commonFolder)){
+                commonFolder = null;
+            }
+            if(null != commonFolder && slash == name.lastIndexOf('/') && requiredFiles.contains(name.substring(slash + 1))){
+                requiredFileInFolder = true;
+            }
+        }
+
+        /**
+         * @return true if the extracted archive turned out to be the zipped algorithm folder
+         */
+        boolean isMisplaced() {
+            return null != commonFolder && requiredFileInFolder;
+        }
+    }
+
     /**
      * call ZipUtils to unzip zip file
      * @param zipFile  target zip file
@@ -182,7 +278,6 @@ public class AlgorithmResource {
             }
         }
         // check required files
-        List<String> requiredFileList = Arrays.asList("Main.R");
         for (String fileName : requiredFileList){
             File requiredFile = new File(folder, fileName);
             if(!requiredFile.exists()){
@@ -197,15 +292,17 @@ public class AlgorithmResource {
      * @param fileInputStream uploaded file stream
      * @param targetFolder  storage folder
      * @param fileName  new file name
+     * @param expectedSize size announced by the client, not positive if unknown
      * @return boolean: succeed or not
      */
-    public boolean receiveFile(InputStream fileInputStream, File targetFolder, String fileName){
+    public boolean receiveFile(InputStream fileInputStream, File targetFolder, String fileName, long expectedSize){
         // receive all file parts and store in targetFolder using filename
         // if exception happen, delete targetFolder
         uploadSet.add(fileName);
         File targetFile = new File(targetFolder, fileName);
         try {
-            FileUtils.receiveFile(fileInputStream, targetFile);
+            FileReceiver.ReceiveStats stats = FileUtils.receiveFile(fileInputStream, targetFile, expectedSize);
+            Logger.Info("Received algorithm file " + fileName + ": " + stats);
             // remove this item from uploading list
             uploadSet.remove(fileName);
         } catch (IOException e) {
@@ -328,6 +425,10 @@ public class AlgorithmResource {
     }
 
 
+    public static void setStreamingUnzip(boolean enabled){
+        streamingUnzip = enabled;
+    }
+
     /**
      * Refresh Service Status based on the size of checking set and uploading list
      */
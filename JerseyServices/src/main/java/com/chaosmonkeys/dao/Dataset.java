@@ -40,4 +40,12 @@ public class Dataset extends Model {
         return this;
     }
 
+    /**
+     * @param schema JSON list of {name, type} inferred from the content at upload
+     */
+    public Dataset setSchema(String schema){
+        set("data_schema", schema);
+        return this;
+    }
+
 }
@@ -0,0 +1,36 @@
+package com.chaosmonkeys.datasetinputservice.DTO;
+
+import com.chaosmonkeys.DTO.BaseResponse;
+import com.chaosmonkeys.datasetinputservice.validation.DatasetProfile;
+
+/**
+ * Response carrying the profile computed when a dataset was uploaded
+ */
+public class DatasetProfileResponse extends BaseResponse {
+    private String name;
+    private DatasetProfile profile;
+
+    public DatasetProfileResponse() {
+    }
+
+    public DatasetProfileResponse(String name, DatasetProfile profile) {
+        this.name = name;
+        this.profile = profile;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public DatasetProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(DatasetProfile profile) {
+        this.profile = profile;
+    }
+}
@@ -0,0 +1,65 @@
+package com.chaosmonkeys.datasetinputservice.DTO;
+
+/**
+ * DTO used for consuming json when a chunked upload is opened
+ * the checksum is only needed when the upload is committed
+ */
+public class UploadSessionDto {
+    private String name;
+    private String description;
+    private String format;
+    private long size = -1;
+    // SHA-256 of the whole file as hex, sent with the commit request
+    private String checksum;
+
+    // Must have no-argument constructor
+    public UploadSessionDto() {
+    }
+
+    public UploadSessionDto(String name, String description, String format, long size) {
+        this.name = name;
+        this.description = description;
+        this.format = format;
+        this.size = size;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+}
@@ -0,0 +1,58 @@
+package com.chaosmonkeys.datasetinputservice.DTO;
+
+import com.chaosmonkeys.DTO.BaseResponse;
+
+import java.util.List;
+
+/**
+ * Response describing a chunked upload,
+ * received ranges are [start, end) byte offsets so a client knows which chunks are still missing
+ */
+public class UploadSessionResponse extends BaseResponse {
+    private String sessionId;
+    private long size;
+    private long receivedBytes;
+    private List<long[]> receivedRanges;
+
+    public UploadSessionResponse() {
+    }
+
+    public UploadSessionResponse(String sessionId, long size, long receivedBytes, List<long[]> receivedRanges) {
+        this.sessionId = sessionId;
+        this.size = size;
+        this.receivedBytes = receivedBytes;
+        this.receivedRanges = receivedRanges;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public void setReceivedBytes(long receivedBytes) {
+        this.receivedBytes = receivedBytes;
+    }
+
+    public List<long[]> getReceivedRanges() {
+        return receivedRanges;
+    }
+
+    public void setReceivedRanges(List<long[]> receivedRanges) {
+        this.receivedRanges = receivedRanges;
+    }
+}
@@ -3,16 +3,31 @@ package com.chaosmonkeys.datasetinputservice;
 import com.chaosmonkeys.DTO.BaseResponse;
 import com.chaosmonkeys.Utilities.*;
 import com.chaosmonkeys.Utilities.db.DbUtils;
+import com.chaosmonkeys.datasetinputservice.DTO.DatasetProfileResponse;
+import com.chaosmonkeys.datasetinputservice.DTO.UploadSessionDto;
+import com.chaosmonkeys.datasetinputservice.DTO.UploadSessionResponse;
+import com.chaosmonkeys.datasetinputservice.columnar.ColumnarConverter;
+import com.chaosmonkeys.datasetinputservice.validation.ColumnSchema;
+import com.chaosmonkeys.datasetinputservice.validation.CsvScanner;
+import com.chaosmonkeys.datasetinputservice.validation.DatasetProfile;
+import com.chaosmonkeys.datasetinputservice.validation.JsonValidator;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class containing all possible service calls (API methods)
@@ -27,9 +42,13 @@ public class DatasetInputService {
     // states variables
     public static String serviceStatus = STATUS_IDLE;
 
-    // sets store data sets name that are under processing
-    public static Set<String> uploadSet = new HashSet<>();
-    public static Set<String> checkSet = new HashSet<>();
+    // sets store data sets name that are under processing, updated by concurrent requests
+    public static Set<String> uploadSet = ConcurrentHashMap.newKeySet();
+    public static Set<String> checkSet = ConcurrentHashMap.newKeySet();
+
+    private static final Gson gson = new Gson();
+    // check that JSON datasets made of objects have the same keys in every object
+    private static volatile boolean jsonRecordCheck = false;
 
     // temporary support dataset format list
     private static final List<String> supportDatasetFormatList = Arrays.asList("CSV","JSON","csv","json");
@@ -43,6 +62,13 @@ public class DatasetInputService {
     private static final int ERR_STORE_IN_DB = 105;
     private static final int ERR_INVALID_FILE = 106;
     private static final int ERR_INVALID_FILE_EXT = 107; // invalid file extension
+    private static final int ERR_INVALID_UPLOAD_SIZE = 108;
+    private static final int ERR_UPLOAD_SESSION_NOT_FOUND = 109;
+    private static final int ERR_INVALID_CHUNK = 110; // chunk offset missing or outside the dataset
+    private static final int ERR_UPLOAD_INCOMPLETE = 111;
+    private static final int ERR_CHECKSUM_MISMATCH = 112;
+    private static final int ERR_DATASET_NOT_FOUND = 113;
+    private static final int ERR_PROFILE_NOT_FOUND = 114;
     private static final int ERR_UNKNOWN = 199;
 
     /**
@@ -53,6 +79,7 @@ public class DatasetInputService {
      * @param dataName  dataset name specified by user
      * @param dataDescription   dataset description specified by user
      * @param format    dataset format
+     * @param contentLength size of the request, used as a hint of the file size
      * @return JSON response contains {success:bool, code:int, msg:string}
      */
     @POST
@@ -63,7 +90,8 @@ public class DatasetInputService {
                                @FormDataParam("file") FormDataContentDisposition fileMetaData,
                                @FormDataParam("name") String dataName,
                                @FormDataParam("description") String dataDescription,
-                               @FormDataParam("format") String format){
+                               @FormDataParam("format") String format,
+                               @HeaderParam(HttpHeaders.CONTENT_LENGTH) @DefaultValue("-1") long contentLength){
         refreshServiceState();
         int validCode = CHECK_SUCCESS;
         if (null != dataName && !dataName.equals("")) {
@@ -74,35 +102,44 @@ public class DatasetInputService {
         if(CHECK_SUCCESS != validCode){
             return genErrorResponse(validCode);
         }
-        //create Datasets folder if it does not exist yet
-        File datasetFolder = FileUtils.createDatasetFolder();
-        //TODO: determine it is execution or not, delete the folder if uploading fail
-        // Open the direct parent folder
-        File executionFolder = FileUtils.createNewFolderUnder(FileUtils.EXECUTION_DATA, datasetFolder);
-        File targetFolder = FileUtils.createNewFolderUnder(dataName, executionFolder);
-        // + FileUtils.sanitizeFilename(fileMetaData.getFileName()) // if you wanna the original filename
-        String dateTimeStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("uuuu-MMM-d-HH-mm-ss", Locale.US)); // check locale when deploying
-        String dataFileName = dateTimeStr + "-" +  FileUtils.sanitizeFilename(dataName)  + "." + format.toLowerCase();
-        boolean receiveSucess = receiveFile(fileInputStream, targetFolder, dataFileName);
+        File targetFolder = createTargetFolder(dataName);
+        String dataFileName = genDataFileName(dataName, format);
+        // CSV content is validated while it is written
+        CsvScanner csvScanner = isCsv(format) ? new CsvScanner() : null;
+        InputStream receivedStream = null == csvScanner ? fileInputStream : new TeeInputStream(fileInputStream, csvScanner);
+        boolean receiveSucess = receiveFile(receivedStream, targetFolder, dataFileName, contentLength);
         if(!receiveSucess){
             validCode = ERR_TRANSMISSION_FILE;
             return genErrorResponse(validCode);
         }
         File targetFile = new File(targetFolder, dataFileName);
-        //insert data sets into database.
-        boolean inserted = false;
-        try {
-            inserted = DbUtils.storeDataSet(dataName,dataDescription, targetFile.getCanonicalPath(),format);
-        } catch (IOException e) {
-            Logger.Exception("Fail to store new datasets record into database");
-            e.printStackTrace();
+        List<ColumnSchema> columns = null;
+        DatasetProfile profile = null;
+        if(null != csvScanner){
+            if(!csvScanner.finish()){
+                FileUtils.deleteQuietly(targetFolder);
+                return genErrorResponse(ERR_INVALID_FILE, csvScanner.getError());
+            }
+            columns = csvScanner.getSchema();
+            profile = csvScanner.getProfile();
+        } else if(isJson(format)){
+            JsonValidator jsonValidator = new JsonValidator(jsonRecordCheck);
+            if(!validateJson(jsonValidator, targetFile)){
+                FileUtils.deleteQuietly(targetFolder);
+                return genErrorResponse(ERR_INVALID_FILE, jsonValidator.getError());
+            }
+            columns = jsonValidator.getSchema();
+            profile = jsonValidator.getProfile();
         }
-        if(!inserted){
+        String schema = null == columns ? null : gson.toJson(columns);
+        //insert data sets into database.
+        if(!storeDatasetRecord(dataName, dataDescription, targetFile, format, schema)){
             FileUtils.deleteQuietly(targetFolder);
-            Logger.Info("insert dataset "+ dataName +" failed, return error message to frontend");
             validCode = ERR_STORE_IN_DB;
             return genErrorResponse(validCode);
         }
+        storeProfile(targetFile, profile);
+        ColumnarConverter.INSTANCE.submit(targetFile, format, columns);
         refreshServiceState();
         Logger.Info("Dataset upload request successfully. Dataset Name: " + dataName);
         return genSuccResponse();
@@ -114,16 +151,18 @@ public class DatasetInputService {
      * @param fileInputStream fileInputStream that provided by the API
      * @param targetFolder  target fodler which is used to store this dataset
      * @param fileName  the storage name of the dataset file
+     * @param expectedSize size announced by the client, not positive if unknown
      * @return  true if all operations are valid, otherwise @value{false}
      */
-    public boolean receiveFile(InputStream fileInputStream, File targetFolder, String fileName){
+    public boolean receiveFile(InputStream fileInputStream, File targetFolder, String fileName, long expectedSize){
         // receive all file parts and store in targetFolder using filename
         // if exception happen, delete targetFolder
         File targetFile = new File(targetFolder, fileName);
         // add to uploading set
         uploadSet.add(fileName);
         try {
-            FileUtils.receiveFile(fileInputStream, targetFile);
+            FileReceiver.ReceiveStats stats = FileUtils.receiveFile(fileInputStream, targetFile, expectedSize);
+            Logger.Info("Received dataset file " + fileName + ": " + stats);
             // remove this one from uploading list
             uploadSet.remove(fileName);
         } catch (IOException e) {
@@ -139,6 +178,328 @@ public class DatasetInputService {
         return true;
     }
 
+    //** Chunked upload ------------------------------------------------------------------------
+
+    /**
+     * Open a chunked upload, chunks are then sent to /uploads/{sessionId}/chunks/{chunkNo}
+     * @param uploadSessionDto json object containing name, description, format and size of the dataset
+     * @return JSON response contains {success:bool, code:int, msg:string, sessionId:string, size:long, receivedBytes:long, receivedRanges:[[long,long]]}
+     */
+    @POST
+    @Path("/uploads")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response openChunkedUpload(UploadSessionDto uploadSessionDto){
+        if(null == uploadSessionDto || !StringUtils.isNoneBlank(uploadSessionDto.getName(), uploadSessionDto.getFormat())){
+            return genErrorResponse(ERR_BLANK_PARAMS);
+        }
+        String format = uploadSessionDto.getFormat();
+        if(!supportDatasetFormatList.contains(format)){
+            Logger.Info("Unsupported datasets file format: " + format);
+            return genErrorResponse(ERR_UNSUPPORTED_FORMAT);
+        }
+        if(uploadSessionDto.getSize() < 0){
+            return genErrorResponse(ERR_INVALID_UPLOAD_SIZE);
+        }
+        UploadSession session;
+        try {
+            session = UploadSessionManager.INSTANCE.create(uploadSessionDto.getName(), uploadSessionDto.getDescription(), format, uploadSessionDto.getSize());
+        } catch (IOException e) {
+            Logger.Exception("Cannot open upload session for dataset " + uploadSessionDto.getName() + ": " + e.getMessage());
+            return genErrorResponse(ERR_TRANSMISSION_FILE);
+        }
+        refreshServiceState();
+        Logger.Info("Opened upload session " + session.getSessionId() + " for dataset " + session.getName() + " of " + session.getSize() + " bytes");
+        return genSessionResponse(session, "Upload session opened");
+    }
+
+    /**
+     * Receive one chunk of a chunked upload, chunks may be sent in any order and in parallel
+     * @param sessionId id returned when the upload was opened
+     * @param chunkNo number of the chunk, only used in messages
+     * @param offset position of the first byte of the chunk in the dataset
+     * @param chunkStream chunk content
+     * @return JSON response with the ranges received so far
+     */
+    @PUT
+    @Path("/uploads/{sessionId}/chunks/{chunkNo}")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response uploadChunk(@PathParam("sessionId") String sessionId,
+                                @PathParam("chunkNo") int chunkNo,
+                                @QueryParam("offset") @DefaultValue("-1") long offset,
+                                InputStream chunkStream){
+        UploadSession session = UploadSessionManager.INSTANCE.get(sessionId);
+        if(null == session){
+            return genErrorResponse(ERR_UPLOAD_SESSION_NOT_FOUND);
+        }
+        if(offset < 0 || offset > session.getSize() || null == chunkStream){
+            return genErrorResponse(ERR_INVALID_CHUNK);
+        }
+        try {
+            session.writeChunk(offset, chunkStream);
+        } catch (IOException e) {
+            // bytes written before the failure are kept, the client asks for the received ranges and resumes
+            Logger.Exception("Chunk " + chunkNo + " of upload session " + sessionId + " failed: " + e.getMessage());
+            return genErrorResponse(ERR_TRANSMISSION_FILE);
+        }
+        return genSessionResponse(session, "Chunk " + chunkNo + " received");
+    }
+
+    /**
+     * Query which byte ranges of a chunked upload have been received
+     * @param sessionId id returned when the upload was opened
+     * @return JSON response with the ranges received so far
+     */
+    @GET
+    @Path("/uploads/{sessionId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getChunkedUpload(@PathParam("sessionId") String sessionId){
+        UploadSession session = UploadSessionManager.INSTANCE.get(sessionId);
+        if(null == session){
+            return genErrorResponse(ERR_UPLOAD_SESSION_NOT_FOUND);
+        }
+        return genSessionResponse(session, "Upload session found");
+    }
+
+    /**
+     * Verify a complete chunked upload against its checksum and store it as a dataset
+     * @param sessionId id returned when the upload was opened
+     * @param uploadSessionDto json object containing the SHA-256 checksum of the whole file
+     * @return JSON response contains {success:bool, code:int, msg:string}
+     */
+    @POST
+    @Path("/uploads/{sessionId}/commit")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response commitChunkedUpload(@PathParam("sessionId") String sessionId, UploadSessionDto uploadSessionDto){
+        UploadSession session = UploadSessionManager.INSTANCE.get(sessionId);
+        if(null == session){
+            return genErrorResponse(ERR_UPLOAD_SESSION_NOT_FOUND);
+        }
+        if(null == uploadSessionDto || StringUtils.isBlank(uploadSessionDto.getChecksum())){
+            return genErrorResponse(ERR_BLANK_PARAMS);
+        }
+        if(!session.isComplete()){
+            return genErrorResponse(ERR_UPLOAD_INCOMPLETE);
+        }
+        // the CSV content is validated in the same pass as the checksum
+        CsvScanner csvScanner = isCsv(session.getFormat()) ? new CsvScanner() : null;
+        String checksum;
+        try {
+            checksum = session.computeChecksum(csvScanner);
+        } catch (IOException e) {
+            Logger.Exception("Cannot read back upload session " + sessionId + ": " + e.getMessage());
+            return genErrorResponse(ERR_TRANSMISSION_FILE);
+        }
+        if(!checksum.equalsIgnoreCase(uploadSessionDto.getChecksum().trim())){
+            Logger.Info("Checksum of upload session " + sessionId + " does not match, expected " + uploadSessionDto.getChecksum() + " got " + checksum);
+            return genErrorResponse(ERR_CHECKSUM_MISMATCH);
+        }
+        List<ColumnSchema> columns = null;
+        DatasetProfile profile = null;
+        if(null != csvScanner){
+            if(!csvScanner.finish()){
+                UploadSessionManager.INSTANCE.abort(sessionId);
+                refreshServiceState();
+                return genErrorResponse(ERR_INVALID_FILE, csvScanner.getError());
+            }
+            columns = csvScanner.getSchema();
+            profile = csvScanner.getProfile();
+        } else if(isJson(session.getFormat())){
+            JsonValidator jsonValidator = new JsonValidator(jsonRecordCheck);
+            if(!validateJson(jsonValidator, session.getPartialFile())){
+                UploadSessionManager.INSTANCE.abort(sessionId);
+                refreshServiceState();
+                return genErrorResponse(ERR_INVALID_FILE, jsonValidator.getError());
+            }
+            columns = jsonValidator.getSchema();
+            profile = jsonValidator.getProfile();
+        }
+        String schema = null == columns ? null : gson.toJson(columns);
+        // a concurrent commit of the same session has already taken it
+        if(!UploadSessionManager.INSTANCE.remove(sessionId)){
+            return genErrorResponse(ERR_UPLOAD_SESSION_NOT_FOUND);
+        }
+        refreshServiceState();
+        String dataName = session.getName();
+        File targetFolder = createTargetFolder(dataName);
+        File targetFile = new File(targetFolder, genDataFileName(dataName, session.getFormat()));
+        try {
+            Files.move(session.getPartialFile().toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Logger.Exception("Cannot move upload session " + sessionId + " into the dataset folder: " + e.getMessage());
+            FileUtils.deleteQuietly(session.getPartialFile());
+            return genErrorResponse(ERR_TRANSMISSION_FILE);
+        }
+        if(!storeDatasetRecord(dataName, session.getDescription(), targetFile, session.getFormat(), schema)){
+            FileUtils.deleteQuietly(targetFolder);
+            return genErrorResponse(ERR_STORE_IN_DB);
+        }
+        storeProfile(targetFile, profile);
+        ColumnarConverter.INSTANCE.submit(targetFile, session.getFormat(), columns);
+        Logger.Info("Chunked dataset upload committed successfully. Dataset Name: " + dataName);
+        return genSuccResponse();
+    }
+
+    /**
+     * Abort a chunked upload and delete what has been received
+     * @param sessionId id returned when the upload was opened
+     * @return JSON response contains {success:bool, code:int, msg:string}
+     */
+    @DELETE
+    @Path("/uploads/{sessionId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response abortChunkedUpload(@PathParam("sessionId") String sessionId){
+        if(!UploadSessionManager.INSTANCE.abort(sessionId)){
+            return genErrorResponse(ERR_UPLOAD_SESSION_NOT_FOUND);
+        }
+        refreshServiceState();
+        Logger.Info("Upload session " + sessionId + " aborted");
+        BaseResponse responseEntity = new BaseResponse();
+        responseEntity.successful("Upload session aborted");
+        return Response.ok().entity(responseEntity).build();
+    }
+
+    //** Profile ------------------------------------------------------------------------------
+
+    /**
+     * Get the statistics computed when a dataset was uploaded, the dataset file is not read
+     * @param dataName dataset name
+     * @return JSON response contains {success:bool, code:int, msg:string, name:string, profile:{rowNum:long, columns:[...]}}
+     */
+    @GET
+    @Path("/{name}/profile")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDatasetProfile(@PathParam("name") String dataName){
+        String dataPath = DbUtils.getDatasetPath(dataName);
+        if(null == dataPath){
+            return genErrorResponse(ERR_DATASET_NOT_FOUND);
+        }
+        File profileFile = FileUtils.getProfileFile(new File(dataPath));
+        if(!profileFile.isFile()){
+            return genErrorResponse(ERR_PROFILE_NOT_FOUND);
+        }
+        DatasetProfile profile;
+        try (Reader reader = new InputStreamReader(new FileInputStream(profileFile), StandardCharsets.UTF_8)) {
+            profile = gson.fromJson(reader, DatasetProfile.class);
+        } catch (IOException | JsonParseException e) {
+            Logger.Exception("Cannot read the profile of dataset " + dataName + ": " + e.getMessage());
+            return genErrorResponse(ERR_PROFILE_NOT_FOUND);
+        }
+        DatasetProfileResponse responseEntity = new DatasetProfileResponse(dataName, profile);
+        responseEntity.successful("Dataset profile found");
+        return Response.ok()
+                .entity(responseEntity)
+                .build();
+    }
+
+    //--------------------------------------------------------------------
+
+    /**
+     * Create the folder storing a dataset
+     * @param dataName dataset name
+     * @return target folder
+     */
+    private File createTargetFolder(String dataName){
+        //create Datasets folder if it does not exist yet
+        File datasetFolder = FileUtils.createDatasetFolder();
+        //TODO: determine it is execution or not, delete the folder if uploading fail
+        // Open the direct parent folder
+        File executionFolder = FileUtils.createNewFolderUnder(FileUtils.EXECUTION_DATA, datasetFolder);
+        return FileUtils.createNewFolderUnder(dataName, executionFolder);
+    }
+
+    /**
+     * Generate the storage name of a dataset file
+     * @param dataName dataset name
+     * @param format dataset format
+     * @return file name
+     */
+    private String genDataFileName(String dataName, String format){
+        // + FileUtils.sanitizeFilename(fileMetaData.getFileName()) // if you wanna the original filename
+        String dateTimeStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("uuuu-MMM-d-HH-mm-ss", Locale.US)); // check locale when deploying
+        return dateTimeStr + "-" +  FileUtils.sanitizeFilename(dataName)  + "." + format.toLowerCase();
+    }
+
+    /**
+     * Insert the dataset record into database
+     * @param schema inferred columns as JSON, null if not known
+     * @return false if the record cannot be stored
+     */
+    private boolean storeDatasetRecord(String dataName, String dataDescription, File targetFile, String format, String schema){
+        boolean inserted = false;
+        try {
+            inserted = DbUtils.storeDataSet(dataName,dataDescription, targetFile.getCanonicalPath(),format, schema);
+        } catch (IOException e) {
+            Logger.Exception("Fail to store new datasets record into database");
+            e.printStackTrace();
+        }
+        if(!inserted){
+            Logger.Info("insert dataset "+ dataName +" failed, return error message to frontend");
+        }
+        return inserted;
+    }
+
+    /**
+     * Store the profile of a dataset next to its file, a dataset without profile is still usable
+     * @param profile statistics computed at upload, nothing is stored if null
+     */
+    private void storeProfile(File targetFile, DatasetProfile profile){
+        if(null == profile){
+            return;
+        }
+        File profileFile = FileUtils.getProfileFile(targetFile);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(profileFile), StandardCharsets.UTF_8)) {
+            gson.toJson(profile, writer);
+        } catch (IOException e) {
+            Logger.Exception("Cannot store the profile of dataset file " + targetFile.getName() + ": " + e.getMessage());
+            FileUtils.deleteQuietly(profileFile);
+        }
+    }
+
+    private static boolean isCsv(String format){
+        return "csv".equalsIgnoreCase(format);
+    }
+
+    private static boolean isJson(String format){
+        return "json".equalsIgnoreCase(format);
+    }
+
+    /**
+     * Check a stored JSON dataset, the file is read as a stream of tokens
+     * @return false if the file is not valid JSON or cannot be read, the reason is given by the validator
+     */
+    private boolean validateJson(JsonValidator jsonValidator, File file){
+        try {
+            return jsonValidator.validate(file);
+        } catch (IOException e) {
+            Logger.Exception("Cannot read back dataset file " + file.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Enable the record check of JSON datasets
+     * @param enabled true to require the same keys in every object of an array of objects
+     */
+    public static void setJsonRecordCheck(boolean enabled){
+        jsonRecordCheck = enabled;
+    }
+
+    /**
+     * Generate the response describing a chunked upload
+     * @return Success Response
+     */
+    private Response genSessionResponse(UploadSession session, String msg){
+        UploadSessionResponse responseEntity = new UploadSessionResponse(session.getSessionId(), session.getSize(),
+                session.getReceivedBytes(), session.getReceivedRanges());
+        responseEntity.successful(msg);
+        return Response.ok()
+                .entity(responseEntity)
+                .build();
+    }
+
     /**
      * check whether all dataset parameters for uploading dataset
      * @param fileInputStream InputStream provided by Jersey resource API
@@ -178,6 +539,16 @@ public class DatasetInputService {
      * @return Response instance with proper error message and error code
      */
     private Response genErrorResponse(int errorCode){
+        return genErrorResponse(errorCode, null);
+    }
+
+    /**
+     * Generate corrpesponding error message based on error code
+     * @param errorCode error code defined in this class
+     * @param detail appended to the message, may be null
+     * @return Response instance with proper error message and error code
+     */
+    private Response genErrorResponse(int errorCode, String detail){
         BaseResponse responseEntity = new BaseResponse();
         String msg;
         switch (errorCode){
@@ -199,10 +570,37 @@ public class DatasetInputService {
             case(ERR_INVALID_FILE_EXT):
                 msg = "The datasets file you uploaded has an invalid file extension";
                 break;
+            case(ERR_TRANSMISSION_FILE):
+                msg = "The server failed to receive or store the file, please try again";
+                break;
+            case(ERR_INVALID_UPLOAD_SIZE):
+                msg = "The size of the dataset is missing or negative";
+                break;
+            case(ERR_UPLOAD_SESSION_NOT_FOUND):
+                msg = "No such upload session, it may have been committed, aborted or expired";
+                break;
+            case(ERR_INVALID_CHUNK):
+                msg = "The chunk offset is missing or outside the dataset";
+                break;
+            case(ERR_UPLOAD_INCOMPLETE):
+                msg = "Some chunks of the dataset have not been received yet";
+                break;
+            case(ERR_CHECKSUM_MISMATCH):
+                msg = "The checksum does not match the received file, resend the chunks or abort the upload";
+                break;
+            case(ERR_DATASET_NOT_FOUND):
+                msg = "No dataset with this name";
+                break;
+            case(ERR_PROFILE_NOT_FOUND):
+                msg = "No profile has been computed for this dataset";
+                break;
             default:
                 errorCode = ERR_UNKNOWN;
                 msg = "unknown error";
         }
+        if(null != detail){
+            msg = msg + ": " + detail;
+        }
         responseEntity.failed(errorCode,msg);
         Logger.Response("Server respond with error: " + msg);
         Response response = Response.status(Response.Status.BAD_REQUEST)
@@ -0,0 +1,247 @@
+package com.chaosmonkeys.datasetinputservice;
+
+import com.chaosmonkeys.Utilities.FileReceiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One dataset uploaded in chunks
+ *
+ * The partial file is sized to the whole dataset when the session is created and every chunk
+ * is written at its own offset, so chunks can arrive in any order and from several connections
+ * at once. The byte ranges received so far are kept, a client whose connection dropped asks for
+ * them and only sends what is missing.
+ */
+public class UploadSession {
+
+    private static final int CHUNK_BUFFER_SIZE = 1024 * 1024;
+
+    private final String sessionId;
+    private final String name;
+    private final String description;
+    private final String format;
+    private final long size;
+    private final File partialFile;
+    private final FileChannel channel;
+    // start offset -> end offset (exclusive) of received bytes, ranges never overlap or touch, guarded by this
+    private final TreeMap<Long, Long> receivedRanges = new TreeMap<>();
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    /**
+     * Create the partial file of a new session
+     * @param size total size of the dataset in bytes
+     * @throws IOException if the partial file cannot be created or the disk cannot hold it
+     */
+    UploadSession(String sessionId, String name, String description, String format, long size, File partialFile) throws IOException {
+        this.sessionId = sessionId;
+        this.name = name;
+        this.description = description;
+        this.format = format;
+        this.size = size;
+        this.partialFile = partialFile;
+        File parent = partialFile.getAbsoluteFile().getParentFile();
+        long usable = parent.getUsableSpace();
+        if (usable > 0 && usable < size) {
+            throw new IOException("Not enough disk space to receive " + size + " bytes, " + usable + " bytes left");
+        }
+        try (RandomAccessFile file = new RandomAccessFile(partialFile, "rw")) {
+            file.setLength(size);
+        }
+        this.channel = FileChannel.open(partialFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Write one chunk at its offset, bytes written before a failure are kept as received
+     * @param offset position of the first byte of the chunk in the dataset
+     * @param inputStream chunk content
+     * @return number of bytes written
+     * @throws IOException if the stream cannot be read, the file cannot be written
+     *                     or the chunk goes past the end of the dataset
+     */
+    public long writeChunk(long offset, InputStream inputStream) throws IOException {
+        touch();
+        if (offset < 0 || offset > size) {
+            throw new IOException("Chunk offset " + offset + " is outside the dataset of " + size + " bytes");
+        }
+        long start = System.nanoTime();
+        ReadableByteChannel in = Channels.newChannel(inputStream);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BUFFER_SIZE);
+        long position = offset;
+        try {
+            boolean eof = false;
+            IOException readFailure = null;
+            while (!eof) {
+                try {
+                    while (buffer.hasRemaining()) {
+                        if (in.read(buffer) < 0) {
+                            eof = true;
+                            break;
+                        }
+                    }
+                } catch (IOException e) {
+                    // the connection dropped, still keep the bytes already buffered
+                    readFailure = e;
+                    eof = true;
+                }
+                buffer.flip();
+                if (position + buffer.remaining() > size) {
+                    throw new IOException("Chunk at offset " + offset + " goes past the end of the dataset of " + size + " bytes");
+                }
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                buffer.clear();
+            }
+            if (null != readFailure) {
+                throw readFailure;
+            }
+        } finally {
+            addRange(offset, position);
+            touch();
+            long elapsedNanos = System.nanoTime() - start;
+            long written = position - offset;
+            FileReceiver.recordUpload(written, elapsedNanos <= 0 ? written : (long) (written * 1e9 / elapsedNanos));
+        }
+        return position - offset;
+    }
+
+    /**
+     * @return received byte ranges in order, each one is {start, end} with end exclusive
+     */
+    public synchronized List<long[]> getReceivedRanges() {
+        List<long[]> ranges = new ArrayList<>(receivedRanges.size());
+        for (Map.Entry<Long, Long> range : receivedRanges.entrySet()) {
+            ranges.add(new long[]{range.getKey(), range.getValue()});
+        }
+        return ranges;
+    }
+
+    public synchronized long getReceivedBytes() {
+        long received = 0;
+        for (Map.Entry<Long, Long> range : receivedRanges.entrySet()) {
+            received += range.getValue() - range.getKey();
+        }
+        return received;
+    }
+
+    public synchronized boolean isComplete() {
+        if (0 == size) {
+            return true;
+        }
+        Map.Entry<Long, Long> first = receivedRanges.firstEntry();
+        return null != first && 0 == first.getKey() && size == first.getValue();
+    }
+
+    /**
+     * Force the partial file to disk and compute its SHA-256 digest
+     * @param branch receives every byte of the file in order, so the content can be checked in the same pass, may be null
+     * @return digest as lower case hex
+     */
+    public String computeChecksum(OutputStream branch) throws IOException {
+        touch();
+        channel.force(false);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BUFFER_SIZE);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            position += read;
+            digest.update(buffer.array(), 0, read);
+            if (null != branch) {
+                branch.write(buffer.array(), 0, read);
+            }
+            buffer.clear();
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Close the partial file, it is left on disk
+     */
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing is written after closing
+        }
+    }
+
+    //** Received ranges ------------------------------------------------------------------------
+
+    private synchronized void addRange(long start, long end) {
+        if (end <= start) {
+            return;
+        }
+        // merge with a range overlapping or touching on the left
+        Map.Entry<Long, Long> lower = receivedRanges.floorEntry(start);
+        if (null != lower && lower.getValue() >= start) {
+            start = lower.getKey();
+            end = Math.max(end, lower.getValue());
+        }
+        // swallow ranges starting inside the new one
+        Map.Entry<Long, Long> next;
+        while (null != (next = receivedRanges.ceilingEntry(start)) && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            receivedRanges.remove(next.getKey());
+        }
+        receivedRanges.put(start, end);
+    }
+
+    private void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    //** Getter ---------------------------------------------------------------------------------
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public File getPartialFile() {
+        return partialFile;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+}
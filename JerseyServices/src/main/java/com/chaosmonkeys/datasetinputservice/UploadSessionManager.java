@@ -0,0 +1,113 @@
+package com.chaosmonkeys.datasetinputservice;
+
+import com.chaosmonkeys.Utilities.Constants;
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.Utilities.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open chunked upload sessions of this service
+ * the partial file of an open session is in {@link DatasetInputService#uploadSet}, so the service is not idle
+ * sessions nobody touched for {@link Constants#UPLOAD_SESSION_TIMEOUT_HOURS} hours are dropped with their partial file
+ */
+public enum UploadSessionManager {
+    INSTANCE;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Open a session and create its partial file
+     * @param size total size of the dataset in bytes
+     * @return the new session
+     * @throws IOException if the partial file cannot be created
+     */
+    public UploadSession create(String name, String description, String format, long size) throws IOException {
+        return create(name, description, format, size, FileUtils.createUploadSessionFolder());
+    }
+
+    UploadSession create(String name, String description, String format, long size, File sessionFolder) throws IOException {
+        dropExpired();
+        String sessionId = UUID.randomUUID().toString();
+        File partialFile = new File(sessionFolder, sessionId + ".part");
+        UploadSession session;
+        try {
+            session = new UploadSession(sessionId, name, description, format, size, partialFile);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(partialFile);
+            throw e;
+        }
+        sessions.put(sessionId, session);
+        DatasetInputService.uploadSet.add(partialFile.getName());
+        return session;
+    }
+
+    /**
+     * @return the session, null if it does not exist or has expired
+     */
+    public UploadSession get(String sessionId) {
+        if (null == sessionId) {
+            return null;
+        }
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * Close a session once its file has been committed, the partial file is left to the caller
+     * @return false if the session had already been removed
+     */
+    public boolean remove(String sessionId) {
+        UploadSession session = sessions.remove(sessionId);
+        if (null == session) {
+            return false;
+        }
+        close(session);
+        return true;
+    }
+
+    /**
+     * Close a session and delete its partial file
+     * @return false if the session does not exist
+     */
+    public boolean abort(String sessionId) {
+        UploadSession session = sessions.remove(sessionId);
+        if (null == session) {
+            return false;
+        }
+        close(session);
+        FileUtils.deleteQuietly(session.getPartialFile());
+        return true;
+    }
+
+    /**
+     * @return number of open sessions
+     */
+    public int getSessionNum() {
+        return sessions.size();
+    }
+
+    private static void close(UploadSession session) {
+        session.close();
+        DatasetInputService.uploadSet.remove(session.getPartialFile().getName());
+    }
+
+    private void dropExpired() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(Constants.UPLOAD_SESSION_TIMEOUT_HOURS);
+        Iterator<UploadSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            UploadSession session = iterator.next();
+            if (session.getLastAccess() < expireBefore) {
+                iterator.remove();
+                close(session);
+                FileUtils.deleteQuietly(session.getPartialFile());
+                Logger.Info("Upload session " + session.getSessionId() + " of dataset " + session.getName() + " expired");
+            }
+        }
+    }
+}
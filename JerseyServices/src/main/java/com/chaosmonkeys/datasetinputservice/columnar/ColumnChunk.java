@@ -0,0 +1,129 @@
+package com.chaosmonkeys.datasetinputservice.columnar;
+
+import com.chaosmonkeys.datasetinputservice.validation.ColumnType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Values of one column in one row group, read straight from the mapped file
+ * strings are decoded the first time they are asked for
+ */
+public class ColumnChunk {
+
+    private final ColumnType type;
+    private final int rows;
+    private final ByteBuffer data;
+    // string columns only
+    private final int dictionarySize;
+    private final int offsetsStart;
+    private final int bytesStart;
+    private final String[] dictionary;
+
+    ColumnChunk(ColumnType type, int rows, ByteBuffer data) {
+        this.type = type;
+        this.rows = rows;
+        this.data = data;
+        if (type == ColumnType.STRING) {
+            int codesEnd = rows * 4;
+            dictionarySize = data.getInt(codesEnd);
+            offsetsStart = codesEnd + 4;
+            bytesStart = offsetsStart + (dictionarySize + 1) * 4;
+            dictionary = new String[dictionarySize];
+        } else {
+            dictionarySize = 0;
+            offsetsStart = 0;
+            bytesStart = 0;
+            dictionary = null;
+        }
+    }
+
+    public ColumnType getType() {
+        return type;
+    }
+
+    /**
+     * @return number of rows in this row group
+     */
+    public int size() {
+        return rows;
+    }
+
+    public boolean isMissing(int row) {
+        switch (type) {
+            case INTEGER:
+                return data.getInt(row * 4) == ColumnarFormat.NA_INTEGER;
+            case DOUBLE:
+                return data.getLong(row * 8) == ColumnarFormat.NA_DOUBLE_BITS;
+            case LOGICAL:
+                return data.get(row) == ColumnarFormat.NA_LOGICAL;
+            default:
+                return data.getInt(row * 4) == ColumnarFormat.NA_STRING;
+        }
+    }
+
+    /**
+     * @return value of an integer column, Integer.MIN_VALUE if missing
+     */
+    public int getInt(int row) {
+        checkType(ColumnType.INTEGER);
+        return data.getInt(row * 4);
+    }
+
+    /**
+     * @return value of a numeric column, NaN if missing
+     */
+    public double getDouble(int row) {
+        if (type == ColumnType.INTEGER) {
+            int value = data.getInt(row * 4);
+            return value == ColumnarFormat.NA_INTEGER ? Double.NaN : value;
+        }
+        checkType(ColumnType.DOUBLE);
+        return data.getDouble(row * 8);
+    }
+
+    /**
+     * @return value of a logical column, null if missing
+     */
+    public Boolean getLogical(int row) {
+        checkType(ColumnType.LOGICAL);
+        byte value = data.get(row);
+        return value == ColumnarFormat.NA_LOGICAL ? null : value == 1;
+    }
+
+    /**
+     * @return value of a string column, null if missing
+     */
+    public String getString(int row) {
+        checkType(ColumnType.STRING);
+        int code = data.getInt(row * 4);
+        if (code == ColumnarFormat.NA_STRING) {
+            return null;
+        }
+        String value = dictionary[code];
+        if (null == value) {
+            int start = data.getInt(offsetsStart + code * 4);
+            int end = data.getInt(offsetsStart + (code + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = data.duplicate();
+            view.position(bytesStart + start);
+            view.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            dictionary[code] = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return number of distinct strings in this row group
+     */
+    public int getDictionarySize() {
+        return dictionarySize;
+    }
+
+    private void checkType(ColumnType expected) {
+        if (type != expected) {
+            throw new IllegalStateException("Column is " + type.StringValue() + ", not " + expected.StringValue());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.chaosmonkeys.datasetinputservice.columnar;
+
+import com.chaosmonkeys.Utilities.Constants;
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.datasetinputservice.validation.ColumnSchema;
+import com.chaosmonkeys.datasetinputservice.validation.CsvScanner;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Converts uploaded datasets into the columnar format in the background
+ *
+ * The columnar file is written next to the dataset, see {@link FileUtils#getColumnarFile(File)},
+ * and only appears once it is complete. A dataset without columnar file is still usable from its text form.
+ */
+public enum ColumnarConverter {
+    INSTANCE;
+
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+
+    private volatile boolean enabled = false;
+    private volatile int rowGroupSize = Constants.DEFAULT_COLUMNAR_ROW_GROUP_SIZE;
+    private ExecutorService executor;
+
+    /**
+     * @param enabled convert datasets after they are uploaded
+     * @param rowGroupSize rows per row group
+     */
+    public void init(boolean enabled, int rowGroupSize) {
+        this.enabled = enabled;
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    /**
+     * Queue the conversion of a stored dataset, nothing is done if conversion is disabled or the dataset is not a table
+     * @param dataFile stored dataset file
+     * @param format csv or json
+     * @param schema columns found when the dataset was validated, null if it is not a table
+     */
+    public void submit(File dataFile, String format, List<ColumnSchema> schema) {
+        if (!enabled || null == schema) {
+            return;
+        }
+        int groupSize = rowGroupSize;
+        getExecutor().execute(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                long rows = convert(dataFile, format, schema, groupSize);
+                Logger.Info("Converted dataset file " + dataFile.getName() + " to columnar format, " + rows + " rows in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            } catch (IOException e) {
+                Logger.Exception("Cannot convert dataset file " + dataFile.getName() + " to columnar format: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Convert a dataset file now
+     * @return number of rows converted
+     * @throws IOException if the dataset cannot be read or the columnar file cannot be written
+     */
+    public static long convert(File dataFile, String format, List<ColumnSchema> schema, int rowGroupSize) throws IOException {
+        File columnarFile = FileUtils.getColumnarFile(dataFile);
+        File tempFile = new File(columnarFile.getPath() + ".tmp");
+        long rows;
+        try {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(dataFile), READ_BUFFER_SIZE);
+                 ColumnarWriter writer = new ColumnarWriter(tempFile, schema, rowGroupSize)) {
+                if ("json".equalsIgnoreCase(format)) {
+                    readJsonRecords(in, schema, writer);
+                } else {
+                    readCsvRecords(in, writer);
+                }
+                rows = writer.getRowCount();
+            }
+            Files.move(tempFile.toPath(), columnarFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(tempFile);
+            throw e;
+        }
+        return rows;
+    }
+
+    private static void readCsvRecords(InputStream in, ColumnarWriter writer) throws IOException {
+        CsvScanner scanner = new CsvScanner();
+        scanner.setRecordListener(values -> {
+            try {
+                writer.addRow(values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int read;
+        try {
+            while ((read = in.read(buffer)) != -1) {
+                scanner.write(buffer, 0, read);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (!scanner.finish()) {
+            throw new IOException(scanner.getError());
+        }
+    }
+
+    /**
+     * Read an array of objects, values are turned into the text a CSV file would hold
+     * nested objects and arrays are stored as missing values
+     */
+    private static void readJsonRecords(InputStream in, List<ColumnSchema> schema, ColumnarWriter writer) throws IOException {
+        Map<String, Integer> columnIndex = new HashMap<>();
+        for (int i = 0; i < schema.size(); i++) {
+            columnIndex.put(schema.get(i).getName(), i);
+        }
+        List<String> values = new ArrayList<>(Collections.nCopies(schema.size(), "NA"));
+        boolean[] read = new boolean[schema.size()];
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Collections.fill(values, "NA");
+            Arrays.fill(read, false);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                Integer column = columnIndex.get(reader.nextName());
+                String value = readJsonValue(reader);
+                // the first value of a repeated key is kept, it is the one the schema was inferred from
+                if (null != column && !read[column]) {
+                    values.set(column, value);
+                    read[column] = true;
+                }
+            }
+            reader.endObject();
+            writer.addRow(values);
+        }
+        reader.endArray();
+    }
+
+    private static String readJsonValue(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case BOOLEAN:
+                return reader.nextBoolean() ? "TRUE" : "FALSE";
+            case NUMBER:
+            case STRING:
+                return reader.nextString();
+            case NULL:
+                reader.nextNull();
+                return "NA";
+            default:
+                reader.skipValue();
+                return "NA";
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (null == executor) {
+            executor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "columnar-converter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
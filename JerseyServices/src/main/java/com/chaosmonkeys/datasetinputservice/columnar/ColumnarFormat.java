@@ -0,0 +1,80 @@
+package com.chaosmonkeys.datasetinputservice.columnar;
+
+import com.chaosmonkeys.datasetinputservice.validation.ColumnType;
+
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the columnar dataset file, all numbers are little endian so R can read them with readBin
+ *
+ * <pre>
+ * header   magic (8 bytes), version (int), reserved (int)
+ * chunks   one chunk per column and row group, each starting on an 8-byte boundary
+ *            integer: int per row, NA is Integer.MIN_VALUE as in R
+ *            double:  double per row, NA is R's NA_real_ bit pattern
+ *            logical: byte per row, 1, 0 or NA = -128
+ *            string:  int code per row (NA = -1), dictionary size (int),
+ *                     dictionary size + 1 byte offsets (int), UTF-8 bytes of the dictionary
+ * footer   column count (int), per column: name length (int), UTF-8 name, type (byte)
+ *          row count (long), row group count (int),
+ *          per row group: row count (int), per column: chunk offset (long), chunk length (long)
+ * trailer  footer offset (long), footer length (int), version (int), magic (8 bytes)
+ * </pre>
+ */
+final class ColumnarFormat {
+
+    static final byte[] MAGIC = "CMCOLUMN".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int TRAILER_SIZE = 24;
+    static final int ALIGNMENT = 8;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int NA_INTEGER = Integer.MIN_VALUE;
+    static final long NA_DOUBLE_BITS = 0x7FF00000000007A2L;
+    static final byte NA_LOGICAL = Byte.MIN_VALUE;
+    static final int NA_STRING = -1;
+
+    private ColumnarFormat() {
+    }
+
+    static byte typeCode(ColumnType type) {
+        switch (type) {
+            case INTEGER:
+                return 1;
+            case DOUBLE:
+                return 2;
+            case LOGICAL:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    static ColumnType typeOf(byte code) {
+        switch (code) {
+            case 1:
+                return ColumnType.INTEGER;
+            case 2:
+                return ColumnType.DOUBLE;
+            case 3:
+                return ColumnType.LOGICAL;
+            default:
+                return ColumnType.STRING;
+        }
+    }
+
+    /**
+     * @param name lower case name stored in a dataset schema
+     * @return column type, string for unknown names
+     */
+    static ColumnType typeOf(String name) {
+        for (ColumnType type : ColumnType.values()) {
+            if (type.StringValue().equals(name) && type != ColumnType.EMPTY) {
+                return type;
+            }
+        }
+        return ColumnType.STRING;
+    }
+}
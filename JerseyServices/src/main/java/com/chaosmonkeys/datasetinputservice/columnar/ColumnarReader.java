@@ -0,0 +1,126 @@
+package com.chaosmonkeys.datasetinputservice.columnar;
+
+import com.chaosmonkeys.datasetinputservice.validation.ColumnSchema;
+import com.chaosmonkeys.datasetinputservice.validation.ColumnType;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a columnar dataset file written by {@link ColumnarWriter}
+ *
+ * Only the footer is read when the file is opened. Column chunks are memory mapped when they are asked for,
+ * so reading one column never touches the others and files larger than 2 GB are supported.
+ */
+public class ColumnarReader implements Closeable {
+
+    private final FileChannel channel;
+    private final List<ColumnSchema> columns;
+    private final ColumnType[] types;
+    private final long rowCount;
+    private final int[] groupRows;
+    // per row group: {offset of column 0, length of column 0, offset of column 1, ...}
+    private final long[][] chunks;
+
+    /**
+     * @param file columnar file
+     * @throws IOException if the file cannot be read or is not a columnar file
+     */
+    public ColumnarReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < ColumnarFormat.HEADER_SIZE + ColumnarFormat.TRAILER_SIZE) {
+                throw new IOException(file.getName() + " is too short to be a columnar file");
+            }
+            ByteBuffer trailer = map(size - ColumnarFormat.TRAILER_SIZE, ColumnarFormat.TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            int footerLength = trailer.getInt();
+            int version = trailer.getInt();
+            byte[] magic = new byte[ColumnarFormat.MAGIC.length];
+            trailer.get(magic);
+            if (!Arrays.equals(magic, ColumnarFormat.MAGIC) || version != ColumnarFormat.VERSION) {
+                throw new IOException(file.getName() + " is not a columnar file of version " + ColumnarFormat.VERSION);
+            }
+            ByteBuffer footer = map(footerOffset, footerLength);
+            int columnCount = footer.getInt();
+            List<ColumnSchema> schema = new ArrayList<>(columnCount);
+            types = new ColumnType[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                byte[] name = new byte[footer.getInt()];
+                footer.get(name);
+                types[i] = ColumnarFormat.typeOf(footer.get());
+                schema.add(new ColumnSchema(new String(name, StandardCharsets.UTF_8), types[i].StringValue()));
+            }
+            columns = Collections.unmodifiableList(schema);
+            rowCount = footer.getLong();
+            int groupCount = footer.getInt();
+            groupRows = new int[groupCount];
+            chunks = new long[groupCount][2 * columnCount];
+            for (int g = 0; g < groupCount; g++) {
+                groupRows[g] = footer.getInt();
+                for (int i = 0; i < 2 * columnCount; i++) {
+                    chunks[g][i] = footer.getLong();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("Corrupted columnar file " + file.getName(), e);
+        }
+    }
+
+    public List<ColumnSchema> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return index of the column, -1 if there is no such column
+     */
+    public int getColumnIndex(String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getRowGroupCount() {
+        return groupRows.length;
+    }
+
+    public int getRowGroupRows(int rowGroup) {
+        return groupRows[rowGroup];
+    }
+
+    /**
+     * Map the values of one column in one row group
+     */
+    public ColumnChunk getChunk(int rowGroup, int column) throws IOException {
+        long offset = chunks[rowGroup][2 * column];
+        long length = chunks[rowGroup][2 * column + 1];
+        return new ColumnChunk(types[column], groupRows[rowGroup], map(offset, length));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer map(long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ColumnarFormat.BYTE_ORDER);
+    }
+}
@@ -0,0 +1,334 @@
+package com.chaosmonkeys.datasetinputservice.columnar;
+
+import com.chaosmonkeys.datasetinputservice.validation.ColumnSchema;
+import com.chaosmonkeys.datasetinputservice.validation.ColumnType;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rows of text values into the columnar layout described in {@link ColumnarFormat}
+ *
+ * Only the current row group is held in memory, as primitive arrays, and string dictionaries
+ * are kept per row group, so the memory used does not depend on the dataset size.
+ */
+public class ColumnarWriter implements Closeable {
+
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ColumnarFormat.BYTE_ORDER);
+    private final List<ColumnSchema> schema;
+    private final ColumnBuffer[] columns;
+    private final int rowGroupSize;
+    private int groupRows = 0;
+    private long rowCount = 0;
+    private long position = 0;
+    // per row group: {rows, offset of column 0, length of column 0, offset of column 1, ...}
+    private final List<long[]> rowGroups = new ArrayList<>();
+    private boolean closed = false;
+
+    /**
+     * @param target file to create, replaced if it exists
+     * @param schema columns in the order of the values of a row
+     * @param rowGroupSize rows per row group
+     */
+    public ColumnarWriter(File target, List<ColumnSchema> schema, int rowGroupSize) throws IOException {
+        this.schema = schema;
+        this.rowGroupSize = rowGroupSize;
+        this.columns = new ColumnBuffer[schema.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnBuffer(ColumnarFormat.typeOf(schema.get(i).getType()), rowGroupSize);
+        }
+        this.channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.put(ColumnarFormat.MAGIC).putInt(ColumnarFormat.VERSION).putInt(0);
+        position = ColumnarFormat.HEADER_SIZE;
+    }
+
+    /**
+     * Add one row
+     * @param values text of every column, missing values are empty or NA as in a CSV file
+     */
+    public void addRow(List<String> values) throws IOException {
+        if (values.size() != columns.length) {
+            throw new IOException("Row " + (rowCount + 1) + " has " + values.size() + " values, expected " + columns.length);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].add(groupRows, values.get(i));
+        }
+        groupRows++;
+        rowCount++;
+        if (groupRows == rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Write the last row group, the footer and the trailer
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (groupRows > 0 || rowGroups.isEmpty()) {
+                flushRowGroup();
+            }
+            long footerOffset = position;
+            writeInt(columns.length);
+            for (int i = 0; i < columns.length; i++) {
+                byte[] name = schema.get(i).getName().getBytes(StandardCharsets.UTF_8);
+                writeInt(name.length);
+                writeBytes(name);
+                writeByte(ColumnarFormat.typeCode(columns[i].type));
+            }
+            writeLong(rowCount);
+            writeInt(rowGroups.size());
+            for (long[] group : rowGroups) {
+                writeInt((int) group[0]);
+                for (int i = 1; i < group.length; i++) {
+                    writeLong(group[i]);
+                }
+            }
+            int footerLength = (int) (position - footerOffset);
+            writeLong(footerOffset);
+            writeInt(footerLength);
+            writeInt(ColumnarFormat.VERSION);
+            writeBytes(ColumnarFormat.MAGIC);
+            flushBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+
+    //** Row groups -----------------------------------------------------------------------------
+
+    private void flushRowGroup() throws IOException {
+        long[] group = new long[1 + 2 * columns.length];
+        group[0] = groupRows;
+        for (int i = 0; i < columns.length; i++) {
+            pad();
+            long offset = position;
+            columns[i].write(this, groupRows);
+            group[1 + 2 * i] = offset;
+            group[2 + 2 * i] = position - offset;
+            columns[i].reset();
+        }
+        rowGroups.add(group);
+        groupRows = 0;
+    }
+
+    //** Output ---------------------------------------------------------------------------------
+
+    private void pad() throws IOException {
+        while (position % ColumnarFormat.ALIGNMENT != 0) {
+            writeByte((byte) 0);
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+        position += 4;
+    }
+
+    private void writeLong(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+        position += 8;
+    }
+
+    private void writeByte(byte value) throws IOException {
+        ensure(1);
+        buffer.put(value);
+        position++;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensure(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+            position += length;
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    //** Column buffers -------------------------------------------------------------------------
+
+    /**
+     * Values of one column in the current row group
+     */
+    private static class ColumnBuffer {
+        private final ColumnType type;
+        private int[] ints;
+        // doubles are kept as bits, R's NA is a signalling NaN the JVM does not have to preserve
+        private long[] doubles;
+        private byte[] logicals;
+        private Map<String, Integer> dictionary;
+        private List<byte[]> dictionaryValues;
+
+        ColumnBuffer(ColumnType type, int rowGroupSize) {
+            this.type = type;
+            switch (type) {
+                case DOUBLE:
+                    doubles = new long[rowGroupSize];
+                    break;
+                case LOGICAL:
+                    logicals = new byte[rowGroupSize];
+                    break;
+                case INTEGER:
+                    ints = new int[rowGroupSize];
+                    break;
+                default:
+                    ints = new int[rowGroupSize];
+                    dictionary = new HashMap<>();
+                    dictionaryValues = new ArrayList<>();
+                    break;
+            }
+        }
+
+        void add(int row, String value) {
+            switch (type) {
+                case INTEGER:
+                    ints[row] = parseInteger(value);
+                    break;
+                case DOUBLE:
+                    doubles[row] = parseDoubleBits(value);
+                    break;
+                case LOGICAL:
+                    logicals[row] = parseLogical(value);
+                    break;
+                default:
+                    ints[row] = encode(value);
+                    break;
+            }
+        }
+
+        private int encode(String value) {
+            if ("NA".equals(value)) {
+                return ColumnarFormat.NA_STRING;
+            }
+            Integer code = dictionary.get(value);
+            if (null == code) {
+                code = dictionaryValues.size();
+                dictionary.put(value, code);
+                dictionaryValues.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+            return code;
+        }
+
+        void write(ColumnarWriter out, int rows) throws IOException {
+            switch (type) {
+                case INTEGER:
+                    for (int i = 0; i < rows; i++) {
+                        out.writeInt(ints[i]);
+                    }
+                    break;
+                case DOUBLE:
+                    for (int i = 0; i < rows; i++) {
+                        out.writeLong(doubles[i]);
+                    }
+                    break;
+                case LOGICAL:
+                    for (int i = 0; i < rows; i++) {
+                        out.writeByte(logicals[i]);
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < rows; i++) {
+                        out.writeInt(ints[i]);
+                    }
+                    out.writeInt(dictionaryValues.size());
+                    int offset = 0;
+                    out.writeInt(offset);
+                    for (byte[] value : dictionaryValues) {
+                        offset += value.length;
+                        out.writeInt(offset);
+                    }
+                    for (byte[] value : dictionaryValues) {
+                        out.writeBytes(value);
+                    }
+                    break;
+            }
+        }
+
+        void reset() {
+            if (null != dictionary) {
+                dictionary.clear();
+                dictionaryValues.clear();
+            }
+        }
+    }
+
+    //** Parsing, values come from a validated file so anything unexpected is stored as NA ------
+
+    private static int parseInteger(String value) {
+        if (ColumnType.of(value) != ColumnType.INTEGER) {
+            return ColumnarFormat.NA_INTEGER;
+        }
+        String text = value.trim();
+        try {
+            return Integer.parseInt(text.charAt(0) == '+' ? text.substring(1) : text);
+        } catch (NumberFormatException e) {
+            return ColumnarFormat.NA_INTEGER;
+        }
+    }
+
+    private static long parseDoubleBits(String value) {
+        ColumnType type = ColumnType.of(value);
+        if (type != ColumnType.INTEGER && type != ColumnType.DOUBLE) {
+            return ColumnarFormat.NA_DOUBLE_BITS;
+        }
+        String text = value.trim();
+        if ("Inf".equals(text)) {
+            return Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+        }
+        if ("-Inf".equals(text)) {
+            return Double.doubleToLongBits(Double.NEGATIVE_INFINITY);
+        }
+        try {
+            return Double.doubleToLongBits(Double.parseDouble(text));
+        } catch (NumberFormatException e) {
+            return ColumnarFormat.NA_DOUBLE_BITS;
+        }
+    }
+
+    private static byte parseLogical(String value) {
+        if (ColumnType.of(value) != ColumnType.LOGICAL) {
+            return ColumnarFormat.NA_LOGICAL;
+        }
+        return (byte) (value.trim().toUpperCase().startsWith("T") ? 1 : 0);
+    }
+}
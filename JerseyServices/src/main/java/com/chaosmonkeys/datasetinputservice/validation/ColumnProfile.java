@@ -0,0 +1,93 @@
+package com.chaosmonkeys.datasetinputservice.validation;
+
+/**
+ * Statistics of one dataset column, stored in the profile next to the dataset file
+ * min, max and mean are only set for numeric columns
+ */
+public class ColumnProfile {
+    private String name;
+    private String type;
+    private long count;
+    private long missing;
+    private double missingRatio;
+    private Double min;
+    private Double max;
+    private Double mean;
+    // estimated number of distinct values
+    private long distinct;
+
+    public ColumnProfile() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getMissing() {
+        return missing;
+    }
+
+    public void setMissing(long missing) {
+        this.missing = missing;
+    }
+
+    public double getMissingRatio() {
+        return missingRatio;
+    }
+
+    public void setMissingRatio(double missingRatio) {
+        this.missingRatio = missingRatio;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    public Double getMean() {
+        return mean;
+    }
+
+    public void setMean(Double mean) {
+        this.mean = mean;
+    }
+
+    public long getDistinct() {
+        return distinct;
+    }
+
+    public void setDistinct(long distinct) {
+        this.distinct = distinct;
+    }
+}
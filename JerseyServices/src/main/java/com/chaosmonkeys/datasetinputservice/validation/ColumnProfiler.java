@@ -0,0 +1,95 @@
+package com.chaosmonkeys.datasetinputservice.validation;
+
+import com.chaosmonkeys.Utilities.HyperLogLog;
+
+/**
+ * Accumulates the statistics of one column value by value, in constant memory
+ */
+class ColumnProfiler {
+
+    // 4 KB per column, about 1.6% error on the distinct count
+    private static final int SKETCH_PRECISION = 12;
+
+    private final HyperLogLog distinct = new HyperLogLog(SKETCH_PRECISION);
+    private long count = 0;
+    private long missing = 0;
+    private long numericCount = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum = 0;
+
+    /**
+     * Add one value
+     * @param type type of this value alone, EMPTY for missing values
+     * @param text value, only read for numbers
+     * @param hash hash of the whole value, see {@link HyperLogLog#hashByte(long, int)}
+     */
+    void add(ColumnType type, CharSequence text, long hash) {
+        if (type == ColumnType.EMPTY) {
+            missing++;
+            return;
+        }
+        count++;
+        distinct.offer(hash);
+        if (type == ColumnType.INTEGER || type == ColumnType.DOUBLE) {
+            double value = parse(text);
+            // Inf and NaN are counted as values but kept out of min, max and mean
+            if (!Double.isInfinite(value) && !Double.isNaN(value)) {
+                numericCount++;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                sum += value;
+            }
+        }
+    }
+
+    /**
+     * Add values known to be missing without reading them, e.g. records without the key
+     */
+    void addMissing(long num) {
+        missing += num;
+    }
+
+    /**
+     * @return number of values added so far, missing ones included
+     */
+    long getValueNum() {
+        return count + missing;
+    }
+
+    /**
+     * @param columnType type of the whole column
+     */
+    ColumnProfile toProfile(String name, ColumnType columnType) {
+        ColumnProfile profile = new ColumnProfile();
+        profile.setName(name);
+        profile.setType(columnType.StringValue());
+        profile.setCount(count);
+        profile.setMissing(missing);
+        long total = count + missing;
+        profile.setMissingRatio(0 == total ? 0 : (double) missing / total);
+        profile.setDistinct(Math.min(count, distinct.estimate()));
+        boolean numeric = columnType == ColumnType.INTEGER || columnType == ColumnType.DOUBLE;
+        if (numeric && numericCount > 0) {
+            profile.setMin(min);
+            profile.setMax(max);
+            profile.setMean(sum / numericCount);
+        }
+        return profile;
+    }
+
+    private static double parse(CharSequence text) {
+        String value = text.toString().trim();
+        if ("Inf".equals(value)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if ("-Inf".equals(value)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
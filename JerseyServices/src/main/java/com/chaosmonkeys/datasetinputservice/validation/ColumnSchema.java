@@ -0,0 +1,33 @@
+package com.chaosmonkeys.datasetinputservice.validation;
+
+/**
+ * Name and inferred type of one dataset column, stored as JSON with the dataset record
+ */
+public class ColumnSchema {
+    private String name;
+    private String type;
+
+    public ColumnSchema() {
+    }
+
+    public ColumnSchema(String name, String type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
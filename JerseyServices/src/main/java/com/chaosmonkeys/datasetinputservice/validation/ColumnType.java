@@ -0,0 +1,105 @@
+package com.chaosmonkeys.datasetinputservice.validation;
+
+/**
+ * Type of a dataset column, inferred from its values the way R's read.csv would read them.
+ */
+public enum ColumnType {
+    // only missing values seen so far
+    EMPTY,
+    LOGICAL,
+    INTEGER,
+    DOUBLE,
+    STRING;
+
+    private static final String[] MISSING_VALUES = {"", "NA"};
+    private static final String[] LOGICAL_VALUES = {"TRUE", "FALSE", "T", "F", "true", "false", "True", "False"};
+
+    /**
+     * @return type able to hold values of both types
+     */
+    public ColumnType merge(ColumnType other) {
+        if (this == other || other == EMPTY) {
+            return this;
+        }
+        if (this == EMPTY) {
+            return other;
+        }
+        if ((this == INTEGER && other == DOUBLE) || (this == DOUBLE && other == INTEGER)) {
+            return DOUBLE;
+        }
+        return STRING;
+    }
+
+    /**
+     * Infer the type of one value
+     * @param value field content without the enclosing quotes
+     * @return EMPTY for missing values
+     */
+    public static ColumnType of(CharSequence value) {
+        String text = value.toString().trim();
+        for (String missing : MISSING_VALUES) {
+            if (missing.equals(text)) {
+                return EMPTY;
+            }
+        }
+        for (String logical : LOGICAL_VALUES) {
+            if (logical.equals(text)) {
+                return LOGICAL;
+            }
+        }
+        int i = 0;
+        int length = text.length();
+        if (text.charAt(0) == '+' || text.charAt(0) == '-') {
+            i++;
+        }
+        int digits = 0;
+        while (i < length && Character.isDigit(text.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i == length) {
+            if (0 == digits) {
+                return STRING;
+            }
+            // R integers are 32 bits, larger whole numbers are read as doubles
+            return digits <= 9 || fitsInt(text) ? INTEGER : DOUBLE;
+        }
+        return isDouble(text) ? DOUBLE : STRING;
+    }
+
+    private static boolean fitsInt(String text) {
+        try {
+            Integer.parseInt(text.charAt(0) == '+' ? text.substring(1) : text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isDouble(String text) {
+        if ("Inf".equals(text) || "-Inf".equals(text) || "NaN".equals(text)) {
+            return true;
+        }
+        char last = text.charAt(text.length() - 1);
+        // Java also accepts type suffixes and hex floats, R does not
+        if (!Character.isDigit(last) && last != '.') {
+            return false;
+        }
+        if (text.indexOf('x') >= 0 || text.indexOf('X') >= 0) {
+            return false;
+        }
+        try {
+            Double.parseDouble(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return lower case name stored in the dataset schema
+     */
+    public String StringValue() {
+        return name().toLowerCase();
+    }
+}
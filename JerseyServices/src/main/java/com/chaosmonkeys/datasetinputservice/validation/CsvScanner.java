@@ -0,0 +1,310 @@
+package com.chaosmonkeys.datasetinputservice.validation;
+
+import com.chaosmonkeys.Utilities.HyperLogLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming CSV validator, fed with the bytes of a file while it is being written
+ *
+ * The scanner checks the quoting of every field and that every record has as many columns
+ * as the header, infers the type of each column and profiles its values. It keeps one record
+ * of state at most, so any file size is scanned in constant memory and without reading the file again.
+ * Scanning stops at the first error. Call {@link #finish()} once every byte has been written.
+ */
+public class CsvScanner extends OutputStream {
+
+    // characters of a value kept for type inference, longer values are strings
+    private static final int MAX_INFERRED_LENGTH = 64;
+    // bytes of a header name kept
+    private static final int MAX_HEADER_LENGTH = 1024;
+
+    /**
+     * Receives the values of every valid data record, the list is reused for the next record
+     */
+    public interface RecordListener {
+        void onRecord(List<String> values);
+    }
+
+    private enum State {
+        FIELD_START,
+        UNQUOTED,
+        QUOTED,
+        // a quote has been seen inside a quoted field, it is either escaped or closing the field
+        QUOTE_IN_QUOTED
+    }
+
+    private final char delimiter;
+    private State state = State.FIELD_START;
+    private boolean skipLineFeed = false;
+    private boolean finished = false;
+    private String error;
+
+    private long line = 1;
+    private long recordLine = 1;
+    private long recordNum = 0;
+    private int fieldNum = 0;
+    private boolean recordEmpty = true;
+
+    // current field, bytes for header names and characters for values
+    private final ByteArrayOutputStream headerField = new ByteArrayOutputStream();
+    private final StringBuilder valueField = new StringBuilder();
+    private boolean valueTooLong = false;
+    // hash of the whole current value, kept even when the value is too long to infer its type
+    private long valueHash = HyperLogLog.hashStart();
+
+    // full values of the current record, only kept for a record listener
+    private RecordListener recordListener;
+    private final ByteArrayOutputStream recordField = new ByteArrayOutputStream();
+    private final List<String> recordValues = new ArrayList<>();
+
+    private final List<String> header = new ArrayList<>();
+    private ColumnType[] types;
+    private ColumnProfiler[] profilers;
+
+    public CsvScanner() {
+        this(',');
+    }
+
+    public CsvScanner(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @param recordListener called with the values of every data record, may be null
+     */
+    public void setRecordListener(RecordListener recordListener) {
+        this.recordListener = recordListener;
+    }
+
+    @Override
+    public void write(int b) {
+        if (null == error && !finished) {
+            scan((byte) b);
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end && null == error && !finished; i++) {
+            scan(bytes[i]);
+        }
+    }
+
+    /**
+     * Check the end of the file, no more bytes are accepted afterwards
+     * @return true if the file is a valid CSV file
+     */
+    public boolean finish() {
+        if (finished) {
+            return null == error;
+        }
+        finished = true;
+        if (null != error) {
+            return false;
+        }
+        if (state == State.QUOTED) {
+            error = "Quote opened on line " + recordLine + " is never closed";
+            return false;
+        }
+        if (!recordEmpty || state != State.FIELD_START || fieldNum > 0) {
+            endRecord();
+        }
+        if (null == error && 0 == recordNum) {
+            error = "The file is empty";
+        }
+        return null == error;
+    }
+
+    //** Scanning -------------------------------------------------------------------------------
+
+    private void scan(byte b) {
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if (b == '\n') {
+                return;
+            }
+        }
+        switch (state) {
+            case FIELD_START:
+                if (b == '"') {
+                    state = State.QUOTED;
+                    recordEmpty = false;
+                } else if (b == delimiter) {
+                    endField();
+                } else if (b == '\n' || b == '\r') {
+                    endLine(b);
+                } else {
+                    state = State.UNQUOTED;
+                    append(b);
+                }
+                break;
+            case UNQUOTED:
+                if (b == delimiter) {
+                    endField();
+                } else if (b == '\n' || b == '\r') {
+                    endLine(b);
+                } else if (b == '"') {
+                    fail("Quote inside an unquoted field on line " + line);
+                } else {
+                    append(b);
+                }
+                break;
+            case QUOTED:
+                if (b == '"') {
+                    state = State.QUOTE_IN_QUOTED;
+                } else {
+                    if (b == '\n' || (b == '\r')) {
+                        line++;
+                        if (b == '\r') {
+                            skipLineFeed = true;
+                        }
+                    }
+                    append(b);
+                }
+                break;
+            case QUOTE_IN_QUOTED:
+                if (b == '"') {
+                    // escaped quote
+                    state = State.QUOTED;
+                    append(b);
+                } else if (b == delimiter) {
+                    endField();
+                } else if (b == '\n' || b == '\r') {
+                    endLine(b);
+                } else {
+                    fail("Unexpected character after a closing quote on line " + line);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void append(byte b) {
+        recordEmpty = false;
+        if (0 == recordNum) {
+            if (headerField.size() < MAX_HEADER_LENGTH) {
+                headerField.write(b);
+            }
+            return;
+        }
+        valueHash = HyperLogLog.hashByte(valueHash, b);
+        if (null != recordListener) {
+            recordField.write(b);
+        }
+        if (valueField.length() < MAX_INFERRED_LENGTH) {
+            // multi-byte characters are never part of numbers or logicals, any placeholder will do
+            valueField.append(b < 0 ? '?' : (char) b);
+        } else {
+            valueTooLong = true;
+        }
+    }
+
+    private void endLine(byte b) {
+        if (b == '\r') {
+            skipLineFeed = true;
+        }
+        if (recordEmpty && 0 == fieldNum) {
+            // blank lines are skipped, the same as read.csv does
+            line++;
+            recordLine = line;
+            return;
+        }
+        endRecord();
+        line++;
+        recordLine = line;
+    }
+
+    private void endField() {
+        recordEmpty = false;
+        if (0 == recordNum) {
+            header.add(new String(headerField.toByteArray(), StandardCharsets.UTF_8).trim());
+            headerField.reset();
+        } else if (fieldNum < types.length) {
+            ColumnType type = valueTooLong ? ColumnType.STRING : ColumnType.of(valueField);
+            types[fieldNum] = types[fieldNum].merge(type);
+            profilers[fieldNum].add(type, valueField, valueHash);
+        }
+        if (0 != recordNum && null != recordListener) {
+            recordValues.add(new String(recordField.toByteArray(), StandardCharsets.UTF_8));
+            recordField.reset();
+        }
+        valueField.setLength(0);
+        valueTooLong = false;
+        valueHash = HyperLogLog.hashStart();
+        fieldNum++;
+        state = State.FIELD_START;
+    }
+
+    private void endRecord() {
+        endField();
+        if (0 == recordNum) {
+            types = new ColumnType[header.size()];
+            profilers = new ColumnProfiler[header.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = ColumnType.EMPTY;
+                profilers[i] = new ColumnProfiler();
+            }
+        } else if (fieldNum != types.length) {
+            fail("Line " + recordLine + " has " + fieldNum + " columns, expected " + types.length);
+        } else if (null != recordListener) {
+            recordListener.onRecord(recordValues);
+        }
+        recordValues.clear();
+        recordNum++;
+        fieldNum = 0;
+        recordEmpty = true;
+    }
+
+    private void fail(String message) {
+        error = message;
+    }
+
+    //** Result ---------------------------------------------------------------------------------
+
+    /**
+     * @return reason the file is invalid, null if it is valid so far
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return number of data records, the header excluded
+     */
+    public long getRowNum() {
+        return Math.max(0, recordNum - 1);
+    }
+
+    /**
+     * @return name and inferred type of every column, columns with only missing values are strings
+     */
+    public List<ColumnSchema> getSchema() {
+        List<ColumnSchema> schema = new ArrayList<>(header.size());
+        for (int i = 0; i < header.size(); i++) {
+            schema.add(new ColumnSchema(header.get(i), columnType(i).StringValue()));
+        }
+        return schema;
+    }
+
+    /**
+     * @return row count and statistics of every column
+     */
+    public DatasetProfile getProfile() {
+        List<ColumnProfile> columns = new ArrayList<>(header.size());
+        for (int i = 0; null != profilers && i < profilers.length; i++) {
+            columns.add(profilers[i].toProfile(header.get(i), columnType(i)));
+        }
+        return new DatasetProfile(getRowNum(), columns);
+    }
+
+    private ColumnType columnType(int column) {
+        return null == types || types[column] == ColumnType.EMPTY ? ColumnType.STRING : types[column];
+    }
+}
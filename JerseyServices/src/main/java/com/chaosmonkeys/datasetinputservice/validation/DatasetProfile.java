@@ -0,0 +1,35 @@
+package com.chaosmonkeys.datasetinputservice.validation;
+
+import java.util.List;
+
+/**
+ * Statistics of a dataset computed while it is uploaded, stored as JSON next to the dataset file
+ */
+public class DatasetProfile {
+    private long rowNum;
+    private List<ColumnProfile> columns;
+
+    public DatasetProfile() {
+    }
+
+    public DatasetProfile(long rowNum, List<ColumnProfile> columns) {
+        this.rowNum = rowNum;
+        this.columns = columns;
+    }
+
+    public long getRowNum() {
+        return rowNum;
+    }
+
+    public void setRowNum(long rowNum) {
+        this.rowNum = rowNum;
+    }
+
+    public List<ColumnProfile> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<ColumnProfile> columns) {
+        this.columns = columns;
+    }
+}
@@ -0,0 +1,263 @@
+package com.chaosmonkeys.datasetinputservice.validation;
+
+import com.chaosmonkeys.Utilities.HyperLogLog;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming JSON validator, reads a document token by token without building it in memory
+ *
+ * Only the current token and the nesting path are kept, so any file size is checked in constant memory.
+ * A document that is an array of objects is read as a table, each key is typed and profiled and
+ * records without a key count as missing values for it. With the record check enabled, every
+ * element must also be an object with the same keys as the first one, otherwise the document is invalid;
+ * without it, an array holding other elements is simply not read as a table.
+ */
+public class JsonValidator {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // records with more distinct keys than this are not read as a table, each key keeps a profiler
+    private static final int MAX_COLUMNS = 10000;
+
+    private final boolean checkRecords;
+    private String error;
+    private long recordNum = 0;
+    private boolean records = false;
+
+    // columns in the order of the first record
+    private final List<String> names = new ArrayList<>();
+    private final List<ColumnType> types = new ArrayList<>();
+    private final List<ColumnProfiler> profilers = new ArrayList<>();
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+
+    /**
+     * @param checkRecords check that an array of objects has the same keys in every object
+     */
+    public JsonValidator(boolean checkRecords) {
+        this.checkRecords = checkRecords;
+    }
+
+    /**
+     * Check a stored file, see {@link #validate(InputStream)}
+     */
+    public boolean validate(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return validate(in);
+        }
+    }
+
+    /**
+     * Check one JSON document
+     * @param in document encoded in UTF-8, not closed by this method
+     * @return true if the document is valid, otherwise the reason is given by {@link #getError()}
+     * @throws IOException if the stream cannot be read
+     */
+    public boolean validate(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new BufferedInputStream(in, READ_BUFFER_SIZE), StandardCharsets.UTF_8));
+        reader.setLenient(false);
+        try {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                scanArray(reader);
+            } else {
+                reader.skipValue();
+            }
+            if (null == error && reader.peek() != JsonToken.END_DOCUMENT) {
+                error = "Unexpected content after the end of the document";
+            }
+        } catch (MalformedJsonException | EOFException | IllegalStateException e) {
+            error = e.getMessage();
+        }
+        return null == error;
+    }
+
+    //** Records --------------------------------------------------------------------------------
+
+    private void scanArray(JsonReader reader) throws IOException {
+        reader.beginArray();
+        records = reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT;
+        while (reader.hasNext()) {
+            if (!records) {
+                // not a table, the elements are only checked for syntax
+                reader.skipValue();
+            } else if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                if (checkRecords) {
+                    error = "Record " + (recordNum + 1) + " is not an object";
+                    return;
+                }
+                notRecords();
+                reader.skipValue();
+            } else if (!scanRecord(reader)) {
+                return;
+            }
+            recordNum++;
+        }
+        reader.endArray();
+        if (records) {
+            for (ColumnProfiler profiler : profilers) {
+                // records without the key
+                profiler.addMissing(recordNum - profiler.getValueNum());
+            }
+        }
+    }
+
+    private boolean scanRecord(JsonReader reader) throws IOException {
+        reader.beginObject();
+        Set<String> keys = new HashSet<>();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (!keys.add(key)) {
+                if (checkRecords) {
+                    error = "Record " + (recordNum + 1) + " has the key \"" + key + "\" twice";
+                    return false;
+                }
+                // only the first value of a repeated key is profiled
+                reader.skipValue();
+                continue;
+            }
+            Integer column = columnIndex.get(key);
+            if (null == column) {
+                if (checkRecords && recordNum > 0) {
+                    error = "Record " + (recordNum + 1) + " has the key \"" + key + "\" the first record does not have";
+                    return false;
+                }
+                if (names.size() == MAX_COLUMNS) {
+                    notRecords();
+                    skipRest(reader);
+                    return true;
+                }
+                column = names.size();
+                columnIndex.put(key, column);
+                names.add(key);
+                types.add(ColumnType.EMPTY);
+                profilers.add(new ColumnProfiler());
+            }
+            types.set(column, types.get(column).merge(scanValue(reader, profilers.get(column))));
+        }
+        reader.endObject();
+        if (checkRecords && keys.size() != names.size()) {
+            error = "Record " + (recordNum + 1) + " has " + keys.size() + " keys, expected " + names.size();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The array turned out not to be a table, the remaining elements are only checked for syntax
+     */
+    private void notRecords() {
+        records = false;
+        names.clear();
+        types.clear();
+        profilers.clear();
+        columnIndex.clear();
+    }
+
+    private static void skipRest(JsonReader reader) throws IOException {
+        reader.skipValue();
+        while (reader.hasNext()) {
+            reader.nextName();
+            reader.skipValue();
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Consume and profile one value
+     * nested objects and arrays make the column a string column, they are not told apart by the distinct count
+     * @return type of the value
+     */
+    private ColumnType scanValue(JsonReader reader, ColumnProfiler profiler) throws IOException {
+        ColumnType type;
+        String text;
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                type = ColumnType.EMPTY;
+                text = "";
+                break;
+            case BOOLEAN:
+                type = ColumnType.LOGICAL;
+                text = reader.nextBoolean() ? "TRUE" : "FALSE";
+                break;
+            case NUMBER:
+                text = reader.nextString();
+                type = ColumnType.of(text);
+                break;
+            case STRING:
+                type = ColumnType.STRING;
+                text = reader.nextString();
+                break;
+            default:
+                reader.skipValue();
+                type = ColumnType.STRING;
+                text = "";
+                break;
+        }
+        profiler.add(type, text, HyperLogLog.hash(text));
+        return type;
+    }
+
+    //** Result ---------------------------------------------------------------------------------
+
+    /**
+     * @return reason the document is invalid, null if it is valid
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return number of elements of the top-level array, 0 if the document is not an array
+     */
+    public long getRecordNum() {
+        return recordNum;
+    }
+
+    /**
+     * @return name and inferred type of every key, null if the document was not read as records
+     */
+    public List<ColumnSchema> getSchema() {
+        if (!records) {
+            return null;
+        }
+        List<ColumnSchema> schema = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            schema.add(new ColumnSchema(names.get(i), columnType(i).StringValue()));
+        }
+        return schema;
+    }
+
+    /**
+     * @return record count and statistics of every key, null if the document was not read as records
+     */
+    public DatasetProfile getProfile() {
+        if (!records) {
+            return null;
+        }
+        List<ColumnProfile> columns = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            columns.add(profilers.get(i).toProfile(names.get(i), columnType(i)));
+        }
+        return new DatasetProfile(recordNum, columns);
+    }
+
+    private ColumnType columnType(int column) {
+        return types.get(column) == ColumnType.EMPTY ? ColumnType.STRING : types.get(column);
+    }
+}
@@ -0,0 +1,57 @@
+package com.chaosmonkeys.heartbeat;
+
+/**
+ * Heartbeat of a registered service, the status and resources are only set when they changed since the previous heartbeat
+ */
+public class HeartbeatDelta {
+    private String IP;
+    private boolean delta = true;
+    private Object status;
+    private Object resources;
+
+    public HeartbeatDelta() {
+    }
+
+    public HeartbeatDelta(String IP, Object status) {
+        this.IP = IP;
+        this.status = status;
+    }
+
+    public HeartbeatDelta(String IP, Object status, Object resources) {
+        this.IP = IP;
+        this.status = status;
+        this.resources = resources;
+    }
+
+    public String getIP() {
+        return IP;
+    }
+
+    public void setIP(String IP) {
+        this.IP = IP;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public void setDelta(boolean delta) {
+        this.delta = delta;
+    }
+
+    public Object getStatus() {
+        return status;
+    }
+
+    public void setStatus(Object status) {
+        this.status = status;
+    }
+
+    public Object getResources() {
+        return resources;
+    }
+
+    public void setResources(Object resources) {
+        this.resources = resources;
+    }
+}
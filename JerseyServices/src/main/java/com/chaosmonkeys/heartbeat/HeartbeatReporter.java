@@ -0,0 +1,260 @@
+package com.chaosmonkeys.heartbeat;
+
+import com.chaosmonkeys.Utilities.Constants;
+import com.chaosmonkeys.Utilities.LogType;
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.metrics.MetricsRegistry;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Sends the heartbeats of a service to the coordination service
+ *
+ * The state of the service is checked every min interval. A state change is sent right away,
+ * otherwise a keep-alive is sent once the current interval has passed, and the interval doubles
+ * up to the max one while the state does not change. Resources drift all the time on a busy node,
+ * their changes go with the next keep-alive and do not shorten the interval. The full description is only
+ * sent to register, later heartbeats carry the state and the resources alone and only when they changed. Failures back off the same way
+ * and register again, since the coordination service may have dropped the node meanwhile.
+ */
+public class HeartbeatReporter {
+
+    /**
+     * Outcome of one heartbeat
+     */
+    enum Result {
+        OK,
+        // the coordination service does not know this node, it has to register again
+        UNKNOWN,
+        FAILED
+    }
+
+    /**
+     * Sends one heartbeat, over HTTP unless replaced in tests
+     */
+    interface Transport {
+        Result send(Object payload);
+    }
+
+    private static final Gson gson = new Gson();
+
+    private final String serviceHost;
+    private final HeartbeatSource source;
+    private final Transport transport;
+    private final LongSupplier clock;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final double jitter;
+
+    // only touched by the reporter thread
+    private boolean registered = false;
+    private String lastSentState;
+    private String lastSentResources;
+    private long interval;
+    private long nextSendAt = 0;
+    private boolean failing = false;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param coordinationIP base URL of the coordination service
+     * @param serviceHost URL of this service, identifies it to the coordination service
+     * @param source state and description of this service
+     */
+    public HeartbeatReporter(String coordinationIP, String serviceHost, HeartbeatSource source) {
+        this(serviceHost, source, new HttpTransport(coordinationIP), System::currentTimeMillis,
+                Constants.HEARTBEAT_MIN_INTERVAL_MS, Constants.HEARTBEAT_MAX_INTERVAL_MS, Constants.HEARTBEAT_JITTER);
+    }
+
+    HeartbeatReporter(String serviceHost, HeartbeatSource source, Transport transport, LongSupplier clock,
+                      long minIntervalMillis, long maxIntervalMillis, double jitter) {
+        this.serviceHost = serviceHost;
+        this.source = source;
+        this.transport = transport;
+        this.clock = clock;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.jitter = jitter;
+        this.interval = minIntervalMillis;
+    }
+
+    /**
+     * Start sending heartbeats from a background thread
+     */
+    public synchronized void start() {
+        if (null != scheduler) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "heartbeat-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::tickAndReschedule);
+    }
+
+    public synchronized void stop() {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void tickAndReschedule() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            Logger.SaveLog(LogType.Exception, "EXCEPTION: Heartbeat cannot be built: " + e.getMessage());
+        }
+        synchronized (this) {
+            if (!scheduler.isShutdown()) {
+                scheduler.schedule(this::tickAndReschedule, withJitter(minIntervalMillis), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Check the state and send a heartbeat if it changed or a keep-alive is due
+     * @return true if a heartbeat has been sent
+     */
+    boolean tick() {
+        long now = clock.getAsLong();
+        Object state = source.getState();
+        Object resources = source.getResources();
+        String stateJson = gson.toJson(state);
+        String resourcesJson = gson.toJson(resources);
+        boolean stateChanged = !stateJson.equals(lastSentState);
+        boolean resourcesChanged = !resourcesJson.equals(lastSentResources);
+        // while failing, changes wait for the back-off like everything else
+        if (!(stateChanged && !failing) && now < nextSendAt) {
+            return false;
+        }
+        boolean registering = !registered;
+        Object payload = registering ? source.getRegistration(state)
+                : new HeartbeatDelta(serviceHost, stateChanged ? state : null, resourcesChanged ? resources : null);
+        long sendStart = System.nanoTime();
+        Result result = transport.send(payload);
+        MetricsRegistry.INSTANCE.histogram("heartbeat_round_trip_seconds", "Time to send a heartbeat and get the answer", 1e-6,
+                "result", result.name()).recordMicrosSince(sendStart);
+        switch (result) {
+            case OK:
+                if (registering && failing) {
+                    Logger.Info("Heartbeat: registered again with the coordination service");
+                }
+                registered = true;
+                failing = false;
+                lastSentState = stateJson;
+                lastSentResources = resourcesJson;
+                interval = stateChanged ? minIntervalMillis : Math.min(interval * 2, maxIntervalMillis);
+                nextSendAt = now + withJitter(interval);
+                break;
+            case UNKNOWN:
+                // register in the next tick
+                registered = false;
+                nextSendAt = now;
+                break;
+            default:
+                if (!failing) {
+                    Logger.SaveLog(LogType.Exception, "EXCEPTION: Heartbeat failed, retrying with back-off...");
+                    interval = minIntervalMillis;
+                } else {
+                    interval = Math.min(interval * 2, maxIntervalMillis);
+                }
+                failing = true;
+                registered = false;
+                nextSendAt = now + withJitter(interval);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Spread heartbeats of nodes started together
+     */
+    private long withJitter(long millis) {
+        if (jitter <= 0) {
+            return millis;
+        }
+        double factor = 1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return Math.max(1, Math.round(millis * factor));
+    }
+
+    //** Getter, for tests ----------------------------------------------------------------------
+
+    long getInterval() {
+        return interval;
+    }
+
+    boolean isRegistered() {
+        return registered;
+    }
+
+    //** HTTP -----------------------------------------------------------------------------------
+
+    /**
+     * Posts heartbeats to /setStatus with connect and read timeouts, so a slow coordination service cannot stall the reporter
+     */
+    static class HttpTransport implements Transport {
+        private final WebTarget webTarget;
+
+        HttpTransport(String coordinationIP) {
+            ClientConfig config = new ClientConfig()
+                    .property(ClientProperties.CONNECT_TIMEOUT, Constants.HEARTBEAT_CONNECT_TIMEOUT_MS)
+                    .property(ClientProperties.READ_TIMEOUT, Constants.HEARTBEAT_READ_TIMEOUT_MS);
+            Client client = ClientBuilder.newClient(config);
+            webTarget = client.target(coordinationIP).path("setStatus");
+        }
+
+        @Override
+        public Result send(Object payload) {
+            Response response = null;
+            try {
+                response = webTarget.request(MediaType.APPLICATION_JSON).post(Entity.entity(payload, MediaType.APPLICATION_JSON));
+                if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                    return Result.FAILED;
+                }
+                return parseResult(response.readEntity(String.class));
+            } catch (ProcessingException e) {
+                return Result.FAILED;
+            } finally {
+                if (null != response) {
+                    response.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param body JSON answer of the coordination service, {response: "success" | "unknown" | error}
+     */
+    static Result parseResult(String body) {
+        try {
+            Map<?, ?> answer = gson.fromJson(body, Map.class);
+            Object value = null == answer ? null : answer.get("response");
+            if ("success".equals(value)) {
+                return Result.OK;
+            }
+            if ("unknown".equals(value)) {
+                return Result.UNKNOWN;
+            }
+        } catch (JsonSyntaxException e) {
+            // not an answer of the coordination service
+        }
+        return Result.FAILED;
+    }
+}
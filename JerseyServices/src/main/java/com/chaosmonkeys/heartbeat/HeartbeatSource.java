@@ -0,0 +1,25 @@
+package com.chaosmonkeys.heartbeat;
+
+/**
+ * What a service reports in its heartbeats
+ */
+public interface HeartbeatSource {
+
+    /**
+     * @return current work state, compared between heartbeats to send it only when it changed
+     */
+    Object getState();
+
+    /**
+     * @param state current work state
+     * @return full description of the service sent when it registers, including the state
+     */
+    Object getRegistration(Object state);
+
+    /**
+     * @return capacity of the node, compared between heartbeats like the state, null if the service does not report it
+     */
+    default Object getResources() {
+        return null;
+    }
+}
@@ -0,0 +1,137 @@
+package com.chaosmonkeys.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram with log-linear buckets, in the manner of HdrHistogram
+ *
+ * Every power of two is split into {@link #SUB_BUCKETS} buckets of equal width, so a value is known
+ * within 1/16 of itself whatever its magnitude, with a fixed array of counters.
+ * Values are recorded as non-negative longs in the unit of the caller, e.g. microseconds,
+ * and multiplied by the unit scale when they are exported.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // larger values are counted in the last bucket
+    static final long MAX_VALUE = (1L << 42) - 1;
+
+    private final double unitScale;
+    private final AtomicLongArray buckets = new AtomicLongArray(bucketIndex(MAX_VALUE) + 1);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param unitScale exported unit per recorded unit, e.g. 1e-6 to export microseconds as seconds
+     */
+    public Histogram(double unitScale) {
+        this.unitScale = unitScale;
+    }
+
+    /**
+     * @param value recorded value, negative values are counted as 0
+     */
+    public void record(long value) {
+        long clamped = Math.max(0, Math.min(value, MAX_VALUE));
+        buckets.incrementAndGet(bucketIndex(clamped));
+        sum.add(clamped);
+        max.accumulate(clamped);
+    }
+
+    /**
+     * Record the time elapsed since a {@link System#nanoTime()} reading, in microseconds
+     */
+    public void recordMicrosSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * @return a copy of the bucket counts, taken while writers keep recording
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    public double getUnitScale() {
+        return unitScale;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long bucketLowerBound(int index) {
+        int shift = Math.max(0, index / SUB_BUCKETS - 1);
+        return (long) (index - shift * SUB_BUCKETS) << shift;
+    }
+
+    static long bucketWidth(int index) {
+        return 1L << Math.max(0, index / SUB_BUCKETS - 1);
+    }
+
+    /**
+     * Bucket counts at one point in time
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @param quantile between 0 and 1
+         * @return middle of the bucket holding the quantile, never above the max, the max for the last value,
+         *         0 if nothing has been recorded
+         */
+        public double getValueAt(double quantile) {
+            if (0 == count) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            if (rank >= count) {
+                return max;
+            }
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    double middle = bucketLowerBound(i) + (bucketWidth(i) - 1) / 2.0;
+                    return Math.min(middle, max);
+                }
+            }
+            return max;
+        }
+    }
+}
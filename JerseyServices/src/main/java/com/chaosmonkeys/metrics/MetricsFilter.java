@@ -0,0 +1,56 @@
+package com.chaosmonkeys.metrics;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every request per resource method and counts responses per status class
+ *
+ * The time runs until the resource method returns, so it includes reading uploaded bodies
+ * but not streaming a response entity to the client.
+ */
+@Provider
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String START_PROPERTY = MetricsFilter.class.getName() + ".start";
+    private static final String UNMATCHED = "unmatched";
+    private static final Map<Method, String> resourceNames = new ConcurrentHashMap<>();
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        request.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        Object start = request.getProperty(START_PROPERTY);
+        if (!(start instanceof Long)) {
+            // the request failed before reaching the request filter
+            return;
+        }
+        String resource = resourceName();
+        MetricsRegistry.INSTANCE.histogram("http_request_duration_seconds", "Time spent in resource methods",
+                1e-6, "resource", resource).recordMicrosSince((Long) start);
+        MetricsRegistry.INSTANCE.counter("http_responses_total", "Responses per resource method and status class",
+                "resource", resource, "status", response.getStatus() / 100 + "xx").inc();
+    }
+
+    private String resourceName() {
+        Method method = null == resourceInfo ? null : resourceInfo.getResourceMethod();
+        if (null == method) {
+            return UNMATCHED;
+        }
+        return resourceNames.computeIfAbsent(method, key -> resourceInfo.getResourceClass().getSimpleName() + "." + key.getName());
+    }
+}
@@ -0,0 +1,202 @@
+package com.chaosmonkeys.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of metrics, exported in the Prometheus text format by {@link MetricsResource}
+ *
+ * A metric is identified by its name and label pairs. Looking up an existing metric does not lock,
+ * hot paths may also keep the returned counter or histogram. Histograms are exported as summaries
+ * with the {@link #QUANTILES}, gauges are read when the metrics are exported.
+ */
+public enum MetricsRegistry {
+    INSTANCE;
+
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * Metrics sharing a name, one per label set
+     */
+    private static class Family {
+        final String name;
+        final String help;
+        final Type type;
+        // label text -> Counter, Histogram or DoubleSupplier
+        final ConcurrentMap<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+    // name + label text -> metric, for lookups that do not walk the families
+    private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * @param labels label names and values, alternately
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) getOrCreate(name, help, Type.COUNTER, labels, Counter::new);
+    }
+
+    /**
+     * @param unitScale exported unit per recorded unit, see {@link Histogram#Histogram(double)}
+     * @param labels label names and values, alternately
+     */
+    public Histogram histogram(String name, String help, double unitScale, String... labels) {
+        return (Histogram) getOrCreate(name, help, Type.SUMMARY, labels, () -> new Histogram(unitScale));
+    }
+
+    /**
+     * Register a value read at export time, it replaces a gauge registered with the same name and labels
+     * @param labels label names and values, alternately
+     */
+    public void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        register(name, help, Type.GAUGE, labels, supplier);
+    }
+
+    /**
+     * Register a monotonic value kept elsewhere, read at export time
+     * @param labels label names and values, alternately
+     */
+    public void counterFunction(String name, String help, DoubleSupplier supplier, String... labels) {
+        register(name, help, Type.COUNTER, labels, supplier);
+    }
+
+    private Object getOrCreate(String name, String help, Type type, String[] labels, Supplier<Object> factory) {
+        String labelText = labelText(labels);
+        Object metric = metrics.get(name + labelText);
+        if (null != metric) {
+            return metric;
+        }
+        Family family = family(name, help, type);
+        metric = family.metrics.computeIfAbsent(labelText, key -> factory.get());
+        metrics.putIfAbsent(name + labelText, metric);
+        return metric;
+    }
+
+    private void register(String name, String help, Type type, String[] labels, DoubleSupplier supplier) {
+        String labelText = labelText(labels);
+        family(name, help, type).metrics.put(labelText, supplier);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.text);
+        }
+        return family;
+    }
+
+    /**
+     * Forget every metric, for tests
+     */
+    void clear() {
+        families.clear();
+        metrics.clear();
+    }
+
+    //** Export ---------------------------------------------------------------------------------
+
+    /**
+     * Write every metric in the Prometheus text format, version 0.0.4
+     */
+    public void writeTo(Writer out) throws IOException {
+        for (Family family : families.values()) {
+            out.write("# HELP " + family.name + " " + escapeHelp(family.help) + "\n");
+            out.write("# TYPE " + family.name + " " + family.type.text + "\n");
+            for (Map.Entry<String, Object> entry : family.metrics.entrySet()) {
+                writeMetric(out, family.name, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static void writeMetric(Writer out, String name, String labelText, Object metric) throws IOException {
+        if (metric instanceof Counter) {
+            writeSample(out, name, labelText, ((Counter) metric).get());
+        } else if (metric instanceof DoubleSupplier) {
+            writeSample(out, name, labelText, ((DoubleSupplier) metric).getAsDouble());
+        } else {
+            Histogram histogram = (Histogram) metric;
+            Histogram.Snapshot snapshot = histogram.snapshot();
+            double scale = histogram.getUnitScale();
+            for (double quantile : QUANTILES) {
+                writeSample(out, name, withLabel(labelText, "quantile", formatValue(quantile)), snapshot.getValueAt(quantile) * scale);
+            }
+            writeSample(out, name + "_sum", labelText, snapshot.getSum() * scale);
+            writeSample(out, name + "_count", labelText, snapshot.getCount());
+        }
+    }
+
+    private static void writeSample(Writer out, String name, String labelText, double value) throws IOException {
+        out.write(name + labelText + " " + formatValue(value) + "\n");
+    }
+
+    static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * @return {a="1",b="2"} or an empty string if there is no label
+     */
+    static String labelText(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+        if (0 == labels.length) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"").append(escapeLabelValue(labels[i + 1])).append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    private static String withLabel(String labelText, String name, String value) {
+        String label = name + "=\"" + value + "\"";
+        return labelText.isEmpty() ? "{" + label + "}" : labelText.substring(0, labelText.length() - 1) + "," + label + "}";
+    }
+
+    private static String escapeLabelValue(String value) {
+        return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,31 @@
+package com.chaosmonkeys.metrics;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Metrics of this service for Prometheus scrapers, registered for every service type
+ */
+@Path("/metrics")
+public class MetricsResource {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @GET
+    @Produces(CONTENT_TYPE)
+    public Response getMetrics() {
+        StreamingOutput output = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            MetricsRegistry.INSTANCE.writeTo(writer);
+            writer.flush();
+        };
+        return Response.ok(output, CONTENT_TYPE).build();
+    }
+}
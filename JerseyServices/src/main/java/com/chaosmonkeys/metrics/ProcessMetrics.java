@@ -0,0 +1,69 @@
+package com.chaosmonkeys.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * CPU time, memory and threads of this service process, with the usual Prometheus names
+ *
+ * Resident memory is read from /proc, so it is only exported on Linux.
+ */
+public final class ProcessMetrics {
+
+    private static final File PROC_SELF_STATUS = new File("/proc/self/status");
+
+    private ProcessMetrics(){}   // restrict initialization
+
+    /**
+     * Register the process gauges, registering them again replaces them
+     */
+    public static void register() {
+        MetricsRegistry registry = MetricsRegistry.INSTANCE;
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean sunOs = (com.sun.management.OperatingSystemMXBean) os;
+            registry.counterFunction("process_cpu_seconds_total", "User and system CPU time of the process",
+                    () -> sunOs.getProcessCpuTime() / 1e9);
+        }
+        if (PROC_SELF_STATUS.canRead()) {
+            registry.gauge("process_resident_memory_bytes", "Resident memory of the process", ProcessMetrics::readResidentMemory);
+        }
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        registry.gauge("jvm_memory_used_bytes", "Used JVM memory per area", () -> memory.getHeapMemoryUsage().getUsed(), "area", "heap");
+        registry.gauge("jvm_memory_used_bytes", "Used JVM memory per area", () -> memory.getNonHeapMemoryUsage().getUsed(), "area", "nonheap");
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        registry.gauge("jvm_threads_current", "Live JVM threads", threads::getThreadCount);
+    }
+
+    private static double readResidentMemory() {
+        try {
+            return parseResidentKB(Files.readAllLines(PROC_SELF_STATUS.toPath(), StandardCharsets.UTF_8)) * 1024.0;
+        } catch (IOException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * @param lines content of /proc/[pid]/status
+     * @return VmRSS in kB, negative if it is missing
+     */
+    static long parseResidentKB(List<String> lines) {
+        for (String line : lines) {
+            if (line.startsWith("VmRSS:")) {
+                try {
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+}
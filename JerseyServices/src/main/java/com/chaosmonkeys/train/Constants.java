@@ -17,4 +17,41 @@ public final class Constants {
 
     // reserved error message length
     public static final int ERR_MSG_LENGTH = 500;
+
+    // experiment output capturing, only a bounded tail is kept in memory
+    public static final int OUTPUT_TAIL_LINES = 50;
+    public static final int MAX_OUTPUT_LINE_LENGTH = 4096;
+
+    // command running R scripts, used when rscript is not configured
+    public static final String DEFAULT_RSCRIPT_COMMAND = "Rscript";
+
+    // task scheduler, used when maxConcurrentTasks is not configured
+    public static final int DEFAULT_MAX_CONCURRENT_TASKS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    public static final long SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS = 5L;
+
+    // longest time an experiment status transition waits before being written, final states are written at once
+    public static final long STATUS_FLUSH_INTERVAL_MS = 1000L;
+
+    // how long a resolved experiment descriptor is reused by start/stop requests
+    public static final long EXPERIMENT_CACHE_TTL_MS = 5000L;
+
+    // node-local staging cache, used when cacheMaxSizeMB is not configured
+    public static final long DEFAULT_STAGING_CACHE_SIZE_MB = 2048L;
+
+    // warm R workers, used when workerMaxJobs/workerMaxMemoryMB are not configured
+    public static final int DEFAULT_WORKER_MAX_JOBS = 50;
+    public static final long DEFAULT_WORKER_MAX_MEMORY_MB = 1024L;
+
+    // online prediction, used when predictBatchDelayMs/predictMaxBatchRows are not configured
+    public static final long DEFAULT_PREDICT_BATCH_DELAY_MS = 2L;
+    public static final int DEFAULT_PREDICT_MAX_BATCH_ROWS = 1000;
+    public static final long PREDICTION_TIMEOUT_SECONDS = 30L;
+    public static final long MODEL_LOAD_TIMEOUT_SECONDS = 120L;
+
+    // node resources sent with heartbeats, values are rounded so that noise does not trigger heartbeats
+    public static final long RESOURCE_SAMPLE_INTERVAL_MS = 10000L;
+    public static final double LOAD_AVERAGE_STEP = 0.25;
+    public static final long FREE_MEMORY_STEP_MB = 128L;
+    public static final long FREE_DISK_STEP_MB = 1024L;
+    public static final int TASK_DURATION_WINDOW = 64;
 }
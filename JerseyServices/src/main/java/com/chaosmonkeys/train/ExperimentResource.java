@@ -4,8 +4,6 @@ import com.chaosmonkeys.DTO.BaseResponse;
 import com.chaosmonkeys.Utilities.FileUtils;
 import com.chaosmonkeys.Utilities.Logger;
 import com.chaosmonkeys.Utilities.StringUtils;
-import com.chaosmonkeys.Utilities.db.DbUtils;
-import com.chaosmonkeys.dao.*;
 import com.chaosmonkeys.train.dto.ExperimentDto;
 import com.chaosmonkeys.train.task.*;
 
@@ -35,11 +33,9 @@ public class ExperimentResource {
     public static final int ERR_INVALID_RES_PATH = 305;
     public static final int ERR_ALREADY_FINISHED = 306;
     public static final int ERR_INVALID_EXP_STATUS = 307;
+    public static final int ERR_TASK_REJECTED = 308;
     public static final int ERR_UNKNOWN = 399;
 
-    // reference to the task manager
-    private TrainingTaskManager taskManager;
-
     /**
      * Start an experiment that is valid and stored in database without duplicate
      * @param experimentDto json object need to be sent by frontend
@@ -59,54 +55,34 @@ public class ExperimentResource {
             validCode = ERR_BLANK_PARAMS;
             return genErrorResponse(validCode);
         }
-        DbUtils.openConnection();
-        // query from database to get experiment information
-        List<Experiment> experiments = Experiment.where("experiment_name = ?", expName);
-        if(experiments.size() != 1){
-            if(0 == experiments.size()){
+        // experiment, task, algorithm, dataset and model records in one query
+        List<ExperimentDescriptor> descriptors = ExperimentResolver.INSTANCE.resolve(expName);
+        if(descriptors.size() != 1){
+            if(0 == descriptors.size()){
                 validCode = ERR_EXP_RECORD_NOT_FOUND;
             }else{
                 validCode = ERR_DUPLICATE_EXP_RECORD;
             }
             return genErrorResponse(validCode);
         }
-        Experiment experiment = experiments.get(0);
-        // find the related task (1-n relationship)
-        Task task = experiment.parent(Task.class);
+        ExperimentDescriptor descriptor = descriptors.get(0);
         // task type checking, only TYPE_TRAIN or TYPE_EXECUTION is permitted
-        String taskType = task.getTaskType();
+        String taskType = descriptor.getTaskType();
         if(!taskType.equals(Constants.TYPE_TRAIN) && !taskType.equals(Constants.TYPE_EXECUTION)){
             validCode = ERR_WRONG_TASK_TYPE;
             return genErrorResponse(validCode);
         }
         boolean isPredictionTask = taskType.equals(Constants.TYPE_EXECUTION) ;
-        // find the related algorithm
-        // TODO: I guess if there are corrupt data stored in the database, this will crash because of related info cannot be found
-        Algorithm algr = task.parent(Algorithm.class);
-        Dataset dataset = task.parent(Dataset.class);
+        // related records may be missing if corrupt data is stored in the database
+        if(!descriptor.hasResources(isPredictionTask)){
+            validCode = ERR_INVALID_RES_PATH;
+            return genErrorResponse(validCode);
+        }
+        String algrLanguage = descriptor.getAlgorithmLanguage();
 
         // construct ResourceInfo
-        String datasetPath = dataset.getDatasetPath();
-        String algrPath = algr.getAlgorithmPath();
-        String algrLanguage =algr.getAlgorithmLanguage();
-
-        File datasetFile = new File(datasetPath);
-        File algrFolder = new File(algrPath);
         File workspaceFolder = FileUtils.createTempDir();
-        ResourceInfo.ResourceInfoBuilder resInfoBuilder = new ResourceInfo.ResourceInfoBuilder().
-                setDatasetFolder(datasetFile).
-                setAlgorithmFolder(algrFolder).
-                setWorkspaceFolder(workspaceFolder);
-        if(isPredictionTask){
-            PredictionModel predictModel= task.parent(PredictionModel.class);
-            String modelPath = predictModel.getString("path");
-            File modelFolder = new File(modelPath);
-            resInfoBuilder.setModelFolder(modelFolder);
-        }
-        // close connection
-        DbUtils.closeConnection();
-
-        ResourceInfo resInfo = resInfoBuilder.build();
+        ResourceInfo resInfo = descriptor.buildResourceInfo(workspaceFolder);
         if(! resInfo.checkRequirement(taskType)){
             FileUtils.deleteQuietly(workspaceFolder);   // delete tmp workspace folder
             validCode = ERR_INVALID_RES_PATH;
@@ -119,12 +95,16 @@ public class ExperimentResource {
                 // construct TaskInfo
                 TrainingTaskInfo trainingTaskInfo= new TrainingTaskInfo(expName, algrLanguage, resInfo);
                 // get task manager instance and submit the task
-                TrainingTaskManager.INSTANCE.submitTask(trainingTaskInfo);
+                if(!TrainingTaskManager.INSTANCE.submitTask(trainingTaskInfo)){
+                    validCode = ERR_TASK_REJECTED;
+                }
                 break;
             case(Constants.TYPE_EXECUTION):
                 Logger.Info("Received execution experiment request");
                 ExecutionTaskInfo executionTaskInfo = new ExecutionTaskInfo(expName, algrLanguage, resInfo);
-                ExecutionTaskManager.INSTANCE.submitTask(executionTaskInfo);
+                if(!ExecutionTaskManager.INSTANCE.submitTask(executionTaskInfo)){
+                    validCode = ERR_TASK_REJECTED;
+                }
                 break;
             default:
                 Logger.Error("Unknown issue lead to unsupported task type when submitting experiment to run");
@@ -154,23 +134,20 @@ public class ExperimentResource {
             return genErrorResponse(validCode);
         }
         Logger.Info("Received stop request for experiment: " + expName);
-        DbUtils.openConnection();
-        // query from database to get experiment information
-        List<Experiment> experiments = Experiment.where("experiment_name = ?", expName);
-        if(experiments.size() != 1){
-            if(0 == experiments.size()){
+        List<ExperimentDescriptor> descriptors = ExperimentResolver.INSTANCE.resolve(expName);
+        if(descriptors.size() != 1){
+            if(0 == descriptors.size()){
                 validCode = ERR_EXP_RECORD_NOT_FOUND;
             }else{
                 validCode = ERR_DUPLICATE_EXP_RECORD;
             }
             return genErrorResponse(validCode);
         }
-        Experiment experiment = experiments.get(0);
-        String experimentState = experiment.getString("last_status");
-        DbUtils.closeConnection();
+        ExperimentDescriptor descriptor = descriptors.get(0);
+        String experimentState = descriptor.getLastStatus();
         //TODO prevent experiment state is null because of test data
         if ( TaskState.isValidStatus(experimentState) || !TaskState.isFinished(experimentState)){
-            getTaskManager().cancelTaskByExperimentName(expName);
+            getTaskManager(descriptor.getTaskType()).cancelTaskByExperimentName(expName);
             return genSuccResponseWithMsg("Your experiment has been cancelled successfully");
         }else{
             if(TaskState.isValidStatus(experimentState)){
@@ -184,14 +161,15 @@ public class ExperimentResource {
     //--------------------------------------------------------------------
 
     /**
-     * Get an instance of training task manager
+     * Get the task manager running experiments of a task type
+     * @param taskType Constants.TYPE_TRAIN or Constants.TYPE_EXECUTION
      * @return
      */
-    private TrainingTaskManager getTaskManager(){
-        if(null == taskManager){
-            taskManager = TrainingTaskManager.INSTANCE;
+    private TaskManager getTaskManager(String taskType){
+        if(Constants.TYPE_EXECUTION.equals(taskType)){
+            return ExecutionTaskManager.INSTANCE;
         }
-        return taskManager;
+        return TrainingTaskManager.INSTANCE;
     }
 
     /**
@@ -225,6 +203,9 @@ public class ExperimentResource {
             case(ERR_INVALID_EXP_STATUS):
                 msg = "The experiment has an unexpected status now, cancelation cannot work, please contact administrator";
                 break;
+            case(ERR_TASK_REJECTED):
+                msg = "The service is shutting down and cannot accept new experiments now";
+                break;
             default:
                 errorCode = ERR_UNKNOWN;
                 msg = "unknown error";
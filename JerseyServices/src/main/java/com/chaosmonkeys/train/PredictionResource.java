@@ -0,0 +1,200 @@
+package com.chaosmonkeys.train;
+
+import com.chaosmonkeys.DTO.BaseResponse;
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.Utilities.db.DbUtils;
+import com.chaosmonkeys.dao.Algorithm;
+import com.chaosmonkeys.dao.Experiment;
+import com.chaosmonkeys.dao.PredictionModel;
+import com.chaosmonkeys.dao.Task;
+import com.chaosmonkeys.train.dto.PredictionDto;
+import com.chaosmonkeys.train.dto.PredictionResponse;
+import com.chaosmonkeys.train.predict.ModelServerRegistry;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resource for online prediction
+ * rows are scored synchronously by a resident model process instead of running an execution experiment
+ */
+@Path("/services/predict")
+public class PredictionResource {
+
+    // Success Code
+    public static final int CHECK_SUCCESS = 0;
+    // Error Code
+    public static final int ERR_BLANK_PARAMS = 401;
+    public static final int ERR_INCONSISTENT_COLUMNS = 402; // rows do not share the same columns
+    public static final int ERR_MODEL_NOT_FOUND = 403;
+    public static final int ERR_MODEL_NOT_SERVABLE = 404; // model folder or Serve.R of the algorithm is missing
+    public static final int ERR_PREDICTION_DISABLED = 405;
+    public static final int ERR_PREDICTION_FAILED = 406;
+    public static final int ERR_PREDICTION_TIMEOUT = 407;
+    public static final int ERR_UNKNOWN = 499;
+
+    // folders of models already checked, so scoring does not query the database every time
+    private static final Map<Integer, File[]> servableModels = new ConcurrentHashMap<>();
+
+    /**
+     * Predict rows with a trained model
+     * @param modelId id of the model record
+     * @param predictionDto json object containing the rows, every row maps column names to values
+     * @return JSON response contains {success:bool, code:int, msg:string, predictions:[string]}
+     */
+    @POST
+    @Path("/{modelId}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response predict(@PathParam("modelId") int modelId, PredictionDto predictionDto) {
+        if (null == predictionDto || null == predictionDto.getRows() || predictionDto.getRows().isEmpty()) {
+            return genErrorResponse(ERR_BLANK_PARAMS, null);
+        }
+        if (!ModelServerRegistry.INSTANCE.isEnabled()) {
+            return genErrorResponse(ERR_PREDICTION_DISABLED, null);
+        }
+        List<Map<String, Object>> inputRows = predictionDto.getRows();
+        List<String> columns = new ArrayList<>(inputRows.get(0).keySet());
+        List<List<String>> rows = new ArrayList<>(inputRows.size());
+        for (Map<String, Object> inputRow : inputRows) {
+            if (inputRow.size() != columns.size() || !inputRow.keySet().containsAll(columns)) {
+                return genErrorResponse(ERR_INCONSISTENT_COLUMNS, null);
+            }
+            List<String> row = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                Object value = inputRow.get(column);
+                row.add(null == value ? null : String.valueOf(value));
+            }
+            rows.add(row);
+        }
+
+        File[] folders = servableModels.get(modelId);
+        if (null == folders) {
+            int validCode = resolveModel(modelId);
+            if (CHECK_SUCCESS != validCode) {
+                return genErrorResponse(validCode, null);
+            }
+            folders = servableModels.get(modelId);
+        }
+
+        CompletableFuture<List<String>> result = ModelServerRegistry.INSTANCE.predict(modelId, folders[0], folders[1], columns, rows);
+        try {
+            List<String> predictions = result.get(Constants.PREDICTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return genSuccResponse(predictions);
+        } catch (TimeoutException e) {
+            // the batch stays queued or running, a model server which never answers is killed by the batcher watchdog
+            result.cancel(false);
+            return genErrorResponse(ERR_PREDICTION_TIMEOUT, null);
+        } catch (ExecutionException e) {
+            Throwable cause = null == e.getCause() ? e : e.getCause();
+            return genErrorResponse(ERR_PREDICTION_FAILED, cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return genErrorResponse(ERR_UNKNOWN, null);
+        }
+    }
+
+    //--------------------------------------------------------------------
+
+    /**
+     * Find the folders of a model and of the algorithm which trained it, and remember them if they can be served
+     * @param modelId id of the model record
+     * @return CHECK_SUCCESS or the error code
+     */
+    private int resolveModel(int modelId) {
+        File algorithmFolder;
+        File modelFolder;
+        DbUtils.openConnection();
+        try {
+            PredictionModel model = PredictionModel.findById(modelId);
+            if (null == model) {
+                return ERR_MODEL_NOT_FOUND;
+            }
+            Experiment experiment = Experiment.findById(model.get("experiment_id"));
+            Task task = null == experiment ? null : experiment.parent(Task.class);
+            Algorithm algorithm = null == task ? null : task.parent(Algorithm.class);
+            if (null == algorithm) {
+                return ERR_MODEL_NOT_SERVABLE;
+            }
+            modelFolder = new File(model.getString("path"));
+            algorithmFolder = new File(algorithm.getAlgorithmPath());
+        } finally {
+            DbUtils.closeConnection();
+        }
+        if (!modelFolder.exists() || !new File(algorithmFolder, ModelServerRegistry.SERVE_SCRIPT_NAME).isFile()) {
+            return ERR_MODEL_NOT_SERVABLE;
+        }
+        servableModels.put(modelId, new File[]{algorithmFolder, modelFolder});
+        return CHECK_SUCCESS;
+    }
+
+    /**
+     * Generate corrpesponding error message based on error code
+     * @param errorCode
+     * @param detail message of the model for a failed prediction, may be null
+     * @return
+     */
+    public Response genErrorResponse(int errorCode, String detail) {
+        BaseResponse responseEntity = new BaseResponse();
+        String msg;
+        switch (errorCode) {
+            case (ERR_BLANK_PARAMS):
+                msg = "No rows are provided in your request";
+                break;
+            case (ERR_INCONSISTENT_COLUMNS):
+                msg = "All rows must have the same columns";
+                break;
+            case (ERR_MODEL_NOT_FOUND):
+                msg = "No such model stored in the system";
+                break;
+            case (ERR_MODEL_NOT_SERVABLE):
+                msg = "The model cannot be served online, its folder or the " + ModelServerRegistry.SERVE_SCRIPT_NAME + " of its algorithm is missing";
+                break;
+            case (ERR_PREDICTION_DISABLED):
+                msg = "Online prediction is not enabled on this service";
+                break;
+            case (ERR_PREDICTION_FAILED):
+                msg = "Prediction failed: " + detail;
+                break;
+            case (ERR_PREDICTION_TIMEOUT):
+                msg = "Prediction did not finish in " + Constants.PREDICTION_TIMEOUT_SECONDS + " seconds";
+                break;
+            default:
+                errorCode = ERR_UNKNOWN;
+                msg = "unknown error";
+        }
+        responseEntity.failed(errorCode, msg);
+        Logger.Response("Server respond with error: " + msg);
+        Response response = Response.status(Response.Status.BAD_REQUEST)
+                .entity(responseEntity)
+                .build();
+        return response;
+    }
+
+    /**
+     * Generate successful response with predictions,
+     * nothing is logged for successful predictions to keep the scoring path short
+     * @return Success Response
+     */
+    public Response genSuccResponse(List<String> predictions) {
+        PredictionResponse responseEntity = new PredictionResponse(predictions);
+        responseEntity.successful();
+        return Response.ok()
+                .entity(responseEntity)
+                .build();
+    }
+}
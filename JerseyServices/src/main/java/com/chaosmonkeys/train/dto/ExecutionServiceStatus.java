@@ -9,6 +9,17 @@ public class ExecutionServiceStatus {
     private String Name;
     private String Description;
     private String status;
+    // staging cache statistics
+    private long cacheHits;
+    private long cacheMisses;
+    private long cacheBytesSaved;
+    // database connection pool statistics, for sizing jdbc.pool.size
+    private int dbPoolActive;
+    private int dbPoolIdle;
+    private long dbPoolWaitCount;
+    private long dbPoolWaitMillis;
+    // capacity of the node for placing experiments
+    private NodeResources resources;
 
     public ExecutionServiceStatus(String IP, String status) {
         this.IP = IP;
@@ -62,4 +73,68 @@ public class ExecutionServiceStatus {
     public void setDescription(String description) {
         Description = description;
     }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public void setCacheHits(long cacheHits) {
+        this.cacheHits = cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public void setCacheMisses(long cacheMisses) {
+        this.cacheMisses = cacheMisses;
+    }
+
+    public long getCacheBytesSaved() {
+        return cacheBytesSaved;
+    }
+
+    public void setCacheBytesSaved(long cacheBytesSaved) {
+        this.cacheBytesSaved = cacheBytesSaved;
+    }
+
+    public int getDbPoolActive() {
+        return dbPoolActive;
+    }
+
+    public void setDbPoolActive(int dbPoolActive) {
+        this.dbPoolActive = dbPoolActive;
+    }
+
+    public int getDbPoolIdle() {
+        return dbPoolIdle;
+    }
+
+    public void setDbPoolIdle(int dbPoolIdle) {
+        this.dbPoolIdle = dbPoolIdle;
+    }
+
+    public long getDbPoolWaitCount() {
+        return dbPoolWaitCount;
+    }
+
+    public void setDbPoolWaitCount(long dbPoolWaitCount) {
+        this.dbPoolWaitCount = dbPoolWaitCount;
+    }
+
+    public long getDbPoolWaitMillis() {
+        return dbPoolWaitMillis;
+    }
+
+    public void setDbPoolWaitMillis(long dbPoolWaitMillis) {
+        this.dbPoolWaitMillis = dbPoolWaitMillis;
+    }
+
+    public NodeResources getResources() {
+        return resources;
+    }
+
+    public void setResources(NodeResources resources) {
+        this.resources = resources;
+    }
 }
@@ -0,0 +1,81 @@
+package com.chaosmonkeys.train.dto;
+
+/**
+ * DTO of the capacity of an execution node, sent with heartbeats for placing experiments
+ * -1 stands for a value that cannot be read on this node
+ */
+public class NodeResources {
+    private int availableCores;
+    private double loadAverage;
+    private long freeMemoryMB;
+    private long freeDiskMB;
+    private int queuedTasks;
+    private int runningTasks;
+    private long medianTaskSeconds;
+
+    public NodeResources() {
+    }
+
+    public NodeResources(int availableCores, double loadAverage, long freeMemoryMB, long freeDiskMB) {
+        this.availableCores = availableCores;
+        this.loadAverage = loadAverage;
+        this.freeMemoryMB = freeMemoryMB;
+        this.freeDiskMB = freeDiskMB;
+    }
+
+    public int getAvailableCores() {
+        return availableCores;
+    }
+
+    public void setAvailableCores(int availableCores) {
+        this.availableCores = availableCores;
+    }
+
+    public double getLoadAverage() {
+        return loadAverage;
+    }
+
+    public void setLoadAverage(double loadAverage) {
+        this.loadAverage = loadAverage;
+    }
+
+    public long getFreeMemoryMB() {
+        return freeMemoryMB;
+    }
+
+    public void setFreeMemoryMB(long freeMemoryMB) {
+        this.freeMemoryMB = freeMemoryMB;
+    }
+
+    public long getFreeDiskMB() {
+        return freeDiskMB;
+    }
+
+    public void setFreeDiskMB(long freeDiskMB) {
+        this.freeDiskMB = freeDiskMB;
+    }
+
+    public int getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    public void setQueuedTasks(int queuedTasks) {
+        this.queuedTasks = queuedTasks;
+    }
+
+    public int getRunningTasks() {
+        return runningTasks;
+    }
+
+    public void setRunningTasks(int runningTasks) {
+        this.runningTasks = runningTasks;
+    }
+
+    public long getMedianTaskSeconds() {
+        return medianTaskSeconds;
+    }
+
+    public void setMedianTaskSeconds(long medianTaskSeconds) {
+        this.medianTaskSeconds = medianTaskSeconds;
+    }
+}
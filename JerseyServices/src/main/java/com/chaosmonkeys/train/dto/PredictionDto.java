@@ -0,0 +1,28 @@
+package com.chaosmonkeys.train.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO Used for consuming json from POST request
+ * Prediction Resource, every row maps column names to values
+ */
+public class PredictionDto {
+    private List<Map<String, Object>> rows;
+
+    // Must have no-argument constructor
+    public PredictionDto() {
+    }
+
+    public PredictionDto(List<Map<String, Object>> rows) {
+        this.rows = rows;
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<Map<String, Object>> rows) {
+        this.rows = rows;
+    }
+}
@@ -0,0 +1,27 @@
+package com.chaosmonkeys.train.dto;
+
+import com.chaosmonkeys.DTO.BaseResponse;
+
+import java.util.List;
+
+/**
+ * Response of the prediction resource, one prediction per requested row in the same order
+ */
+public class PredictionResponse extends BaseResponse {
+    private List<String> predictions;
+
+    public PredictionResponse() {
+    }
+
+    public PredictionResponse(List<String> predictions) {
+        this.predictions = predictions;
+    }
+
+    public List<String> getPredictions() {
+        return predictions;
+    }
+
+    public void setPredictions(List<String> predictions) {
+        this.predictions = predictions;
+    }
+}
@@ -1,63 +1,68 @@
 package com.chaosmonkeys.train.heartbeat;
 
 import com.chaosmonkeys.Launcher;
-import com.chaosmonkeys.Utilities.LogType;
-import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.Utilities.db.ConnectionPool;
+import com.chaosmonkeys.Utilities.db.DbUtils;
 
+import com.chaosmonkeys.heartbeat.HeartbeatReporter;
+import com.chaosmonkeys.heartbeat.HeartbeatSource;
 import com.chaosmonkeys.train.Constants;
 import com.chaosmonkeys.train.dto.ExecutionServiceStatus;
 import com.chaosmonkeys.train.task.ExecutionTaskManager;
+import com.chaosmonkeys.train.task.StagingCache;
 import com.chaosmonkeys.train.task.TrainingTaskManager;
-import org.glassfish.jersey.client.ClientConfig;
-import org.glassfish.jersey.filter.LoggingFilter;
 
-import javax.ws.rs.ProcessingException;
-import javax.ws.rs.client.*;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.File;
 
 
 /**
  * Heartbeats client for Execution Service
+ * the run state and the sampled node resources are compared between heartbeats, cache and pool statistics go with the registration
  */
 public class ExecutionServiceHeartBeatsClient {
 
-    private static String coordinationIP;
-    private static boolean isStart = false;
+    private static HeartbeatReporter reporter;
 
     public void startSendHeartBeat(String ip) {
-        if (isStart) {
-            return;
-        }
-        coordinationIP = ip;
-
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
-        executorService.submit(this::sendHeartBeatTask);
-    }
-
-    private void sendHeartBeatTask(){
-        Client client = ClientBuilder.newClient(new ClientConfig().register(LoggingFilter.class));
-        WebTarget webTarget = client.target(coordinationIP).path("setStatus");     // target to the
+        synchronized (ExecutionServiceHeartBeatsClient.class) {
+            if (null != reporter) {
+                return;
+            }
+            reporter = new HeartbeatReporter(ip, Launcher.getServiceHost(), new HeartbeatSource() {
+                @Override
+                public Object getState() {
+                    int runningNum = TrainingTaskManager.INSTANCE.getRunningTaskNum() + ExecutionTaskManager.INSTANCE.getRunningTaskNum();
+                    return runningNum > 0 ? Constants.STATUS_RUN : Constants.STATUS_IDLE;
+                }
 
-        Invocation.Builder invocationBuilder = webTarget.request(MediaType.APPLICATION_JSON);
-        while (true) {
-            try {
-                int runningNum = TrainingTaskManager.INSTANCE.getRunningTaskNum() + ExecutionTaskManager.INSTANCE.getRunningTaskNum();
-                String runState = runningNum > 0 ? Constants.STATUS_RUN : Constants.STATUS_IDLE;
-                ExecutionServiceStatus status = new ExecutionServiceStatus(Launcher.getServiceHost(), Launcher.getServiceType(), Launcher.getServiceName(), Launcher.getServiceDescription(), runState);
+                @Override
+                public Object getRegistration(Object state) {
+                    return buildStatus((String) state);
+                }
 
-                Response response = invocationBuilder.post(Entity.entity(status, MediaType.APPLICATION_JSON));
-            } catch (ProcessingException e) {
-                Logger.SaveLog(LogType.Exception, "EXCEPTION: Heartbeat Connection Timeout, retrying...");
-            }
-            try {
-                Thread.sleep(10 * 1000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+                @Override
+                public Object getResources() {
+                    return NodeResourceSampler.INSTANCE.getResources();
+                }
+            });
         }
+        // task workspaces are created in the temporary folder, see FileUtils.createTempDir()
+        NodeResourceSampler.INSTANCE.start(new File(System.getProperty("java.io.tmpdir")));
+        reporter.start();
+    }
+
+    private static ExecutionServiceStatus buildStatus(String runState) {
+        ExecutionServiceStatus status = new ExecutionServiceStatus(Launcher.getServiceHost(), Launcher.getServiceType(), Launcher.getServiceName(), Launcher.getServiceDescription(), runState);
+        status.setCacheHits(StagingCache.INSTANCE.getHitCount());
+        status.setCacheMisses(StagingCache.INSTANCE.getMissCount());
+        status.setCacheBytesSaved(StagingCache.INSTANCE.getBytesSaved());
+        ConnectionPool pool = DbUtils.getConnectionPool();
+        status.setDbPoolActive(pool.getActiveNum());
+        status.setDbPoolIdle(pool.getIdleNum());
+        status.setDbPoolWaitCount(pool.getWaitCount());
+        status.setDbPoolWaitMillis(pool.getTotalWaitMillis());
+        status.setResources(NodeResourceSampler.INSTANCE.getResources());
+        return status;
     }
 
 }
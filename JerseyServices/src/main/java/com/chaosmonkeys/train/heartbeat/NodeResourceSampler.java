@@ -0,0 +1,208 @@
+package com.chaosmonkeys.train.heartbeat;
+
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.train.Constants;
+import com.chaosmonkeys.train.dto.NodeResources;
+import com.chaosmonkeys.train.task.ExecutionTaskManager;
+import com.chaosmonkeys.train.task.TaskDurationStats;
+import com.chaosmonkeys.train.task.TrainingTaskManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the capacity of this node for the execution heartbeats
+ *
+ * Load average, available memory and free workspace disk are read from /proc and the file store
+ * by a background thread every {@link Constants#RESOURCE_SAMPLE_INTERVAL_MS}, task counts and durations
+ * are read when the heartbeat is built since they are only counters. Values are rounded to steps
+ * so that small fluctuations are not sent, changes go with the next keep-alive of the heartbeat.
+ */
+public enum NodeResourceSampler {
+    INSTANCE;
+
+    private static final File PROC_LOADAVG = new File("/proc/loadavg");
+    private static final File PROC_MEMINFO = new File("/proc/meminfo");
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private volatile File workspace = new File(System.getProperty("java.io.tmpdir"));
+    // last system sample, task fields are not set
+    private volatile NodeResources systemSample;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Start sampling in the background
+     * @param workspace folder where tasks create their workspaces, its file store is reported as free disk
+     */
+    public synchronized void start(File workspace) {
+        if (null != scheduler) {
+            return;
+        }
+        this.workspace = workspace;
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "node-resource-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sampleSystem, 0, Constants.RESOURCE_SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return last system sample completed with the current task counts
+     */
+    public NodeResources getResources() {
+        NodeResources system = systemSample;
+        if (null == system) {
+            system = sampleSystem();
+        }
+        NodeResources resources = new NodeResources(system.getAvailableCores(), system.getLoadAverage(),
+                system.getFreeMemoryMB(), system.getFreeDiskMB());
+        resources.setQueuedTasks(TrainingTaskManager.INSTANCE.getPendingTaskNum() + ExecutionTaskManager.INSTANCE.getPendingTaskNum());
+        resources.setRunningTasks(TrainingTaskManager.INSTANCE.getRunningTaskNum() + ExecutionTaskManager.INSTANCE.getRunningTaskNum());
+        long medianMillis = TaskDurationStats.INSTANCE.getMedianMillis();
+        resources.setMedianTaskSeconds(medianMillis < 0 ? -1 : Math.round(medianMillis / 1000.0));
+        return resources;
+    }
+
+    private NodeResources sampleSystem() {
+        NodeResources sample;
+        try {
+            sample = readSystem(workspace);
+        } catch (RuntimeException e) {
+            Logger.Error("Cannot sample node resources: " + e.getMessage());
+            sample = new NodeResources(Runtime.getRuntime().availableProcessors(), -1, -1, -1);
+        }
+        systemSample = sample;
+        return sample;
+    }
+
+    //** Readers -------------------------------------------------------------------------------
+
+    static NodeResources readSystem(File workspace) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        double load = readLoadAverage();
+        long memoryMB = readAvailableMemoryMB();
+        long diskMB = readFreeDiskMB(workspace);
+        return new NodeResources(cores,
+                load < 0 ? -1 : roundToStep(load, Constants.LOAD_AVERAGE_STEP),
+                memoryMB < 0 ? -1 : roundDownToStep(memoryMB, Constants.FREE_MEMORY_STEP_MB),
+                diskMB < 0 ? -1 : roundDownToStep(diskMB, Constants.FREE_DISK_STEP_MB));
+    }
+
+    /**
+     * @return 1 minute load average, negative if unknown
+     */
+    private static double readLoadAverage() {
+        try {
+            if (PROC_LOADAVG.canRead()) {
+                List<String> lines = Files.readAllLines(PROC_LOADAVG.toPath(), StandardCharsets.US_ASCII);
+                if (!lines.isEmpty()) {
+                    return parseLoadAverage(lines.get(0));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // fall back to the platform bean
+        }
+        return ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+    }
+
+    /**
+     * @return memory available for new processes without swapping, negative if unknown
+     */
+    private static long readAvailableMemoryMB() {
+        try {
+            if (PROC_MEMINFO.canRead()) {
+                long kb = parseMemAvailableKB(Files.readAllLines(PROC_MEMINFO.toPath(), StandardCharsets.US_ASCII));
+                if (kb >= 0) {
+                    return kb / 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // fall back to the platform bean
+        }
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getFreePhysicalMemorySize() / BYTES_PER_MB;
+        }
+        return -1;
+    }
+
+    private static long readFreeDiskMB(File workspace) {
+        try {
+            return Files.getFileStore(workspace.toPath()).getUsableSpace() / BYTES_PER_MB;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param line content of /proc/loadavg, e.g. "0.52 0.58 0.59 1/467 12345"
+     */
+    static double parseLoadAverage(String line) {
+        String trimmed = line.trim();
+        int end = trimmed.indexOf(' ');
+        return Double.parseDouble(end < 0 ? trimmed : trimmed.substring(0, end));
+    }
+
+    /**
+     * @param lines content of /proc/meminfo
+     * @return MemAvailable in kB, or MemFree + Buffers + Cached on kernels older than 3.14, -1 if none is found
+     */
+    static long parseMemAvailableKB(List<String> lines) {
+        long free = -1;
+        long buffers = 0;
+        long cached = 0;
+        for (String line : lines) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon);
+            switch (key) {
+                case "MemAvailable":
+                    return parseKB(line, colon);
+                case "MemFree":
+                    free = parseKB(line, colon);
+                    break;
+                case "Buffers":
+                    buffers = parseKB(line, colon);
+                    break;
+                case "Cached":
+                    cached = parseKB(line, colon);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return free < 0 ? -1 : free + buffers + cached;
+    }
+
+    private static long parseKB(String line, int colon) {
+        String value = line.substring(colon + 1).trim();
+        int space = value.indexOf(' ');
+        return Long.parseLong(space < 0 ? value : value.substring(0, space));
+    }
+
+    static double roundToStep(double value, double step) {
+        return Math.round(value / step) * step;
+    }
+
+    static long roundDownToStep(long value, long step) {
+        return value - value % step;
+    }
+}
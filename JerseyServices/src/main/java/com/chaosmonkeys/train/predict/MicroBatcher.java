@@ -0,0 +1,276 @@
+package com.chaosmonkeys.train.predict;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges concurrent prediction requests for one model into batches
+ *
+ * A single dispatcher thread owns the model server. It takes every request queued
+ * while the previous batch was running, and waits at most a few milliseconds for
+ * more while the batch is small, so a lone request is barely delayed and a busy
+ * model handles many requests per round trip. Requests with different columns
+ * are sent as separate batches; within a batch every request gets its own answer,
+ * so a malformed request does not fail the requests batched with it.
+ * A model not loaded in time or a batch not answered in time kills the model server,
+ * since the dispatcher cannot tell a slow model from a hung one; the batcher fails
+ * and a new one is needed.
+ */
+public class MicroBatcher {
+
+    // kills model servers which do not answer a batch in time, shared by every batcher
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "model-batcher-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A request waiting for its predictions
+     */
+    private static class PendingPrediction {
+        final List<String> columns;
+        final List<List<String>> rows;
+        final CompletableFuture<List<String>> result = new CompletableFuture<>();
+
+        PendingPrediction(List<String> columns, List<List<String>> rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+    }
+
+    private final List<String> serverCommand;
+    private final long maxDelayNanos;
+    private final int maxBatchRows;
+    private final long loadTimeoutMillis;
+    private final long batchTimeoutMillis;
+    private final Runnable failureListener;
+    private final BlockingQueue<PendingPrediction> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean closed = false;
+    // why the model server is not usable, null while it is starting or running
+    private volatile IOException failure;
+    private volatile ModelServer server;
+
+    /**
+     * @param name used for the dispatcher thread name
+     * @param serverCommand command line starting the model server, started by the dispatcher thread
+     * @param maxDelayMillis longest time a batch waits for more requests, 0 for not waiting
+     * @param maxBatchRows a batch stops waiting once it has this many rows
+     * @param loadTimeoutMillis longest time the model server may take to load the model
+     * @param batchTimeoutMillis longest time the model server may take to answer a batch
+     * @param failureListener called by the dispatcher thread once the model server is not usable any more
+     */
+    MicroBatcher(String name, List<String> serverCommand, long maxDelayMillis, int maxBatchRows,
+                 long loadTimeoutMillis, long batchTimeoutMillis, Runnable failureListener) {
+        this.serverCommand = new ArrayList<>(serverCommand);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.maxBatchRows = maxBatchRows;
+        this.loadTimeoutMillis = loadTimeoutMillis;
+        this.batchTimeoutMillis = batchTimeoutMillis;
+        this.failureListener = failureListener;
+        this.dispatcher = new Thread(this::dispatchLoop, "model-batcher-" + name);
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queue rows for prediction
+     * @param columns column names
+     * @param rows values of each row in the column order
+     * @return completed with one prediction per row, or exceptionally with an IOException
+     */
+    public CompletableFuture<List<String>> submit(List<String> columns, List<List<String>> rows) {
+        PendingPrediction pending = new PendingPrediction(columns, rows);
+        if (closed || null != failure) {
+            pending.result.completeExceptionally(getFailure());
+            return pending.result;
+        }
+        queue.offer(pending);
+        if (closed || null != failure) {
+            // raced with close() or a dying server, make sure nobody waits forever
+            failPending(getFailure());
+        }
+        return pending.result;
+    }
+
+    /**
+     * @return true if the model server could not be started or exited, a new batcher is needed
+     */
+    public boolean isFailed() {
+        return null != failure;
+    }
+
+    /**
+     * Stop the dispatcher and the model server, queued requests fail
+     */
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        ModelServer current = server;
+        if (null != current) {
+            // unblocks a dispatcher waiting for the model or for predictions
+            current.destroy();
+        }
+        failPending(new IOException("Model server has been stopped"));
+    }
+
+    //** Dispatching ----------------------------------------------------------------------------
+
+    private void dispatchLoop() {
+        ModelServer starting;
+        try {
+            starting = ModelServer.launch(serverCommand);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        // published before loading so close() can stop a server still loading the model
+        server = starting;
+        if (closed) {
+            starting.destroy();
+            return;
+        }
+        ScheduledFuture<?> loadWatchdog = WATCHDOG.schedule(() -> {
+            failure = new IOException("Model was not loaded within " + loadTimeoutMillis + " ms");
+            starting.kill();
+        }, loadTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            starting.awaitReady();
+        } catch (IOException e) {
+            starting.kill();
+            fail(null != failure ? failure : e);
+            return;
+        } finally {
+            loadWatchdog.cancel(false);
+        }
+        try {
+            while (!closed) {
+                List<PendingPrediction> batch = nextBatch();
+                for (List<PendingPrediction> group : groupByColumns(batch).values()) {
+                    runBatch(group);
+                }
+                if (null != failure) {
+                    fail(failure);
+                    return;
+                }
+                if (!server.isAlive()) {
+                    fail(new IOException("Model server exited"));
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        } finally {
+            server.destroy();
+        }
+    }
+
+    private List<PendingPrediction> nextBatch() throws InterruptedException {
+        List<PendingPrediction> batch = new ArrayList<>();
+        batch.add(queue.take());
+        queue.drainTo(batch);
+        int rows = countRows(batch);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (rows < maxBatchRows) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingPrediction pending = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (null == pending) {
+                break;
+            }
+            batch.add(pending);
+            rows += pending.rows.size();
+        }
+        return batch;
+    }
+
+    private static Map<List<String>, List<PendingPrediction>> groupByColumns(List<PendingPrediction> batch) {
+        Map<List<String>, List<PendingPrediction>> groups = new LinkedHashMap<>();
+        for (PendingPrediction pending : batch) {
+            // requests given up by the caller, e.g. timed out, are not worth predicting
+            if (pending.result.isDone()) {
+                continue;
+            }
+            groups.computeIfAbsent(pending.columns, k -> new ArrayList<>()).add(pending);
+        }
+        return groups;
+    }
+
+    private void runBatch(List<PendingPrediction> group) {
+        if (null != failure) {
+            // the server has been killed by an earlier group of the same batch
+            group.forEach(pending -> pending.result.completeExceptionally(failure));
+            return;
+        }
+        List<List<List<String>>> requests = new ArrayList<>(group.size());
+        for (PendingPrediction pending : group) {
+            requests.add(pending.rows);
+        }
+        List<ModelServer.Answer> answers;
+        ModelServer current = server;
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            failure = new IOException("Model server did not answer within " + batchTimeoutMillis + " ms");
+            // wakes up the dispatcher blocked on the output of the server
+            current.kill();
+        }, batchTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            answers = current.predict(group.get(0).columns, requests);
+        } catch (IOException | RuntimeException e) {
+            IOException cause = null != failure ? failure
+                    : e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+            group.forEach(pending -> pending.result.completeExceptionally(cause));
+            return;
+        } finally {
+            watchdog.cancel(false);
+        }
+        for (int i = 0; i < group.size(); i++) {
+            ModelServer.Answer answer = answers.get(i);
+            if (answer.isError()) {
+                group.get(i).result.completeExceptionally(new IOException(answer.error));
+            } else {
+                group.get(i).result.complete(answer.predictions);
+            }
+        }
+    }
+
+    private void fail(IOException cause) {
+        failure = cause;
+        failPending(cause);
+        if (!closed) {
+            failureListener.run();
+        }
+    }
+
+    private IOException getFailure() {
+        IOException cause = failure;
+        return null != cause ? cause : new IOException("Model server has been stopped");
+    }
+
+    private void failPending(IOException cause) {
+        PendingPrediction pending;
+        while (null != (pending = queue.poll())) {
+            pending.result.completeExceptionally(cause);
+        }
+    }
+
+    private static int countRows(List<PendingPrediction> batch) {
+        int rows = 0;
+        for (PendingPrediction pending : batch) {
+            rows += pending.rows.size();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,199 @@
+package com.chaosmonkeys.train.predict;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A long-lived process keeping one prediction model loaded
+ *
+ * Rows are written to the stdin of the process as CSV and predictions are read
+ * back from its stdout (stderr is merged into stdout), one line per row.
+ * The requests of a batch share one round trip but are parsed and predicted one
+ * by one, so a malformed request fails alone and the column types of a request
+ * do not depend on the other requests of the batch.
+ * See rserve/server.R for the R side of the protocol.
+ */
+public class ModelServer {
+
+    static final String READY_MARKER = "<<<CM-READY>>>";
+    static final String RESULT_MARKER_PREFIX = "<<<CM-RESULT ";
+    private static final String STATUS_OK = "OK ";
+    private static final String MARKER_SUFFIX = ">>>";
+    // lines printed by the model while loading, kept for the error message
+    private static final int STARTUP_OUTPUT_LINES = 20;
+
+    /**
+     * Answer of the server to one request of a batch, either predictions or an error message
+     */
+    static class Answer {
+        final List<String> predictions;
+        final String error;
+
+        private Answer(List<String> predictions, String error) {
+            this.predictions = predictions;
+            this.error = error;
+        }
+
+        boolean isError() {
+            return null != error;
+        }
+    }
+
+    private final Process process;
+    private final BufferedReader output;
+    private final Writer input;
+
+    private ModelServer(Process process) {
+        this.process = process;
+        this.output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        this.input = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Start a model server process, the model is loaded in the background
+     * @param command command line of the server process
+     * @return started server, see {@link #awaitReady()}
+     * @throws IOException if the process cannot be started
+     */
+    static ModelServer launch(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        return new ModelServer(process);
+    }
+
+    /**
+     * Wait until the model has been loaded, killing the server unblocks the wait
+     * @throws IOException if the model cannot be loaded
+     */
+    void awaitReady() throws IOException {
+        List<String> startupOutput = new ArrayList<>();
+        String line;
+        while (null != (line = output.readLine())) {
+            if (line.startsWith(READY_MARKER)) {
+                return;
+            }
+            if (startupOutput.size() < STARTUP_OUTPUT_LINES) {
+                startupOutput.add(line);
+            }
+        }
+        destroy();
+        throw new IOException("Model cannot be loaded: " + String.join(" ", startupOutput).trim());
+    }
+
+    /**
+     * Predict a batch of requests in one round trip, calls are serialized since the process
+     * handles one batch at a time
+     * @param columns column names shared by the requests
+     * @param requests rows of each request, values of each row in the column order
+     * @return one answer per request
+     * @throws IOException if the process is gone or does not follow the protocol
+     */
+    public synchronized List<Answer> predict(List<String> columns, List<List<List<String>>> requests) throws IOException {
+        StringBuilder request = new StringBuilder("PREDICT");
+        for (List<List<String>> rows : requests) {
+            request.append(' ').append(rows.size());
+        }
+        request.append('\n');
+        appendCsvLine(request, columns);
+        for (List<List<String>> rows : requests) {
+            for (List<String> row : rows) {
+                appendCsvLine(request, row);
+            }
+        }
+        input.write(request.toString());
+        input.flush();
+
+        List<Answer> answers = new ArrayList<>(requests.size());
+        for (List<List<String>> rows : requests) {
+            Answer answer = readAnswer();
+            if (!answer.isError() && answer.predictions.size() != rows.size()) {
+                answer = new Answer(null, "Model returned " + answer.predictions.size() + " predictions for " + rows.size() + " rows");
+            }
+            answers.add(answer);
+        }
+        return answers;
+    }
+
+    private Answer readAnswer() throws IOException {
+        String resultLine;
+        while (null != (resultLine = output.readLine())) {
+            if (resultLine.startsWith(RESULT_MARKER_PREFIX)) {
+                break;
+            }
+            // anything else is printed by the model itself
+        }
+        if (null == resultLine) {
+            throw new IOException("Model server exited");
+        }
+        String status = resultLine.substring(RESULT_MARKER_PREFIX.length());
+        if (!status.startsWith(STATUS_OK)) {
+            String message = output.readLine();
+            if (null == message) {
+                throw new IOException("Model server exited");
+            }
+            return new Answer(null, message);
+        }
+        int count = Integer.parseInt(status.substring(STATUS_OK.length(), status.length() - MARKER_SUFFIX.length()).trim());
+        List<String> predictions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String prediction = output.readLine();
+            if (null == prediction) {
+                throw new IOException("Model server exited");
+            }
+            predictions.add(prediction);
+        }
+        return new Answer(predictions, null);
+    }
+
+    /**
+     * Append values as one CSV line, line breaks inside a value are replaced
+     * since the server reads exactly one line per row
+     */
+    static void appendCsvLine(StringBuilder sb, List<String> values) {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String value = values.get(i);
+            if (null == value) {
+                sb.append("NA");
+                continue;
+            }
+            value = value.replace('\r', ' ').replace('\n', ' ');
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0) {
+                sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(value);
+            }
+        }
+        sb.append('\n');
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Kill the server without waiting for the batch it is working on
+     */
+    void kill() {
+        process.destroyForcibly();
+    }
+
+    /**
+     * Close stdin so the server stops, and kill it if it does not
+     */
+    public void destroy() {
+        try {
+            input.close();
+        } catch (IOException e) {
+            // server already gone
+        }
+        process.destroy();
+    }
+}
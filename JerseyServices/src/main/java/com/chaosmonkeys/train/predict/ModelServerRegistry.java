@@ -0,0 +1,176 @@
+package com.chaosmonkeys.train.predict;
+
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.train.Constants;
+import com.chaosmonkeys.train.task.AbsTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Models kept loaded for online prediction
+ *
+ * A model server is started on the first request for a model and stays resident,
+ * the least recently used model is stopped when too many models are loaded.
+ */
+public enum ModelServerRegistry {
+    INSTANCE;
+
+    private static final String SERVER_SCRIPT_RESOURCE = "/rserve/server.R";
+    // file in the algorithm folder defining cm_load() and cm_predict()
+    public static final String SERVE_SCRIPT_NAME = "Serve.R";
+
+    // access ordered, the eldest entry is the least recently used model
+    private final LinkedHashMap<Integer, MicroBatcher> residentModels = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile boolean enabled = false;
+    private List<String> serverCommand;
+    private int maxResidentModels;
+    private long batchDelayMillis;
+    private int maxBatchRows;
+
+    /**
+     * Enable online prediction with the bundled R model server
+     * @param maxResidentModels number of models kept loaded, not positive disables online prediction
+     * @param batchDelayMillis longest time a batch waits for more requests
+     * @param maxBatchRows a batch stops waiting once it has this many rows
+     */
+    public void init(int maxResidentModels, long batchDelayMillis, int maxBatchRows) {
+        if (maxResidentModels <= 0) {
+            return;
+        }
+        try {
+            File script = extractServerScript();
+            init(Arrays.asList(AbsTask.getRscriptCommand(), script.getAbsolutePath()), maxResidentModels, batchDelayMillis, maxBatchRows);
+        } catch (IOException e) {
+            Logger.Error("Online prediction is disabled, model server script cannot be extracted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Enable online prediction
+     * @param command command line of a model server, the algorithm and model folders are appended
+     * @param maxResidentModels number of models kept loaded
+     * @param batchDelayMillis longest time a batch waits for more requests
+     * @param maxBatchRows a batch stops waiting once it has this many rows
+     */
+    public synchronized void init(List<String> command, int maxResidentModels, long batchDelayMillis, int maxBatchRows) {
+        this.serverCommand = new ArrayList<>(command);
+        this.maxResidentModels = maxResidentModels;
+        this.batchDelayMillis = batchDelayMillis;
+        this.maxBatchRows = maxBatchRows;
+        this.enabled = true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue rows for prediction by a model, loading the model if it is not resident yet
+     * @param modelId id of the model record
+     * @param algorithmFolder folder of the algorithm which trained the model, containing Serve.R
+     * @param modelFolder folder of the trained model
+     * @param columns column names
+     * @param rows values of each row in the column order
+     * @return completed with one prediction per row, or exceptionally with an IOException
+     */
+    public CompletableFuture<List<String>> predict(int modelId, File algorithmFolder, File modelFolder,
+                                                   List<String> columns, List<List<String>> rows) {
+        MicroBatcher batcher = getBatcher(modelId, algorithmFolder, modelFolder);
+        if (null == batcher) {
+            CompletableFuture<List<String>> result = new CompletableFuture<>();
+            result.completeExceptionally(new IOException("Online prediction is disabled on this service"));
+            return result;
+        }
+        return batcher.submit(columns, rows);
+    }
+
+    /**
+     * Stop every resident model
+     */
+    public synchronized void shutdown() {
+        enabled = false;
+        residentModels.values().forEach(MicroBatcher::close);
+        residentModels.clear();
+    }
+
+    /**
+     * @return number of models currently loaded or loading
+     */
+    public synchronized int getResidentModelNum() {
+        return residentModels.size();
+    }
+
+    //** Model lifecycle ------------------------------------------------------------------------
+
+    private synchronized MicroBatcher getBatcher(int modelId, File algorithmFolder, File modelFolder) {
+        if (!enabled) {
+            return null;
+        }
+        MicroBatcher batcher = residentModels.get(modelId);
+        if (null != batcher && !batcher.isFailed()) {
+            return batcher;
+        }
+        if (null != batcher) {
+            // the server died or could not load the model last time, try again
+            batcher.close();
+            residentModels.remove(modelId);
+        }
+        List<String> command = new ArrayList<>(serverCommand);
+        command.add(algorithmFolder.getAbsolutePath());
+        command.add(modelFolder.getAbsolutePath());
+        batcher = new MicroBatcher(String.valueOf(modelId), command, batchDelayMillis, maxBatchRows,
+                TimeUnit.SECONDS.toMillis(Constants.MODEL_LOAD_TIMEOUT_SECONDS),
+                TimeUnit.SECONDS.toMillis(Constants.PREDICTION_TIMEOUT_SECONDS), () -> unloadFailed(modelId));
+        residentModels.put(modelId, batcher);
+        evictExtraModels();
+        return batcher;
+    }
+
+    /**
+     * Drop a failed model server so it does not count as resident, the next request starts a new one
+     */
+    private synchronized void unloadFailed(int modelId) {
+        // runs after getBatcher() has registered the batcher, a newer working one is kept
+        MicroBatcher batcher = residentModels.get(modelId);
+        if (null != batcher && batcher.isFailed()) {
+            Logger.Info("Prediction model " + modelId + " failed and has been unloaded");
+            batcher.close();
+            residentModels.remove(modelId);
+        }
+    }
+
+    private void evictExtraModels() {
+        Iterator<Map.Entry<Integer, MicroBatcher>> iterator = residentModels.entrySet().iterator();
+        while (residentModels.size() > maxResidentModels && iterator.hasNext()) {
+            Map.Entry<Integer, MicroBatcher> eldest = iterator.next();
+            Logger.Info("Unloading prediction model " + eldest.getKey());
+            eldest.getValue().close();
+            iterator.remove();
+        }
+    }
+
+    private static File extractServerScript() throws IOException {
+        // a private file per process, another service on the node must not share or replace it
+        File script = Files.createTempFile("chaosmonkeys-model-server-", ".R").toFile();
+        script.deleteOnExit();
+        try (InputStream in = ModelServerRegistry.class.getResourceAsStream(SERVER_SCRIPT_RESOURCE)) {
+            if (null == in) {
+                throw new IOException("Resource " + SERVER_SCRIPT_RESOURCE + " not found");
+            }
+            Files.copy(in, script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return script;
+    }
+}
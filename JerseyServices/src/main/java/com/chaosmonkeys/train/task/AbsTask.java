@@ -1,54 +1,134 @@
 package com.chaosmonkeys.train.task;
 
+import com.chaosmonkeys.Utilities.CopyMonitor;
+import com.chaosmonkeys.metrics.MetricsRegistry;
+import com.chaosmonkeys.train.Constants;
 import com.chaosmonkeys.train.task.interfaces.OnTaskUpdateListener;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Base class of Async task
+ * A task does not own any thread. The task manager admits it into its
+ * {@link TaskScheduler} and every stage of the lifecycle runs on the admitted worker thread.
  */
 public abstract class AbsTask {
 
+    // command running R scripts, e.g. the full path of Rscript or a stand-in for load tests
+    private static volatile String rscriptCommand = Constants.DEFAULT_RSCRIPT_COMMAND;
+
     private volatile boolean isCancelled = false;
     private volatile TaskState state = TaskState.IDLE;
     // error message field used to store error message
     private volatile String errorMsg = "";
-    private volatile ExecutorService singleExecutorService;
+    // when the task has been admitted by the scheduler, 0 before
+    private volatile long admittedAt = 0;
+    // System.nanoTime() of the last state change, guarded by stateUpdateLock
+    private long stateSince = System.nanoTime();
     // lock for managing connection
     private final ReentrantLock stateUpdateLock = new ReentrantLock();
+    // external process started by this task, destroyed immediately when the task is cancelled
+    private Process runningProcess;
+    private final Object processLock = new Object();
+    // progress and cancellation token of resource staging
+    protected final CopyMonitor stagingMonitor = new CopyMonitor();
 
     protected OnTaskUpdateListener taskUpdateListener = null;
     //private ResultType result;
 
     public AbsTask(){}
 
+    /**
+     * @param command command running R scripts, null or empty keeps the current one
+     */
+    public static void setRscriptCommand(String command){
+        if(null != command && !command.trim().isEmpty()){
+            rscriptCommand = command.trim();
+        }
+    }
+
+    public static String getRscriptCommand(){
+        return rscriptCommand;
+    }
+
     protected abstract void initialize();
 
     protected abstract void performTask();
 
     protected abstract void cleanUp();
 
+    protected abstract void cancelWorks();
+
     /**
-     * Obtains a single thread executor for this Task's following runnables
-     * using double-checked lock to ensure thread-safe
-     * @return ExecutorService
-     * @since JDK 1.5
+     * Raise the cancellation signal, stop staging copies and destroy the attached process if there is one,
+     * the thread blocked on the process result wakes up as soon as the process dies
      */
-    protected ExecutorService getExecutorService(){
-        if(null == singleExecutorService){
-            synchronized (this){
-                if(null == singleExecutorService){
-                    singleExecutorService = Executors.newSingleThreadExecutor();
-                }
+    protected final void signalCancel(){
+        stagingMonitor.cancel();
+        synchronized (processLock){
+            isCancelled = true;
+            if(null != runningProcess){
+                runningProcess.destroy();
             }
         }
-        return singleExecutorService;
     }
 
+    /**
+     * Attach the started process so that it can be destroyed by {@link #signalCancel()}
+     * @param process started process
+     * @return false if the task has been cancelled already, the caller should kill the process
+     */
+    protected final boolean attachProcess(Process process){
+        synchronized (processLock){
+            if(isCancelled){
+                return false;
+            }
+            runningProcess = process;
+            return true;
+        }
+    }
 
-    protected abstract void cancelWorks();
+    /**
+     * Destroy the attached process without raising the cancellation signal,
+     * used for failing a task as soon as an error is detected
+     */
+    protected final void destroyAttachedProcess(){
+        synchronized (processLock){
+            if(null != runningProcess){
+                runningProcess.destroy();
+            }
+        }
+    }
+
+    /**
+     * Detach the process after it has finished
+     */
+    protected final void detachProcess(){
+        synchronized (processLock){
+            runningProcess = null;
+        }
+    }
+
+    /**
+     * @return resource staging throughput in bytes per second, 0 before staging starts
+     */
+    public double getStagingThroughput() {
+        return stagingMonitor.getThroughput();
+    }
+
+    /**
+     * Remember the admission time, the task manager calls it when the task starts initializing
+     */
+    final void markAdmitted(){
+        admittedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * @return milliseconds since the task has been admitted, -1 if it has not been admitted
+     */
+    final long getElapsedMillis(){
+        return 0 == admittedAt ? -1 : System.currentTimeMillis() - admittedAt;
+    }
 
     public String getErrorMsg() {
         return errorMsg;
@@ -83,6 +163,13 @@ public abstract class AbsTask {
     void setState(TaskState tState){
         stateUpdateLock.lock();
         try{
+            if(tState != this.state){
+                // time spent in the state being left, IDLE is the wait in the pending queue
+                long now = System.nanoTime();
+                MetricsRegistry.INSTANCE.histogram("task_stage_duration_seconds", "Time tasks spend in each state", 1e-6,
+                        "task", getClass().getSimpleName(), "stage", this.state.name()).record((now - stateSince) / 1000);
+                stateSince = now;
+            }
             this.state = tState;
         }finally {
             stateUpdateLock.unlock();
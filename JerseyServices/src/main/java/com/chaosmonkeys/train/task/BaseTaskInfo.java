@@ -38,6 +38,17 @@ public class BaseTaskInfo {
         this.resourceInfo = resInfo;
     }
 
+    /**
+     * Restore a task with the identifier it was submitted with, used for recovering tasks from the journal
+     */
+    public BaseTaskInfo(String taskId, TaskType type, String experimentName, String experimentLanguage, ResourceInfo resInfo){
+        this.TASK_ID = taskId;
+        this.taskType = type;
+        this.experimentName = experimentName;
+        this.experimentLanguage = experimentLanguage;
+        this.resourceInfo = resInfo;
+    }
+
 
     /**
      * Obtain the identifier of the task
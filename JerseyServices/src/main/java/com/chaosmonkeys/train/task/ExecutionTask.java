@@ -3,12 +3,15 @@ package com.chaosmonkeys.train.task;
 import com.chaosmonkeys.Utilities.FileUtils;
 import com.chaosmonkeys.Utilities.LogType;
 import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.Utilities.ParallelCopier;
 import com.chaosmonkeys.Utilities.StringUtils;
 import com.chaosmonkeys.Utilities.db.DbUtils;
 import com.chaosmonkeys.dao.Experiment;
 import com.chaosmonkeys.dao.Prediction;
 import com.chaosmonkeys.train.Constants;
 import com.chaosmonkeys.train.task.interfaces.OnTaskUpdateListener;
+import com.chaosmonkeys.train.worker.RWorker;
+import com.chaosmonkeys.train.worker.RWorkerPool;
 import org.zeroturnaround.exec.ProcessExecutor;
 import org.zeroturnaround.exec.ProcessResult;
 import org.zeroturnaround.exec.StartedProcess;
@@ -18,9 +21,9 @@ import org.zeroturnaround.process.SystemProcess;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
 import java.util.concurrent.*;
 
@@ -48,8 +51,7 @@ public class ExecutionTask extends AbsTask{
             // set the initializing sign
             taskUpdateListener.onInit(taskInfo.getTaskId());
             // copy files to workspace
-            final ExecutorService executorService = getExecutorService();
-            executorService.submit(initTaskPerformer);
+            initTaskPerformer.run();
         }
     }
 
@@ -57,8 +59,13 @@ public class ExecutionTask extends AbsTask{
     protected void performTask() {
         if(isInitialized()){
             taskUpdateListener.onStarted(getTaskId());
-            final ExecutorService executorService = getExecutorService();
-            executorService.submit(rPredictPerformer);
+            // a warm R worker skips interpreter startup, use a new Rscript process only if none is idle
+            RWorker worker = RWorkerPool.INSTANCE.tryAcquire();
+            if(null != worker){
+                runOnWarmWorker(worker);
+            }else{
+                rPredictPerformer.run();
+            }
         }
     }
 
@@ -66,10 +73,9 @@ public class ExecutionTask extends AbsTask{
     protected void cleanUp() {
         if(isFinished()){
             // success
-            final ExecutorService executorService = getExecutorService();
-            executorService.submit(this::moveOutputToPrediction);
+            moveOutputToPrediction();
             // todo: error or cancel or finished
-            executorService.submit(cleanUpPerformer);
+            cleanUpPerformer.run();
         }
     }
 
@@ -78,12 +84,9 @@ public class ExecutionTask extends AbsTask{
         //TODO this method may have some concurrent bug in the future, when unexpected cancelling process happened, check this method
         // set the task cancelled flag as true
         cancelled = true;       // let runnable check the volatile variable and throw interruption
+        signalCancel();         // destroy the running Rscript process so the waiting runnable wakes up
         taskUpdateListener.onCancelled(getTaskId());
     }
-    @Override
-    protected ExecutorService getExecutorService() {
-        return super.getExecutorService();
-    }
 
     //---------------------------------
     /** Runnables: if you like clean but complex code, try to extract these runnables to standalone class */
@@ -94,24 +97,26 @@ public class ExecutionTask extends AbsTask{
     private Runnable initTaskPerformer = () -> {
         final ResourceInfo res = taskInfo.getResourceInfo();
         try {
-            // copy algorithm content to workspace
             if(!cancelled){
-                FileUtils.copyDirectory(res.getAlgorithmFolder(),res.getWorkspaceFolder());
-                if(cancelled){ throw new InterruptedException(); }
                 File tmpInputFolder = new File(res.getWorkspaceFolder(), "input");
                 File tmpModelFolder = new File(res.getWorkspaceFolder(), "model");
-                // copy data set content to workspace input folder
-                FileUtils.copyFileToDirectory(res.getDatasetFile(), tmpInputFolder);
-                if(cancelled){ throw new InterruptedException(); }
-                FileUtils.copyDirectory(res.getModelFolder(), tmpModelFolder);
+                // stage algorithm, data set and model to workspace at the same time, cancelling stops the copies
+                stagingMonitor.start();
+                ParallelCopier.runConcurrently(
+                        () -> StagingCache.INSTANCE.stageDirectory(res.getAlgorithmFolder(), res.getWorkspaceFolder(), res.getStagingMode(), stagingMonitor),
+                        () -> StagingCache.INSTANCE.stageFileToDirectory(res.getDatasetFile(), tmpInputFolder, res.getStagingMode(), stagingMonitor),
+                        () -> StagingCache.INSTANCE.stageDirectory(res.getModelFolder(), tmpModelFolder, res.getStagingMode(), stagingMonitor));
+                stagingMonitor.finish();
+                Logger.Info(String.format("Experiment resources staged, %d bytes copied in %d ms (%.1f MB/s)",
+                        stagingMonitor.getBytesCopied(), stagingMonitor.getElapsedMillis(), getStagingThroughput() / FileUtils.ONE_MB));
                 if(cancelled){ throw new InterruptedException(); }
                 // invoke initialized
-                if(!cancelled){
-                    taskUpdateListener.onInitialized(taskInfo.getTaskId());
-                }
+                taskUpdateListener.onInitialized(taskInfo.getTaskId());
             }else {
                 Logger.Info("Experiment cancelled during initializing");
             }
+        } catch (InterruptedIOException e) {    // cancelled while copying
+            Logger.Info("Experiment cancelled during initializing");
         } catch (IOException e) {
             Logger.Error("Initializing experiment error when copying resource to temp workspace");
             e.printStackTrace();
@@ -137,51 +142,49 @@ public class ExecutionTask extends AbsTask{
         boolean processFinished = false;
         Path rFilePath = entryFile.toPath();
         //TODO: check kinds of OS and use different command, here we assume the Rscript command has been installed
-        ProcessExecutor procExecutor = new ProcessExecutor().directory(workspaceFolder).command("Rscript", rFilePath.toString());
-        Optional<String> output = Optional.empty();
+        ProcessExecutor procExecutor = new ProcessExecutor().directory(workspaceFolder).command(getRscriptCommand(), rFilePath.toString());
+        TaskOutputCollector outputCollector = null;
         try {
             Logger.Info("Experiment starts at " + rFilePath);
-            StartedProcess proc = procExecutor.readOutput(true).destroyOnExit().start();
+            // stream output to the task log file, and fail the task as soon as an error line shows up
+            outputCollector = new TaskOutputCollector(FileUtils.createTaskLogFile(getTaskId()), Constants.OUTPUT_TAIL_LINES,
+                    errorLine -> destroyAttachedProcess());
+            StartedProcess proc = procExecutor.redirectOutput(outputCollector).redirectErrorStream(true).destroyOnExit().start();
             rProcess = proc.getProcess();
+            processStarted = true;
+            // cancelled between submitting and starting, kill the process using Zt-Killer
+            if (!attachProcess(rProcess)) {
+                throw new InterruptedException();
+            }
             Future<ProcessResult> futureResult = proc.getFuture();
             Optional<ProcessResult> resultOptional = Optional.empty();
             try {
-                // check the status here, if found cancelled signal, kill the process using Zt-Killer
-                while (!futureResult.isDone()) {
-                    if (cancelled) {
-                        processStarted = true;
-                        throw new InterruptedException();
-                    }
-                }
-                processFinished = true;
+                // block until Rscript exits, cancelWorks() destroys the process which wakes this thread up
                 resultOptional = Optional.ofNullable(futureResult.get());
             } catch (ExecutionException e) {  //exception may be thrown because future cancellation
                 e.printStackTrace();
+            } finally {
+                detachProcess();
             }
-            output = Optional.ofNullable(resultOptional.get().getOutput().getUTF8());
-//            output =  Optional.ofNullable(procExecutor.readOutput(true).destroyOnExit().execute().outputUTF8());
-            // search error string in output if output is present
+            if (cancelled) {
+                throw new InterruptedException();
+            }
+            processFinished = true;
+            if (!resultOptional.isPresent()) {
+                throw new IOException("Rscript terminated without result");
+            }
+            outputCollector.close();
+            // an error line in the output means the experiment failed
             if (!cancelled) {
-                if (output.isPresent()) {
+                Logger.Info(outputCollector.getTail());
+                if (outputCollector.isErrorDetected()) {
                     //TODO: find a right way to identify error
-                    String outputStr = output.get();
-                    boolean matched = StringUtils.containsIgnoreCase(outputStr, "error");
-                    Logger.Info(outputStr);
-                    if (matched) {
-                        int errorMsgStartIndex = outputStr.toLowerCase(Locale.ENGLISH).indexOf("error");
-                        int errorMsgEndIndex = Math.min(outputStr.length(), Constants.ERR_MSG_LENGTH);
-                        String cutErrorMsg = outputStr.substring(errorMsgStartIndex,errorMsgEndIndex);
-                        Logger.Error("Execution task terminated with error output " + outputStr);
-                        Exception ex = new Exception("Execution experiment terminated with error output");
-                        if (!cancelled) {
-                            setErrorMsg(cutErrorMsg);
-                            taskUpdateListener.onError(ex, getTaskId(), cutErrorMsg);
-                        }
-                    } else {
-                        //TODO: move output folder to the dest
-                        if (!cancelled) {
-                            taskUpdateListener.onSuccess(getTaskId());
-                        }
+                    String cutErrorMsg = outputCollector.getErrorMsg();
+                    Logger.Error("Execution task terminated with error output " + cutErrorMsg);
+                    Exception ex = new Exception("Execution experiment terminated with error output");
+                    if (!cancelled) {
+                        setErrorMsg(cutErrorMsg);
+                        taskUpdateListener.onError(ex, getTaskId(), cutErrorMsg);
                     }
                 } else {
                     //TODO: move output folder to the dest
@@ -198,27 +201,25 @@ public class ExecutionTask extends AbsTask{
             setErrorMsg(errorMsg);
             taskUpdateListener.onError(e, getTaskId(),errorMsg);
         } catch (InterruptedException e) {
-            if (cancelled) {
-                //invoke zt-killer
-                if (processStarted) {   // if process is not started, there is not need to kill it :)
-                    if (!processFinished) { // if the process has finished, there is not need to kill it : )
-                        Optional<Process> procOptional = Optional.ofNullable(rProcess);
-                        if (procOptional.isPresent()) {
-                            SystemProcess sysProcess = Processes.newStandardProcess(procOptional.get());
-                            try {
-                                ProcessUtil.destroyGracefullyOrForcefullyAndWait(sysProcess, 2, TimeUnit.SECONDS, 1, TimeUnit.SECONDS);
-                                //TODO: add more proper exception handling
-                            } catch (IOException e1) {
-                                e1.printStackTrace();
-                            } catch (InterruptedException e1) {
-                                e1.printStackTrace();
-                            } catch (TimeoutException e1) {
-                                e1.printStackTrace();
-                            }
-                        }
+            //invoke zt-killer, the process may have received SIGTERM already, make sure it is really gone
+            if (processStarted && !processFinished) {   // if process is not started or has finished, there is not need to kill it :)
+                detachProcess();
+                Optional<Process> procOptional = Optional.ofNullable(rProcess);
+                if (procOptional.isPresent()) {
+                    SystemProcess sysProcess = Processes.newStandardProcess(procOptional.get());
+                    try {
+                        ProcessUtil.destroyGracefullyOrForcefullyAndWait(sysProcess, 2, TimeUnit.SECONDS, 1, TimeUnit.SECONDS);
+                        //TODO: add more proper exception handling
+                    } catch (IOException e1) {
+                        e1.printStackTrace();
+                    } catch (InterruptedException e1) {
+                        e1.printStackTrace();
+                    } catch (TimeoutException e1) {
+                        e1.printStackTrace();
                     }
                 }
-            } else {
+            }
+            if (!cancelled) {
                 Logger.Error("The execution experiment has been interrupted in accidentally");
                 e.printStackTrace();
                 String errorMsg = "InterruptedException has been thrown during running. Exception message: " + e.getMessage();
@@ -226,10 +227,79 @@ public class ExecutionTask extends AbsTask{
                 setErrorMsg(errorMsg);
                 taskUpdateListener.onError(e, getTaskId(), errorMsg);
             }
+        } finally {
+            closeQuietly(outputCollector);
         }
 
     };
 
+    /**
+     * Run the prediction on a warm R worker from the pool
+     * the worker is given back if the job ended normally, otherwise it is replaced
+     * @param worker idle worker borrowed from {@link RWorkerPool}
+     */
+    private void runOnWarmWorker(RWorker worker){
+        final File workspaceFolder = getTaskInfo().getResourceInfo().getWorkspaceFolder();
+        TaskOutputCollector outputCollector = null;
+        boolean reusable = false;
+        try {
+            Logger.Info("Experiment starts on a warm R worker at " + workspaceFolder);
+            // R stops at the first error by itself, the worker must not be killed when an error line shows up
+            outputCollector = new TaskOutputCollector(FileUtils.createTaskLogFile(getTaskId()), Constants.OUTPUT_TAIL_LINES, null);
+            if (!attachProcess(worker.getProcess())) {
+                throw new InterruptedException();
+            }
+            RWorker.JobStatus status;
+            try {
+                status = worker.run(workspaceFolder, outputCollector);
+            } finally {
+                detachProcess();
+            }
+            if (cancelled) {
+                throw new InterruptedException();
+            }
+            reusable = status != RWorker.JobStatus.WORKER_EXITED;
+            outputCollector.close();
+            Logger.Info(outputCollector.getTail());
+            if (status == RWorker.JobStatus.WORKER_EXITED && worker.getExitCode() != 0) {
+                throw new IOException("R worker exited with code " + worker.getExitCode());
+            }
+            if (status == RWorker.JobStatus.FAILED || outputCollector.isErrorDetected()) {
+                String cutErrorMsg = outputCollector.getErrorMsg();
+                Logger.Error("Execution task terminated with error output " + cutErrorMsg);
+                setErrorMsg(cutErrorMsg);
+                taskUpdateListener.onError(new Exception("Execution experiment terminated with error output"), getTaskId(), cutErrorMsg);
+            } else {
+                taskUpdateListener.onSuccess(getTaskId());
+            }
+        } catch (IOException e) {
+            if (!cancelled) {   // the worker pipe is closed when the task is cancelled
+                Logger.Error("IOException happened when running execution experiment on R worker");
+                String errorMsg = "IOException has been thrown during running. Exception message: " + e.getMessage();
+                errorMsg = errorMsg.substring(0, Math.min( Constants.ERR_MSG_LENGTH, errorMsg.length()));
+                setErrorMsg(errorMsg);
+                taskUpdateListener.onError(e, getTaskId(), errorMsg);
+            }
+        } catch (InterruptedException e) {
+            if (!cancelled) {
+                Logger.Error("The execution experiment on R worker has been interrupted in accidentally");
+                String errorMsg = "InterruptedException has been thrown during running. Exception message: " + e.getMessage();
+                errorMsg = errorMsg.substring(0, Math.min( Constants.ERR_MSG_LENGTH, errorMsg.length()));
+                setErrorMsg(errorMsg);
+                taskUpdateListener.onError(e, getTaskId(), errorMsg);
+            } else {
+                Logger.Info("Experiment cancelled on R worker");
+            }
+        } finally {
+            closeQuietly(outputCollector);
+            if (reusable) {
+                RWorkerPool.INSTANCE.release(worker);
+            } else {
+                RWorkerPool.INSTANCE.discard(worker);
+            }
+        }
+    }
+
     /**
      * Delete temp workspace folder in the background
      */
@@ -293,6 +363,19 @@ public class ExecutionTask extends AbsTask{
 
     //--------------------------------
     /** Utils */
+
+    /**
+     * Close the output collector, ignoring errors because the result has been decided already
+     */
+    private static void closeQuietly(TaskOutputCollector collector){
+        if (null != collector) {
+            try {
+                collector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
     /**
      * return task ID,
      * this method assumes the instance has been intialized correctlys
@@ -17,5 +17,9 @@ public class ExecutionTaskInfo extends BaseTaskInfo{
         super(TaskType.PREDICATE, name, language, resInfo);
     }
 
+    public ExecutionTaskInfo(String taskId, String name, String language, ResourceInfo resInfo){
+        super(taskId, TaskType.PREDICATE, name, language, resInfo);
+    }
+
 }
 
@@ -1,13 +1,12 @@
 package com.chaosmonkeys.train.task;
 
-import com.chaosmonkeys.Utilities.db.DbUtils;
-import com.chaosmonkeys.dao.Experiment;
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.train.Constants;
 import com.chaosmonkeys.train.task.interfaces.OnTaskUpdateListener;
 
-import java.sql.Timestamp;
-import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -24,7 +23,37 @@ public enum ExecutionTaskManager implements  TaskManager{
     private Map<String, ExecutionTask> taskMap = new ConcurrentHashMap<>();
     // map experiment name to task ID because the frontend would like to use experiment name as identifier
     private Map<String, String> taskNameIdMap = new ConcurrentHashMap<>();
+    // node-wide scheduler which bounds the number of concurrently running tasks
+    private volatile TaskScheduler scheduler;
 
+    /**
+     * Create the task scheduler with the concurrency loaded from service configuration
+     * must be invoked before the first task is submitted, otherwise the default concurrency is used
+     * @param maxConcurrency maximum number of execution tasks running at the same time
+     */
+    public synchronized void initScheduler(int maxConcurrency){
+        if(null != scheduler){
+            Logger.Error("Execution task scheduler has already been initialized");
+            return;
+        }
+        scheduler = new TaskScheduler("execution", maxConcurrency);
+        Logger.Info("Execution task scheduler initialized with max concurrency " + maxConcurrency);
+    }
+
+    /**
+     * Obtain the task scheduler, using double-checked lock to create it lazily
+     * @return TaskScheduler
+     */
+    private TaskScheduler getScheduler(){
+        if(null == scheduler){
+            synchronized (this){
+                if(null == scheduler){
+                    scheduler = new TaskScheduler("execution", Constants.DEFAULT_MAX_CONCURRENT_TASKS);
+                }
+            }
+        }
+        return scheduler;
+    }
 
     @Override
     public boolean submitTask(BaseTaskInfo taskInfo) {
@@ -33,14 +62,22 @@ public enum ExecutionTaskManager implements  TaskManager{
         // update the reference of experiment name -> taskId -> task
         taskMap.put(predictTaskInfo.getTaskId(), predictTask);
         taskNameIdMap.put(predictTaskInfo.getExperimentName(), predictTaskInfo.getTaskId());
-        predictTask.initialize();
-
-        return true;
+        // journal the task before it can be admitted, so its state records always follow it
+        TaskJournal.INSTANCE.recordSubmit(predictTaskInfo);
+        // the task stays IDLE in the pending queue until a worker is free
+        boolean queued = getScheduler().submit(predictTaskInfo.getTaskId(), predictTask);
+        if(!queued){
+            TaskJournal.INSTANCE.recordState(predictTaskInfo.getTaskId(), TaskState.CANCELLED);
+            taskMap.remove(predictTaskInfo.getTaskId());
+            taskNameIdMap.remove(predictTaskInfo.getExperimentName());
+        }
+        return queued;
     }
 
     @Override
     public boolean cancelTask(String taskId) {
         ExecutionTask predictTask  = taskMap.get(taskId);
+        getScheduler().removePending(taskId);
         predictTask.cancelWorks();
         return true;
     }
@@ -48,14 +85,22 @@ public enum ExecutionTaskManager implements  TaskManager{
     @Override
     public boolean cancelTaskByExperimentName(String experimentName) {
         String taskId = taskNameIdMap.get(experimentName);
-        ExecutionTask predictTask  = taskMap.get(taskId);
-        predictTask.cancelWorks();
-        return true;
+        return cancelTask(taskId);
+    }
+
+    /**
+     * Stop accepting tasks, drop pending ones and wait a while for running tasks
+     * used when the service is shutting down
+     */
+    public void shutdown(){
+        if(null != scheduler){
+            scheduler.shutdownNow(Constants.SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
     }
 
     //---------------
     /**
-     * Update experiment task status in database
+     * Update experiment task status, the database record is updated asynchronously
      * @param taskId abstract task ID (the UUID one)
      * @param state new task state
      */
@@ -63,26 +108,10 @@ public enum ExecutionTaskManager implements  TaskManager{
         ExecutionTask task = taskMap.get(taskId);
         BaseTaskInfo trainTaskInfo = task.getTaskInfo();
         // set initializing status and update database record
-        DbUtils.openConnection();
+        TaskJournal.INSTANCE.recordState(taskId, state);
         task.setState(state);
-        Experiment exp = DbUtils.getExperimentModelByName(trainTaskInfo.getExperimentName());
-        exp.set("last_status",task.getState().StringValue());
-        //TODO: handle locale problem in the future
-        Timestamp nowTime = Timestamp.from(Instant.now());
-        exp.setTimestamp("last_updated",nowTime);
-        if(state == TaskState.INITIALIZING){
-            exp.setTimestamp("start",nowTime);
-        }
-        if(state.value() > TaskState.STARTED.value()){
-            exp.setTimestamp("end",nowTime);
-        }
-        if(state == TaskState.ERROR){
-            String errorMsg = task.getErrorMsg();
-            exp.set("error_message",errorMsg);
-        }
-        //TODO: add error handler for connection error
-        exp.save();
-        DbUtils.closeConnection();
+        // written to the database by a background thread, task threads do not wait for MySQL
+        ExperimentStatusWriter.INSTANCE.update(trainTaskInfo.getExperimentName(), state, task.getErrorMsg());
         return task;
     }
 
@@ -93,7 +122,7 @@ public enum ExecutionTaskManager implements  TaskManager{
         // start initializing
         @Override
         public void onInit(String taskId) {
-            updateTaskStatus(taskId, TaskState.INITIALIZING);
+            updateTaskStatus(taskId, TaskState.INITIALIZING).markAdmitted();
             runningTaskNum.incrementAndGet();
         }
         // task workspace has been initialized, the manager should update record and let the task start if available
@@ -111,25 +140,38 @@ public enum ExecutionTaskManager implements  TaskManager{
 
         @Override
         public void onCancelled(String taskId) {
+            // a task cancelled in the pending queue has never been counted as running
+            boolean admitted = !taskMap.get(taskId).isIDLE();
             updateTaskStatus(taskId, TaskState.CANCELLED);
-            runningTaskNum.decrementAndGet();
+            if(admitted){
+                runningTaskNum.decrementAndGet();
+            }
         }
 
         @Override
         public void onSuccess(String taskId) {
             ExecutionTask task = updateTaskStatus(taskId, TaskState.SUCCESS);
             runningTaskNum.decrementAndGet();
+            TaskDurationStats.INSTANCE.record(task.getElapsedMillis());
             task.cleanUp();
         }
 
         @Override
         public void onError(Throwable ex, String taskId, String errorMessage) {
-            updateTaskStatus(taskId, TaskState.ERROR);
+            ExecutionTask task = updateTaskStatus(taskId, TaskState.ERROR);
             runningTaskNum.decrementAndGet();
+            TaskDurationStats.INSTANCE.record(task.getElapsedMillis());
         }
     };
 
     public int getRunningTaskNum(){
         return runningTaskNum.get();
     }
+
+    /**
+     * @return number of execution tasks waiting for a free worker
+     */
+    public int getPendingTaskNum(){
+        return null == scheduler ? 0 : scheduler.getPendingTaskNum();
+    }
 }
@@ -0,0 +1,97 @@
+package com.chaosmonkeys.train.task;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Everything needed to run or stop one experiment, read from the experiment record
+ * and the task, algorithm, dataset and model records it refers to
+ */
+public class ExperimentDescriptor {
+
+    private final String experimentName;
+    private final String lastStatus;
+    private final String taskType;
+    private final String algorithmPath;
+    private final String algorithmLanguage;
+    private final String datasetPath;
+    // null unless the task is an execution task
+    private final String modelPath;
+
+    public ExperimentDescriptor(String experimentName, String lastStatus, String taskType, String algorithmPath,
+                                String algorithmLanguage, String datasetPath, String modelPath) {
+        this.experimentName = experimentName;
+        this.lastStatus = lastStatus;
+        this.taskType = taskType;
+        this.algorithmPath = algorithmPath;
+        this.algorithmLanguage = algorithmLanguage;
+        this.datasetPath = datasetPath;
+        this.modelPath = modelPath;
+    }
+
+    /**
+     * @param row one row of {@link ExperimentResolver#DESCRIPTOR_SQL}
+     */
+    static ExperimentDescriptor fromRow(Map<String, Object> row) {
+        return new ExperimentDescriptor(asString(row.get("experiment_name")), asString(row.get("last_status")),
+                asString(row.get("task_type")), asString(row.get("algorithm_path")), asString(row.get("algorithm_language")),
+                asString(row.get("dataset_path")), asString(row.get("model_path")));
+    }
+
+    private static String asString(Object value) {
+        return null == value ? null : value.toString();
+    }
+
+    /**
+     * @return false when a record the task refers to does not exist
+     */
+    public boolean hasResources(boolean needModel) {
+        return null != algorithmPath && null != datasetPath && (!needModel || null != modelPath);
+    }
+
+    /**
+     * Create the resource info of a new run
+     * @param workspaceFolder workspace of this run
+     * @return resource info, the model folder is set only when a model path is known
+     */
+    public ResourceInfo buildResourceInfo(File workspaceFolder) {
+        ResourceInfo.ResourceInfoBuilder builder = new ResourceInfo.ResourceInfoBuilder()
+                .setDatasetFolder(new File(datasetPath))
+                .setAlgorithmFolder(new File(algorithmPath))
+                .setWorkspaceFolder(workspaceFolder);
+        if (null != modelPath) {
+            builder.setModelFolder(new File(modelPath));
+        }
+        return builder.build();
+    }
+
+    //** Getter ---------------------------------------------------------------------------------
+
+    public String getExperimentName() {
+        return experimentName;
+    }
+
+    public String getLastStatus() {
+        return lastStatus;
+    }
+
+    public String getTaskType() {
+        return taskType;
+    }
+
+    public String getAlgorithmPath() {
+        return algorithmPath;
+    }
+
+    public String getAlgorithmLanguage() {
+        return algorithmLanguage;
+    }
+
+    public String getDatasetPath() {
+        return datasetPath;
+    }
+
+    public String getModelPath() {
+        return modelPath;
+    }
+}
@@ -0,0 +1,82 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.TtlCache;
+import com.chaosmonkeys.Utilities.db.DbUtils;
+import com.chaosmonkeys.train.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Look up the experiment descriptor needed to start or stop an experiment
+ *
+ * The experiment record and the records it refers to are read with one joined query
+ * instead of walking the parents one at a time, and a single match is kept for
+ * {@link Constants#EXPERIMENT_CACHE_TTL_MS} milliseconds so repeated start/stop calls
+ * for the same experiment do not query the database again. The cached entry is dropped
+ * as soon as a new status of the experiment has been written.
+ */
+public enum ExperimentResolver {
+    INSTANCE;
+
+    static final String DESCRIPTOR_SQL = "SELECT e.experiment_name AS experiment_name, e.last_status AS last_status, "
+            + "t.type AS task_type, a.path AS algorithm_path, a.language AS algorithm_language, "
+            + "d.path AS dataset_path, m.path AS model_path "
+            + "FROM experiments e "
+            + "JOIN tasks t ON t.id = e.task_id "
+            + "LEFT JOIN algorithms a ON a.id = t.algorithm_id "
+            + "LEFT JOIN datasets d ON d.id = t.dataset_id "
+            + "LEFT JOIN models m ON m.id = t.model_id "
+            + "WHERE e.experiment_name = ?";
+
+    // cached experiments are few and short lived, sweep expired ones past this size
+    private static final int CACHE_SOFT_LIMIT = 1000;
+
+    private volatile Function<String, List<ExperimentDescriptor>> loader = ExperimentResolver::loadFromDatabase;
+    private volatile TtlCache<String, ExperimentDescriptor> cache = new TtlCache<>(Constants.EXPERIMENT_CACHE_TTL_MS, CACHE_SOFT_LIMIT);
+
+    /**
+     * Find the experiments stored with a name
+     * @param experimentName name of the experiment record
+     * @return every matching descriptor, more than one means the database holds duplicates
+     */
+    public List<ExperimentDescriptor> resolve(String experimentName) {
+        ExperimentDescriptor cached = cache.get(experimentName);
+        if (null != cached) {
+            return Collections.singletonList(cached);
+        }
+        List<ExperimentDescriptor> descriptors = loader.apply(experimentName);
+        // missing and duplicated records are not cached, they must be fixed in the database first
+        if (1 == descriptors.size()) {
+            cache.put(experimentName, descriptors.get(0));
+        }
+        return descriptors;
+    }
+
+    /**
+     * Forget the cached descriptor of an experiment, its record has changed
+     */
+    public void invalidate(String experimentName) {
+        cache.invalidate(experimentName);
+    }
+
+    private static List<ExperimentDescriptor> loadFromDatabase(String experimentName) {
+        List<Map<String, Object>> rows = DbUtils.findAll(DESCRIPTOR_SQL, experimentName);
+        List<ExperimentDescriptor> descriptors = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            descriptors.add(ExperimentDescriptor.fromRow(row));
+        }
+        return descriptors;
+    }
+
+    /**
+     * Replace the database and cache, used in tests
+     */
+    void configure(Function<String, List<ExperimentDescriptor>> loader, TtlCache<String, ExperimentDescriptor> cache) {
+        this.loader = loader;
+        this.cache = cache;
+    }
+}
@@ -0,0 +1,54 @@
+package com.chaosmonkeys.train.task;
+
+import java.sql.Timestamp;
+
+/**
+ * Status columns of one experiment record waiting to be written,
+ * several transitions of the same experiment are merged into one update
+ */
+class ExperimentStatusUpdate {
+    final String experimentName;
+    final TaskState state;
+    final Timestamp lastUpdated;
+    // null columns keep their value in the database
+    final Timestamp start;
+    final Timestamp end;
+    final String errorMessage;
+
+    private ExperimentStatusUpdate(String experimentName, TaskState state, Timestamp lastUpdated,
+                                   Timestamp start, Timestamp end, String errorMessage) {
+        this.experimentName = experimentName;
+        this.state = state;
+        this.lastUpdated = lastUpdated;
+        this.start = start;
+        this.end = end;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Columns changed by one transition, same rules as the experiment record always had:
+     * INITIALIZING sets the start time, states after STARTED set the end time
+     * and ERROR sets the error message
+     */
+    static ExperimentStatusUpdate of(String experimentName, TaskState state, Timestamp now, String errorMessage) {
+        Timestamp start = state == TaskState.INITIALIZING ? now : null;
+        Timestamp end = state.value() > TaskState.STARTED.value() ? now : null;
+        String message = state == TaskState.ERROR ? errorMessage : null;
+        return new ExperimentStatusUpdate(experimentName, state, now, start, end, message);
+    }
+
+    /**
+     * @param newer a later update of the same experiment
+     * @return update with the latest state and every column set by either update
+     */
+    ExperimentStatusUpdate merge(ExperimentStatusUpdate newer) {
+        return new ExperimentStatusUpdate(experimentName, newer.state, newer.lastUpdated,
+                null != newer.start ? newer.start : start,
+                null != newer.end ? newer.end : end,
+                null != newer.errorMessage ? newer.errorMessage : errorMessage);
+    }
+
+    boolean isFinal() {
+        return TaskState.isFinished(state.StringValue());
+    }
+}
@@ -0,0 +1,197 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.Utilities.db.DbUtils;
+import com.chaosmonkeys.train.Constants;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-behind updater of experiment status columns
+ *
+ * Task threads only record the transition in memory. A background thread merges
+ * the transitions of each experiment and writes them with one batched UPDATE,
+ * at most every {@link Constants#STATUS_FLUSH_INTERVAL_MS} milliseconds, or right
+ * away when an experiment has finished so the frontend sees the final state quickly.
+ */
+public enum ExperimentStatusWriter {
+    INSTANCE;
+
+    private static final String UPDATE_SQL = "UPDATE experiments SET last_status = ?, last_updated = ?, "
+            + "`start` = COALESCE(?, `start`), `end` = COALESCE(?, `end`), error_message = COALESCE(?, error_message) "
+            + "WHERE experiment_name = ?";
+
+    /**
+     * Destination of merged updates, the database unless replaced in tests
+     */
+    interface StatusSink {
+        void write(List<ExperimentStatusUpdate> updates) throws Exception;
+    }
+
+    private static final StatusSink DATABASE_SINK = updates -> {
+        List<Object[]> paramsList = new ArrayList<>(updates.size());
+        for (ExperimentStatusUpdate update : updates) {
+            paramsList.add(new Object[]{update.state.StringValue(), update.lastUpdated,
+                    update.start, update.end, update.errorMessage, update.experimentName});
+        }
+        DbUtils.executeBatch(UPDATE_SQL, paramsList);
+    };
+
+    // experiment name -> merged update, in the order experiments first changed, guarded by this
+    private final Map<String, ExperimentStatusUpdate> pending = new LinkedHashMap<>();
+    private boolean urgent = false;
+    private boolean running = false;
+    private Thread flusher;
+    private StatusSink sink;
+    private long flushIntervalMillis;
+
+    /**
+     * Record a transition of an experiment, never blocks on the database
+     * @param experimentName name of the experiment record
+     * @param state new state
+     * @param errorMessage stored when the state is ERROR, may be null
+     */
+    public void update(String experimentName, TaskState state, String errorMessage) {
+        ExperimentStatusUpdate update = ExperimentStatusUpdate.of(experimentName, state, Timestamp.from(Instant.now()), errorMessage);
+        synchronized (this) {
+            if (!running) {
+                start(DATABASE_SINK, Constants.STATUS_FLUSH_INTERVAL_MS);
+            }
+            pending.merge(experimentName, update, ExperimentStatusUpdate::merge);
+            if (update.isFinal()) {
+                urgent = true;
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Write every pending update and stop the background thread,
+     * used when the service is shutting down after tasks have been stopped
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            notifyAll();
+            thread = flusher;
+        }
+        try {
+            thread.join(Constants.SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of experiments whose status has not been written yet
+     */
+    public synchronized int getPendingNum() {
+        return pending.size();
+    }
+
+    //** Flushing -------------------------------------------------------------------------------
+
+    /**
+     * Start the background thread
+     * @param sink destination of merged updates
+     * @param flushIntervalMillis how long transitions are gathered before being written
+     */
+    synchronized void start(StatusSink sink, long flushIntervalMillis) {
+        this.sink = sink;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.running = true;
+        this.flusher = new Thread(this::flushLoop, "experiment-status-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<ExperimentStatusUpdate> batch;
+            boolean closing;
+            try {
+                batch = nextBatch();
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (this) {
+                closing = !running;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (!write(batch)) {
+                if (closing) {
+                    return;
+                }
+                requeue(batch);
+                try {
+                    // the database is unreachable, do not retry in a busy loop
+                    Thread.sleep(flushIntervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for transitions and take them once the interval has passed, a final state shows up,
+     * or the writer is closing
+     * @return merged updates, empty only when the writer is closed and nothing is pending
+     */
+    private synchronized List<ExperimentStatusUpdate> nextBatch() throws InterruptedException {
+        while (running && pending.isEmpty()) {
+            wait();
+        }
+        long deadline = System.currentTimeMillis() + flushIntervalMillis;
+        long remaining;
+        while (running && !urgent && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            wait(remaining);
+        }
+        List<ExperimentStatusUpdate> batch = new ArrayList<>(pending.values());
+        pending.clear();
+        urgent = false;
+        return batch;
+    }
+
+    private boolean write(List<ExperimentStatusUpdate> batch) {
+        try {
+            sink.write(batch);
+            for (ExperimentStatusUpdate update : batch) {
+                // cached descriptors hold the status as it was before this write
+                ExperimentResolver.INSTANCE.invalidate(update.experimentName);
+            }
+            return true;
+        } catch (Exception e) {
+            try {
+                Logger.Error("Experiment status cannot be written, " + batch.size() + " update(s) delayed: " + e.getMessage());
+            } catch (Throwable logFailure) {
+                // the log database is likely unreachable too, logging must never stop the writer
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Put failed updates back, under any transition recorded in the meantime
+     */
+    private synchronized void requeue(List<ExperimentStatusUpdate> batch) {
+        for (ExperimentStatusUpdate failed : batch) {
+            ExperimentStatusUpdate newer = pending.get(failed.experimentName);
+            pending.put(failed.experimentName, null == newer ? failed : failed.merge(newer));
+            if (failed.isFinal()) {
+                urgent = true;
+            }
+        }
+    }
+}
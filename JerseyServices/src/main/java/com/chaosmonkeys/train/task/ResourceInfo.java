@@ -1,6 +1,7 @@
 package com.chaosmonkeys.train.task;
 
 import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.Utilities.StagingMode;
 import com.chaosmonkeys.train.Constants;
 
 import java.io.File;
@@ -18,7 +19,8 @@ public class ResourceInfo {
     protected File algorithmFolder;
     protected File modelFolder;
     protected File workspaceFolder;
-
+    // how resources are put into the workspace
+    protected StagingMode stagingMode = FileUtils.getDefaultStagingMode();
 
     //** Constructor ---------------------------------------------------------------------------
 
@@ -86,6 +88,7 @@ public class ResourceInfo {
         private File algorithmFolder;
         private File workspaceFolder;
         private File modelFolder;
+        private StagingMode stagingMode;
 
         public ResourceInfoBuilder setDatasetFolder(File datasetFolder) {
             this.datasetFolder = datasetFolder;
@@ -106,8 +109,17 @@ public class ResourceInfo {
             return this;
         }
 
+        public ResourceInfoBuilder setStagingMode(StagingMode stagingMode) {
+            this.stagingMode = stagingMode;
+            return this;
+        }
+
         public ResourceInfo build() {
-            return new ResourceInfo(datasetFolder, algorithmFolder, modelFolder, workspaceFolder);
+            ResourceInfo resourceInfo = new ResourceInfo(datasetFolder, algorithmFolder, modelFolder, workspaceFolder);
+            if(null != stagingMode){
+                resourceInfo.setStagingMode(stagingMode);
+            }
+            return resourceInfo;
         }
     }
 
@@ -145,5 +157,13 @@ public class ResourceInfo {
         this.modelFolder = modelFolder;
     }
 
+    public StagingMode getStagingMode() {
+        return stagingMode;
+    }
+
+    public void setStagingMode(StagingMode stagingMode) {
+        this.stagingMode = stagingMode;
+    }
+
 
 }
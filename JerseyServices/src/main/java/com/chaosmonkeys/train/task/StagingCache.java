@@ -0,0 +1,349 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.CopyMonitor;
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.Utilities.ParallelCopier;
+import com.chaosmonkeys.Utilities.StagingMode;
+import com.chaosmonkeys.Utilities.StringUtils;
+import com.chaosmonkeys.train.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Node-local cache of the algorithm and model folders staged into experiments
+ *
+ * A folder is copied into the cache once, keyed by its real path, size and
+ * last modified time, and later experiments stage it from the cache with hard links.
+ * Cached files are read-only, so datasets, which experiments may rewrite, are always copied
+ * from the stored resource instead of being linked to a shared entry.
+ * Entries are evicted in least recently used order once the cache grows over its size
+ * limit; entries being staged are pinned and never evicted.
+ * Only LINK staging goes through the cache, a COPY would copy the whole resource from the cache anyway.
+ * A miss copies the resource into the cache and links the workspace from there, so it costs one copy like
+ * staging without the cache, but two copies when the cache is on another file system than the workspace.
+ */
+public enum StagingCache {
+    INSTANCE;
+
+    private static final String CACHE_FOLDER_NAME = "chaosmonkeys-staging-cache";
+
+    private File cacheRoot = new File(System.getProperty("java.io.tmpdir"), CACHE_FOLDER_NAME);
+    private long maxSizeBytes = Constants.DEFAULT_STAGING_CACHE_SIZE_MB * FileUtils.ONE_MB;
+    private boolean cleaned = false;
+
+    // key -> entry, iterated from the least recently used one
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // key -> entry being copied into the cache, other tasks wait on it instead of copying again
+    private final Map<String, CompletableFuture<CacheEntry>> loadingMap = new HashMap<>();
+    private long totalBytes = 0;
+
+    // statistics reported in heartbeats
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long bytesSaved = 0;
+
+    /**
+     * Change cache size, should be called before any task is submitted
+     * @param maxSizeMB size limit in MB, 0 disables the cache
+     */
+    public void init(long maxSizeMB) {
+        init(new File(System.getProperty("java.io.tmpdir"), CACHE_FOLDER_NAME), maxSizeMB);
+    }
+
+    /**
+     * Change cache location and size, should be called before any task is submitted
+     * @param cacheRoot folder holding cached resources, its previous content is removed
+     * @param maxSizeMB size limit in MB, 0 disables the cache
+     */
+    public synchronized void init(File cacheRoot, long maxSizeMB) {
+        this.cacheRoot = cacheRoot;
+        this.maxSizeBytes = Math.max(0L, maxSizeMB) * FileUtils.ONE_MB;
+        this.cleaned = false;
+        clear();
+    }
+
+    public synchronized boolean isEnabled() {
+        return maxSizeBytes > 0;
+    }
+
+    //** Staging -------------------------------------------------------------------------------
+
+    /**
+     * Stage a directory into a workspace through the cache
+     * @see FileUtils#stageDirectory(File, File, StagingMode, CopyMonitor)
+     */
+    public void stageDirectory(File srcDir, File destDir, StagingMode mode, CopyMonitor monitor) throws IOException {
+        CacheEntry entry = StagingMode.LINK == mode ? acquire(srcDir, destDir, monitor) : null;
+        if (null == entry) {
+            FileUtils.stageDirectory(srcDir, destDir, mode, monitor);
+            return;
+        }
+        try {
+            FileUtils.stageDirectory(entry.content, destDir, mode, monitor);
+        } finally {
+            release(entry);
+        }
+    }
+
+    /**
+     * Stage a dataset file into a workspace folder, it is copied whatever the mode
+     * so that the experiment can change its copy
+     * @see FileUtils#stageFileToDirectory(File, File, StagingMode, CopyMonitor)
+     */
+    public void stageFileToDirectory(File srcFile, File destDir, StagingMode mode, CopyMonitor monitor) throws IOException {
+        FileUtils.stageFileToDirectory(srcFile, destDir, StagingMode.COPY, monitor);
+    }
+
+    //** Cache entries -------------------------------------------------------------------------
+
+    /**
+     * Find or create the cache entry of a resource and pin it
+     * @param source resource folder
+     * @param destDir workspace folder the entry is linked into
+     * @param monitor progress and cancellation token used when copying into the cache
+     * @return pinned entry, null if the cache is disabled or the resource cannot be cached
+     */
+    private CacheEntry acquire(File source, File destDir, CopyMonitor monitor) throws IOException {
+        if (!isEnabled()) {
+            return null;
+        }
+        // a hit saves the copy only if the workspace can be hard linked to the cache
+        boolean linkable = isSameFileStore(getCacheRoot(), destDir);
+        ResourceStat stat = ResourceStat.of(source);
+        if (stat.size > maxSizeBytesSnapshot()) {
+            return null;    // would evict everything and still not fit
+        }
+        while (true) {
+            CompletableFuture<CacheEntry> loading;
+            boolean loader = false;
+            synchronized (this) {
+                CacheEntry entry = entries.get(stat.key);
+                if (null != entry) {
+                    entry.pins++;
+                    hitCount++;
+                    if (linkable) {
+                        bytesSaved += entry.size;
+                    }
+                    return entry;
+                }
+                loading = loadingMap.get(stat.key);
+                if (null == loading) {
+                    loading = new CompletableFuture<>();
+                    loadingMap.put(stat.key, loading);
+                    missCount++;
+                    loader = true;
+                }
+            }
+            if (loader) {
+                return load(source, stat, loading, monitor);
+            }
+            try {
+                monitor.checkCancelled();
+                loading.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for cached resource " + source);
+            } catch (ExecutionException e) {
+                // the loading task failed, try loading it again
+            }
+            // the loaded entry may have been evicted meanwhile, look it up again
+        }
+    }
+
+    private CacheEntry load(File source, ResourceStat stat, CompletableFuture<CacheEntry> loading,
+                            CopyMonitor monitor) throws IOException {
+        File entryFolder = new File(getCacheRoot(), stat.key);
+        File tmpFolder = new File(getCacheRoot(), stat.key + ".tmp-" + StringUtils.getUUID());
+        try {
+            File content = new File(tmpFolder, "content");
+            if (source.isDirectory()) {
+                ParallelCopier.copyDirectory(source, content, monitor);
+            } else {
+                ParallelCopier.copyFile(source, new File(content, source.getName()), monitor);
+            }
+            makeReadOnly(content);
+            FileUtils.deleteQuietly(entryFolder);
+            Files.move(tmpFolder.toPath(), entryFolder.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            CacheEntry entry = new CacheEntry(stat.key, entryFolder, new File(entryFolder, "content"), stat.size);
+            synchronized (this) {
+                entry.pins = 1;
+                entries.put(stat.key, entry);
+                totalBytes += entry.size;
+                loadingMap.remove(stat.key);
+                evict();
+            }
+            loading.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            FileUtils.deleteQuietly(tmpFolder);
+            synchronized (this) {
+                loadingMap.remove(stat.key);
+            }
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // the workspace folder may not exist yet, compare with its nearest existing parent
+    private static boolean isSameFileStore(File cacheRoot, File destDir) {
+        File existing = destDir.getAbsoluteFile();
+        while (null != existing && !existing.exists()) {
+            existing = existing.getParentFile();
+        }
+        try {
+            return null != existing && Files.getFileStore(cacheRoot.toPath()).equals(Files.getFileStore(existing.toPath()));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cached files are shared by hard links with every workspace staged from them, experiments must not change them
+     */
+    private static void makeReadOnly(File content) throws IOException {
+        try (Stream<Path> paths = Files.walk(content.toPath())) {
+            paths.filter(Files::isRegularFile).forEach(path -> path.toFile().setWritable(false, false));
+        }
+    }
+
+    private synchronized void release(CacheEntry entry) {
+        entry.pins--;
+        evict();
+    }
+
+    /**
+     * Remove least recently used entries which are not pinned until the cache fits its limit
+     */
+    private synchronized void evict() {
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (totalBytes > maxSizeBytes && iterator.hasNext()) {
+            CacheEntry entry = iterator.next();
+            if (entry.pins > 0) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= entry.size;
+            FileUtils.deleteQuietly(entry.folder);
+            Logger.Info("Staging cache evicted " + entry.key + " (" + entry.size + " bytes)");
+        }
+    }
+
+    private synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+        FileUtils.deleteQuietly(cacheRoot);
+        cleaned = true;
+    }
+
+    private synchronized File getCacheRoot() {
+        if (!cleaned) {
+            // entries left by a previous run are unknown to this process
+            clear();
+        }
+        cacheRoot.mkdirs();
+        return cacheRoot;
+    }
+
+    private synchronized long maxSizeBytesSnapshot() {
+        return maxSizeBytes;
+    }
+
+    //** Statistics ----------------------------------------------------------------------------
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Cached copy of a resource
+     */
+    private static class CacheEntry {
+        final String key;
+        final File folder;
+        // copied resource: a folder holding the dataset file, or the copied resource folder
+        final File content;
+        final long size;
+        int pins = 0;
+
+        CacheEntry(String key, File folder, File content, long size) {
+            this.key = key;
+            this.folder = folder;
+            this.content = content;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Identity of a resource: real path, total size and last modified time of its files
+     */
+    private static class ResourceStat {
+        final String key;
+        final long size;
+
+        private ResourceStat(String key, long size) {
+            this.key = key;
+            this.size = size;
+        }
+
+        static ResourceStat of(File source) throws IOException {
+            Path realPath = source.toPath().toRealPath();
+            long size = 0;
+            long lastModified = 0;
+            long fileNum = 0;
+            try (Stream<Path> paths = Files.walk(realPath)) {
+                Iterator<Path> iterator = paths.iterator();
+                while (iterator.hasNext()) {
+                    Path path = iterator.next();
+                    File file = path.toFile();
+                    lastModified = Math.max(lastModified, file.lastModified());
+                    if (file.isFile()) {
+                        size += file.length();
+                        fileNum++;
+                    }
+                }
+            }
+            String identity = realPath + "|" + size + "|" + lastModified + "|" + fileNum;
+            return new ResourceStat(sha1(identity), size);
+        }
+
+        private static String sha1(String text) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-1");
+                StringBuilder hex = new StringBuilder();
+                for (byte b : digest.digest(text.getBytes(StandardCharsets.UTF_8))) {
+                    hex.append(String.format("%02x", b));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.train.Constants;
+
+import java.util.Arrays;
+
+/**
+ * Durations of the tasks that recently finished on this node, training and execution alike
+ * only the last {@link Constants#TASK_DURATION_WINDOW} durations are kept
+ */
+public enum TaskDurationStats {
+    INSTANCE;
+
+    private final long[] window = new long[Constants.TASK_DURATION_WINDOW];
+    private int size = 0;
+    private int next = 0;
+
+    /**
+     * @param durationMillis time from admission to success or error of a task, ignored if negative
+     */
+    public synchronized void record(long durationMillis) {
+        if (durationMillis < 0) {
+            return;
+        }
+        window[next] = durationMillis;
+        next = (next + 1) % window.length;
+        size = Math.min(size + 1, window.length);
+    }
+
+    /**
+     * @return median duration of the recent tasks in milliseconds, -1 if no task has finished yet
+     */
+    public long getMedianMillis() {
+        long[] durations;
+        synchronized (this) {
+            if (0 == size) {
+                return -1;
+            }
+            durations = Arrays.copyOf(window, size);
+        }
+        Arrays.sort(durations);
+        int middle = durations.length / 2;
+        return durations.length % 2 == 1 ? durations[middle] : (durations[middle - 1] + durations[middle]) / 2;
+    }
+
+    /**
+     * Forget recorded durations, for tests
+     */
+    synchronized void clear() {
+        size = 0;
+        next = 0;
+    }
+}
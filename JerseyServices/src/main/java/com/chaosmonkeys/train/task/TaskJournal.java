@@ -0,0 +1,206 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.Logger;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal of submitted tasks and their state transitions
+ *
+ * Records are queued by the task managers and written by a single flusher thread,
+ * which syncs the file once per batch of records instead of once per record.
+ * At startup the journal is replayed to find the tasks which were still pending
+ * or running when the service stopped, then compacted to the pending ones.
+ */
+public enum TaskJournal {
+    INSTANCE;
+
+    private static final long FLUSHER_POLL_MILLIS = 200L;
+
+    private final Gson gson = new Gson();
+    private final BlockingQueue<TaskJournalRecord> pendingRecords = new LinkedBlockingQueue<>();
+    private volatile boolean opened = false;
+    private FileOutputStream journalStream;
+    private Writer journalWriter;
+    private Thread flusherThread;
+
+    /**
+     * Replay and compact an existing journal, then open it for appending
+     * @param journalFile journal file, created if it does not exist
+     * @return SUBMIT records of the tasks that had not finished, each with the last journaled state
+     * @throws IOException if the journal cannot be read or written
+     */
+    synchronized List<TaskJournalRecord> open(File journalFile) throws IOException {
+        if (opened) {
+            throw new IllegalStateException("Task journal has already been opened");
+        }
+        File parent = journalFile.getAbsoluteFile().getParentFile();
+        if (!parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Task journal folder '" + parent + "' cannot be created");
+        }
+        Collection<TaskJournalRecord> unfinished = replay(journalFile);
+        compact(journalFile, unfinished);
+
+        journalStream = new FileOutputStream(journalFile, true);
+        journalWriter = new OutputStreamWriter(journalStream, StandardCharsets.UTF_8);
+        opened = true;
+        flusherThread = new Thread(this::flushLoop, "task-journal-flusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+        return new ArrayList<>(unfinished);
+    }
+
+    /**
+     * Journal a submitted task, no-op if the journal is not opened
+     */
+    public void recordSubmit(BaseTaskInfo taskInfo) {
+        if (opened) {
+            pendingRecords.add(TaskJournalRecord.submit(taskInfo));
+        }
+    }
+
+    /**
+     * Journal a state transition, no-op if the journal is not opened
+     */
+    public void recordState(String taskId, TaskState state) {
+        if (opened) {
+            pendingRecords.add(TaskJournalRecord.state(taskId, state));
+        }
+    }
+
+    /**
+     * Write the queued records, sync and close the journal
+     */
+    public void close() {
+        if (!opened) {
+            return;
+        }
+        opened = false;
+        flusherThread.interrupt();
+        try {
+            flusherThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                List<TaskJournalRecord> remaining = new ArrayList<>();
+                pendingRecords.drainTo(remaining);
+                writeBatch(remaining);
+                journalWriter.close();
+            } catch (IOException e) {
+                Logger.Error("Task journal cannot be closed: " + e.getMessage());
+            } finally {
+                journalWriter = null;
+            }
+        }
+    }
+
+    //** Replay --------------------------------------------------------------------------------
+
+    /**
+     * Fold the journal into the last state of every task
+     * @return SUBMIT records of unfinished tasks, with state set to the last journaled state
+     */
+    private Collection<TaskJournalRecord> replay(File journalFile) throws IOException {
+        Map<String, TaskJournalRecord> taskMap = new LinkedHashMap<>();
+        if (!journalFile.exists()) {
+            return taskMap.values();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while (null != (line = reader.readLine())) {
+                TaskJournalRecord record;
+                try {
+                    record = gson.fromJson(line, TaskJournalRecord.class);
+                } catch (JsonSyntaxException e) {
+                    // a torn last line after a crash, the rest of the journal is still valid
+                    Logger.Error("Skipping corrupted task journal line: " + line);
+                    continue;
+                }
+                if (null == record || null == record.taskId) {
+                    continue;
+                }
+                if (TaskJournalRecord.TYPE_SUBMIT.equals(record.type)) {
+                    taskMap.put(record.taskId, record);
+                } else if (taskMap.containsKey(record.taskId)) {
+                    taskMap.get(record.taskId).state = record.state;
+                }
+            }
+        }
+        taskMap.values().removeIf(record -> TaskState.isFinished(record.state));
+        return taskMap.values();
+    }
+
+    /**
+     * Rewrite the journal with the SUBMIT records of unfinished tasks only,
+     * the new file replaces the old one atomically
+     */
+    private void compact(File journalFile, Collection<TaskJournalRecord> unfinished) throws IOException {
+        File tmpFile = new File(journalFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmpFile);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            for (TaskJournalRecord record : unfinished) {
+                writer.write(gson.toJson(record));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //** Flushing ------------------------------------------------------------------------------
+
+    private void flushLoop() {
+        List<TaskJournalRecord> batch = new ArrayList<>();
+        while (opened) {
+            try {
+                TaskJournalRecord first = pendingRecords.poll(FLUSHER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (null == first) {
+                    continue;
+                }
+                batch.add(first);
+                // everything queued while the previous sync was running goes into this batch
+                pendingRecords.drainTo(batch);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                Logger.Error("Task journal cannot be written: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private synchronized void writeBatch(List<TaskJournalRecord> batch) throws IOException {
+        if (batch.isEmpty() || null == journalWriter) {
+            return;
+        }
+        for (TaskJournalRecord record : batch) {
+            journalWriter.write(gson.toJson(record));
+            journalWriter.write('\n');
+        }
+        journalWriter.flush();
+        journalStream.getFD().sync();
+    }
+}
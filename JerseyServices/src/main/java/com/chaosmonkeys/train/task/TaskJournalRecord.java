@@ -0,0 +1,53 @@
+package com.chaosmonkeys.train.task;
+
+/**
+ * One line of the task journal, serialized as JSON
+ *
+ * A SUBMIT record carries everything needed to submit the task again,
+ * a STATE record only carries the new state of the task.
+ */
+class TaskJournalRecord {
+
+    static final String TYPE_SUBMIT = "SUBMIT";
+    static final String TYPE_STATE = "STATE";
+
+    String type;
+    String taskId;
+    long timestamp;
+    // STATE record
+    String state;
+    // SUBMIT record
+    String taskType;
+    String experimentName;
+    String experimentLanguage;
+    String datasetPath;
+    String algorithmPath;
+    String modelPath;
+    String stagingMode;
+
+    static TaskJournalRecord submit(BaseTaskInfo taskInfo) {
+        TaskJournalRecord record = new TaskJournalRecord(TYPE_SUBMIT, taskInfo.getTaskId());
+        record.state = TaskState.IDLE.StringValue();
+        record.taskType = taskInfo.taskType.name();
+        record.experimentName = taskInfo.getExperimentName();
+        record.experimentLanguage = taskInfo.getExperimentLanguage();
+        ResourceInfo res = taskInfo.getResourceInfo();
+        record.datasetPath = null == res.getDatasetFile() ? null : res.getDatasetFile().getPath();
+        record.algorithmPath = null == res.getAlgorithmFolder() ? null : res.getAlgorithmFolder().getPath();
+        record.modelPath = null == res.getModelFolder() ? null : res.getModelFolder().getPath();
+        record.stagingMode = null == res.getStagingMode() ? null : res.getStagingMode().name();
+        return record;
+    }
+
+    static TaskJournalRecord state(String taskId, TaskState state) {
+        TaskJournalRecord record = new TaskJournalRecord(TYPE_STATE, taskId);
+        record.state = state.StringValue();
+        return record;
+    }
+
+    private TaskJournalRecord(String type, String taskId) {
+        this.type = type;
+        this.taskId = taskId;
+        this.timestamp = System.currentTimeMillis();
+    }
+}
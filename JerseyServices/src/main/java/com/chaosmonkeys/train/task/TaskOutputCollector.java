@@ -0,0 +1,180 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.StringUtils;
+import com.chaosmonkeys.train.Constants;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Streaming sink for the stdout/stderr of an experiment process
+ *
+ * The raw output is spilled to a per-task log file, only a bounded tail of lines
+ * is kept in memory, and every line is checked for an error as soon as it is complete.
+ * Memory usage does not depend on how much the process prints.
+ */
+public class TaskOutputCollector extends OutputStream {
+
+    /**
+     * Callback invoked once, on the pumping thread, when the first error line is found
+     */
+    public interface OnErrorDetectedListener {
+        void onErrorDetected(String errorLine);
+    }
+
+    private static final String ERROR_KEYWORD = "error";
+    private static final int LOG_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream logStream;
+    private final OnErrorDetectedListener errorListener;
+    private final int maxTailLines;
+    // ring buffer of the last lines
+    private final Deque<String> tailLines;
+    // bytes of the current line, lines longer than the buffer are truncated in memory (not in the log file)
+    private final byte[] lineBuffer = new byte[Constants.MAX_OUTPUT_LINE_LENGTH];
+    private int lineLength = 0;
+    private boolean lastWasCR = false;
+
+    private long totalBytes = 0;
+    private volatile boolean errorDetected = false;
+    // error line and the lines after it, capped at Constants.ERR_MSG_LENGTH
+    private final StringBuilder errorMsgBuilder = new StringBuilder();
+
+    /**
+     * Create a collector
+     * @param logFile file which receives the whole output, parent folders are created if needed
+     * @param maxTailLines number of last lines kept in memory
+     * @param errorListener listener notified when the first error line is found, may be null
+     * @throws IOException if the log file cannot be created
+     */
+    public TaskOutputCollector(File logFile, int maxTailLines, OnErrorDetectedListener errorListener) throws IOException {
+        File parent = logFile.getParentFile();
+        if (null != parent && !parent.exists() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Task log folder '" + parent + "' cannot be created");
+        }
+        this.logStream = new BufferedOutputStream(new FileOutputStream(logFile), LOG_BUFFER_SIZE);
+        this.maxTailLines = maxTailLines;
+        this.tailLines = new ArrayDeque<>(maxTailLines);
+        this.errorListener = errorListener;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        logStream.write(b);
+        totalBytes++;
+        consume((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        logStream.write(b, off, len);
+        totalBytes += len;
+        for (int i = off; i < off + len; i++) {
+            consume(b[i]);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        logStream.flush();
+    }
+
+    /**
+     * Process the last incomplete line and close the log file
+     */
+    @Override
+    public void close() throws IOException {
+        if (lineLength > 0) {
+            endLine();
+        }
+        logStream.close();
+    }
+
+    //** Line processing -------------------------------------------------------------------------
+
+    private void consume(byte b) {
+        if (b == '\n') {
+            if (!lastWasCR) {
+                endLine();
+            }
+            lastWasCR = false;
+        } else if (b == '\r') {
+            endLine();
+            lastWasCR = true;
+        } else {
+            lastWasCR = false;
+            if (lineLength < lineBuffer.length) {
+                lineBuffer[lineLength] = b;
+            }
+            lineLength++;
+        }
+    }
+
+    private void endLine() {
+        String line = new String(lineBuffer, 0, Math.min(lineLength, lineBuffer.length), StandardCharsets.UTF_8);
+        lineLength = 0;
+        processLine(line);
+    }
+
+    private synchronized void processLine(String line) {
+        if (tailLines.size() == maxTailLines) {
+            tailLines.pollFirst();
+        }
+        tailLines.addLast(line);
+        if (errorDetected) {
+            appendErrorMsg(line);
+            return;
+        }
+        if (StringUtils.containsIgnoreCase(line, ERROR_KEYWORD)) {
+            errorDetected = true;
+            int errorMsgStartIndex = line.toLowerCase(Locale.ENGLISH).indexOf(ERROR_KEYWORD);
+            appendErrorMsg(line.substring(Math.max(0, errorMsgStartIndex)));
+            if (null != errorListener) {
+                errorListener.onErrorDetected(line);
+            }
+        }
+    }
+
+    private void appendErrorMsg(String line) {
+        int remaining = Constants.ERR_MSG_LENGTH - errorMsgBuilder.length();
+        if (remaining <= 0) {
+            return;
+        }
+        if (errorMsgBuilder.length() > 0) {
+            errorMsgBuilder.append('\n');
+            remaining--;
+        }
+        errorMsgBuilder.append(line, 0, Math.min(line.length(), Math.max(0, remaining)));
+    }
+
+    //** Getters ---------------------------------------------------------------------------------
+
+    public boolean isErrorDetected() {
+        return errorDetected;
+    }
+
+    /**
+     * @return error message starting from the first error line, empty if no error found
+     */
+    public synchronized String getErrorMsg() {
+        return errorMsgBuilder.toString();
+    }
+
+    /**
+     * @return the last lines of output joined by new lines
+     */
+    public synchronized String getTail() {
+        return String.join("\n", tailLines);
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,100 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.Utilities.StagingMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Bring tasks of the previous run back after the service restarts
+ *
+ * Tasks that were still waiting in the pending queue are submitted again with
+ * their original task ID. Tasks that had been admitted lost their workspace and
+ * Rscript process, so their experiment records are marked as ERROR.
+ */
+public final class TaskRecovery {
+
+    static final String INTERRUPTED_ERROR_MSG = "Experiment was interrupted by a service restart";
+
+    /**
+     * Submits a re-queued task, to the task managers unless replaced in tests
+     */
+    interface TaskSubmitter {
+        boolean submit(BaseTaskInfo taskInfo);
+    }
+
+    private static final TaskSubmitter MANAGER_SUBMITTER = taskInfo -> taskInfo instanceof TrainingTaskInfo
+            ? TrainingTaskManager.INSTANCE.submitTask(taskInfo)
+            : ExecutionTaskManager.INSTANCE.submitTask(taskInfo);
+
+    private TaskRecovery(){}
+
+    /**
+     * Replay the task journal, re-queue pending tasks and reconcile interrupted ones,
+     * task schedulers must have been initialized before calling this
+     * @param journalFile journal file of this service
+     * @throws IOException if the journal cannot be opened
+     */
+    public static void recover(File journalFile) throws IOException {
+        recover(journalFile, MANAGER_SUBMITTER);
+    }
+
+    static void recover(File journalFile, TaskSubmitter submitter) throws IOException {
+        List<TaskJournalRecord> unfinished = TaskJournal.INSTANCE.open(journalFile);
+        int requeued = 0;
+        int interrupted = 0;
+        for (TaskJournalRecord record : unfinished) {
+            if (TaskState.IDLE.StringValue().equals(record.state) && resubmit(record, submitter)) {
+                requeued++;
+            } else {
+                markInterrupted(record);
+                interrupted++;
+            }
+        }
+        if (!unfinished.isEmpty()) {
+            Logger.Info("Task journal replayed: " + requeued + " task(s) re-queued, " + interrupted + " task(s) interrupted");
+        }
+    }
+
+    /**
+     * Submit a pending task again
+     * @return false if the task cannot be submitted any more
+     */
+    private static boolean resubmit(TaskJournalRecord record, TaskSubmitter submitter) {
+        ResourceInfo.ResourceInfoBuilder resInfoBuilder = new ResourceInfo.ResourceInfoBuilder()
+                .setDatasetFolder(toFile(record.datasetPath))
+                .setAlgorithmFolder(toFile(record.algorithmPath))
+                .setModelFolder(toFile(record.modelPath))
+                .setWorkspaceFolder(FileUtils.createTempDir());
+        if (null != record.stagingMode) {
+            resInfoBuilder.setStagingMode(StagingMode.parse(record.stagingMode, FileUtils.getDefaultStagingMode()));
+        }
+        ResourceInfo resInfo = resInfoBuilder.build();
+        boolean isTraining = TaskType.TRAIN.name().equals(record.taskType);
+        if (!resInfo.checkRequirement(isTraining ? TaskType.TRAIN : TaskType.PREDICATE)) {
+            Logger.Error("Resources of experiment " + record.experimentName + " are not valid any more, it cannot be re-queued");
+            FileUtils.deleteQuietly(resInfo.getWorkspaceFolder());
+            return false;
+        }
+        if (isTraining) {
+            return submitter.submit(new TrainingTaskInfo(record.taskId, record.experimentName, record.experimentLanguage, resInfo));
+        }
+        return submitter.submit(new ExecutionTaskInfo(record.taskId, record.experimentName, record.experimentLanguage, resInfo));
+    }
+
+    /**
+     * Mark the experiment record of an interrupted task as ERROR
+     */
+    private static void markInterrupted(TaskJournalRecord record) {
+        TaskJournal.INSTANCE.recordState(record.taskId, TaskState.ERROR);
+        ExperimentStatusWriter.INSTANCE.update(record.experimentName, TaskState.ERROR, INTERRUPTED_ERROR_MSG);
+        Logger.Info("Experiment " + record.experimentName + " was interrupted (last state " + record.state + ")");
+    }
+
+    private static File toFile(String path) {
+        return null == path ? null : new File(path);
+    }
+}
@@ -0,0 +1,157 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Node-wide admission scheduler for experiment tasks
+ *
+ * At most {@code maxConcurrency} tasks run their whole lifecycle
+ * (initializing -> running -> clean up) at the same time, the rest wait
+ * in a FIFO pending queue. One worker thread is bound to one admitted task,
+ * so the number of threads and Rscript processes on this node is bounded.
+ */
+public class TaskScheduler {
+
+    // keep idle workers for a while so bursts do not pay thread creation
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 60L;
+
+    private final String name;
+    private final int maxConcurrency;
+    private final ThreadPoolExecutor executor;
+    // taskId -> queued runnable, used for removing a task which has not been admitted yet
+    private final Map<String, Runnable> pendingMap = new ConcurrentHashMap<>();
+
+    /**
+     * Create a scheduler
+     * @param name scheduler name, used as worker thread name prefix
+     * @param maxConcurrency maximum number of tasks running at the same time
+     */
+    public TaskScheduler(String name, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new WorkerThreadFactory(name));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue a task, it will be initialized once a worker is free
+     * @param taskId task ID
+     * @param task task that need to be scheduled
+     * @return false if the scheduler has been shut down
+     */
+    public boolean submit(String taskId, AbsTask task) {
+        if (executor.isShutdown()) {
+            return false;
+        }
+        Runnable admission = () -> {
+            // the whole lifecycle of the task runs on this worker
+            pendingMap.remove(taskId);
+            task.initialize();
+        };
+        pendingMap.put(taskId, admission);
+        try {
+            executor.execute(admission);
+        } catch (RejectedExecutionException e) {
+            // shut down between the check and the execution
+            pendingMap.remove(taskId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remove a task that is still waiting in the pending queue
+     * @param taskId task ID
+     * @return true if the task was pending and has been removed
+     */
+    public boolean removePending(String taskId) {
+        Runnable admission = pendingMap.remove(taskId);
+        return null != admission && executor.remove(admission);
+    }
+
+    /**
+     * Stop accepting tasks and let the admitted/pending tasks finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Stop accepting tasks, drop pending tasks and interrupt the running ones
+     * @param timeout maximum time to wait for running tasks
+     * @param unit time unit of timeout
+     */
+    public void shutdownNow(long timeout, TimeUnit unit) {
+        executor.shutdownNow();
+        pendingMap.clear();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                Logger.Error("Task scheduler " + name + " did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    //** Observers ------------------------------------------------------------------------------
+
+    /**
+     * @return number of tasks waiting for a free worker
+     */
+    public int getPendingTaskNum() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return number of tasks that have been admitted and are still running
+     */
+    public int getActiveTaskNum() {
+        return executor.getActiveCount();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Name worker threads so they can be identified in thread dumps
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNum = new AtomicInteger(1);
+        private final String prefix;
+
+        WorkerThreadFactory(String name) {
+            this.prefix = name + "-worker-";
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + threadNum.getAndIncrement());
+            thread.setDaemon(false);
+            return thread;
+        }
+    }
+}
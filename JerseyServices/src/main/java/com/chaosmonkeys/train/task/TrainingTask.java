@@ -3,6 +3,7 @@ package com.chaosmonkeys.train.task;
 import com.chaosmonkeys.Utilities.FileUtils;
 import com.chaosmonkeys.Utilities.LogType;
 import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.Utilities.ParallelCopier;
 import com.chaosmonkeys.Utilities.StringUtils;
 import com.chaosmonkeys.Utilities.db.DbUtils;
 import com.chaosmonkeys.dao.Experiment;
@@ -18,9 +19,9 @@ import org.zeroturnaround.process.SystemProcess;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
 import java.util.concurrent.*;
 
@@ -39,11 +40,6 @@ public class TrainingTask extends AbsTask{
     }
 
     //---------------------------------------
-    @Override
-    protected ExecutorService getExecutorService() {
-        return super.getExecutorService();
-    }
-
     @Override
     protected void initialize() {
         // evaluate the current state, backward is not permitted
@@ -51,8 +47,7 @@ public class TrainingTask extends AbsTask{
             // set the initializing sign
             taskUpdateListener.onInit(taskInfo.getTaskId());
             // copy files to workspace
-            final ExecutorService executorService = getExecutorService();
-            executorService.submit(initTaskPerformer);
+            initTaskPerformer.run();
         }
     }
 
@@ -60,8 +55,7 @@ public class TrainingTask extends AbsTask{
     protected void performTask() {
         if(isInitialized()){
             taskUpdateListener.onStarted(getTaskId());
-            final ExecutorService executorService = getExecutorService();
-            executorService.submit(rTrainingPerformer);
+            rTrainingPerformer.run();
         }
     }
 
@@ -69,10 +63,9 @@ public class TrainingTask extends AbsTask{
     protected void cleanUp() {
         if(isFinished()){
             // success
-            final ExecutorService executorService = getExecutorService();
-            executorService.submit(this::moveOutputToModel);
+            moveOutputToModel();
             // todo: error or cancel or finished
-            executorService.submit(cleanUpPerformer);
+            cleanUpPerformer.run();
         }
     }
 
@@ -81,6 +74,7 @@ public class TrainingTask extends AbsTask{
         //TODO this method may have some concurrent bug in the future, when unexpected cancelling process happened, check this method
         // set the task cancelled flag as true
         cancelled = true;       // let runnable check the volatile variable and throw interruption
+        signalCancel();         // destroy the running Rscript process so the waiting runnable wakes up
         taskUpdateListener.onCancelled(getTaskId());
     }
 
@@ -91,21 +85,24 @@ public class TrainingTask extends AbsTask{
     private Runnable initTaskPerformer = () -> {
         final ResourceInfo res = taskInfo.getResourceInfo();
         try {
-            // copy algorithm content to workspace
             if(!cancelled){
-                FileUtils.copyDirectory(res.getAlgorithmFolder(),res.getWorkspaceFolder());
-                if(cancelled){ throw new InterruptedException(); }
                 File tmpInputFolder = new File(res.getWorkspaceFolder(), "input");
-                // copy data set content to workspace input folder
-                FileUtils.copyFileToDirectory(res.getDatasetFile(), tmpInputFolder);
+                // stage algorithm, data set to workspace at the same time, cancelling stops the copies
+                stagingMonitor.start();
+                ParallelCopier.runConcurrently(
+                        () -> StagingCache.INSTANCE.stageDirectory(res.getAlgorithmFolder(), res.getWorkspaceFolder(), res.getStagingMode(), stagingMonitor),
+                        () -> StagingCache.INSTANCE.stageFileToDirectory(res.getDatasetFile(), tmpInputFolder, res.getStagingMode(), stagingMonitor));
+                stagingMonitor.finish();
+                Logger.Info(String.format("Experiment resources staged, %d bytes copied in %d ms (%.1f MB/s)",
+                        stagingMonitor.getBytesCopied(), stagingMonitor.getElapsedMillis(), getStagingThroughput() / FileUtils.ONE_MB));
                 if(cancelled){ throw new InterruptedException(); }
                 // invoke initialized
-                if(!cancelled){
-                    taskUpdateListener.onInitialized(taskInfo.getTaskId());
-                }
+                taskUpdateListener.onInitialized(taskInfo.getTaskId());
             }else {
                 Logger.Info("Experiment cancelled during initializing");
             }
+        } catch (InterruptedIOException e) {    // cancelled while copying
+            Logger.Info("Experiment cancelled during initializing");
         } catch (IOException e) {
             Logger.Error("Initializing experiment error when copying resource to temp workspace");
             e.printStackTrace();
@@ -129,51 +126,49 @@ public class TrainingTask extends AbsTask{
         boolean processFinished = false;
         Path rFilePath = entryFile.toPath();
         //TODO: check kinds of OS and use different command
-        ProcessExecutor procExecutor = new ProcessExecutor().directory(workspaceFolder).command("Rscript", rFilePath.toString());
-        Optional<String> output = Optional.empty();
+        ProcessExecutor procExecutor = new ProcessExecutor().directory(workspaceFolder).command(getRscriptCommand(), rFilePath.toString());
+        TaskOutputCollector outputCollector = null;
         try {
             Logger.Info("Experiment starts at " + rFilePath);
-            StartedProcess proc = procExecutor.readOutput(true).destroyOnExit().start();
+            // stream output to the task log file, and fail the task as soon as an error line shows up
+            outputCollector = new TaskOutputCollector(FileUtils.createTaskLogFile(getTaskId()), Constants.OUTPUT_TAIL_LINES,
+                    errorLine -> destroyAttachedProcess());
+            StartedProcess proc = procExecutor.redirectOutput(outputCollector).redirectErrorStream(true).destroyOnExit().start();
             rProcess = proc.getProcess();
+            processStarted = true;
+            // cancelled between submitting and starting, kill the process using Zt-Killer
+            if (!attachProcess(rProcess)) {
+                throw new InterruptedException();
+            }
             Future<ProcessResult> futureResult = proc.getFuture();
             Optional<ProcessResult> resultOptional = Optional.empty();
             try {
-                // check the status here, if found cancelled signal, kill the process using Zt-Killer
-                while (!futureResult.isDone()) {
-                    if (cancelled) {
-                        processStarted = true;
-                        throw new InterruptedException();
-                    }
-                }
-                processFinished = true;
+                // block until Rscript exits, cancelWorks() destroys the process which wakes this thread up
                 resultOptional = Optional.ofNullable(futureResult.get());
             } catch (ExecutionException e) {  //exception may be thrown because future cancellation
                 e.printStackTrace();
+            } finally {
+                detachProcess();
+            }
+            if (cancelled) {
+                throw new InterruptedException();
+            }
+            processFinished = true;
+            if (!resultOptional.isPresent()) {
+                throw new IOException("Rscript terminated without result");
             }
-            output = Optional.ofNullable(resultOptional.get().getOutput().getUTF8());
-//            output =  Optional.ofNullable(procExecutor.readOutput(true).destroyOnExit().execute().outputUTF8());
-            // search error string in output if output is present
+            outputCollector.close();
+            // an error line in the output means the experiment failed
             if (!cancelled) {
-                if (output.isPresent()) {
+                Logger.Info(outputCollector.getTail());
+                if (outputCollector.isErrorDetected()) {
                     //TODO: find a right way to identify error
-                    String outputStr = output.get();
-                    boolean matched = StringUtils.containsIgnoreCase(outputStr, "error");
-                    Logger.Info(outputStr);
-                    if (matched) {
-                        int errorMsgStartIndex = outputStr.toLowerCase(Locale.ENGLISH).indexOf("error");
-                        int errorMsgEndIndex = Math.min(outputStr.length(), Constants.ERR_MSG_LENGTH);
-                        String cutErrorMsg = outputStr.substring(errorMsgStartIndex,errorMsgEndIndex);
-                        Logger.Error("Training task terminated with error output " + outputStr);
-                        Exception ex = new Exception("training experiment terminated with error output");
-                        if (!cancelled) {
-                            setErrorMsg(cutErrorMsg);
-                            taskUpdateListener.onError(ex, getTaskId(), cutErrorMsg);
-                        }
-                    } else {
-                        //TODO: move output folder to the dest
-                        if (!cancelled) {
-                            taskUpdateListener.onSuccess(getTaskId());
-                        }
+                    String cutErrorMsg = outputCollector.getErrorMsg();
+                    Logger.Error("Training task terminated with error output " + cutErrorMsg);
+                    Exception ex = new Exception("training experiment terminated with error output");
+                    if (!cancelled) {
+                        setErrorMsg(cutErrorMsg);
+                        taskUpdateListener.onError(ex, getTaskId(), cutErrorMsg);
                     }
                 } else {
                     //TODO: move output folder to the dest
@@ -189,27 +184,25 @@ public class TrainingTask extends AbsTask{
             setErrorMsg(errorMsg);
             taskUpdateListener.onError(e, getTaskId(),errorMsg );
         } catch (InterruptedException e) {
-            if (cancelled) {
-                //invoke zt-killer
-                if (processStarted) {
-                    if (!processFinished) {
-                        Optional<Process> procOptional = Optional.ofNullable(rProcess);
-                        if (procOptional.isPresent()) {
-                            SystemProcess sysProcess = Processes.newStandardProcess(procOptional.get());
-                            try {
-                                ProcessUtil.destroyGracefullyOrForcefullyAndWait(sysProcess, 2, TimeUnit.SECONDS, 1, TimeUnit.SECONDS);
-                                //TODO: add more proper exception handling
-                            } catch (IOException e1) {
-                                e1.printStackTrace();
-                            } catch (InterruptedException e1) {
-                                e1.printStackTrace();
-                            } catch (TimeoutException e1) {
-                                e1.printStackTrace();
-                            }
-                        }
+            //invoke zt-killer, the process may have received SIGTERM already, make sure it is really gone
+            if (processStarted && !processFinished) {   // if process is not started or has finished, there is not need to kill it :)
+                detachProcess();
+                Optional<Process> procOptional = Optional.ofNullable(rProcess);
+                if (procOptional.isPresent()) {
+                    SystemProcess sysProcess = Processes.newStandardProcess(procOptional.get());
+                    try {
+                        ProcessUtil.destroyGracefullyOrForcefullyAndWait(sysProcess, 2, TimeUnit.SECONDS, 1, TimeUnit.SECONDS);
+                        //TODO: add more proper exception handling
+                    } catch (IOException e1) {
+                        e1.printStackTrace();
+                    } catch (InterruptedException e1) {
+                        e1.printStackTrace();
+                    } catch (TimeoutException e1) {
+                        e1.printStackTrace();
                     }
                 }
-            } else {
+            }
+            if (!cancelled) {
                 Logger.Error("The training experiment has been interrupted in accidentally");
                 e.printStackTrace();
                 String errorMsg = "InterruptedException has been thrown when starting the training experiment. Exception message: " + e.getMessage();
@@ -217,6 +210,8 @@ public class TrainingTask extends AbsTask{
                 setErrorMsg(errorMsg);
                 taskUpdateListener.onError(e, getTaskId(), errorMsg);
             }
+        } finally {
+            closeQuietly(outputCollector);
         }
 
     };
@@ -279,6 +274,18 @@ public class TrainingTask extends AbsTask{
 
     //** Utils -----------------------------------------------------------------------------------
 
+    /**
+     * Close the output collector, ignoring errors because the result has been decided already
+     */
+    private static void closeQuietly(TaskOutputCollector collector){
+        if (null != collector) {
+            try {
+                collector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
     public String getTaskId(){
         return taskInfo.getTaskId();
     }
@@ -18,4 +18,8 @@ public class TrainingTaskInfo extends BaseTaskInfo {
         super(TaskType.TRAIN, name, language, resInfo);
     }
 
+    public TrainingTaskInfo(String taskId, String name, String language, ResourceInfo resInfo){
+        super(taskId, TaskType.TRAIN, name, language, resInfo);
+    }
+
 }
@@ -1,14 +1,13 @@
 package com.chaosmonkeys.train.task;
 
 
-import com.chaosmonkeys.Utilities.db.DbUtils;
-import com.chaosmonkeys.dao.Experiment;
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.train.Constants;
 import com.chaosmonkeys.train.task.interfaces.OnTaskUpdateListener;
 
-import java.sql.Timestamp;
-import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -26,21 +25,59 @@ public enum TrainingTaskManager implements TaskManager{
     private Map<String, TrainingTask> taskMap = new ConcurrentHashMap<>();
     // map experiment name to task ID because the frontend would like to use experiment name as identifier
     private Map<String, String> taskNameIdMap = new ConcurrentHashMap<>();
+    // node-wide scheduler which bounds the number of concurrently running tasks
+    private volatile TaskScheduler scheduler;
+
+    /**
+     * Create the task scheduler with the concurrency loaded from service configuration
+     * must be invoked before the first task is submitted, otherwise the default concurrency is used
+     * @param maxConcurrency maximum number of training tasks running at the same time
+     */
+    public synchronized void initScheduler(int maxConcurrency){
+        if(null != scheduler){
+            Logger.Error("Training task scheduler has already been initialized");
+            return;
+        }
+        scheduler = new TaskScheduler("training", maxConcurrency);
+        Logger.Info("Training task scheduler initialized with max concurrency " + maxConcurrency);
+    }
+
+    /**
+     * Obtain the task scheduler, using double-checked lock to create it lazily
+     * @return TaskScheduler
+     */
+    private TaskScheduler getScheduler(){
+        if(null == scheduler){
+            synchronized (this){
+                if(null == scheduler){
+                    scheduler = new TaskScheduler("training", Constants.DEFAULT_MAX_CONCURRENT_TASKS);
+                }
+            }
+        }
+        return scheduler;
+    }
 
     public boolean submitTask(BaseTaskInfo taskInfo){
         TrainingTaskInfo trainTaskInfo = (TrainingTaskInfo) taskInfo;
         TrainingTask trainingTask = new TrainingTask(trainTaskInfo, mOnTaskUpdateListener);
         taskMap.put(trainTaskInfo.getTaskId(), trainingTask);
         taskNameIdMap.put(trainTaskInfo.getExperimentName(), trainTaskInfo.getTaskId());
-        trainingTask.initialize();
-
-        // TODO: discover some error case which may return false
-        return true;
+        // journal the task before it can be admitted, so its state records always follow it
+        TaskJournal.INSTANCE.recordSubmit(trainTaskInfo);
+        // the task stays IDLE in the pending queue until a worker is free
+        boolean queued = getScheduler().submit(trainTaskInfo.getTaskId(), trainingTask);
+        if(!queued){
+            TaskJournal.INSTANCE.recordState(trainTaskInfo.getTaskId(), TaskState.CANCELLED);
+            taskMap.remove(trainTaskInfo.getTaskId());
+            taskNameIdMap.remove(trainTaskInfo.getExperimentName());
+        }
+        return queued;
     }
 
     @Override
     public boolean cancelTask(String taskId){
         TrainingTask trainTask = taskMap.get(taskId);
+        getScheduler().removePending(taskId);
         trainTask.cancelWorks();
         return true;
     }
@@ -48,15 +85,23 @@ public enum TrainingTaskManager implements TaskManager{
     @Override
     public boolean cancelTaskByExperimentName(String experimentName){
         String taskId = taskNameIdMap.get(experimentName);
-        TrainingTask trainTask  = taskMap.get(taskId);
-        trainTask.cancelWorks();
-        return true;
+        return cancelTask(taskId);
+    }
+
+    /**
+     * Stop accepting tasks, drop pending ones and wait a while for running tasks
+     * used when the service is shutting down
+     */
+    public void shutdown(){
+        if(null != scheduler){
+            scheduler.shutdownNow(Constants.SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
     }
 
 
 
     /**
-     * Update experiment task status in database
+     * Update experiment task status, the database record is updated asynchronously
      * @param taskId task ID, the UUID one
      * @param state new task state
      */
@@ -64,26 +109,10 @@ public enum TrainingTaskManager implements TaskManager{
         TrainingTask task = taskMap.get(taskId);
         TrainingTaskInfo trainTaskInfo = task.getTaskInfo();
         // set initializing status and update database record
-        DbUtils.openConnection();
+        TaskJournal.INSTANCE.recordState(taskId, state);
         task.setState(state);
-        Experiment exp = DbUtils.getExperimentModelByName(trainTaskInfo.getExperimentName());
-        exp.set("last_status",task.getState().StringValue());
-        //TODO: handle locale problem in the future
-        Timestamp nowTime = Timestamp.from(Instant.now());
-        exp.setTimestamp("last_updated",nowTime);
-        if(state == TaskState.INITIALIZING){
-            exp.setTimestamp("start",nowTime);
-        }
-        if(state.value() > TaskState.STARTED.value()){
-            exp.setTimestamp("end",nowTime);
-        }
-        if(state == TaskState.ERROR){
-            String errorMsg = task.getErrorMsg();
-            exp.set("error_message",errorMsg);      // experiment error message field
-        }
-        //TODO: add error handler for connection error
-        exp.save();
-        DbUtils.closeConnection();
+        // written to the database by a background thread, task threads do not wait for MySQL
+        ExperimentStatusWriter.INSTANCE.update(trainTaskInfo.getExperimentName(), state, task.getErrorMsg());
         return task;
     }
 
@@ -91,7 +120,7 @@ public enum TrainingTaskManager implements TaskManager{
         // start initializing
         @Override
         public void onInit(String taskId) {
-            updateTaskStatus(taskId, TaskState.INITIALIZING);
+            updateTaskStatus(taskId, TaskState.INITIALIZING).markAdmitted();
             runningTaskNum.incrementAndGet();
         }
         // task workspace has been initialized, the manager should update record and let the task start if available
@@ -109,21 +138,27 @@ public enum TrainingTaskManager implements TaskManager{
 
         @Override
         public void onCancelled(String taskId) {
-            TrainingTask task = updateTaskStatus(taskId, TaskState.CANCELLED);
-            runningTaskNum.decrementAndGet();
+            // a task cancelled in the pending queue has never been counted as running
+            boolean admitted = !taskMap.get(taskId).isIDLE();
+            updateTaskStatus(taskId, TaskState.CANCELLED);
+            if(admitted){
+                runningTaskNum.decrementAndGet();
+            }
         }
 
         @Override
         public void onSuccess(String taskId) {
             TrainingTask task = updateTaskStatus(taskId, TaskState.SUCCESS);
             runningTaskNum.decrementAndGet();
+            TaskDurationStats.INSTANCE.record(task.getElapsedMillis());
             task.cleanUp();
         }
 
         @Override
         public void onError(Throwable ex, String taskId, String errorMessage) {
-            updateTaskStatus(taskId, TaskState.ERROR);
+            TrainingTask task = updateTaskStatus(taskId, TaskState.ERROR);
             runningTaskNum.decrementAndGet();
+            TaskDurationStats.INSTANCE.record(task.getElapsedMillis());
         }
     };
 
@@ -131,4 +166,11 @@ public enum TrainingTaskManager implements TaskManager{
         return runningTaskNum.get();
     }
 
+    /**
+     * @return number of training tasks waiting for a free worker
+     */
+    public int getPendingTaskNum(){
+        return null == scheduler ? 0 : scheduler.getPendingTaskNum();
+    }
+
 }
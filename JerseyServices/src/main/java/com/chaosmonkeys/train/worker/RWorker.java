@@ -0,0 +1,205 @@
+package com.chaosmonkeys.train.worker;
+
+import org.zeroturnaround.process.PidUtil;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * A pre-started R process which runs experiments one after another
+ *
+ * The worker reads commands from its stdin and writes the experiment output,
+ * followed by a done marker line, to its stdout (stderr is merged into stdout).
+ * See rworker/worker.R for the R side of the protocol.
+ */
+public class RWorker {
+
+    static final String READY_MARKER = "<<<CM-READY>>>";
+    static final String DONE_MARKER_PREFIX = "<<<CM-DONE ";
+    private static final String STATUS_OK = "OK";
+
+    /**
+     * Outcome of one job
+     */
+    public enum JobStatus {
+        // Main.R has been sourced without error
+        SUCCESS,
+        // Main.R raised an R error, the worker is still usable
+        FAILED,
+        // the worker process exited during the job, e.g. Main.R called quit()
+        WORKER_EXITED
+    }
+
+    private final Process process;
+    private final InputStream output;
+    private final Writer commandWriter;
+    private int jobCount = 0;
+    private int exitCode = -1;
+
+    private RWorker(Process process) {
+        this.process = process;
+        this.output = new BufferedInputStream(process.getInputStream());
+        this.commandWriter = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Start a worker and wait until the R side is ready for commands
+     * @param command command line of the worker process
+     * @return ready worker
+     * @throws IOException if the process cannot be started or exits before being ready
+     */
+    static RWorker start(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        RWorker worker = new RWorker(process);
+        if (null == worker.readUntilMarker(READY_MARKER, null)) {
+            worker.destroy();
+            throw new IOException("R worker exited before being ready");
+        }
+        return worker;
+    }
+
+    /**
+     * Run Main.R of a workspace and block until it finishes
+     * @param workspaceFolder experiment workspace
+     * @param sink receives the experiment output
+     * @return status of the job
+     * @throws IOException if the worker cannot be reached, e.g. it has been destroyed
+     */
+    public JobStatus run(File workspaceFolder, OutputStream sink) throws IOException {
+        jobCount++;
+        commandWriter.write("RUN " + workspaceFolder.getAbsolutePath() + "\n");
+        commandWriter.flush();
+        String doneLine = readUntilMarker(DONE_MARKER_PREFIX, sink);
+        if (null != doneLine) {
+            return doneLine.startsWith(DONE_MARKER_PREFIX + STATUS_OK) ? JobStatus.SUCCESS : JobStatus.FAILED;
+        }
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return JobStatus.WORKER_EXITED;
+    }
+
+    /**
+     * Copy output to the sink until a line starting with the marker shows up.
+     * Only the beginning of each line is buffered, so long lines are streamed through.
+     * @param marker prefix of the protocol line
+     * @param sink receives output lines, may be null for discarding them
+     * @return the protocol line, null at the end of the stream
+     */
+    private String readUntilMarker(String marker, OutputStream sink) throws IOException {
+        byte[] markerBytes = marker.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream lineStart = new ByteArrayOutputStream();
+        // still comparing the current line with the marker
+        boolean matching = true;
+        int b;
+        while ((b = output.read()) != -1) {
+            if (matching) {
+                if (b == '\n') {
+                    writeTo(sink, lineStart.toByteArray(), '\n');
+                    lineStart.reset();
+                    continue;
+                }
+                lineStart.write(b);
+                int length = lineStart.size();
+                if (length <= markerBytes.length && markerBytes[length - 1] != (byte) b) {
+                    // not a protocol line, stream the rest of it
+                    matching = false;
+                    writeTo(sink, lineStart.toByteArray(), -1);
+                    lineStart.reset();
+                } else if (length == markerBytes.length) {
+                    return readRestOfLine(lineStart);
+                }
+            } else {
+                if (null != sink) {
+                    sink.write(b);
+                }
+                if (b == '\n') {
+                    matching = true;
+                }
+            }
+        }
+        writeTo(sink, lineStart.toByteArray(), -1);
+        return null;
+    }
+
+    private String readRestOfLine(ByteArrayOutputStream lineStart) throws IOException {
+        int b;
+        while ((b = output.read()) != -1 && b != '\n') {
+            lineStart.write(b);
+        }
+        return new String(lineStart.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+
+    private static void writeTo(OutputStream sink, byte[] bytes, int lastByte) throws IOException {
+        if (null == sink) {
+            return;
+        }
+        sink.write(bytes);
+        if (lastByte >= 0) {
+            sink.write(lastByte);
+        }
+    }
+
+    /**
+     * @return resident memory of the worker in bytes, -1 if it cannot be read (non Linux)
+     */
+    public long getResidentMemory() {
+        File statusFile = new File("/proc/" + PidUtil.getPid(process) + "/status");
+        if (!statusFile.isFile()) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(statusFile.toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    String kb = line.substring("VmRSS:".length()).replace("kB", "").trim();
+                    return Long.parseLong(kb) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Close stdin so the worker stops, and kill it if it does not
+     */
+    public void destroy() {
+        try {
+            commandWriter.close();
+        } catch (IOException e) {
+            // worker already gone
+        }
+        process.destroy();
+    }
+
+    public Process getProcess() {
+        return process;
+    }
+
+    public int getJobCount() {
+        return jobCount;
+    }
+
+    /**
+     * @return exit code of the worker after a {@link JobStatus#WORKER_EXITED} job
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+}
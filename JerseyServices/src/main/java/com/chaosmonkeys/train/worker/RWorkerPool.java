@@ -0,0 +1,202 @@
+package com.chaosmonkeys.train.worker;
+
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.Utilities.Logger;
+import com.chaosmonkeys.train.task.AbsTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of warm R workers used by execution tasks
+ *
+ * Workers are started in the background so R startup and package loading are
+ * paid before a task arrives. A task borrows an idle worker, or falls back to a
+ * fresh Rscript process when none is idle. A worker is recycled after a number
+ * of jobs or when its resident memory grows over the limit.
+ */
+public enum RWorkerPool {
+    INSTANCE;
+
+    private static final String WORKER_SCRIPT_RESOURCE = "/rworker/worker.R";
+    // stop replacing workers after this many failed starts in a row, e.g. R is not installed
+    private static final int MAX_START_FAILURES = 3;
+
+    private final BlockingQueue<RWorker> idleWorkers = new LinkedBlockingQueue<>();
+    private final AtomicInteger startFailures = new AtomicInteger();
+    private volatile boolean enabled = false;
+    private List<String> workerCommand;
+    private int maxJobsPerWorker;
+    private long maxMemoryBytes;
+    private ExecutorService starter;
+
+    /**
+     * Start the pool with the bundled worker script
+     * @param warmWorkers number of workers kept warm, not positive disables the pool
+     * @param maxJobsPerWorker jobs run by a worker before it is replaced
+     * @param maxMemoryMB resident memory of a worker above which it is replaced
+     */
+    public void init(int warmWorkers, int maxJobsPerWorker, long maxMemoryMB) {
+        if (warmWorkers <= 0) {
+            return;
+        }
+        try {
+            File script = extractWorkerScript();
+            init(Arrays.asList(AbsTask.getRscriptCommand(), script.getAbsolutePath()), warmWorkers, maxJobsPerWorker, maxMemoryMB);
+        } catch (IOException e) {
+            Logger.Error("R worker pool is disabled, worker script cannot be extracted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start the pool
+     * @param command command line of a worker process
+     * @param warmWorkers number of workers kept warm
+     * @param maxJobsPerWorker jobs run by a worker before it is replaced
+     * @param maxMemoryMB resident memory of a worker above which it is replaced
+     */
+    public synchronized void init(List<String> command, int warmWorkers, int maxJobsPerWorker, long maxMemoryMB) {
+        if (enabled) {
+            Logger.Error("R worker pool has already been initialized");
+            return;
+        }
+        this.workerCommand = new ArrayList<>(command);
+        this.maxJobsPerWorker = maxJobsPerWorker;
+        this.maxMemoryBytes = maxMemoryMB * FileUtils.ONE_MB;
+        this.starter = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "rworker-starter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.startFailures.set(0);
+        this.enabled = true;
+        for (int i = 0; i < warmWorkers; i++) {
+            startWorkerAsync();
+        }
+        Logger.Info("R worker pool starting " + warmWorkers + " warm worker(s)");
+    }
+
+    /**
+     * Borrow an idle worker without waiting
+     * @return a live worker, null if the pool is disabled or every worker is busy
+     */
+    public RWorker tryAcquire() {
+        if (!enabled) {
+            return null;
+        }
+        RWorker worker;
+        while (null != (worker = idleWorkers.poll())) {
+            if (worker.isAlive()) {
+                return worker;
+            }
+            replace(worker);
+        }
+        return null;
+    }
+
+    /**
+     * Give a worker back after a job, it is replaced if it died or reached its limits
+     */
+    public void release(RWorker worker) {
+        if (!enabled) {
+            worker.destroy();
+            return;
+        }
+        if (!worker.isAlive() || worker.getJobCount() >= maxJobsPerWorker) {
+            replace(worker);
+            return;
+        }
+        long memory = worker.getResidentMemory();
+        if (maxMemoryBytes > 0 && memory > maxMemoryBytes) {
+            Logger.Info("Recycling R worker using " + memory / FileUtils.ONE_MB + " MB");
+            replace(worker);
+            return;
+        }
+        idleWorkers.offer(worker);
+    }
+
+    /**
+     * Destroy a worker whose state is unknown, e.g. after a cancelled job, and start a new one
+     */
+    public void discard(RWorker worker) {
+        replace(worker);
+    }
+
+    /**
+     * Stop every idle worker, busy workers are destroyed when they are released
+     */
+    public synchronized void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        enabled = false;
+        starter.shutdownNow();
+        RWorker worker;
+        while (null != (worker = idleWorkers.poll())) {
+            worker.destroy();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return number of warm workers waiting for a job
+     */
+    public int getIdleWorkerNum() {
+        return idleWorkers.size();
+    }
+
+    //** Worker lifecycle ----------------------------------------------------------------------
+
+    private void replace(RWorker worker) {
+        worker.destroy();
+        startWorkerAsync();
+    }
+
+    private synchronized void startWorkerAsync() {
+        if (!enabled || startFailures.get() >= MAX_START_FAILURES) {
+            return;
+        }
+        starter.execute(() -> {
+            try {
+                RWorker worker = RWorker.start(workerCommand);
+                startFailures.set(0);
+                if (enabled) {
+                    idleWorkers.offer(worker);
+                } else {
+                    worker.destroy();
+                }
+            } catch (IOException e) {
+                if (startFailures.incrementAndGet() == MAX_START_FAILURES) {
+                    Logger.Error("R workers cannot be started, tasks will start their own Rscript process: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static File extractWorkerScript() throws IOException {
+        // a private file per process, another service on the node must not share or replace it
+        File script = Files.createTempFile("chaosmonkeys-rworker-", ".R").toFile();
+        script.deleteOnExit();
+        try (InputStream in = RWorkerPool.class.getResourceAsStream(WORKER_SCRIPT_RESOURCE)) {
+            if (null == in) {
+                throw new IOException("Resource " + WORKER_SCRIPT_RESOURCE + " not found");
+            }
+            Files.copy(in, script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return script;
+    }
+}
@@ -0,0 +1,48 @@
+package com.chaosmonkeys.algrinputservice;
+
+import com.chaosmonkeys.Utilities.ZipUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import static com.chaosmonkeys.utils.testtools.TestUtils.zip;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing the detection of zipped algorithm folders while archives are received
+ */
+public class ZippedFolderDetectorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRequiredFileInSubFolderBeforeRootIsAccepted() throws IOException {
+        byte[] zip = zip("sub/Main.R", "print(0)", "Main.R", "print(1)");
+        File dest = new File(folder.getRoot(), "algr");
+        AlgorithmResource.ZippedFolderDetector detector = new AlgorithmResource.ZippedFolderDetector(Collections.singletonList("Main.R"));
+
+        ZipUtils.unzip(new ByteArrayInputStream(zip), dest, detector);
+
+        assertFalse(detector.isMisplaced());
+        assertTrue(new File(dest, "Main.R").isFile());
+        assertTrue(new File(dest, "sub/Main.R").isFile());
+    }
+
+    @Test
+    public void testZippedAlgorithmFolderIsDetected() throws IOException {
+        byte[] zip = zip("algr/", "", "algr/lib.R", "f <- 1", "algr/Main.R", "print(1)", "algr/data.csv", "a,b");
+        File dest = new File(folder.getRoot(), "algr");
+        AlgorithmResource.ZippedFolderDetector detector = new AlgorithmResource.ZippedFolderDetector(Collections.singletonList("Main.R"));
+
+        ZipUtils.unzip(new ByteArrayInputStream(zip), dest, detector);
+
+        assertTrue(detector.isMisplaced());
+        assertFalse(new File(dest, "Main.R").exists());
+    }
+}
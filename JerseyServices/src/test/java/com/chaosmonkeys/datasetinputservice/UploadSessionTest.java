@@ -0,0 +1,153 @@
+package com.chaosmonkeys.datasetinputservice;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.chaosmonkeys.utils.testtools.TestUtils.randomBytes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Testing chunked dataset uploads
+ */
+public class UploadSessionTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private UploadSession session;
+
+    @After
+    public void tearDown() {
+        if (null != session) {
+            UploadSessionManager.INSTANCE.abort(session.getSessionId());
+        }
+    }
+
+    @Test
+    public void testParallelChunksOutOfOrder() throws Exception {
+        byte[] content = randomBytes(10 * 1000 + 3);
+        session = UploadSessionManager.INSTANCE.create("iris", null, "csv", content.length, folder.getRoot());
+        assertEquals(content.length, session.getPartialFile().length());
+
+        int chunkSize = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int offset = (content.length / chunkSize) * chunkSize; offset >= 0; offset -= chunkSize) {
+            int start = offset;
+            int end = Math.min(content.length, offset + chunkSize);
+            results.add(executor.submit(() -> session.writeChunk(start, new ByteArrayInputStream(content, start, end - start))));
+        }
+        for (Future<Long> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        assertTrue(session.isComplete());
+        assertEquals(1, session.getReceivedRanges().size());
+        assertEquals(sha256(content), session.computeChecksum(null));
+        assertArrayEquals(content, Files.readAllBytes(session.getPartialFile().toPath()));
+    }
+
+    @Test
+    public void testResumeAfterDroppedChunk() throws Exception {
+        byte[] content = randomBytes(3000);
+        session = UploadSessionManager.INSTANCE.create("iris", null, "csv", content.length, folder.getRoot());
+        session.writeChunk(0, new ByteArrayInputStream(content, 0, 1000));
+        try {
+            session.writeChunk(1000, new BrokenStream(content, 1000, 400));
+            fail("a dropped connection must fail the chunk");
+        } catch (IOException e) {
+            // expected
+        }
+        // the bytes written before the connection dropped are kept
+        assertEquals(1, session.getReceivedRanges().size());
+        assertEquals(1400, session.getReceivedRanges().get(0)[1]);
+        assertFalse(session.isComplete());
+
+        session.writeChunk(1400, new ByteArrayInputStream(content, 1400, 1600));
+        assertTrue(session.isComplete());
+        assertEquals(sha256(content), session.computeChecksum(null));
+    }
+
+    @Test
+    public void testChunkPastTheEndIsRefused() throws Exception {
+        session = UploadSessionManager.INSTANCE.create("iris", null, "csv", 100, folder.getRoot());
+        try {
+            session.writeChunk(50, new ByteArrayInputStream(new byte[51]));
+            fail("a chunk past the end of the dataset must be refused");
+        } catch (IOException e) {
+            assertEquals(0, session.getReceivedBytes());
+        }
+        assertEquals(100, session.getPartialFile().length());
+    }
+
+    @Test
+    public void testOpenSessionKeepsServiceBusy() throws Exception {
+        session = UploadSessionManager.INSTANCE.create("iris", null, "csv", 100, folder.getRoot());
+        String partialName = session.getPartialFile().getName();
+        assertTrue(DatasetInputService.uploadSet.contains(partialName));
+        UploadSession other = UploadSessionManager.INSTANCE.create("iris", null, "csv", 100, folder.getRoot());
+        assertTrue(DatasetInputService.uploadSet.contains(other.getPartialFile().getName()));
+
+        // committed
+        assertTrue(UploadSessionManager.INSTANCE.remove(other.getSessionId()));
+        assertFalse(DatasetInputService.uploadSet.contains(other.getPartialFile().getName()));
+        // aborted
+        assertTrue(UploadSessionManager.INSTANCE.abort(session.getSessionId()));
+        assertFalse(DatasetInputService.uploadSet.contains(partialName));
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Stream failing after some bytes, like a connection dropped in the middle of a chunk
+     */
+    private static class BrokenStream extends InputStream {
+        private final InputStream delegate;
+
+        BrokenStream(byte[] content, int offset, int length) {
+            this.delegate = new ByteArrayInputStream(content, offset, length);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b < 0) {
+                throw new IOException("connection reset");
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = delegate.read(b, off, len);
+            if (read < 0) {
+                throw new IOException("connection reset");
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.chaosmonkeys.datasetinputservice.columnar;
+
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.datasetinputservice.validation.ColumnSchema;
+import com.chaosmonkeys.datasetinputservice.validation.CsvScanner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Testing the conversion of datasets to the columnar format and reading it back
+ */
+public class ColumnarConverterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCsvRoundTripAcrossRowGroups() throws IOException {
+        String csv = "id,score,ok,city\n"
+                + "1,2.5,TRUE,Paris\n"
+                + "2,NA,F,\"New, York\"\n"
+                + "NA,-1e3,NA,Paris\n"
+                + "4,Inf,T,NA\n"
+                + "5,0,FALSE,Z\u00fcrich\n";
+        File dataFile = write("data.csv", csv);
+        List<ColumnSchema> schema = schemaOf(csv);
+
+        assertEquals(5, ColumnarConverter.convert(dataFile, "csv", schema, 2));
+
+        try (ColumnarReader reader = new ColumnarReader(FileUtils.getColumnarFile(dataFile))) {
+            assertEquals(5, reader.getRowCount());
+            assertEquals(3, reader.getRowGroupCount());
+            assertEquals(1, reader.getRowGroupRows(2));
+            assertEquals("double", reader.getColumns().get(1).getType());
+            assertEquals(3, reader.getColumnIndex("city"));
+
+            ColumnChunk ids = reader.getChunk(1, 0);
+            assertTrue(ids.isMissing(0));
+            assertEquals(4, ids.getInt(1));
+
+            ColumnChunk scores = reader.getChunk(0, 1);
+            assertEquals(2.5, scores.getDouble(0), 1e-9);
+            assertTrue(scores.isMissing(1));
+            assertEquals(Double.POSITIVE_INFINITY, reader.getChunk(1, 1).getDouble(1), 0);
+
+            ColumnChunk oks = reader.getChunk(0, 2);
+            assertEquals(Boolean.TRUE, oks.getLogical(0));
+            assertEquals(Boolean.FALSE, oks.getLogical(1));
+            assertNull(reader.getChunk(1, 2).getLogical(0));
+
+            assertEquals("New, York", reader.getChunk(0, 3).getString(1));
+            ColumnChunk cities = reader.getChunk(1, 3);
+            assertEquals("Paris", cities.getString(0));
+            assertNull(cities.getString(1));
+            assertEquals("Z\u00fcrich", reader.getChunk(2, 3).getString(0));
+        }
+        assertFalse(new File(FileUtils.getColumnarFile(dataFile).getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testStringDictionaryPerRowGroup() throws IOException {
+        StringBuilder csv = new StringBuilder("label\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append(i % 3 == 0 ? "a" : "b").append('\n');
+        }
+        File dataFile = write("labels.csv", csv.toString());
+
+        ColumnarConverter.convert(dataFile, "csv", schemaOf(csv.toString()), 1000);
+
+        try (ColumnarReader reader = new ColumnarReader(FileUtils.getColumnarFile(dataFile))) {
+            ColumnChunk labels = reader.getChunk(0, 0);
+            assertEquals(2, labels.getDictionarySize());
+            assertEquals("a", labels.getString(999));
+            assertEquals("b", labels.getString(998));
+        }
+    }
+
+    @Test
+    public void testJsonRecords() throws IOException {
+        // the last record lacks keys and repeats one, as accepted without the record check
+        File dataFile = write("data.json", "[{\"x\":1,\"name\":\"a\",\"nested\":{\"k\":1}},{\"name\":\"b\",\"x\":null,\"nested\":[]},"
+                + "{\"name\":\"c\",\"name\":\"d\"}]");
+        List<ColumnSchema> schema = Arrays.asList(new ColumnSchema("x", "integer"),
+                new ColumnSchema("name", "string"), new ColumnSchema("nested", "string"));
+
+        assertEquals(3, ColumnarConverter.convert(dataFile, "json", schema, 100));
+
+        try (ColumnarReader reader = new ColumnarReader(FileUtils.getColumnarFile(dataFile))) {
+            ColumnChunk x = reader.getChunk(0, 0);
+            assertEquals(1, x.getInt(0));
+            assertTrue(x.isMissing(1));
+            assertEquals("b", reader.getChunk(0, 1).getString(1));
+            assertTrue(reader.getChunk(0, 2).isMissing(0));
+            assertTrue(x.isMissing(2));
+            assertEquals("c", reader.getChunk(0, 1).getString(2));
+        }
+    }
+
+    @Test
+    public void testRejectOtherFiles() throws IOException {
+        File other = write("other.col", "id,score\n1,2\n3,4\n5,6\n7,8\n9,10\n");
+        try {
+            new ColumnarReader(other).close();
+            fail("a text file must not be read as a columnar file");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<ColumnSchema> schemaOf(String csv) {
+        CsvScanner scanner = new CsvScanner();
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        scanner.write(bytes, 0, bytes.length);
+        assertTrue(scanner.getError(), scanner.finish());
+        return scanner.getSchema();
+    }
+}
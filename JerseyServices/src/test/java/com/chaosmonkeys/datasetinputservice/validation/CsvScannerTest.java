@@ -0,0 +1,122 @@
+package com.chaosmonkeys.datasetinputservice.validation;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing the streaming CSV validator, its schema inference and profiling
+ */
+public class CsvScannerTest {
+
+    @Test
+    public void testInferSchema() {
+        CsvScanner scanner = scan("id,score,passed,comment,missing\n"
+                + "1,2.5,TRUE,\"plain\",NA\n"
+                + "2,3,FALSE,\"with \"\"quotes\"\", and comma\",\n"
+                + "-3,1e3,T,\"two\nlines\",NA\n");
+
+        assertTrue(scanner.getError(), scanner.finish());
+        assertEquals(3, scanner.getRowNum());
+        List<ColumnSchema> schema = scanner.getSchema();
+        assertEquals(5, schema.size());
+        assertEquals("id", schema.get(0).getName());
+        assertEquals("integer", schema.get(0).getType());
+        assertEquals("double", schema.get(1).getType());
+        assertEquals("logical", schema.get(2).getType());
+        assertEquals("string", schema.get(3).getType());
+        assertEquals("string", schema.get(4).getType());
+    }
+
+    @Test
+    public void testCrLfAndBlankLines() {
+        CsvScanner scanner = scan("a,b\r\n\r\n1,x\r\n2,y\r\n\r\n");
+
+        assertTrue(scanner.getError(), scanner.finish());
+        assertEquals(2, scanner.getRowNum());
+    }
+
+    @Test
+    public void testLastLineWithoutNewLine() {
+        CsvScanner scanner = scan("a,b\n1,2");
+
+        assertTrue(scanner.getError(), scanner.finish());
+        assertEquals(1, scanner.getRowNum());
+    }
+
+    @Test
+    public void testColumnCountMismatch() {
+        CsvScanner scanner = scan("a,b\n1,2\n3\n");
+
+        assertFalse(scanner.finish());
+        assertTrue(scanner.getError().contains("Line 3"));
+    }
+
+    @Test
+    public void testUnclosedQuote() {
+        CsvScanner scanner = scan("a,b\n1,\"open\n");
+
+        assertFalse(scanner.finish());
+        assertNotNull(scanner.getError());
+    }
+
+    @Test
+    public void testQuoteInsideUnquotedField() {
+        CsvScanner scanner = scan("a,b\n1,ab\"c\n");
+
+        assertFalse(scanner.finish());
+        assertNotNull(scanner.getError());
+    }
+
+    @Test
+    public void testEmptyFile() {
+        assertFalse(scan("").finish());
+    }
+
+    @Test
+    public void testBytesSplitAcrossWrites() {
+        byte[] content = "a,b\n\"x,\"\"y\",2\n".getBytes(StandardCharsets.UTF_8);
+        CsvScanner scanner = new CsvScanner();
+        for (byte b : content) {
+            scanner.write(b);
+        }
+
+        assertTrue(scanner.getError(), scanner.finish());
+        assertEquals("integer", scanner.getSchema().get(1).getType());
+    }
+
+    @Test
+    public void testProfile() {
+        CsvScanner scanner = scan("n,label\n1,a\n3,b\nNA,a\n8,\"a\"\n");
+
+        assertTrue(scanner.getError(), scanner.finish());
+        DatasetProfile profile = scanner.getProfile();
+        assertEquals(4, profile.getRowNum());
+        ColumnProfile n = profile.getColumns().get(0);
+        assertEquals("integer", n.getType());
+        assertEquals(3, n.getCount());
+        assertEquals(1, n.getMissing());
+        assertEquals(0.25, n.getMissingRatio(), 1e-9);
+        assertEquals(1.0, n.getMin(), 1e-9);
+        assertEquals(8.0, n.getMax(), 1e-9);
+        assertEquals(4.0, n.getMean(), 1e-9);
+        assertEquals(3, n.getDistinct());
+        ColumnProfile label = profile.getColumns().get(1);
+        assertNull(label.getMean());
+        assertEquals(2, label.getDistinct());
+    }
+
+    private static CsvScanner scan(String content) {
+        CsvScanner scanner = new CsvScanner();
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        scanner.write(bytes, 0, bytes.length);
+        return scanner;
+    }
+}
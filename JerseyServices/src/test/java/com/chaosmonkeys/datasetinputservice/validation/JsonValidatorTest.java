@@ -0,0 +1,151 @@
+package com.chaosmonkeys.datasetinputservice.validation;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing the streaming JSON validator and its record check
+ */
+public class JsonValidatorTest {
+
+    @Test
+    public void testRecordsSchema() throws IOException {
+        JsonValidator validator = new JsonValidator(true);
+
+        assertTrue(validator.validate(stream("[{\"id\":1,\"score\":2.5,\"ok\":true,\"name\":\"a\",\"tags\":[1]},"
+                + "{\"score\":3,\"id\":2,\"ok\":null,\"name\":\"b\",\"tags\":{}}]")));
+        assertEquals(2, validator.getRecordNum());
+        List<ColumnSchema> schema = validator.getSchema();
+        assertEquals(5, schema.size());
+        assertEquals("id", schema.get(0).getName());
+        assertEquals("integer", schema.get(0).getType());
+        assertEquals("double", schema.get(1).getType());
+        assertEquals("logical", schema.get(2).getType());
+        assertEquals("string", schema.get(3).getType());
+        assertEquals("string", schema.get(4).getType());
+    }
+
+    @Test
+    public void testRecordsProfile() throws IOException {
+        JsonValidator validator = new JsonValidator(true);
+
+        assertTrue(validator.validate(stream("[{\"x\":2,\"y\":\"a\"},{\"x\":null,\"y\":\"b\"},{\"x\":4.5,\"y\":\"a\"}]")));
+        DatasetProfile profile = validator.getProfile();
+        assertEquals(3, profile.getRowNum());
+        ColumnProfile x = profile.getColumns().get(0);
+        assertEquals("double", x.getType());
+        assertEquals(2, x.getCount());
+        assertEquals(1, x.getMissing());
+        assertEquals(3.25, x.getMean(), 1e-9);
+        assertEquals(2, profile.getColumns().get(1).getDistinct());
+    }
+
+    @Test
+    public void testRecordWithDifferentKeys() throws IOException {
+        JsonValidator missing = new JsonValidator(true);
+        assertFalse(missing.validate(stream("[{\"a\":1,\"b\":2},{\"a\":3}]")));
+        assertTrue(missing.getError().contains("Record 2"));
+
+        JsonValidator extra = new JsonValidator(true);
+        assertFalse(extra.validate(stream("[{\"a\":1},{\"a\":3,\"c\":4}]")));
+        assertTrue(extra.getError().contains("\"c\""));
+
+        JsonValidator notObject = new JsonValidator(true);
+        assertFalse(notObject.validate(stream("[{\"a\":1},2]")));
+    }
+
+    @Test
+    public void testRecordCheckDisabled() throws IOException {
+        JsonValidator validator = new JsonValidator(false);
+
+        // records are still typed and profiled, keys a record does not have are missing values
+        assertTrue(validator.validate(stream("[{\"a\":1,\"b\":2},{\"a\":3},{\"c\":\"x\",\"a\":4,\"a\":\"y\"}]")));
+        assertEquals(3, validator.getRecordNum());
+        List<ColumnSchema> schema = validator.getSchema();
+        assertEquals(3, schema.size());
+        assertEquals("a", schema.get(0).getName());
+        assertEquals("integer", schema.get(0).getType());
+        assertEquals("integer", schema.get(1).getType());
+        assertEquals("string", schema.get(2).getType());
+        DatasetProfile profile = validator.getProfile();
+        assertEquals(3, profile.getRowNum());
+        assertEquals(3, profile.getColumns().get(0).getCount());
+        assertEquals(2, profile.getColumns().get(1).getMissing());
+        assertEquals(1, profile.getColumns().get(2).getCount());
+        assertEquals(2, profile.getColumns().get(2).getMissing());
+
+        // an array which is not only made of objects is not a table
+        JsonValidator mixed = new JsonValidator(false);
+        assertTrue(mixed.validate(stream("[{\"a\":1},2,{\"a\":3}]")));
+        assertNull(mixed.getSchema());
+        assertNull(mixed.getProfile());
+    }
+
+    @Test
+    public void testDocumentWithoutRecords() throws IOException {
+        JsonValidator validator = new JsonValidator(true);
+
+        assertTrue(validator.validate(stream("{\"data\":[1,2,3],\"meta\":{\"n\":3}}")));
+        assertNull(validator.getSchema());
+    }
+
+    @Test
+    public void testSyntaxErrors() throws IOException {
+        String[] invalid = {"", "[1,2", "{\"a\":1,}", "{\"a\" 1}", "[1] [2]", "{'a':1}", "[tru]"};
+        for (String content : invalid) {
+            JsonValidator validator = new JsonValidator(true);
+            assertFalse(content, validator.validate(stream(content)));
+            assertNotNull(validator.getError());
+        }
+    }
+
+    @Test
+    public void testLargeDocumentIsStreamed() throws IOException {
+        // about 35 MB of records produced on the fly, never held in memory as a whole
+        int recordNum = 1000000;
+        Enumeration<InputStream> parts = new Enumeration<InputStream>() {
+            private int next = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next <= recordNum;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                String part;
+                if (next < 0) {
+                    part = "[";
+                } else if (next == recordNum) {
+                    part = "]";
+                } else {
+                    part = (next > 0 ? "," : "") + "{\"id\":" + next + ",\"value\":\"row " + next + "\"}";
+                }
+                next++;
+                return stream(part);
+            }
+        };
+        JsonValidator validator = new JsonValidator(true);
+
+        assertTrue(validator.getError(), validator.validate(new SequenceInputStream(parts)));
+        assertEquals(recordNum, validator.getRecordNum());
+        assertEquals("integer", validator.getSchema().get(0).getType());
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
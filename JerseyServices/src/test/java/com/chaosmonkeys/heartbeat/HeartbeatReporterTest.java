@@ -0,0 +1,158 @@
+package com.chaosmonkeys.heartbeat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing adaptive intervals and delta payloads of the heartbeat reporter
+ */
+public class HeartbeatReporterTest {
+
+    private static final long MIN = 1000L;
+    private static final long MAX = 8000L;
+
+    private long now;
+    private String state;
+    private Integer resources;
+    private HeartbeatReporter.Result nextResult;
+    private final List<Object> sent = new ArrayList<>();
+    private HeartbeatReporter reporter;
+
+    @Before
+    public void setUp() {
+        now = 0;
+        state = "IDLE";
+        resources = null;
+        nextResult = HeartbeatReporter.Result.OK;
+        sent.clear();
+        HeartbeatSource source = new HeartbeatSource() {
+            @Override
+            public Object getState() {
+                return state;
+            }
+
+            @Override
+            public Object getRegistration(Object currentState) {
+                return "register:" + currentState;
+            }
+
+            @Override
+            public Object getResources() {
+                return resources;
+            }
+        };
+        HeartbeatReporter.Transport transport = payload -> {
+            sent.add(payload);
+            return nextResult;
+        };
+        reporter = new HeartbeatReporter("http://127.0.0.1:8082", source, transport, () -> now, MIN, MAX, 0);
+    }
+
+    @Test
+    public void testRegisterThenKeepAliveWithGrowingInterval() {
+        assertTrue(reporter.tick());
+        assertEquals("register:IDLE", sent.get(0));
+        assertTrue(reporter.isRegistered());
+
+        now = MIN - 1;
+        assertFalse(reporter.tick());
+
+        now = MIN;
+        assertTrue(reporter.tick());
+        HeartbeatDelta keepAlive = (HeartbeatDelta) sent.get(1);
+        assertNull(keepAlive.getStatus());
+        assertEquals(2 * MIN, reporter.getInterval());
+
+        for (int i = 0; i < 5; i++) {
+            now += reporter.getInterval();
+            reporter.tick();
+        }
+        assertEquals(MAX, reporter.getInterval());
+    }
+
+    @Test
+    public void testChangeIsSentRightAway() {
+        reporter.tick();
+        now = MIN;
+        reporter.tick();
+        now = MIN + 10;
+        state = "RUNNING";
+
+        assertTrue(reporter.tick());
+        HeartbeatDelta delta = (HeartbeatDelta) sent.get(2);
+        assertEquals("RUNNING", delta.getStatus());
+        assertTrue(delta.isDelta());
+        assertEquals(MIN, reporter.getInterval());
+    }
+
+    @Test
+    public void testResourcesGoWithTheNextKeepAlive() {
+        reporter.tick();
+        now = 10;
+        resources = 4;
+        assertFalse(reporter.tick());
+
+        now = MIN;
+        assertTrue(reporter.tick());
+        HeartbeatDelta delta = (HeartbeatDelta) sent.get(1);
+        assertNull(delta.getStatus());
+        assertEquals(4, delta.getResources());
+        // resource changes do not reset the keep-alive interval
+        assertEquals(2 * MIN, reporter.getInterval());
+
+        now = MIN + 10;
+        resources = 5;
+        assertFalse(reporter.tick());
+    }
+
+    @Test
+    public void testUnknownNodeRegistersAgain() {
+        reporter.tick();
+        now = MIN;
+        nextResult = HeartbeatReporter.Result.UNKNOWN;
+        reporter.tick();
+        assertFalse(reporter.isRegistered());
+
+        nextResult = HeartbeatReporter.Result.OK;
+        assertTrue(reporter.tick());
+        assertEquals("register:IDLE", sent.get(2));
+    }
+
+    @Test
+    public void testFailuresBackOffAndRegisterAgain() {
+        reporter.tick();
+        nextResult = HeartbeatReporter.Result.FAILED;
+        now = MIN;
+        reporter.tick();
+        now += MIN;
+        reporter.tick();
+        assertEquals(2 * MIN, reporter.getInterval());
+
+        // a change does not bypass the back-off
+        state = "RUNNING";
+        now += 1;
+        assertFalse(reporter.tick());
+
+        nextResult = HeartbeatReporter.Result.OK;
+        now += 2 * MIN;
+        assertTrue(reporter.tick());
+        assertEquals("register:RUNNING", sent.get(sent.size() - 1));
+        assertTrue(reporter.isRegistered());
+    }
+
+    @Test
+    public void testParseAnswer() {
+        assertEquals(HeartbeatReporter.Result.OK, HeartbeatReporter.parseResult("{\"response\":\"success\"}"));
+        assertEquals(HeartbeatReporter.Result.UNKNOWN, HeartbeatReporter.parseResult("{\"response\":\"unknown\"}"));
+        assertEquals(HeartbeatReporter.Result.FAILED, HeartbeatReporter.parseResult("{\"response\":{\"code\":\"ER_PARSE\"}}"));
+        assertEquals(HeartbeatReporter.Result.FAILED, HeartbeatReporter.parseResult("<html>"));
+    }
+}
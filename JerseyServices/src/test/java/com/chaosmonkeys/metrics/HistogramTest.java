@@ -0,0 +1,61 @@
+package com.chaosmonkeys.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing bucket layout and quantiles of the log-linear histogram
+ */
+public class HistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        int previous = -1;
+        for (long value = 0; value < 100000; value++) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            long lower = Histogram.bucketLowerBound(index);
+            assertTrue(value >= lower && value < lower + Histogram.bucketWidth(index));
+            previous = index;
+        }
+        int last = Histogram.bucketIndex(Histogram.MAX_VALUE);
+        assertEquals(Histogram.MAX_VALUE, Histogram.bucketLowerBound(last) + Histogram.bucketWidth(last) - 1);
+    }
+
+    @Test
+    public void testRelativeErrorIsBounded() {
+        for (long value = 1; value < Histogram.MAX_VALUE / 3; value = value * 3 + 1) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(Histogram.bucketWidth(index) <= Math.max(1, value / Histogram.SUB_BUCKETS));
+        }
+    }
+
+    @Test
+    public void testQuantiles() {
+        Histogram histogram = new Histogram(1e-6);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500500000L, snapshot.getSum());
+        assertEquals(1000000L, snapshot.getMax());
+        assertEquals(500000, snapshot.getValueAt(0.5), 500000 / 16.0);
+        assertEquals(990000, snapshot.getValueAt(0.99), 990000 / 16.0);
+        assertEquals(1000000, snapshot.getValueAt(1.0), 0);
+    }
+
+    @Test
+    public void testOutOfRangeValues() {
+        Histogram histogram = new Histogram(1);
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAt(0.5), 0);
+        assertEquals(Histogram.MAX_VALUE, snapshot.getMax());
+        assertEquals(0, new Histogram(1).snapshot().getValueAt(0.99), 0);
+    }
+}
@@ -0,0 +1,89 @@
+package com.chaosmonkeys.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Testing metric registration and the Prometheus text format
+ */
+public class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = MetricsRegistry.INSTANCE;
+
+    @After
+    public void tearDown() {
+        registry.clear();
+    }
+
+    @Test
+    public void testSameNameAndLabelsGiveSameMetric() {
+        Counter counter = registry.counter("requests_total", "Requests", "resource", "a");
+        assertSame(counter, registry.counter("requests_total", "Requests", "resource", "a"));
+        assertTrue(counter != registry.counter("requests_total", "Requests", "resource", "b"));
+        try {
+            registry.gauge("requests_total", "Requests", () -> 1);
+            fail("a counter cannot be registered again as a gauge");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTextFormat() throws IOException {
+        registry.counter("uploads_total", "Uploads").add(3);
+        AtomicInteger depth = new AtomicInteger(7);
+        registry.gauge("queue_depth", "Queued \"items\"\nper queue", depth::get, "queue", "log\"s");
+        Histogram histogram = registry.histogram("latency_seconds", "Latency", 1e-6, "resource", "Upload.file");
+        histogram.record(2000);
+        histogram.record(2000);
+
+        String text = export();
+        assertTrue(text.contains("# TYPE uploads_total counter\nuploads_total 3\n"));
+        assertTrue(text.contains("# HELP queue_depth Queued \"items\"\\nper queue\n"));
+        assertTrue(text.contains("queue_depth{queue=\"log\\\"s\"} 7\n"));
+        assertTrue(text.contains("# TYPE latency_seconds summary\n"));
+        assertTrue(text.contains("latency_seconds{resource=\"Upload.file\",quantile=\"0.99\"} 0.00"));
+        assertTrue(text.contains("latency_seconds_sum{resource=\"Upload.file\"} 0.004\n"));
+        assertTrue(text.contains("latency_seconds_count{resource=\"Upload.file\"} 2\n"));
+
+        depth.set(9);
+        assertTrue(export().contains("queue_depth{queue=\"log\\\"s\"} 9\n"));
+    }
+
+    @Test
+    public void testResourceStreamsMetrics() throws IOException {
+        registry.counter("uploads_total", "Uploads").inc();
+        Response response = new MetricsResource().getMetrics();
+        assertEquals(200, response.getStatus());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(out);
+        assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8).contains("uploads_total 1\n"));
+    }
+
+    @Test
+    public void testFormatValue() {
+        assertEquals("12", MetricsRegistry.formatValue(12.0));
+        assertEquals("0.25", MetricsRegistry.formatValue(0.25));
+        assertEquals("+Inf", MetricsRegistry.formatValue(Double.POSITIVE_INFINITY));
+        assertEquals("NaN", MetricsRegistry.formatValue(Double.NaN));
+    }
+
+    private String export() throws IOException {
+        StringWriter writer = new StringWriter();
+        registry.writeTo(writer);
+        return writer.toString();
+    }
+}
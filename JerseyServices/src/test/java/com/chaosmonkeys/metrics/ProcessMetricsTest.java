@@ -0,0 +1,43 @@
+package com.chaosmonkeys.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing the process metrics read by the load test harness
+ */
+public class ProcessMetricsTest {
+
+    @After
+    public void tearDown() {
+        MetricsRegistry.INSTANCE.clear();
+    }
+
+    @Test
+    public void testParseResidentMemory() {
+        assertEquals(123456, ProcessMetrics.parseResidentKB(Arrays.asList("Name:\tjava", "VmPeak:\t 999999 kB", "VmRSS:\t  123456 kB")));
+        assertEquals(-1, ProcessMetrics.parseResidentKB(Collections.singletonList("Name:\tjava")));
+        assertEquals(-1, ProcessMetrics.parseResidentKB(Collections.singletonList("VmRSS:\tmany kB")));
+    }
+
+    @Test
+    public void testRegisteredMetricsAreExported() throws IOException {
+        ProcessMetrics.register();
+        // registering again replaces the gauges
+        ProcessMetrics.register();
+        StringWriter out = new StringWriter();
+        MetricsRegistry.INSTANCE.writeTo(out);
+        String text = out.toString();
+        assertTrue(text.contains("jvm_memory_used_bytes{area=\"heap\"} "));
+        assertTrue(text.contains("jvm_threads_current "));
+        assertEquals(1, text.split("# TYPE jvm_threads_current gauge").length - 1);
+    }
+}
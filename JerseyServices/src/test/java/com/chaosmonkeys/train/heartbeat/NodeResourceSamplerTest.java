@@ -0,0 +1,58 @@
+package com.chaosmonkeys.train.heartbeat;
+
+import com.chaosmonkeys.train.dto.NodeResources;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing the parsing and rounding of node resources
+ */
+public class NodeResourceSamplerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParseLoadAverage() {
+        assertEquals(0.52, NodeResourceSampler.parseLoadAverage("0.52 0.58 0.59 1/467 12345\n"), 1e-9);
+        assertEquals(3.0, NodeResourceSampler.parseLoadAverage("3.00"), 1e-9);
+    }
+
+    @Test
+    public void testParseMemAvailable() {
+        assertEquals(6012345L, NodeResourceSampler.parseMemAvailableKB(Arrays.asList(
+                "MemTotal:       16303740 kB",
+                "MemFree:          812340 kB",
+                "MemAvailable:    6012345 kB",
+                "Buffers:          301234 kB")));
+        // kernels without MemAvailable
+        assertEquals(1000L + 200L + 300L, NodeResourceSampler.parseMemAvailableKB(Arrays.asList(
+                "MemTotal:     4000 kB",
+                "MemFree:      1000 kB",
+                "Buffers:       200 kB",
+                "Cached:        300 kB",
+                "SwapCached:     50 kB")));
+        assertEquals(-1L, NodeResourceSampler.parseMemAvailableKB(Arrays.asList("garbage", "MemTotal: 4000 kB")));
+    }
+
+    @Test
+    public void testRounding() {
+        assertEquals(1.5, NodeResourceSampler.roundToStep(1.41, 0.25), 1e-9);
+        assertEquals(1.25, NodeResourceSampler.roundToStep(1.30, 0.25), 1e-9);
+        assertEquals(3968L, NodeResourceSampler.roundDownToStep(4000L, 128L));
+        assertEquals(0L, NodeResourceSampler.roundDownToStep(1023L, 1024L));
+    }
+
+    @Test
+    public void testReadSystem() {
+        NodeResources resources = NodeResourceSampler.readSystem(folder.getRoot());
+        assertEquals(Runtime.getRuntime().availableProcessors(), resources.getAvailableCores());
+        assertTrue(resources.getFreeDiskMB() >= 0);
+        assertEquals(0L, resources.getFreeDiskMB() % 1024L);
+    }
+}
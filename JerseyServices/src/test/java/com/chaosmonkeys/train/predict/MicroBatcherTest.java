@@ -0,0 +1,178 @@
+package com.chaosmonkeys.train.predict;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Testing batching of prediction requests with a shell script standing in for the R model server
+ */
+public class MicroBatcherTest {
+
+    // predicts every row as its own CSV line and fails requests containing a "bad" row,
+    // the request sizes are printed first like model output would be
+    private static final String FAKE_SERVER = "echo loading; echo '" + ModelServer.READY_MARKER + "'\n"
+            + "while IFS= read -r line; do\n"
+            + "  counts=\"${line#PREDICT }\"; read -r header; echo \"batch of $counts\"; out=''\n"
+            + "  for n in $counts; do\n"
+            + "    answer=\"" + ModelServer.RESULT_MARKER_PREFIX + "OK $n>>>\"\n"
+            + "    i=0; while [ $i -lt $n ]; do read -r row; answer=\"$answer\n$header=$row\"\n"
+            + "      if [ \"$row\" = bad ]; then answer=\"" + ModelServer.RESULT_MARKER_PREFIX + "ERROR>>>\nmalformed row\"; fi\n"
+            + "      i=$((i+1)); done\n"
+            + "    out=\"$out$answer\n\"\n"
+            + "  done\n"
+            + "  printf '%s' \"$out\"\n"
+            + "done\n";
+
+    @Test
+    public void testConcurrentRequestsGetTheirOwnPredictions() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        MicroBatcher batcher = new MicroBatcher("test", Arrays.asList("/bin/sh", "-c", FAKE_SERVER), 20, 1000, 10000, 10000, () -> { });
+        try {
+            List<CompletableFuture<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                List<String> columns = i % 2 == 0 ? Arrays.asList("a", "b") : Collections.singletonList("c");
+                List<List<String>> rows = new ArrayList<>();
+                rows.add(i % 2 == 0 ? Arrays.asList(String.valueOf(i), "x,y") : Collections.singletonList(String.valueOf(i)));
+                rows.add(i % 2 == 0 ? Arrays.asList(String.valueOf(i), null) : Collections.singletonList(String.valueOf(i)));
+                results.add(batcher.submit(columns, rows));
+            }
+            for (int i = 0; i < 10; i++) {
+                List<String> predictions = results.get(i).get(10, TimeUnit.SECONDS);
+                if (i % 2 == 0) {
+                    assertEquals(Arrays.asList("a,b=" + i + ",\"x,y\"", "a,b=" + i + ",NA"), predictions);
+                } else {
+                    assertEquals(Arrays.asList("c=" + i, "c=" + i), predictions);
+                }
+            }
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testMalformedRequestFailsAlone() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        // a long delay so the requests end up in one batch
+        MicroBatcher batcher = new MicroBatcher("test", Arrays.asList("/bin/sh", "-c", FAKE_SERVER), 500, 1000, 10000, 10000, () -> { });
+        try {
+            List<String> columns = Collections.singletonList("a");
+            CompletableFuture<List<String>> first = batcher.submit(columns, Collections.singletonList(Collections.singletonList("1")));
+            CompletableFuture<List<String>> malformed = batcher.submit(columns, Arrays.asList(Collections.singletonList("2"), Collections.singletonList("bad")));
+            CompletableFuture<List<String>> last = batcher.submit(columns, Collections.singletonList(Collections.singletonList("3")));
+
+            assertEquals(Collections.singletonList("a=1"), first.get(10, TimeUnit.SECONDS));
+            assertEquals(Collections.singletonList("a=3"), last.get(10, TimeUnit.SECONDS));
+            try {
+                malformed.get(10, TimeUnit.SECONDS);
+                assertTrue("prediction should fail", false);
+            } catch (ExecutionException e) {
+                assertEquals("malformed row", e.getCause().getMessage());
+            }
+            assertTrue(!batcher.isFailed());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testModelLoadFailureFailsRequests() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        MicroBatcher batcher = new MicroBatcher("broken", Arrays.asList("/bin/sh", "-c", "echo 'Error: no Serve.R'; exit 1"), 0, 1000, 10000, 10000, () -> { });
+        try {
+            batcher.submit(Collections.singletonList("a"), Collections.singletonList(Collections.singletonList("1"))).get(10, TimeUnit.SECONDS);
+            assertTrue("prediction should fail", false);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("no Serve.R"));
+            assertTrue(batcher.isFailed());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testModelNotLoadedInTimeFailsRequests() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        // exec keeps a single process, so killing it closes the output at once
+        CountDownLatch failed = new CountDownLatch(1);
+        MicroBatcher batcher = new MicroBatcher("loading", Arrays.asList("/bin/sh", "-c", "exec sleep 30"), 0, 1000, 300, 10000, failed::countDown);
+        try {
+            batcher.submit(Collections.singletonList("a"), Collections.singletonList(Collections.singletonList("1"))).get(10, TimeUnit.SECONDS);
+            assertTrue("prediction should fail", false);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("not loaded within"));
+            assertTrue(failed.await(10, TimeUnit.SECONDS));
+            assertTrue(batcher.isFailed());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testCloseStopsServerStillLoading() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        CountDownLatch failed = new CountDownLatch(1);
+        MicroBatcher batcher = new MicroBatcher("loading", Arrays.asList("/bin/sh", "-c", "exec sleep 30"), 0, 1000, 60000, 10000, failed::countDown);
+        CompletableFuture<List<String>> result = batcher.submit(Collections.singletonList("a"), Collections.singletonList(Collections.singletonList("1")));
+        Thread.sleep(300);
+
+        long start = System.nanoTime();
+        batcher.close();
+        try {
+            result.get(10, TimeUnit.SECONDS);
+            assertTrue("prediction should fail", false);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("stopped"));
+        }
+        // the dispatcher finishes since the loading server has been stopped, without reporting a failure
+        Thread dispatcher = findThread("model-batcher-loading");
+        if (null != dispatcher) {
+            dispatcher.join(5000);
+            assertTrue("dispatcher still waits for the model", !dispatcher.isAlive());
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, failed.getCount());
+    }
+
+    @Test
+    public void testUnansweredBatchKillsServer() throws Exception {
+        assumeTrue(new File("/bin/sh").exists());
+        // loads the model, then reads requests without ever answering
+        String hangingServer = "echo '" + ModelServer.READY_MARKER + "'; while IFS= read -r line; do :; done";
+        CountDownLatch failed = new CountDownLatch(1);
+        MicroBatcher batcher = new MicroBatcher("hanging", Arrays.asList("/bin/sh", "-c", hangingServer), 0, 1000, 10000, 300, failed::countDown);
+        try {
+            batcher.submit(Collections.singletonList("a"), Collections.singletonList(Collections.singletonList("1"))).get(10, TimeUnit.SECONDS);
+            assertTrue("prediction should fail", false);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("did not answer"));
+            assertTrue(failed.await(10, TimeUnit.SECONDS));
+            assertTrue(batcher.isFailed());
+            // later requests fail at once instead of queueing behind the killed server
+            assertTrue(batcher.submit(Collections.singletonList("a"), Collections.singletonList(Collections.singletonList("2"))).isCompletedExceptionally());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    private static Thread findThread(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName())) {
+                return thread;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.TtlCache;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Testing the read-through cache of experiment descriptors
+ */
+public class ExperimentResolverTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger queries = new AtomicInteger();
+    private final List<ExperimentDescriptor> stored = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        TtlCache<String, ExperimentDescriptor> cache = new TtlCache<>(5000, 100, now::get);
+        ExperimentResolver.INSTANCE.configure(name -> {
+            queries.incrementAndGet();
+            List<ExperimentDescriptor> matches = new ArrayList<>();
+            for (ExperimentDescriptor descriptor : stored) {
+                if (descriptor.getExperimentName().equals(name)) {
+                    matches.add(descriptor);
+                }
+            }
+            return matches;
+        }, cache);
+    }
+
+    @Test
+    public void testRepeatedLookupsQueryOnce() {
+        stored.add(descriptor("exp1", "RUNNING"));
+        assertEquals(1, ExperimentResolver.INSTANCE.resolve("exp1").size());
+        assertEquals(1, ExperimentResolver.INSTANCE.resolve("exp1").size());
+        assertEquals(1, queries.get());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+        ExperimentResolver.INSTANCE.resolve("exp1");
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void testInvalidateReadsNewStatus() {
+        stored.add(descriptor("exp2", "RUNNING"));
+        ExperimentResolver.INSTANCE.resolve("exp2");
+        stored.set(0, descriptor("exp2", "SUCCESS"));
+        assertEquals("RUNNING", ExperimentResolver.INSTANCE.resolve("exp2").get(0).getLastStatus());
+
+        ExperimentResolver.INSTANCE.invalidate("exp2");
+        assertEquals("SUCCESS", ExperimentResolver.INSTANCE.resolve("exp2").get(0).getLastStatus());
+    }
+
+    @Test
+    public void testMissingAndDuplicatedAreNotCached() {
+        assertEquals(Collections.emptyList(), ExperimentResolver.INSTANCE.resolve("exp3"));
+        stored.addAll(Arrays.asList(descriptor("exp3", "RUNNING"), descriptor("exp3", "RUNNING")));
+        assertEquals(2, ExperimentResolver.INSTANCE.resolve("exp3").size());
+        assertEquals(2, ExperimentResolver.INSTANCE.resolve("exp3").size());
+        assertEquals(3, queries.get());
+    }
+
+    private static ExperimentDescriptor descriptor(String name, String status) {
+        return new ExperimentDescriptor(name, status, "Training", "/algr", "R", "/data.csv", null);
+    }
+}
@@ -0,0 +1,73 @@
+package com.chaosmonkeys.train.task;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Testing that experiment status transitions are merged and written in batches
+ */
+public class ExperimentStatusWriterTest {
+
+    private final BlockingQueue<List<ExperimentStatusUpdate>> batches = new LinkedBlockingQueue<>();
+
+    @After
+    public void tearDown() {
+        ExperimentStatusWriter.INSTANCE.close();
+    }
+
+    @Test
+    public void testFinalStateFlushesMergedTransitions() throws InterruptedException {
+        // an interval far longer than the test, only the final state can trigger the write
+        ExperimentStatusWriter.INSTANCE.start(updates -> batches.add(new ArrayList<>(updates)), 60000);
+        ExperimentStatusWriter.INSTANCE.update("exp-a", TaskState.INITIALIZING, null);
+        ExperimentStatusWriter.INSTANCE.update("exp-b", TaskState.INITIALIZING, null);
+        ExperimentStatusWriter.INSTANCE.update("exp-a", TaskState.INITIALIZED, null);
+        ExperimentStatusWriter.INSTANCE.update("exp-a", TaskState.STARTED, null);
+        ExperimentStatusWriter.INSTANCE.update("exp-a", TaskState.ERROR, "Rscript failed");
+
+        List<ExperimentStatusUpdate> batch = batches.poll(10, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(2, batch.size());
+        ExperimentStatusUpdate expA = batch.get(0);
+        assertEquals("exp-a", expA.experimentName);
+        assertEquals(TaskState.ERROR, expA.state);
+        assertNotNull(expA.start);
+        assertNotNull(expA.end);
+        assertEquals("Rscript failed", expA.errorMessage);
+        ExperimentStatusUpdate expB = batch.get(1);
+        assertEquals(TaskState.INITIALIZING, expB.state);
+        assertNull(expB.end);
+        assertEquals(0, ExperimentStatusWriter.INSTANCE.getPendingNum());
+    }
+
+    @Test
+    public void testFailedWriteIsRetriedUnderNewerTransitions() throws InterruptedException {
+        final boolean[] failNext = {true};
+        ExperimentStatusWriter.INSTANCE.start(updates -> {
+            if (failNext[0]) {
+                failNext[0] = false;
+                throw new IllegalStateException("database is down");
+            }
+            batches.add(new ArrayList<>(updates));
+        }, 50);
+        ExperimentStatusWriter.INSTANCE.update("exp-c", TaskState.INITIALIZING, null);
+        Thread.sleep(20);
+        ExperimentStatusWriter.INSTANCE.update("exp-c", TaskState.SUCCESS, null);
+
+        List<ExperimentStatusUpdate> batch = batches.poll(10, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(1, batch.size());
+        assertEquals(TaskState.SUCCESS, batch.get(0).state);
+        assertNotNull(batch.get(0).start);
+    }
+}
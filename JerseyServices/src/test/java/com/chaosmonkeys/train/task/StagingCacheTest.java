@@ -0,0 +1,93 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.CopyMonitor;
+import com.chaosmonkeys.Utilities.StagingMode;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.chaosmonkeys.utils.testtools.TestUtils.readFile;
+import static com.chaosmonkeys.utils.testtools.TestUtils.writeFile;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Testing staging resources through the node-local cache
+ */
+public class StagingCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final StagingCache cache = StagingCache.INSTANCE;
+
+    @Before
+    public void setUp() throws IOException {
+        cache.init(folder.newFolder("cache"), 1);
+    }
+
+    @Test
+    public void testRepeatedStagingHitsCache() throws IOException {
+        File algorithm = folder.newFolder("algorithm");
+        File main = writeFile(new File(algorithm, "Main.R"), "print(1)");
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        long saved = cache.getBytesSaved();
+
+        cache.stageDirectory(algorithm, folder.newFolder("ws1"), StagingMode.LINK, new CopyMonitor());
+        cache.stageDirectory(algorithm, folder.newFolder("ws2"), StagingMode.LINK, new CopyMonitor());
+
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(saved + main.length(), cache.getBytesSaved());
+        assertEquals("print(1)", readFile(new File(folder.getRoot(), "ws2" + File.separator + "Main.R")));
+    }
+
+    @Test
+    public void testCopyStagingBypassesCache() throws IOException {
+        File algorithm = folder.newFolder("algorithm");
+        writeFile(new File(algorithm, "Main.R"), "print(2)");
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        long saved = cache.getBytesSaved();
+
+        cache.stageDirectory(algorithm, folder.newFolder("ws1"), StagingMode.COPY, new CopyMonitor());
+        cache.stageDirectory(algorithm, folder.newFolder("ws2"), StagingMode.COPY, new CopyMonitor());
+
+        assertEquals(misses, cache.getMissCount());
+        assertEquals(hits, cache.getHitCount());
+        assertEquals(saved, cache.getBytesSaved());
+        assertEquals("print(2)", readFile(new File(folder.getRoot(), "ws2" + File.separator + "Main.R")));
+    }
+
+    @Test
+    public void testDatasetIsCopiedEvenWhenLinking() throws IOException {
+        File dataset = writeFile(new File(folder.getRoot(), "data.csv"), "a,b\n1,2\n");
+        long misses = cache.getMissCount();
+
+        cache.stageFileToDirectory(dataset, folder.newFolder("ws1"), StagingMode.LINK, new CopyMonitor());
+        File staged = new File(folder.getRoot(), "ws1" + File.separator + "data.csv");
+        // the experiment may rewrite its input, neither the store nor the cache sees it
+        writeFile(staged, "changed");
+
+        assertEquals(misses, cache.getMissCount());
+        assertEquals("a,b\n1,2\n", readFile(dataset));
+    }
+
+    @Test
+    public void testChangedResourceIsCachedAgain() throws IOException {
+        File algorithm = folder.newFolder("algorithm");
+        File main = writeFile(new File(algorithm, "Main.R"), "print(1)");
+        cache.stageDirectory(algorithm, folder.newFolder("ws1"), StagingMode.LINK, new CopyMonitor());
+        long misses = cache.getMissCount();
+
+        writeFile(main, "print(12)");
+        main.setLastModified(main.lastModified() + 2000);
+        cache.stageDirectory(algorithm, folder.newFolder("ws2"), StagingMode.LINK, new CopyMonitor());
+
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals("print(12)", readFile(new File(folder.getRoot(), "ws2" + File.separator + "Main.R")));
+    }
+}
@@ -0,0 +1,45 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.train.Constants;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Testing the median of recent task durations
+ */
+public class TaskDurationStatsTest {
+
+    @After
+    public void tearDown() {
+        TaskDurationStats.INSTANCE.clear();
+    }
+
+    @Test
+    public void testMedian() {
+        TaskDurationStats stats = TaskDurationStats.INSTANCE;
+        assertEquals(-1L, stats.getMedianMillis());
+        stats.record(300);
+        stats.record(100);
+        stats.record(200);
+        assertEquals(200L, stats.getMedianMillis());
+        stats.record(1000);
+        assertEquals(250L, stats.getMedianMillis());
+        // tasks that have never been admitted
+        stats.record(-1);
+        assertEquals(250L, stats.getMedianMillis());
+    }
+
+    @Test
+    public void testOnlyRecentTasksCount() {
+        TaskDurationStats stats = TaskDurationStats.INSTANCE;
+        for (int i = 0; i < Constants.TASK_DURATION_WINDOW; i++) {
+            stats.record(100000);
+        }
+        for (int i = 0; i < Constants.TASK_DURATION_WINDOW / 2 + 1; i++) {
+            stats.record(10);
+        }
+        assertEquals(10L, stats.getMedianMillis());
+    }
+}
@@ -0,0 +1,60 @@
+package com.chaosmonkeys.train.task;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing replay and compaction of the task journal
+ */
+public class TaskJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplayReturnsUnfinishedTasks() throws IOException {
+        File journalFile = new File(folder.getRoot(), "journal" + File.separator + "Train-R.journal");
+        assertTrue(TaskJournal.INSTANCE.open(journalFile).isEmpty());
+
+        TrainingTaskInfo pending = newTaskInfo("pending");
+        TrainingTaskInfo running = newTaskInfo("running");
+        TrainingTaskInfo finished = newTaskInfo("finished");
+        TaskJournal.INSTANCE.recordSubmit(pending);
+        TaskJournal.INSTANCE.recordSubmit(running);
+        TaskJournal.INSTANCE.recordSubmit(finished);
+        TaskJournal.INSTANCE.recordState(running.getTaskId(), TaskState.INITIALIZING);
+        TaskJournal.INSTANCE.recordState(running.getTaskId(), TaskState.STARTED);
+        TaskJournal.INSTANCE.recordState(finished.getTaskId(), TaskState.SUCCESS);
+        TaskJournal.INSTANCE.close();
+
+        List<TaskJournalRecord> unfinished = TaskJournal.INSTANCE.open(journalFile);
+        TaskJournal.INSTANCE.close();
+
+        assertEquals(2, unfinished.size());
+        assertEquals(pending.getTaskId(), unfinished.get(0).taskId);
+        assertEquals("IDLE", unfinished.get(0).state);
+        assertEquals(TaskType.TRAIN.name(), unfinished.get(0).taskType);
+        assertEquals("pending", unfinished.get(0).experimentName);
+        assertEquals(running.getTaskId(), unfinished.get(1).taskId);
+        assertEquals("STARTED", unfinished.get(1).state);
+        // the journal has been compacted to the unfinished tasks
+        assertEquals(2, Files.readAllLines(journalFile.toPath()).size());
+    }
+
+    private TrainingTaskInfo newTaskInfo(String experimentName) throws IOException {
+        ResourceInfo resInfo = new ResourceInfo.ResourceInfoBuilder()
+                .setDatasetFolder(new File(folder.getRoot(), "data.csv"))
+                .setAlgorithmFolder(new File(folder.getRoot(), "algorithm"))
+                .setWorkspaceFolder(folder.newFolder("workspace-" + experimentName))
+                .build();
+        return new TrainingTaskInfo(experimentName, "R", resInfo);
+    }
+}
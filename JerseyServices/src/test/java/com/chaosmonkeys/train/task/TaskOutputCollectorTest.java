@@ -0,0 +1,64 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.train.Constants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing streaming capture of experiment output
+ */
+public class TaskOutputCollectorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testKeepsOnlyTailAndSpillsEverything() throws IOException {
+        File logFile = new File(folder.getRoot(), "task.log");
+        TaskOutputCollector collector = new TaskOutputCollector(logFile, 2, null);
+        byte[] output = "first\r\nsecond\nthird\nfourth".getBytes(StandardCharsets.UTF_8);
+        collector.write(output);
+        collector.close();
+
+        assertEquals("third\nfourth", collector.getTail());
+        assertFalse(collector.isErrorDetected());
+        assertEquals(output.length, collector.getTotalBytes());
+        assertEquals(output.length, logFile.length());
+    }
+
+    @Test
+    public void testDetectsFirstErrorLineOnce() throws IOException {
+        AtomicInteger notified = new AtomicInteger();
+        TaskOutputCollector collector = new TaskOutputCollector(new File(folder.getRoot(), "task.log"), 10,
+                errorLine -> notified.incrementAndGet());
+        collector.write("loading\n> Error in model(x) : object 'x' not found\nExecution halted\nanother ERROR\n".getBytes(StandardCharsets.UTF_8));
+        collector.close();
+
+        assertTrue(collector.isErrorDetected());
+        assertEquals(1, notified.get());
+        assertTrue(collector.getErrorMsg().startsWith("Error in model(x)"));
+        assertTrue(collector.getErrorMsg().contains("Execution halted"));
+    }
+
+    @Test
+    public void testLongLinesAreBounded() throws IOException {
+        TaskOutputCollector collector = new TaskOutputCollector(new File(folder.getRoot(), "task.log"), 10, null);
+        byte[] longLine = new byte[Constants.MAX_OUTPUT_LINE_LENGTH * 4];
+        java.util.Arrays.fill(longLine, (byte) 'e');
+        collector.write(longLine);
+        collector.write("\nerror".getBytes(StandardCharsets.UTF_8));
+        collector.close();
+
+        assertTrue(collector.getTail().length() <= Constants.MAX_OUTPUT_LINE_LENGTH + "\nerror".length());
+        assertTrue(collector.getErrorMsg().length() <= Constants.ERR_MSG_LENGTH);
+    }
+}
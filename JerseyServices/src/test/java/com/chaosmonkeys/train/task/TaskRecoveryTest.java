@@ -0,0 +1,120 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.Utilities.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.chaosmonkeys.utils.testtools.TestUtils.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing that pending tasks of the previous run are re-queued and admitted ones are marked as interrupted
+ */
+public class TaskRecoveryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BlockingQueue<ExperimentStatusUpdate> statusUpdates = new LinkedBlockingQueue<>();
+    private final List<BaseTaskInfo> submitted = new ArrayList<>();
+    private File journalFile;
+
+    @Before
+    public void setUp() throws IOException {
+        journalFile = new File(folder.getRoot(), "journal" + File.separator + "Train-R.journal");
+        TaskJournal.INSTANCE.open(journalFile);
+        ExperimentStatusWriter.INSTANCE.start(statusUpdates::addAll, 60000);
+    }
+
+    @After
+    public void tearDown() {
+        TaskJournal.INSTANCE.close();
+        ExperimentStatusWriter.INSTANCE.close();
+        for (BaseTaskInfo taskInfo : submitted) {
+            FileUtils.deleteQuietly(taskInfo.getResourceInfo().getWorkspaceFolder());
+        }
+    }
+
+    @Test
+    public void testPendingTaskIsRequeuedWithItsId() throws IOException {
+        TrainingTaskInfo pending = newTaskInfo("pending", true);
+        TaskJournal.INSTANCE.recordSubmit(pending);
+        TaskJournal.INSTANCE.close();
+
+        TaskRecovery.recover(journalFile, taskInfo -> submitted.add(taskInfo));
+
+        assertEquals(1, submitted.size());
+        BaseTaskInfo requeued = submitted.get(0);
+        assertTrue(requeued instanceof TrainingTaskInfo);
+        assertEquals(pending.getTaskId(), requeued.getTaskId());
+        assertEquals("pending", requeued.getExperimentName());
+        assertEquals(pending.getResourceInfo().getDatasetFile().getAbsolutePath(),
+                requeued.getResourceInfo().getDatasetFile().getAbsolutePath());
+        assertTrue(requeued.getResourceInfo().getWorkspaceFolder().isDirectory());
+        assertEquals(0, statusUpdates.size());
+    }
+
+    @Test
+    public void testAdmittedAndInvalidTasksAreInterrupted() throws Exception {
+        TrainingTaskInfo running = newTaskInfo("running", true);
+        TrainingTaskInfo missingDataset = newTaskInfo("missing", false);
+        TrainingTaskInfo rejected = newTaskInfo("rejected", true);
+        TaskJournal.INSTANCE.recordSubmit(running);
+        TaskJournal.INSTANCE.recordState(running.getTaskId(), TaskState.STARTED);
+        TaskJournal.INSTANCE.recordSubmit(missingDataset);
+        TaskJournal.INSTANCE.recordSubmit(rejected);
+        TaskJournal.INSTANCE.close();
+
+        // the scheduler refuses the re-queued task, e.g. it is shutting down
+        TaskRecovery.recover(journalFile, taskInfo -> {
+            submitted.add(taskInfo);
+            return false;
+        });
+
+        Map<String, ExperimentStatusUpdate> updates = new HashMap<>();
+        while (updates.size() < 3) {
+            ExperimentStatusUpdate update = statusUpdates.poll(10, TimeUnit.SECONDS);
+            assertNotNull(update);
+            updates.put(update.experimentName, update);
+        }
+        for (String experimentName : new String[]{"running", "missing", "rejected"}) {
+            assertEquals(TaskState.ERROR, updates.get(experimentName).state);
+            assertEquals(TaskRecovery.INTERRUPTED_ERROR_MSG, updates.get(experimentName).errorMessage);
+        }
+        // only the task with valid resources has been offered to the scheduler
+        assertEquals(1, submitted.size());
+        assertEquals(rejected.getTaskId(), submitted.get(0).getTaskId());
+        // interrupted tasks are finished in the journal and not recovered again
+        TaskJournal.INSTANCE.close();
+        assertTrue(TaskJournal.INSTANCE.open(journalFile).isEmpty());
+    }
+
+    private TrainingTaskInfo newTaskInfo(String experimentName, boolean withDataset) throws IOException {
+        File dataset = new File(folder.getRoot(), experimentName + ".csv");
+        if (withDataset) {
+            writeFile(dataset, "a,b\n1,2\n");
+        }
+        File algorithm = new File(folder.getRoot(), "algorithm");
+        algorithm.mkdirs();
+        ResourceInfo resInfo = new ResourceInfo.ResourceInfoBuilder()
+                .setDatasetFolder(dataset)
+                .setAlgorithmFolder(algorithm)
+                .setWorkspaceFolder(folder.newFolder("workspace-" + experimentName))
+                .build();
+        return new TrainingTaskInfo(experimentName, "R", resInfo);
+    }
+}
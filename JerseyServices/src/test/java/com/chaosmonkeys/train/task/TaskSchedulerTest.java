@@ -0,0 +1,107 @@
+package com.chaosmonkeys.train.task;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing bounded admission, removing pending tasks and shutting the scheduler down
+ */
+public class TaskSchedulerTest {
+
+    private final TaskScheduler scheduler = new TaskScheduler("test", 1);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Task blocking in initialize() until it is released or interrupted
+     */
+    private static class BlockingTask extends AbsTask {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger interrupted = new AtomicInteger();
+
+        @Override
+        protected void initialize() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+            }
+        }
+
+        @Override
+        protected void performTask() {
+        }
+
+        @Override
+        protected void cleanUp() {
+        }
+
+        @Override
+        protected void cancelWorks() {
+        }
+    }
+
+    @Test
+    public void testOnlyMaxConcurrencyTasksAreAdmitted() throws InterruptedException {
+        BlockingTask first = new BlockingTask();
+        BlockingTask second = new BlockingTask();
+        assertTrue(scheduler.submit("1", first));
+        assertTrue(scheduler.submit("2", second));
+        assertTrue(first.started.await(5, TimeUnit.SECONDS));
+
+        assertFalse(second.started.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, scheduler.getPendingTaskNum());
+
+        first.release.countDown();
+        assertTrue(second.started.await(5, TimeUnit.SECONDS));
+        second.release.countDown();
+    }
+
+    @Test
+    public void testRemovePendingTask() throws InterruptedException {
+        BlockingTask first = new BlockingTask();
+        BlockingTask second = new BlockingTask();
+        scheduler.submit("1", first);
+        scheduler.submit("2", second);
+        assertTrue(first.started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(scheduler.removePending("2"));
+        assertFalse(scheduler.removePending("2"));
+        // an admitted task is not pending any more
+        assertFalse(scheduler.removePending("1"));
+        assertEquals(0, scheduler.getPendingTaskNum());
+
+        first.release.countDown();
+        assertFalse(second.started.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testShutdownNowInterruptsRunningAndRejectsNewTasks() throws InterruptedException {
+        BlockingTask running = new BlockingTask();
+        BlockingTask pending = new BlockingTask();
+        scheduler.submit("1", running);
+        scheduler.submit("2", pending);
+        assertTrue(running.started.await(5, TimeUnit.SECONDS));
+
+        scheduler.shutdownNow(5, TimeUnit.SECONDS);
+
+        assertEquals(1, running.interrupted.get());
+        assertEquals(1, pending.started.getCount());
+        assertTrue(scheduler.isShutdown());
+        assertFalse(scheduler.submit("3", new BlockingTask()));
+        assertFalse(scheduler.removePending("3"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.chaosmonkeys.train.task;
+
+import com.chaosmonkeys.train.task.interfaces.OnTaskUpdateListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Testing how a training task waits for its Rscript process and kills it on cancel,
+ * with /bin/sh standing in for Rscript
+ */
+public class TrainingTaskProcessTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final String previousCommand = AbsTask.getRscriptCommand();
+    private final CountDownLatch success = new CountDownLatch(1);
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private final AtomicInteger errors = new AtomicInteger();
+    private TrainingTask task;
+
+    @Before
+    public void setUp() {
+        assumeTrue(new File("/bin/sh").exists());
+        AbsTask.setRscriptCommand("/bin/sh");
+    }
+
+    @After
+    public void tearDown() {
+        AbsTask.setRscriptCommand(previousCommand);
+        if (null != task) {
+            new File("TaskLogs", task.getTaskId() + ".log").delete();
+        }
+    }
+
+    @Test
+    public void testFinishedProcessSucceeds() throws Exception {
+        task = newTask("echo trained");
+        Thread performer = perform(task);
+
+        assertTrue(success.await(10, TimeUnit.SECONDS));
+        performer.join(5000);
+        assertEquals(0, errors.get());
+    }
+
+    @Test
+    public void testWaitingTaskIsIdleAndCancelKillsProcess() throws Exception {
+        // exec keeps a single process like Rscript, a child holding the output pipe would delay the wake-up
+        task = newTask("exec sleep 30");
+        Thread performer = perform(task);
+        Thread.sleep(300);
+
+        // blocked on the process result, not spinning
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadCpuTimeSupported());
+        long cpuBefore = threads.getThreadCpuTime(performer.getId());
+        Thread.sleep(500);
+        long cpuNanos = threads.getThreadCpuTime(performer.getId()) - cpuBefore;
+        assertTrue("waiting thread used " + cpuNanos + " ns of CPU", cpuNanos < TimeUnit.MILLISECONDS.toNanos(100));
+
+        long start = System.nanoTime();
+        task.cancelWorks();
+        performer.join(5000);
+        assertTrue("performer still waits after cancel", !performer.isAlive());
+        assertTrue("killing the process took too long", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        assertEquals(0, cancelled.getCount());
+        assertEquals(1, success.getCount());
+        assertEquals(0, errors.get());
+    }
+
+    private TrainingTask newTask(String script) throws IOException {
+        File workspace = folder.newFolder("workspace");
+        Files.write(new File(workspace, "Main.R").toPath(), script.getBytes(StandardCharsets.UTF_8));
+        ResourceInfo resources = new ResourceInfo(null, null, workspace);
+        TrainingTask training = new TrainingTask(new TrainingTaskInfo("test", "R", resources), new OnTaskUpdateListener() {
+            @Override
+            public void onInit(String taskId) {
+            }
+
+            @Override
+            public void onInitialized(String taskId) {
+            }
+
+            @Override
+            public void onStarted(String taskId) {
+            }
+
+            @Override
+            public void onCancelled(String taskId) {
+                cancelled.countDown();
+            }
+
+            @Override
+            public void onSuccess(String taskId) {
+                success.countDown();
+            }
+
+            @Override
+            public void onError(Throwable ex, String taskId, String errorMessage) {
+                errors.incrementAndGet();
+            }
+        });
+        training.setState(TaskState.INITIALIZED);
+        return training;
+    }
+
+    private static Thread perform(TrainingTask task) {
+        Thread performer = new Thread(task::performTask, "training-performer");
+        performer.start();
+        return performer;
+    }
+}
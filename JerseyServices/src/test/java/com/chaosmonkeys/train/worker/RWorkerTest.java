@@ -0,0 +1,57 @@
+package com.chaosmonkeys.train.worker;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Testing the warm worker protocol with a shell script standing in for R
+ */
+public class RWorkerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // prints Main.R of the workspace like an experiment would print its output
+    private static final String FAKE_WORKER = "echo; echo '" + RWorker.READY_MARKER + "'\n"
+            + "while IFS= read -r line; do\n"
+            + "  ws=\"${line#RUN }\"\n"
+            + "  if [ -f \"$ws/Main.R\" ]; then cat \"$ws/Main.R\"; echo; echo '" + RWorker.DONE_MARKER_PREFIX + "OK>>>'\n"
+            + "  else echo 'Error: cannot open Main.R'; echo; echo '" + RWorker.DONE_MARKER_PREFIX + "ERROR>>>'; fi\n"
+            + "done\n";
+
+    @Test
+    public void testRunsJobsOneAfterAnother() throws IOException {
+        assumeTrue(new File("/bin/sh").exists());
+        List<String> command = Arrays.asList("/bin/sh", "-c", FAKE_WORKER);
+        RWorker worker = RWorker.start(command);
+        try {
+            File workspace = folder.newFolder("ws");
+            Files.write(new File(workspace, "Main.R").toPath(), "prediction done".getBytes(StandardCharsets.UTF_8));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            assertEquals(RWorker.JobStatus.SUCCESS, worker.run(workspace, output));
+            String printed = new String(output.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(printed.contains("prediction done"));
+            assertFalse(printed.contains(RWorker.DONE_MARKER_PREFIX));
+
+            assertEquals(RWorker.JobStatus.FAILED, worker.run(folder.newFolder("empty"), new ByteArrayOutputStream()));
+            assertEquals(2, worker.getJobCount());
+            assertTrue(worker.isAlive());
+        } finally {
+            worker.destroy();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.chaosmonkeys.utils;
+
+import com.chaosmonkeys.Utilities.AsyncLogWriter;
+import com.chaosmonkeys.Utilities.LogOverflowPolicy;
+import com.chaosmonkeys.Utilities.LogType;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing batching and overflow of the asynchronous log writer
+ */
+public class AsyncLogWriterTest {
+
+    @Test
+    public void testQueuedMessagesAreWrittenTogether() throws InterruptedException {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        AsyncLogWriter writer = new AsyncLogWriter(100, LogOverflowPolicy.BLOCK, 50, items -> {
+            List<String> messages = new ArrayList<>();
+            items.forEach(item -> messages.add(item.message));
+            batches.add(messages);
+            firstWriteStarted.countDown();
+            releaseFirstWrite.await();
+        });
+        writer.append(item("first"));
+        assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+        // the writer is busy, these pile up and go out in one batch
+        for (int i = 0; i < 10; i++) {
+            assertTrue(writer.append(item("message " + i)));
+        }
+        releaseFirstWrite.countDown();
+        writer.close(10000);
+
+        assertEquals(2, batches.size());
+        assertEquals(Collections.singletonList("first"), batches.get(0));
+        assertEquals(10, batches.get(1).size());
+        assertEquals(0, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testFullQueueDropsNewestAndReportsIt() throws InterruptedException {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        AsyncLogWriter writer = new AsyncLogWriter(2, LogOverflowPolicy.DROP_NEWEST, 50, items -> {
+            items.forEach(item -> written.add(item.message));
+            firstWriteStarted.countDown();
+            releaseFirstWrite.await();
+        });
+        writer.append(item("first"));
+        assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+        assertTrue(writer.append(item("kept 1")));
+        assertTrue(writer.append(item("kept 2")));
+        assertFalse(writer.append(item("dropped")));
+        releaseFirstWrite.countDown();
+        writer.close(10000);
+
+        assertEquals(1, writer.getDroppedCount());
+        assertTrue(written.contains("kept 2"));
+        assertFalse(written.contains("dropped"));
+        assertTrue(written.get(written.size() - 1).startsWith("1 log message(s) dropped"));
+    }
+
+    private static AsyncLogWriter.LogItem item(String message) {
+        return new AsyncLogWriter.LogItem(new Timestamp(System.currentTimeMillis()), LogType.Information, message);
+    }
+}
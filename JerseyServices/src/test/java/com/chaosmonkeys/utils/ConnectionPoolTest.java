@@ -0,0 +1,131 @@
+package com.chaosmonkeys.utils;
+
+import com.chaosmonkeys.Utilities.db.ConnectionPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing reuse and bounding of pooled connections with an in-memory fake driver
+ */
+public class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:fakepool:test";
+
+    /**
+     * Driver handing out connections that only remember whether they are closed
+     */
+    private static class FakeDriver implements Driver {
+        final AtomicInteger opened = new AtomicInteger();
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            opened.incrementAndGet();
+            boolean[] closed = {false};
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                closed[0] = true;
+                                return null;
+                            case "isClosed":
+                                return closed[0];
+                            case "getAutoCommit":
+                            case "isValid":
+                                return true;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:fakepool:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    private final FakeDriver driver = new FakeDriver();
+
+    @Before
+    public void setUp() throws SQLException {
+        DriverManager.registerDriver(driver);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        DriverManager.deregisterDriver(driver);
+    }
+
+    @Test
+    public void testConnectionsAreReusedAndBounded() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, "user", "password", 2, 100);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        assertEquals(2, pool.getActiveNum());
+        try {
+            pool.getConnection();
+            assertTrue("pool should be exhausted", false);
+        } catch (SQLException e) {
+            assertEquals(1, pool.getTimeoutCount());
+            assertEquals(1, pool.getWaitCount());
+        }
+
+        first.close();
+        first.close();
+        assertTrue(first.isClosed());
+        assertEquals(1, pool.getActiveNum());
+        assertEquals(1, pool.getIdleNum());
+
+        Connection third = pool.getConnection();
+        assertEquals(2, driver.opened.get());
+        third.close();
+        second.close();
+        assertEquals(0, pool.getActiveNum());
+        assertEquals(2, pool.getIdleNum());
+        pool.close();
+        assertEquals(0, pool.getIdleNum());
+    }
+}
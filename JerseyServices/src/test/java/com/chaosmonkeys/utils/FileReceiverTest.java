@@ -0,0 +1,68 @@
+package com.chaosmonkeys.utils;
+
+import com.chaosmonkeys.Utilities.FileReceiver;
+import com.chaosmonkeys.Utilities.SyncPolicy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static com.chaosmonkeys.utils.testtools.TestUtils.randomBytes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Testing receiving uploads through NIO channels
+ */
+public class FileReceiverTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReceiveStreamLargerThanBuffer() throws IOException {
+        byte[] content = randomBytes(100 * 1024 + 7);
+        for (boolean direct : new boolean[]{true, false}) {
+            File target = new File(folder.getRoot(), "upload-" + direct + ".csv");
+            FileReceiver receiver = new FileReceiver(16 * 1024, direct, SyncPolicy.DATA);
+
+            FileReceiver.ReceiveStats stats = receiver.receive(new ByteArrayInputStream(content), target, -1);
+
+            assertEquals(content.length, stats.getBytes());
+            assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        }
+    }
+
+    @Test
+    public void testReceiveFromFileReplacesTarget() throws IOException {
+        byte[] content = randomBytes(50 * 1024);
+        File source = folder.newFile("source.bin");
+        Files.write(source.toPath(), content);
+        File target = folder.newFile("target.bin");
+        Files.write(target.toPath(), randomBytes(200 * 1024));
+
+        try (InputStream in = new FileInputStream(source)) {
+            FileReceiver.ReceiveStats stats = new FileReceiver(8 * 1024, true, SyncPolicy.ALL).receive(in, target, content.length);
+            assertEquals(content.length, stats.getBytes());
+        }
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void testRefuseUploadLargerThanDisk() {
+        File target = new File(folder.getRoot(), "huge.csv");
+        try {
+            new FileReceiver(8 * 1024, false, SyncPolicy.NONE).receive(new ByteArrayInputStream(new byte[1]), target, Long.MAX_VALUE);
+            fail("upload larger than the free space must be refused");
+        } catch (IOException e) {
+            assertFalse(target.exists());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.chaosmonkeys.utils;
+
+import com.chaosmonkeys.Utilities.FileUtils;
+import com.chaosmonkeys.Utilities.StagingMode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+
+import static com.chaosmonkeys.utils.testtools.TestUtils.readFile;
+import static com.chaosmonkeys.utils.testtools.TestUtils.writeFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing staging resources into a workspace
+ */
+public class FileUtilsStagingTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLinkStagingKeepsStructureAndContent() throws IOException {
+        File algorithm = folder.newFolder("algorithm");
+        File main = writeFile(new File(algorithm, "Main.R"), "source('lib/util.R')");
+        File util = writeFile(new File(algorithm, "lib" + File.separator + "util.R"), "f <- function() 1");
+        assertTrue(main.setWritable(false, false) && util.setWritable(false, false));
+        File workspace = folder.newFolder("workspace");
+
+        FileUtils.stageDirectory(algorithm, workspace, StagingMode.LINK);
+
+        assertEquals("source('lib/util.R')", readFile(new File(workspace, "Main.R")));
+        assertEquals("f <- function() 1", readFile(new File(workspace, "lib" + File.separator + "util.R")));
+        // folders are real so the experiment can add files next to linked ones
+        assertFalse(Files.isSymbolicLink(new File(workspace, "lib").toPath()));
+        assertTrue(Files.isSameFile(main.toPath(), new File(workspace, "Main.R").toPath()));
+    }
+
+    @Test
+    public void testLinkStagingCopiesWritableSourceWithoutChangingIt() throws IOException {
+        File dataset = folder.newFile("data.csv");
+        writeFile(dataset, "a,b\n1,2\n");
+        File input = new File(folder.getRoot(), "workspace" + File.separator + "input");
+
+        FileUtils.stageFileToDirectory(dataset, input, StagingMode.LINK);
+
+        File staged = new File(input, "data.csv");
+        assertEquals("a,b\n1,2\n", readFile(staged));
+        assertFalse(Files.isSameFile(dataset.toPath(), staged.toPath()));
+        assertFalse(Files.isSymbolicLink(staged.toPath()));
+        if (Files.getFileStore(dataset.toPath()).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            assertTrue(Files.getPosixFilePermissions(dataset.toPath()).contains(PosixFilePermission.OWNER_WRITE));
+        }
+    }
+
+    @Test
+    public void testCopyStagingIsIndependent() throws IOException {
+        File dataset = folder.newFile("data.csv");
+        writeFile(dataset, "a,b\n1,2\n");
+        File input = new File(folder.getRoot(), "input");
+
+        FileUtils.stageFileToDirectory(dataset, input, StagingMode.COPY);
+        writeFile(dataset, "changed");
+
+        assertEquals("a,b\n1,2\n", readFile(new File(input, "data.csv")));
+    }
+
+    @Test
+    public void testParseStagingMode() {
+        assertEquals(StagingMode.LINK, StagingMode.parse(" Link ", StagingMode.COPY));
+        assertEquals(StagingMode.COPY, StagingMode.parse(null, StagingMode.COPY));
+    }
+}
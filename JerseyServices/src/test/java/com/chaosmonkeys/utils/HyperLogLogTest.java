@@ -0,0 +1,46 @@
+package com.chaosmonkeys.utils;
+
+import com.chaosmonkeys.Utilities.HyperLogLog;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing the distinct count estimate of HyperLogLog
+ */
+public class HyperLogLogTest {
+
+    @Test
+    public void testSmallCardinalityIsNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (int repeat = 0; repeat < 5; repeat++) {
+            for (int i = 0; i < 100; i++) {
+                sketch.offer(HyperLogLog.hash("value-" + i));
+            }
+        }
+        assertEquals(100, sketch.estimate(), 2);
+    }
+
+    @Test
+    public void testLargeCardinalityWithinError() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        int distinct = 200000;
+        for (int i = 0; i < distinct; i++) {
+            sketch.offer(HyperLogLog.hash(Integer.toString(i)));
+        }
+        double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+        // standard error is 1.6%, allow three of them
+        assertTrue("error " + error, error < 0.05);
+    }
+
+    @Test
+    public void testIncrementalHashMatchesBytes() {
+        long hash = HyperLogLog.hashStart();
+        for (byte b : new byte[]{'a', 'b'}) {
+            hash = HyperLogLog.hashByte(hash, b);
+        }
+        long again = HyperLogLog.hashByte(HyperLogLog.hashByte(HyperLogLog.hashStart(), 'a'), 'b');
+        assertEquals(again, hash);
+    }
+}
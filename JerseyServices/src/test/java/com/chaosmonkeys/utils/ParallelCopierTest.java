@@ -0,0 +1,59 @@
+package com.chaosmonkeys.utils;
+
+import com.chaosmonkeys.Utilities.CopyMonitor;
+import com.chaosmonkeys.Utilities.ParallelCopier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Testing parallel copy of experiment resources
+ */
+public class ParallelCopierTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCopyDirectoryTree() throws IOException {
+        File src = folder.newFolder("src");
+        long expectedBytes = 0;
+        for (int i = 0; i < 20; i++) {
+            File file = new File(src, "dir" + (i % 4) + File.separator + "file" + i + ".txt");
+            file.getParentFile().mkdirs();
+            byte[] content = ("content of file " + i).getBytes(StandardCharsets.UTF_8);
+            Files.write(file.toPath(), content);
+            expectedBytes += content.length;
+        }
+        File dest = new File(folder.getRoot(), "dest");
+        CopyMonitor monitor = new CopyMonitor();
+
+        ParallelCopier.copyDirectory(src, dest, monitor);
+
+        assertEquals(expectedBytes, monitor.getBytesCopied());
+        assertEquals("content of file 13",
+                new String(Files.readAllBytes(new File(dest, "dir1" + File.separator + "file13.txt").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = InterruptedIOException.class)
+    public void testCancelledCopyStops() throws IOException {
+        File src = folder.newFolder("src");
+        Files.write(new File(src, "data.csv").toPath(), "a,b".getBytes(StandardCharsets.UTF_8));
+        CopyMonitor monitor = new CopyMonitor();
+        monitor.cancel();
+
+        try {
+            ParallelCopier.copyDirectory(src, new File(folder.getRoot(), "dest"), monitor);
+        } finally {
+            assertFalse(new File(folder.getRoot(), "dest" + File.separator + "data.csv").exists());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.chaosmonkeys.utils;
+
+import com.chaosmonkeys.Utilities.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing that only the newest task logs are kept
+ */
+public class TaskLogPruningTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testOldestLogsAreDeleted() throws IOException {
+        File logFolder = folder.newFolder("TaskLogs");
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            File log = new File(logFolder, "task" + i + ".log");
+            assertTrue(log.createNewFile());
+            assertTrue(log.setLastModified(now - (5 - i) * 60000L));
+        }
+        File other = new File(logFolder, "notes.txt");
+        assertTrue(other.createNewFile());
+        assertTrue(other.setLastModified(now - 3600000L));
+
+        FileUtils.pruneLogFiles(logFolder, 3);
+
+        assertFalse(new File(logFolder, "task0.log").exists());
+        assertFalse(new File(logFolder, "task1.log").exists());
+        for (int i = 2; i < 5; i++) {
+            assertTrue(new File(logFolder, "task" + i + ".log").exists());
+        }
+        // only log files are counted and deleted
+        assertTrue(other.exists());
+        assertEquals(4, logFolder.list().length);
+    }
+
+    @Test
+    public void testNothingDeletedBelowLimit() throws IOException {
+        File logFolder = folder.newFolder("TaskLogs");
+        assertTrue(new File(logFolder, "a.log").createNewFile());
+
+        FileUtils.pruneLogFiles(logFolder, 3);
+        FileUtils.pruneLogFiles(new File(logFolder, "missing"), 3);
+
+        assertTrue(new File(logFolder, "a.log").exists());
+    }
+}
@@ -0,0 +1,94 @@
+package com.chaosmonkeys.utils;
+
+import com.chaosmonkeys.Utilities.Constants;
+import com.chaosmonkeys.Utilities.ZipUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.chaosmonkeys.utils.testtools.TestUtils.zip;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Testing extracting algorithm archives from a stream
+ */
+public class ZipUtilsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        ZipUtils.setLimits(Constants.DEFAULT_UNZIP_MAX_SIZE_MB, Constants.DEFAULT_UNZIP_MAX_ENTRIES);
+    }
+
+    @Test
+    public void testUnzipFromStream() throws IOException {
+        byte[] zip = zip("Main.R", "print(1)", "lib/util.R", "f <- function() 2");
+        File dest = new File(folder.getRoot(), "algr");
+
+        long bytes = ZipUtils.unzip(new ByteArrayInputStream(zip), dest, null);
+
+        assertEquals(25, bytes);
+        assertEquals("f <- function() 2", new String(Files.readAllBytes(new File(dest, "lib/util.R").toPath()), StandardCharsets.UTF_8));
+        assertTrue(new File(dest, "Main.R").isFile());
+    }
+
+    @Test
+    public void testRejectZipSlip() throws IOException {
+        byte[] zip = zip("../evil.R", "system('rm -rf /')");
+        File dest = new File(folder.getRoot(), "algr");
+        try {
+            ZipUtils.unzip(new ByteArrayInputStream(zip), dest, null);
+            fail("entries outside of the target folder must be rejected");
+        } catch (IOException e) {
+            assertFalse(new File(folder.getRoot(), "evil.R").exists());
+        }
+    }
+
+    @Test
+    public void testEnforceLimits() throws IOException {
+        ZipUtils.setLimits(1, 2);
+        byte[] tooMany = zip("a", "1", "b", "2", "c", "3");
+        try {
+            ZipUtils.unzip(new ByteArrayInputStream(tooMany), new File(folder.getRoot(), "many"), null);
+            fail("archives with too many entries must be rejected");
+        } catch (IOException e) {
+            assertFalse(new File(folder.getRoot(), "many/c").exists());
+        }
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 1024 * 1024 + 1; i++) {
+            large.append('0');
+        }
+        try {
+            ZipUtils.unzip(new ByteArrayInputStream(zip("bomb", large.toString())), new File(folder.getRoot(), "bomb"), null);
+            fail("archives extracting to more than the limit must be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testListenerSeesEveryEntryInOrder() throws IOException {
+        byte[] zip = zip("algr/", "", "algr/Main.R", "print(1)", "algr/data.csv", "a,b");
+        File dest = new File(folder.getRoot(), "algr");
+        List<String> entries = new ArrayList<>();
+
+        ZipUtils.unzip(new ByteArrayInputStream(zip), dest, entries::add);
+
+        assertEquals(Arrays.asList("algr/", "algr/Main.R", "algr/data.csv"), entries);
+        assertTrue(new File(dest, "algr/data.csv").isFile());
+    }
+}
@@ -6,7 +6,12 @@ import junit.framework.AssertionFailedError;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -56,6 +61,15 @@ public abstract class TestUtils {
         }
     }
 
+    /**
+     * @return bytes which are random but the same for the same size
+     */
+    public static byte[] randomBytes(final int size) {
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
     public static void createLineBasedFile(final File file, final String[] data) throws IOException {
         if (file.getParentFile() != null && !file.getParentFile().exists()) {
             throw new IOException("Cannot create file " + file + " as the parent directory does not exist");
@@ -67,6 +81,37 @@ public abstract class TestUtils {
         }
     }
 
+    /**
+     * Write a UTF-8 text file, creating its parent folders
+     * @return the written file
+     */
+    public static File writeFile(final File file, final String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    public static String readFile(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Zip text entries in memory, a name ending with / is a folder entry
+     * @param namesAndContents name of every entry followed by its content
+     * @return zip content
+     */
+    public static byte[] zip(final String... namesAndContents) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                out.putNextEntry(new ZipEntry(namesAndContents[i]));
+                out.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
     public static File newFile(File testDirectory, final String filename) throws IOException {
         final File destination = new File(testDirectory, filename);
         /*